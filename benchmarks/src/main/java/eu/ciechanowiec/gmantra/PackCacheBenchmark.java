@@ -0,0 +1,96 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the validation of commit messages of a history with long messages, i.e. with large pack files,
+ * read through the JGit cache of pack files configured in different ways:
+ * <ul>
+ *     <li>'{@code JGIT_DEFAULTS}' - with the defaults of JGit;</li>
+ *     <li>'{@code AUTOMATIC}' - with settings chosen by {@link PackCacheSettings} from the size of pack files;</li>
+ *     <li>'{@code MMAP}' - as '{@code AUTOMATIC}', but with memory-mapped pack files.</li>
+ * </ul>
+ * Neither the verdict cache nor the commit-graph file is used, so every invocation loads all commits.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PackCacheBenchmark {
+
+    private static final ValidationSettings SETTINGS = ValidationSettings.builder()
+                                                                         .useVerdictCache(false)
+                                                                         .useCommitGraph(false)
+                                                                         .build();
+
+    @State(Scope.Benchmark)
+    @SuppressWarnings({"WeakerAccess", "PublicField"})
+    public static class LargePackState {
+
+        @Param("1000000")
+        public int numOfCommits;
+
+        @Param("0.1")
+        public double mergeRatio;
+
+        @Param("2000")
+        public int messageLength;
+
+        @Param({"JGIT_DEFAULTS", "AUTOMATIC", "MMAP"})
+        public String packCache;
+
+        Repository repository;
+        RepositoryRequirements requirements;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            File workingDirectory = new SyntheticRepository(numOfCommits, mergeRatio, messageLength).getOrCreate();
+            repository = new RepositoryProvider(workingDirectory).get();
+            requirements = RepositoryRequirements.builder()
+                                                 .allowedBranchesRegex(SyntheticRepository.ALLOWED_BRANCHES_REGEX)
+                                                 .allowedCommitMessagesRegex(
+                                                         SyntheticRepository.ALLOWED_COMMIT_MESSAGES_REGEX
+                                                 )
+                                                 .build();
+            switch (packCache) {
+                case "JGIT_DEFAULTS":
+                    new WindowCacheConfig().install();
+                    break;
+                case "MMAP":
+                    PackCacheSettings.builder().packedGitMmap(true).build().install(repository);
+                    break;
+                default:
+                    PackCacheSettings.automatic().install(repository);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            repository.close();
+        }
+    }
+
+    @Benchmark
+    public ValidationResult messageValidatorValidate(LargePackState state) {
+        return new MessageValidator(state.repository, state.requirements, SETTINGS).validate();
+    }
+}
@@ -0,0 +1,149 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generator of synthetic Git repositories with a history of the specified shape. Commits are written
+ * into a single pack, so even histories of millions of commits are generated in seconds. The history
+ * is generated deterministically, so repositories generated for the same parameters are identical.
+ * <p>
+ * Generated repositories are stored in the directory specified by the '{@code gmantra.benchmark.directory}'
+ * system property, by default in the '{@code gmantra-benchmarks}' subdirectory of the temporary directory,
+ * and reused by subsequent benchmark runs. They are never removed automatically.
+ */
+final class SyntheticRepository {
+
+    static final String BRANCH_NAME = "main";
+    static final String ALLOWED_BRANCHES_REGEX = "main|feature/.+";
+    static final String ALLOWED_COMMIT_MESSAGES_REGEX = "^[A-Z]+-[0-9]+: .+";
+
+    private static final int INVALID_COMMITS_INTERVAL = 1000;
+    private static final int SUBJECT_LENGTH = 72;
+    private static final long SEED = 2024;
+    private static final long FIRST_COMMIT_TIME = 1_700_000_000;
+    private static final String[] WORDS = {
+            "validate", "branch", "commit", "message", "history", "pattern", "repository", "walk", "cache", "graph"
+    };
+
+    private final int numOfCommits;
+    private final double mergeRatio;
+    private final int messageLength;
+    private final Random random;
+
+    /**
+     * Constructs an instance of this class.
+     * @param numOfCommits number of commits in the generated history, including merge commits
+     * @param mergeRatio probability that a commit of the mainline is followed by a merge of a side branch
+     *                   consisting of one commit; both the side commit and the merge commit count
+     *                   towards the number of commits
+     * @param messageLength length of every commit message; the first {@value SUBJECT_LENGTH} characters
+     *                      constitute the first line, the rest constitutes the body of the message
+     */
+    SyntheticRepository(int numOfCommits, double mergeRatio, int messageLength) {
+        this.numOfCommits = numOfCommits;
+        this.mergeRatio = mergeRatio;
+        this.messageLength = messageLength;
+        this.random = new Random(SEED);
+    }
+
+    /**
+     * Returns the working directory of the repository, generating the repository if it hasn't been
+     * generated yet. About every thousandth commit has a message that violates
+     * {@link #ALLOWED_COMMIT_MESSAGES_REGEX}, and the current branch is {@value BRANCH_NAME}.
+     * @return working directory of the repository
+     * @throws IOException if the repository cannot be generated
+     */
+    File getOrCreate() throws IOException {
+        String name = String.format(Locale.ROOT, "%d-commits-%.2f-merges-%d-chars", numOfCommits, mergeRatio,
+                                    messageLength);
+        Path workingDirectory = Path.of(
+                System.getProperty("gmantra.benchmark.directory", System.getProperty("java.io.tmpdir")),
+                "gmantra-benchmarks", name
+        );
+        Path completionMarker = workingDirectory.resolve("complete");
+        if (!Files.exists(completionMarker)) {
+            create(workingDirectory);
+            Files.createFile(completionMarker);
+        }
+        return workingDirectory.toFile();
+    }
+
+    private void create(Path workingDirectory) throws IOException {
+        Files.createDirectories(workingDirectory);
+        try (FileRepository repository = new FileRepository(workingDirectory.resolve(Constants.DOT_GIT).toFile())) {
+            repository.create(false);
+            ObjectId head = writeHistory(repository);
+            String branchRef = Constants.R_HEADS + BRANCH_NAME;
+            RefUpdate branchUpdate = repository.updateRef(branchRef);
+            branchUpdate.setNewObjectId(head);
+            branchUpdate.forceUpdate();
+            repository.updateRef(Constants.HEAD).link(branchRef);
+        }
+    }
+
+    private ObjectId writeHistory(FileRepository repository) throws IOException {
+        try (ObjectInserter inserter = repository.getObjectDatabase().newPackInserter()) {
+            ObjectId tree = inserter.insert(new TreeFormatter());
+            ObjectId previous = inserter.insert(commit(tree, 0, message(0)));
+            ObjectId head = inserter.insert(commit(tree, 1, message(1), previous));
+            int commitIndex = 2;
+            while (commitIndex < numOfCommits) {
+                ObjectId next;
+                if (random.nextDouble() < mergeRatio && commitIndex + 1 < numOfCommits) {
+                    ObjectId side = inserter.insert(commit(tree, commitIndex, message(commitIndex), previous));
+                    commitIndex++;
+                    String mergeMessage = String.format("Merge branch 'feature/%d'", commitIndex);
+                    next = inserter.insert(commit(tree, commitIndex, mergeMessage, head, side));
+                } else {
+                    next = inserter.insert(commit(tree, commitIndex, message(commitIndex), head));
+                }
+                previous = head;
+                head = next;
+                commitIndex++;
+            }
+            inserter.flush();
+            return head;
+        }
+    }
+
+    private CommitBuilder commit(ObjectId tree, int commitIndex, String message, ObjectId... parents) {
+        PersonIdent person = new PersonIdent(
+                "Herman Ciechanowiec", "herman@example.com",
+                Instant.ofEpochSecond(FIRST_COMMIT_TIME + commitIndex), ZoneOffset.UTC
+        );
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setAuthor(person);
+        commit.setCommitter(person);
+        commit.setMessage(message);
+        commit.setParentIds(parents);
+        return commit;
+    }
+
+    private String message(int commitIndex) {
+        String prefix = commitIndex % INVALID_COMMITS_INTERVAL == 0 ? "Invalid" : String.format("GM-%d:", commitIndex);
+        StringBuilder message = new StringBuilder(prefix);
+        while (message.length() < messageLength) {
+            boolean isEndOfSubject = message.length() >= SUBJECT_LENGTH && message.indexOf("\n") < 0;
+            message.append(isEndOfSubject ? "\n\n" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        message.setLength(Math.max(messageLength, prefix.length()));
+        return message.toString().strip() + "\n";
+    }
+}
@@ -0,0 +1,50 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Synthetic repository shared by all invocations of a benchmark within a single trial.
+ */
+@State(Scope.Benchmark)
+@SuppressWarnings({"WeakerAccess", "PublicField"})
+public class SyntheticRepositoryState {
+
+    @Param({"10000", "100000", "1000000"})
+    public int numOfCommits;
+
+    @Param("0.1")
+    public double mergeRatio;
+
+    @Param("200")
+    public int messageLength;
+
+    File workingDirectory;
+    Repository repository;
+    RepositoryRequirements requirements;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workingDirectory = new SyntheticRepository(numOfCommits, mergeRatio, messageLength).getOrCreate();
+        repository = new RepositoryProvider(workingDirectory).get();
+        requirements = RepositoryRequirements.builder()
+                                             .allowedBranchesRegex(SyntheticRepository.ALLOWED_BRANCHES_REGEX)
+                                             .allowedCommitMessagesRegex(
+                                                     SyntheticRepository.ALLOWED_COMMIT_MESSAGES_REGEX
+                                             )
+                                             .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        repository.close();
+    }
+}
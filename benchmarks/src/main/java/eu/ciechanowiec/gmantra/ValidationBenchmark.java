@@ -0,0 +1,44 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.Repository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of particular stages of the validation. The verdict cache is disabled, so every invocation
+ * of {@link #messageValidatorValidate(SyntheticRepositoryState)} validates the whole history.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValidationBenchmark {
+
+    private static final ValidationSettings SETTINGS = ValidationSettings.builder().useVerdictCache(false).build();
+
+    @Benchmark
+    public File repositoryProviderGet(SyntheticRepositoryState state) {
+        try (Repository repository = new RepositoryProvider(state.workingDirectory).get()) {
+            return repository.getDirectory();
+        }
+    }
+
+    @Benchmark
+    public ValidationResult branchValidatorValidate(SyntheticRepositoryState state) {
+        return new BranchValidator(state.repository, state.requirements, SETTINGS).validate();
+    }
+
+    @Benchmark
+    public ValidationResult messageValidatorValidate(SyntheticRepositoryState state) {
+        return new MessageValidator(state.repository, state.requirements, SETTINGS).validate();
+    }
+}
@@ -0,0 +1,64 @@
+package eu.ciechanowiec.gmantra;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark of the whole plugin execution, as performed by Maven: opening of the repository, validation
+ * of the branch name and of commit messages, and reporting of violations. The execution uses the verdict
+ * cache, which is either removed before every invocation ('{@code cold}') or kept between invocations
+ * ('{@code warm}'), as in subsequent builds of an unchanged repository.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValidatorMojoBenchmark {
+
+    @State(Scope.Benchmark)
+    @SuppressWarnings({"WeakerAccess", "PublicField"})
+    public static class VerdictCacheState {
+
+        @Param({"cold", "warm"})
+        public String verdictCache;
+
+        @Setup(Level.Invocation)
+        public void setUp(SyntheticRepositoryState state) throws IOException {
+            Path cacheDirectory = state.repository.getDirectory().toPath().resolve("gmantra");
+            boolean isCold = "cold".equals(verdictCache);
+            if (isCold && Files.exists(cacheDirectory)) {
+                try (Stream<Path> paths = Files.walk(cacheDirectory)) {
+                    for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                        Files.delete(path);
+                    }
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void validatorMojoExecute(SyntheticRepositoryState state, VerdictCacheState verdictCacheState) {
+        new ValidatorMojo(
+                state.workingDirectory, false, SyntheticRepository.ALLOWED_BRANCHES_REGEX,
+                SyntheticRepository.ALLOWED_COMMIT_MESSAGES_REGEX, true, "", true
+        ).execute();
+    }
+}
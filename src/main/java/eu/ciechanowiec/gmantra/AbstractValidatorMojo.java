@@ -0,0 +1,296 @@
+package eu.ciechanowiec.gmantra;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Base of {@link ValidatorMojo} with parameters that influence how the validation is performed and reported,
+ * but not what its verdict is: {@link ValidationSettings}, {@link PackCacheSettings}, metrics and reports.
+ */
+@SuppressWarnings(
+        {"unused", "PMD.AvoidDuplicateLiterals", "InstanceVariableMayNotBeInitialized", "ClassWithTooManyFields",
+         "PMD.TooManyFields", "PMD.AbstractClassWithoutAbstractMethod"}
+)
+abstract class AbstractValidatorMojo extends AbstractMojo {
+
+    /**
+     * '{@code true}' if verdicts of already validated commits should be persisted in the
+     * '{@code gmantra}' subdirectory of the git directory and reused by subsequent plugin executions;
+     * '{@code false}' otherwise. If enabled, only commits that haven't been validated by previous
+     * executions with the same configuration are checked, so the validation of a large history is performed only
+     * once. The verdict cache isn't used if any of the '{@code startCommitDate}', '{@code maxCommitAge}',
+     * '{@code maxCommits}' and '{@code baseRef}' settings is set. Neither is it used if the '{@code failFast}'
+     * or the '{@code maxReportedViolations}' setting is set, nor in the '{@code allRefs}' mode.
+     * <br>
+     * The default value is '{@code true}'.
+     */
+    @Parameter(property = "gmantra.useVerdictCache", defaultValue = "true")
+    private boolean useVerdictCache;
+
+    /**
+     * '{@code true}' if verdicts should be persisted in Git notes (<i>refs/notes/gmantra</i>) instead of the
+     * '{@code gmantra}' subdirectory, so they can be shared by fetching and pushing that reference, e.g. between
+     * CI agents; '{@code false}' otherwise. Ignored if '{@code useVerdictCache}' is '{@code false}'.
+     * The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.useVerdictNotes", defaultValue = "false")
+    private boolean useVerdictNotes;
+
+    /**
+     * '{@code true}' if the commit-graph file of the repository (<i>.git/objects/info/commit-graph</i>), if it exists,
+     * should be used during the validation of commit messages; '{@code false}' otherwise. The commit-graph file
+     * provides parents and commit times of commits, so the walk over the history loads only commits whose messages
+     * are actually validated. The file is written by Git itself, e.g. by <i>git commit-graph write</i> or
+     * <i>git gc</i>. If the '{@code core.commitGraph}' option is explicitly set in the Git configuration,
+     * that option takes precedence.
+     * <br>
+     * The default value is '{@code true}'.
+     */
+    @Parameter(property = "gmantra.useCommitGraph", defaultValue = "true")
+    private boolean useCommitGraph;
+
+    /**
+     * '{@code true}' if the commit-graph file of the repository should be written by the plugin whenever
+     * it doesn't exist yet or doesn't cover the HEAD; '{@code false}' otherwise. Writing the file requires
+     * a walk over the whole history, so it is worth enabling for large repositories that are validated often
+     * and aren't maintained by <i>git gc</i>. Ignored if '{@code useCommitGraph}' is '{@code false}'.
+     * <br>
+     * The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.writeCommitGraph", defaultValue = "false")
+    private boolean writeCommitGraph;
+
+    /**
+     * The number of threads that match commit messages against the '{@code allowedCommitMessagesRegex}'.
+     * Commits are still walked by a single thread, but their messages are matched in batches of
+     * 1024 commits concurrently, which speeds up the validation of large
+     * histories against expensive regular expressions. Violations are reported in the same order regardless
+     * of this value, and histories that fit into a single batch are always matched sequentially.
+     * A non-positive value means the number of available processors.
+     * <br>
+     * The default value is '{@code 1}', which means that commit messages are matched sequentially.
+     */
+    @Parameter(property = "gmantra.parallelism", defaultValue = "1")
+    private int parallelism;
+
+    /**
+     * The engine that matches branch names and commit messages against regular expressions:
+     * <ul>
+     *     <li>'{@code JAVA}' - the engine of Java, which supports the full syntax of Java regular expressions,
+     *     but uses backtracking, so badly written regular expressions (e.g. with nested quantifiers) might take
+     *     very long to match;</li>
+     *     <li>'{@code AUTOMATON}' - an automaton-based engine, which matches in time linear in the length
+     *     of the matched text. Regular expressions that use constructs unsupported by automata, like
+     *     backreferences or lookarounds, are matched by the '{@code JAVA}' engine instead.</li>
+     * </ul>
+     * The default value is '{@code JAVA}'.
+     */
+    @Parameter(property = "gmantra.regexEngine", defaultValue = "JAVA")
+    private RegexEngine regexEngine;
+
+    /**
+     * An ISO-8601 duration (e.g. <i>PT5S</i> for 5 seconds) that limits the time of matching of a single
+     * branch name or commit message by the '{@code JAVA}' regex engine. If the limit is exceeded, the plugin
+     * execution fails with an error that points to the regular expression and the matched text, instead of
+     * stalling the build. A zero duration means no limit. If the value cannot be parsed, a warning is issued,
+     * and the default value is used.
+     * <br>
+     * The default value is '{@code PT5S}'.
+     */
+    @Parameter(property = "gmantra.matchTimeout", defaultValue = "PT5S")
+    private String matchTimeout;
+
+    /**
+     * The path to a file which metrics of the plugin execution should be written to as JSON: durations
+     * of particular phases of the execution, numbers of walked, skipped, matched and violated commits,
+     * and the growth of the peak heap memory usage. A one-line summary of the same metrics is always logged.
+     * If set to an empty value, the file isn't written.
+     * <br>
+     * The default value is '<i>${project.build.directory}/gmantra-metrics.json</i>'.
+     */
+    @Parameter(property = "gmantra.metricsFile", defaultValue = "${project.build.directory}/gmantra-metrics.json")
+    private String metricsFile;
+
+    /**
+     * The formats of machine-readable reports of violations that should be written to the
+     * '{@code reportsDirectory}':
+     * <ul>
+     *     <li>'{@code JSON_LINES}' - one JSON object per violation per line (<i>gmantra-violations.jsonl</i>);</li>
+     *     <li>'{@code JUNIT_XML}' - JUnit XML, understood by most CI servers (<i>TEST-gmantra.xml</i>);</li>
+     *     <li>'{@code SARIF}' - SARIF 2.1.0, understood by code scanning tools (<i>gmantra.sarif</i>).</li>
+     * </ul>
+     * Every violation is reported with structured fields: the violated rule, the ID and the time of the commit,
+     * the first line of the commit message and the pattern that wasn't matched. Violations are written as soon
+     * as they are found, so the numbers of tests and failures of the JUnit XML report are written in a trailing
+     * summary suite.
+     * <br>
+     * By default, no reports are written.
+     */
+    @Parameter(property = "gmantra.reportFormats")
+    private List<ReportFormat> reportFormats;
+
+    /**
+     * The directory which machine-readable reports of violations should be written to.
+     * <br>
+     * The default value is '<i>${project.build.directory}/gmantra-reports</i>'.
+     */
+    @Parameter(property = "gmantra.reportsDirectory", defaultValue = "${project.build.directory}/gmantra-reports")
+    private File reportsDirectory;
+
+    /**
+     * The maximal number of violations that are logged. If there are more violations, only the first ones
+     * are logged, followed by the number of the remaining ones; all violations are still written to reports.
+     * A non-positive value means no limit.
+     * <br>
+     * The default value is '{@code 100}'.
+     */
+    @Parameter(property = "gmantra.maxLoggedViolations", defaultValue = "100")
+    private int maxLoggedViolations;
+
+    /**
+     * '{@code true}' if the validation should stop as soon as the first violation is found; '{@code false}'
+     * otherwise. In this mode, commit messages aren't validated at all if the name of the current branch
+     * is already invalid, and the walk over the history stops at the first commit with an invalid message,
+     * so builds that are going to fail anyway fail as early as possible. Only the first violation is reported.
+     * If enabled, the '{@code maxReportedViolations}' setting is ignored.
+     * <br>
+     * The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.failFast", defaultValue = "false")
+    private boolean failFast;
+
+    /**
+     * The maximal number of reported violations. Once that many violations are found, the validation stops,
+     * including the walk over the history, and only the violations found so far are reported.
+     * <br>
+     * The default value is '{@code 0}', which means no limit.
+     */
+    @Parameter(property = "gmantra.maxReportedViolations", defaultValue = "0")
+    private int maxReportedViolations;
+
+    /**
+     * The maximal number of bytes of pack files that JGit caches in memory at once, optionally with
+     * a '{@code k}', '{@code m}' or '{@code g}' suffix (e.g. <i>512m</i>). Together with other settings of the pack
+     * cache, it takes precedence over the '{@code core.packedGitLimit}' option of the Git configuration.
+     * <br>
+     * By default, this value isn't set. If it isn't set in the Git configuration either, it is chosen from the total
+     * size of pack files of the repository, up to a quarter of the maximal heap size. If the value cannot be parsed,
+     * a warning is issued, and the plugin execution proceeds as if this value wasn't specified.
+     */
+    @Parameter(property = "gmantra.packedGitLimit")
+    private String packedGitLimit;
+
+    /**
+     * The number of bytes of a pack file that JGit reads at once, optionally with a '{@code k}' or '{@code m}' suffix
+     * (e.g. <i>64k</i>). The value is rounded down to a power of two and is at least <i>4k</i>.
+     * <br>
+     * By default, this value isn't set. If it isn't set in the Git configuration ('{@code core.packedGitWindowSize}')
+     * either, <i>64k</i> is used for repositories with pack files larger than <i>256m</i> in total and the default
+     * of JGit (<i>8k</i>) otherwise.
+     */
+    @Parameter(property = "gmantra.packedGitWindowSize")
+    private String packedGitWindowSize;
+
+    /**
+     * '{@code true}' if pack files should be memory-mapped instead of read into the heap; '{@code false}' otherwise.
+     * <br>
+     * By default, this value isn't set. If it isn't set in the Git configuration ('{@code core.packedGitMmap}')
+     * either, pack files are memory-mapped if they don't fit into a quarter of the maximal heap size, unless
+     * the operating system is Windows, where memory-mapped files cannot be deleted.
+     */
+    @Parameter(property = "gmantra.packedGitMmap")
+    private Boolean packedGitMmap;
+
+    /**
+     * The maximal number of bytes of the cache of delta bases, i.e. of objects that deltified objects
+     * are based on, optionally with a '{@code k}', '{@code m}' or '{@code g}' suffix (e.g. <i>64m</i>).
+     * <br>
+     * By default, this value isn't set. If it isn't set in the Git configuration ('{@code core.deltaBaseCacheLimit}')
+     * either, it is chosen from the total size of pack files of the repository, but isn't lower than the default
+     * of JGit (<i>10m</i>).
+     */
+    @Parameter(property = "gmantra.deltaBaseCacheLimit")
+    private String deltaBaseCacheLimit;
+
+    /**
+     * The size of objects, optionally with a '{@code k}', '{@code m}' or '{@code g}' suffix (e.g. <i>50m</i>),
+     * from which JGit streams objects instead of loading them into the heap.
+     * <br>
+     * By default, this value isn't set. If it isn't set in the Git configuration ('{@code core.streamFileThreshold}')
+     * either, the default of JGit (<i>50m</i>) is used, but no more than a quarter of the maximal heap size.
+     */
+    @Parameter(property = "gmantra.streamFileThreshold")
+    private String streamFileThreshold;
+
+    AbstractValidatorMojo() {
+        // Values of parameters are injected by Maven
+    }
+
+    /**
+     * Constructs an instance of this class for executions outside Maven, which doesn't inject values of parameters.
+     * @param settings settings whose values are assigned to the respective parameters
+     */
+    AbstractValidatorMojo(ValidationSettings settings) {
+        useVerdictCache = settings.isUseVerdictCache();
+        useVerdictNotes = settings.isUseVerdictNotes();
+        useCommitGraph = settings.isUseCommitGraph();
+        writeCommitGraph = settings.isWriteCommitGraph();
+        parallelism = settings.getParallelism();
+        regexEngine = settings.getRegexEngine();
+        matchTimeout = settings.getMatchTimeout().toString();
+        failFast = settings.isFailFast();
+        maxReportedViolations = settings.getMaxReportedViolations();
+    }
+
+    ValidationSettings settings() {
+        return ValidationSettings.builder()
+                                 .useVerdictCache(useVerdictCache)
+                                 .useVerdictNotes(useVerdictNotes)
+                                 .useCommitGraph(useCommitGraph)
+                                 .writeCommitGraph(writeCommitGraph)
+                                 .parallelism(parallelism)
+                                 .regexEngine(regexEngine)
+                                 .matchTimeout(ValidationSettings.parseMatchTimeout(matchTimeout))
+                                 .failFast(failFast)
+                                 .maxReportedViolations(maxReportedViolations)
+                                 .build();
+    }
+
+    PackCacheSettings packCacheSettings() {
+        return PackCacheSettings.builder()
+                                .packedGitLimit(packedGitLimit)
+                                .packedGitWindowSize(packedGitWindowSize)
+                                .packedGitMmap(packedGitMmap)
+                                .deltaBaseCacheLimit(deltaBaseCacheLimit)
+                                .streamFileThreshold(streamFileThreshold)
+                                .build();
+    }
+
+    Optional<Path> metricsFile() {
+        return Optional.ofNullable(metricsFile).filter(StringUtils::isNotBlank).map(Path::of);
+    }
+
+    /**
+     * Opens reports of violations in all configured formats, so that violations can be written to them
+     * as soon as they are found.
+     * @return opened reports; no report is written if no format or no directory is configured
+     */
+    ViolationReports openReports() {
+        List<ReportFormat> formats = Optional.ofNullable(reportsDirectory)
+                                             .flatMap(directory -> Optional.ofNullable(reportFormats))
+                                             .orElseGet(List::of);
+        Path directory = Optional.ofNullable(reportsDirectory).map(File::toPath).orElseGet(() -> Path.of(""));
+        return new ViolationReports(formats, directory);
+    }
+
+    void report(ValidationResult validationResult, ViolationReports reports) {
+        validationResult.logViolations(maxLoggedViolations);
+        reports.replay(validationResult);
+    }
+}
@@ -0,0 +1,122 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writer of a machine-readable report of violations. Violations are written one at a time right to the output,
+ * so the size of the report doesn't influence the memory consumed by writing it.
+ * <p>
+ * Every violation is reported as a set of structured fields: the violated rule, the path of the submodule,
+ * the ID and the time of the commit, the first line of the commit message, the pattern that wasn't matched
+ * and the human-readable description. Fields that don't apply to a violation, e.g. the commit ID of a violation
+ * of the branch name requirement or the path of the submodule of a violation found in the top-level repository,
+ * are omitted.
+ */
+abstract class AbstractViolationReportWriter {
+
+    private static final int FIRST_PRINTABLE_CHARACTER = 0x20;
+    private static final Set<Integer> XML_WHITESPACES = Set.of((int) '\t', (int) '\n', (int) '\r');
+    private static final Set<Integer> XML_NONCHARACTERS = Set.of(0xFFFE, 0xFFFF);
+    private static final Map<Character, String> JSON_ESCAPES = Map.of(
+            '"', "\\\"", '\\', "\\\\", '\n', "\\n", '\r', "\\r", '\t', "\\t"
+    );
+    private static final Map<Integer, String> XML_ESCAPES = Map.of(
+            (int) '&', "&amp;", (int) '<', "&lt;", (int) '>', "&gt;", (int) '"', "&quot;", (int) '\'', "&apos;"
+    );
+
+    private final Writer output;
+
+    AbstractViolationReportWriter(Writer output) {
+        this.output = output;
+    }
+
+    /**
+     * Writes the part of the report that precedes violations. The number of violations isn't known yet,
+     * because violations are written as soon as they are found.
+     */
+    abstract void begin();
+
+    /**
+     * Writes a single violation.
+     * @param violation violation to write
+     */
+    abstract void write(RequirementsViolation violation);
+
+    /**
+     * Writes the part of the report that follows violations.
+     * @param numOfViolations number of violations that have been written
+     */
+    abstract void end(int numOfViolations);
+
+    @SneakyThrows
+    void print(String text) {
+        output.write(text);
+    }
+
+    void printLine(String line) {
+        print(line);
+        print("\n");
+    }
+
+    static Map<String, String> fields(RequirementsViolation violation) {
+        return Stream.of(
+                Optional.of(Map.entry("rule", violation.getRule())),
+                violation.getRepositoryPath().map(path -> Map.entry("repository", path)),
+                violation.getCommitId().map(commitId -> Map.entry("commitId", commitId.name())),
+                violation.getCommitTime().map(commitTime -> Map.entry("commitTime", commitTime.toString())),
+                violation.getSubject().map(subject -> Map.entry("subject", subject)),
+                violation.getPattern().map(pattern -> Map.entry("pattern", pattern)),
+                Optional.of(Map.entry("message", violation.getMessage()))
+        ).flatMap(Optional::stream).collect(Collectors.toMap(
+                Map.Entry::getKey, Map.Entry::getValue, (first, second) -> first, LinkedHashMap::new
+        ));
+    }
+
+    static String json(Map<String, String> fields) {
+        return fields.entrySet()
+                     .stream()
+                     .map(field -> String.format("%s: %s", json(field.getKey()), json(field.getValue())))
+                     .collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    static String json(String text) {
+        return text.chars()
+                   .mapToObj(character -> jsonCharacter((char) character))
+                   .collect(Collectors.joining("", "\"", "\""));
+    }
+
+    static String xml(String text) {
+        return text.codePoints()
+                   .filter(AbstractViolationReportWriter::isXmlCharacter)
+                   .mapToObj(AbstractViolationReportWriter::xmlCharacter)
+                   .collect(Collectors.joining());
+    }
+
+    private static String jsonCharacter(char character) {
+        String unescaped = character < FIRST_PRINTABLE_CHARACTER ? String.format("\\u%04x", (int) character)
+                                                                 : String.valueOf(character);
+        return JSON_ESCAPES.getOrDefault(character, unescaped);
+    }
+
+    /**
+     * Checks whether the specified code point is allowed in XML 1.0 documents. Unpaired surrogates are passed
+     * as separate code points, so they are rejected as well.
+     */
+    private static boolean isXmlCharacter(int codePoint) {
+        boolean isSurrogate = codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE;
+        boolean isPrintable = codePoint >= FIRST_PRINTABLE_CHARACTER && !XML_NONCHARACTERS.contains(codePoint);
+        return XML_WHITESPACES.contains(codePoint) || isPrintable && !isSurrogate;
+    }
+
+    private static String xmlCharacter(int codePoint) {
+        return XML_ESCAPES.getOrDefault(codePoint, Character.toString(codePoint));
+    }
+}
@@ -0,0 +1,59 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Rule that email addresses of authors of commits must match the allowed pattern, e.g. the domain
+ * of a company. Email addresses are matched case-insensitively, as their domains are case-insensitive.
+ */
+@Slf4j
+@ToString
+class AuthorEmailRule implements CommitRule {
+
+    static final String NAME = "allowedAuthorEmailsRegex";
+
+    @ToString.Exclude
+    private final String allowedAuthorEmailsRegex;
+    private final CaseConsideringPattern allowedPattern;
+
+    AuthorEmailRule(String allowedAuthorEmailsRegex) {
+        this(allowedAuthorEmailsRegex, RegexEngine.JAVA, Duration.ZERO);
+    }
+
+    private AuthorEmailRule(String allowedAuthorEmailsRegex, RegexEngine engine, Duration matchTimeout) {
+        this.allowedAuthorEmailsRegex = allowedAuthorEmailsRegex;
+        this.allowedPattern = new CaseConsideringPattern(allowedAuthorEmailsRegex, false, engine, matchTimeout);
+        log.debug("Initialized: {}", this);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<Part> getRequiredParts() {
+        return Set.of(Part.AUTHOR);
+    }
+
+    @Override
+    public Optional<String> validate(CommitDetails commit) {
+        String email = commit.getAuthor().getEmailAddress();
+        return Optional.of(email)
+                       .filter(authorEmail -> !allowedPattern.newMatchPredicate().test(authorEmail))
+                       .map(authorEmail -> String.format(
+                               "the email of the author '%s' does not match this pattern: '%s'",
+                               authorEmail, allowedPattern
+                       ));
+    }
+
+    @Override
+    public CommitRule withRegexEngine(RegexEngine engine, Duration matchTimeout) {
+        return new AuthorEmailRule(allowedAuthorEmailsRegex, engine, matchTimeout);
+    }
+}
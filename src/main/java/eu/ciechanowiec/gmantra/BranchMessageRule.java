@@ -0,0 +1,59 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Commit messages allowed on branches whose names match a pattern, e.g. on '{@code release/*}' branches.
+ * This class is public and has a public no-argument constructor, because it is instantiated by Maven
+ * from elements of the '{@code branchMessageRules}' parameter of the plugin.
+ */
+@ToString
+@SuppressWarnings({"unused", "FieldMayBeFinal", "PMD.ImmutableField"})
+public class BranchMessageRule {
+
+    private String branchesRegex;
+    private List<String> allowedCommitMessagesRegexes;
+
+    /**
+     * Constructs an instance of this class, whose fields are injected by Maven afterwards.
+     */
+    public BranchMessageRule() {
+        this(".*", List.of());
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param branchesRegex regular expression for names of branches the rule applies to
+     * @param allowedCommitMessagesRegexes regular expressions for commit messages allowed on the branches;
+     *                                     a commit message is allowed if it matches any of them
+     */
+    BranchMessageRule(String branchesRegex, List<String> allowedCommitMessagesRegexes) {
+        this.branchesRegex = branchesRegex;
+        this.allowedCommitMessagesRegexes = List.copyOf(allowedCommitMessagesRegexes);
+    }
+
+    /**
+     * Checks whether this rule applies to the specified branch. A rule without any allowed commit messages
+     * applies to no branch.
+     * @param branchName short name of the branch, i.e. without the '{@code refs/heads/}' prefix
+     * @param isCaseSensitive '{@code true}' if the name must be matched in a case-sensitive manner;
+     *                        '{@code false}' otherwise
+     * @return '{@code true}' if this rule applies to the branch; '{@code false}' otherwise
+     */
+    boolean appliesTo(String branchName, boolean isCaseSensitive) {
+        return !getAllowedCommitMessagesRegexes().isEmpty()
+               && new CaseConsideringPattern(branchesRegex, isCaseSensitive).newMatchPredicate().test(branchName);
+    }
+
+    String getBranchesRegex() {
+        return branchesRegex;
+    }
+
+    List<String> getAllowedCommitMessagesRegexes() {
+        // Maven injects no list if the element is empty:
+        return Optional.ofNullable(allowedCommitMessagesRegexes).orElseGet(List::of);
+    }
+}
@@ -1,12 +1,13 @@
 package eu.ciechanowiec.gmantra;
 
-import eu.ciechanowiec.conditional.Conditional;
 import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.lib.Repository;
 
-import java.util.regex.Matcher;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Slf4j
 @ToString
@@ -14,34 +15,94 @@ class BranchValidator implements Validator {
 
     private final Repository repository;
     private final CaseConsideringPattern allowedPattern;
+    private final RefScope refScope;
+    private final int violationLimit;
 
-    BranchValidator(Repository repository, RepositoryRequirements repositoryRequirements) {
+    @ToString.Exclude
+    private final ValidationMetrics metrics;
+
+    @ToString.Exclude
+    private final ViolationListener listener;
+
+    BranchValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings
+    ) {
+        this(repository, repositoryRequirements, settings, new ValidationMetrics());
+    }
+
+    BranchValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics
+    ) {
+        this(repository, repositoryRequirements, settings, metrics, ViolationListener.NONE);
+    }
+
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    BranchValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics, ViolationListener listener
+    ) {
         this.repository = repository;
         String allowedBranchesRegex = repositoryRequirements.getAllowedBranchesRegex();
         boolean isCaseSensitive = repositoryRequirements.isAreCaseSensitiveMatches();
-        this.allowedPattern = new CaseConsideringPattern(allowedBranchesRegex, isCaseSensitive);
+        this.allowedPattern = new CaseConsideringPattern(
+                allowedBranchesRegex, isCaseSensitive, settings.getRegexEngine(), settings.getMatchTimeout()
+        );
+        this.refScope = repositoryRequirements.getRefScope();
+        this.violationLimit = settings.violationLimit();
+        this.metrics = metrics;
+        this.listener = listener;
         log.debug("Initialized: {}", this);
     }
 
-    @SneakyThrows
+    /**
+     * Validates the name of the current branch or, in the all-refs mode, names of all references in the scope.
+     * @return violations found among the validated names, but no more than the limit of violations
+     */
     @Override
-    @SuppressWarnings("squid:S1612")
     public ValidationResult validate() {
+        return validate(violationLimit);
+    }
+
+    @Override
+    public ValidationResult validate(int limit) {
         log.info("Started validation by {}", this);
-        String currentBranch = repository.getBranch();
-        log.debug("Current branch name: '{}'", currentBranch);
-        Matcher matcher = allowedPattern.matcher(currentBranch);
-        boolean doesMatch = matcher.matches();
-        log.info("Does this branch name: '{}' match this pattern: '{}'? Answer: '{}'",
-                  currentBranch, allowedPattern, doesMatch);
-        String violationMessage = String.format(
-                "This branch name: '%s' does not match this pattern: '%s'", currentBranch, allowedPattern
-        );
-        ValidationResult validationResult = Conditional.conditional(doesMatch)
-                .onTrue(() -> new ValidationResult())
-                .onFalse(() -> new ValidationResult(new RequirementsViolation(violationMessage)))
-                .get(ValidationResult.class);
+        List<String> branchNames = metrics.measure(ValidationMetrics.Phase.REF_RESOLUTION, this::branchNames);
+        log.debug("Number of validated branch names: {}", branchNames.size());
+        ValidationResult validationResult = branchNames.stream()
+                .map(this::validate)
+                .flatMap(Optional::stream)
+                .limit(limit)
+                .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
+        validationResult.getViolations().forEach(listener::found);
         log.debug("Validated by {}. {}", this, validationResult);
         return validationResult;
     }
+
+    /**
+     * Validates the specified branch name, e.g. the name of a branch that is being created by a push.
+     * @param branchName short name of the branch, i.e. without the '{@code refs/heads/}' prefix
+     * @return violation of the requirements, if the branch name doesn't match the allowed pattern
+     */
+    Optional<RequirementsViolation> validate(String branchName) {
+        boolean doesMatch = metrics.measure(
+                ValidationMetrics.Phase.MATCHING, () -> allowedPattern.newMatchPredicate().test(branchName)
+        );
+        log.info("Does this branch name: '{}' match this pattern: '{}'? Answer: '{}'",
+                  branchName, allowedPattern, doesMatch);
+        return Optional.of(branchName)
+                       .filter(name -> !doesMatch)
+                       .map(name -> new RequirementsViolation(String.format(
+                               "This branch name: '%s' does not match this pattern: '%s'", name, allowedPattern
+                       ), RequirementsViolation.BRANCH_RULE));
+    }
+
+    @SneakyThrows
+    private List<String> branchNames() {
+        return refScope.isAllRefs() ? refScope.refs(repository)
+                                              .stream()
+                                              .map(refScope::branchName)
+                                              .collect(Collectors.toUnmodifiableList())
+                                    : List.of(repository.getBranch());
+    }
 }
@@ -2,21 +2,158 @@ package eu.ciechanowiec.gmantra;
 
 import eu.ciechanowiec.conditional.Conditional;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 @Slf4j
 class CaseConsideringPattern {
 
+    private static final Pattern NUMBERED_BACKREFERENCE = Pattern.compile(
+            "(?<!\\\\)((?:\\\\\\\\)*)\\\\([1-9][0-9]*)"
+    );
+    // Openings of named groups and named backreferences, which aren't escaped themselves:
+    private static final Pattern GROUP_NAME = Pattern.compile(
+            "(?<!\\\\)((?:\\\\\\\\)*)(\\(\\?<|\\\\k<)([a-zA-Z][a-zA-Z0-9]*)>"
+    );
+    // Quotations, escapes, brackets of character classes, intersections and flags; any other character is a token too:
+    private static final Pattern REGEX_TOKEN = Pattern.compile(
+            "\\\\Q.*?(?:\\\\E|$)|\\\\.|\\[\\^?]?|]|&&|\\(\\?[a-zA-Z-]*[:)]|.", Pattern.DOTALL
+    );
+    private static final Map<Character, String> DIVERGENT_ESCAPES = Map.of(
+            'v', "'\\v', which is any vertical whitespace to Java, but only a vertical tab to RE2/J",
+            'b', "'\\b', which is aware of non-ASCII letters in Java, but not in RE2/J",
+            'B', "'\\B', which is aware of non-ASCII letters in Java, but not in RE2/J"
+    );
+
     private final Pattern origin;
+    private final Optional<com.google.re2j.Pattern> automaton;
+    private final Duration matchTimeout;
 
     CaseConsideringPattern(String regex, boolean isCaseSensitive) {
+        this(regex, isCaseSensitive, RegexEngine.JAVA, Duration.ZERO);
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param regex regular expression
+     * @param isCaseSensitive '{@code true}' if matches must be performed in a case-sensitive manner;
+     *                        '{@code false}' otherwise
+     * @param engine engine that performs matches
+     * @param matchTimeout maximal duration of a single match performed by the {@link RegexEngine#JAVA} engine,
+     *                     after which a {@link MatchTimeoutException} is thrown; non-positive values mean no limit
+     */
+    CaseConsideringPattern(String regex, boolean isCaseSensitive, RegexEngine engine, Duration matchTimeout) {
         this.origin = generate(regex, isCaseSensitive);
+        this.automaton = Optional.of(engine)
+                                 .filter(RegexEngine.AUTOMATON::equals)
+                                 .flatMap(automatonEngine -> generateAutomaton(regex, isCaseSensitive));
+        this.matchTimeout = matchTimeout;
+    }
+
+    /**
+     * Combines the specified regular expressions into a single one that matches any input matched by any of them,
+     * so that the input is matched once by a single compiled matcher instead of once per regular expression.
+     * Each regular expression becomes a non-capturing alternative, so its inline flags and anchors stay local,
+     * and its numbered backreferences are shifted by the number of capturing groups of preceding alternatives.
+     * Named groups and named backreferences are renamed per alternative, so that regular expressions
+     * that use the same group names can be combined.
+     * @param regexes regular expressions to combine; at least one is required
+     * @return regular expression that matches any input matched by any of the specified ones
+     */
+    static String union(List<String> regexes) {
+        StringJoiner union = new StringJoiner("|");
+        int numOfPrecedingGroups = 0;
+        for (int index = 0; index < regexes.size(); index++) {
+            String regex = regexes.get(index);
+            int offset = numOfPrecedingGroups;
+            String shiftedRegex = NUMBERED_BACKREFERENCE.matcher(regex).replaceAll(
+                    backreference -> Matcher.quoteReplacement(String.format(
+                            "%s\\%d", backreference.group(1), Integer.parseInt(backreference.group(2)) + offset
+                    ))
+            );
+            // Names consist of letters and digits only, so the index is terminated by a letter to keep them unique:
+            String alternativeIndex = String.format("u%dn", index);
+            String renamedRegex = GROUP_NAME.matcher(shiftedRegex).replaceAll(
+                    groupName -> Matcher.quoteReplacement(String.format(
+                            "%s%s%s%s>", groupName.group(1), groupName.group(2), alternativeIndex, groupName.group(3)
+                    ))
+            );
+            union.add(String.format("(?:%s)", renamedRegex));
+            numOfPrecedingGroups += Pattern.compile(regex).matcher(StringUtils.EMPTY).groupCount();
+        }
+        return regexes.size() == 1 ? regexes.get(0) : union.toString();
+    }
+
+    /**
+     * Creates a predicate that tells whether the whole input matches this pattern. The predicate reuses
+     * the same underlying matcher for all inputs, so it doesn't allocate anything per match, but must not
+     * be shared by multiple threads.
+     * @return predicate that tells whether the whole input matches this pattern
+     */
+    Predicate<CharSequence> newMatchPredicate() {
+        return automaton.map(this::automatonPredicate)
+                        .or(() -> timeLimit().map(this::timeLimitedPredicate))
+                        .orElseGet(this::unlimitedPredicate);
+    }
+
+    /**
+     * Creates a function that finds the first part of the input that matches this pattern and returns the specified
+     * capturing group of that match. Like the match predicate, the function reuses the same underlying matcher
+     * for all inputs, so it must not be shared by multiple threads.
+     * @param group number of the capturing group to return; '{@code 0}' means the whole match
+     * @return function that returns the specified group of the first match; empty if nothing in the input matches
+     */
+    Function<CharSequence, Optional<String>> newFindFunction(int group) {
+        return automaton.map(pattern -> automatonFind(pattern, group))
+                        .or(() -> timeLimit().map(timeout -> timeLimitedFind(timeout, group)))
+                        .orElseGet(() -> unlimitedFind(group));
+    }
+
+    private Optional<Duration> timeLimit() {
+        return Optional.of(matchTimeout).filter(timeout -> !timeout.isNegative() && !timeout.isZero());
+    }
+
+    private Predicate<CharSequence> automatonPredicate(com.google.re2j.Pattern pattern) {
+        com.google.re2j.Matcher matcher = pattern.matcher(StringUtils.EMPTY);
+        return input -> matcher.reset(input).matches();
+    }
+
+    private Predicate<CharSequence> timeLimitedPredicate(Duration timeout) {
+        TimeLimitedInput timeLimitedInput = new TimeLimitedInput(this, timeout);
+        Matcher matcher = origin.matcher(StringUtils.EMPTY);
+        return input -> matcher.reset(timeLimitedInput.reset(input)).matches();
+    }
+
+    private Predicate<CharSequence> unlimitedPredicate() {
+        Matcher matcher = origin.matcher(StringUtils.EMPTY);
+        return input -> matcher.reset(input).matches();
+    }
+
+    private Function<CharSequence, Optional<String>> automatonFind(com.google.re2j.Pattern pattern, int group) {
+        com.google.re2j.Matcher matcher = pattern.matcher(StringUtils.EMPTY);
+        return input -> Optional.of(matcher.reset(input))
+                                .filter(com.google.re2j.Matcher::find)
+                                .map(found -> found.group(group));
+    }
+
+    private Function<CharSequence, Optional<String>> timeLimitedFind(Duration timeout, int group) {
+        TimeLimitedInput timeLimitedInput = new TimeLimitedInput(this, timeout);
+        Function<CharSequence, Optional<String>> find = unlimitedFind(group);
+        return input -> find.apply(timeLimitedInput.reset(input));
     }
 
-    Matcher matcher(CharSequence input) {
-        return origin.matcher(input);
+    private Function<CharSequence, Optional<String>> unlimitedFind(int group) {
+        Matcher matcher = origin.matcher(StringUtils.EMPTY);
+        return input -> Optional.of(matcher.reset(input)).filter(Matcher::find).map(found -> found.group(group));
     }
 
     private Pattern generate(String regex, boolean isCaseSensitive) {
@@ -29,8 +166,139 @@ class CaseConsideringPattern {
         return pattern;
     }
 
+    private Optional<com.google.re2j.Pattern> generateAutomaton(String regex, boolean isCaseSensitive) {
+        Optional<String> divergentConstruct = divergentConstruct(regex);
+        divergentConstruct.ifPresent(construct -> log.info(
+                "'{}' regex will be matched by {} engine, because it contains {}", regex, RegexEngine.JAVA, construct
+        ));
+        return divergentConstruct.isEmpty() ? compileAutomaton(regex, isCaseSensitive) : Optional.empty();
+    }
+
+    @SuppressWarnings("squid:S1166")
+    private Optional<com.google.re2j.Pattern> compileAutomaton(String regex, boolean isCaseSensitive) {
+        // Case insensitivity is handled by the automaton itself, by folding cases of the compiled characters:
+        int flags = isCaseSensitive ? 0 : com.google.re2j.Pattern.CASE_INSENSITIVE;
+        try {
+            com.google.re2j.Pattern pattern = com.google.re2j.Pattern.compile(regex, flags);
+            log.debug("Automaton created for '{}' regex", regex);
+            return Optional.of(pattern);
+        } catch (com.google.re2j.PatternSyntaxException exception) {
+            log.info("'{}' regex cannot be matched by an automaton and will be matched by {} engine. Reason: {}",
+                     regex, RegexEngine.JAVA, exception.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Finds a construct that RE2/J accepts, but interprets differently from {@link Pattern}, e.g. an intersection
+     * of character classes, which RE2/J reads as two ampersands, or a nested character class.
+     * @param regex regular expression, which has already been compiled by {@link Pattern}
+     * @return description of the first found construct; empty if there is no such construct
+     */
+    static Optional<String> divergentConstruct(String regex) {
+        Matcher token = REGEX_TOKEN.matcher(regex);
+        Optional<String> construct = Optional.empty();
+        boolean isInClass = false;
+        while (construct.isEmpty() && token.find()) {
+            String text = token.group();
+            construct = construct(text, isInClass);
+            isInClass = isInClass(text, isInClass);
+        }
+        return construct;
+    }
+
+    private static Optional<String> construct(String token, boolean isInClass) {
+        return isInClass ? classConstruct(token) : outerConstruct(token);
+    }
+
+    private static boolean isInClass(String token, boolean wasInClass) {
+        // Nested classes are divergent constructs themselves, so only the outermost class is tracked:
+        return wasInClass ? !"]".equals(token) : token.startsWith("[");
+    }
+
+    private static Optional<String> classConstruct(String token) {
+        return Optional.of(token)
+                       .filter(classToken -> classToken.startsWith("["))
+                       .map(nestedClass -> "a nested character class, which is a union to Java, but literals to RE2/J")
+                       .or(() -> Optional.of(token)
+                                         .filter("&&"::equals)
+                                         .map(intersection -> "an intersection of character classes"))
+                       .or(() -> escapeConstruct(token));
+    }
+
+    private static Optional<String> outerConstruct(String token) {
+        return Optional.of(token)
+                       .filter(flagsToken -> flagsToken.startsWith("(?") && flagsToken.contains("U"))
+                       .map(flags -> "the 'U' flag, which means Unicode classes to Java, but lazy quantifiers to RE2/J")
+                       .or(() -> escapeConstruct(token));
+    }
+
+    private static Optional<String> escapeConstruct(String token) {
+        boolean isEscape = token.length() == 2 && token.charAt(0) == '\\';
+        return Optional.of(token)
+                       .filter(escape -> isEscape)
+                       .map(escape -> escape.charAt(1))
+                       .flatMap(escaped -> Character.isDigit(escaped)
+                               ? Optional.of(String.format("'\\%s', a backreference or an octal escape", escaped))
+                               : Optional.ofNullable(DIVERGENT_ESCAPES.get(escaped)));
+    }
+
     @Override
     public String toString() {
         return origin.toString();
     }
+
+    /**
+     * Input that throws a {@link MatchTimeoutException} if it is read longer than the specified timeout after
+     * the last reset. The time is checked only every {@link #CHECK_INTERVAL} reads, because backtracking
+     * that could exceed the timeout rereads the input many times anyway.
+     */
+    private static final class TimeLimitedInput implements CharSequence {
+
+        private static final int CHECK_INTERVAL = 4096;
+
+        private final CaseConsideringPattern pattern;
+        private final Duration timeout;
+        private CharSequence input;
+        private long deadlineNanos;
+        private int numOfReads;
+
+        private TimeLimitedInput(CaseConsideringPattern pattern, Duration timeout) {
+            this.pattern = pattern;
+            this.timeout = timeout;
+            this.input = StringUtils.EMPTY;
+        }
+
+        private TimeLimitedInput reset(CharSequence newInput) {
+            input = newInput;
+            deadlineNanos = System.nanoTime() + timeout.toNanos();
+            numOfReads = 0;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return input.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            numOfReads++;
+            // The exception is instantiated only if it is thrown, because this method is performed for every read:
+            if (numOfReads % CHECK_INTERVAL == 0 && System.nanoTime() - deadlineNanos > 0) {
+                throw new MatchTimeoutException(input, pattern, timeout);
+            }
+            return input.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return input.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return input.toString();
+        }
+    }
 }
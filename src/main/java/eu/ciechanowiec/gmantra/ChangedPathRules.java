@@ -0,0 +1,334 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.internal.storage.commitgraph.ChangedPathFilter;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraph;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.AbstractTreeIterator;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * {@link PathMessageRule}s applied to commits passed by a walk one at a time. Changed paths of a commit
+ * are needed only if its message doesn't match the allowed pattern of any of the rules, so the walking thread
+ * matches first lines of commit messages against the rules, which is cheap, and only commits whose messages
+ * fail that check are diffed.
+ * <p>
+ * Commits are diffed in batches, concurrently with the walk if the parallelism is greater than one, and every
+ * commit is diffed against its first parent, or against the empty tree if it has no parents. Before a commit
+ * is diffed, the changed-path filter of the commit is consulted, if the commit-graph file of the repository
+ * provides one: the filter is a Bloom filter of changed paths and their leading directories, so it tells for sure
+ * that a commit doesn't change the directory a rule applies to, in which case the commit isn't diffed at all.
+ * <p>
+ * Every commit whose message fails the check is returned as a pending {@link Candidate}, whose violations,
+ * if any, are reported under the {@link #NAME} rule once its batch is diffed. Thus, the walking thread can report
+ * them together with other violations of the same commit, in the order of the walk.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings({"PMD.DoNotUseThreads", "PMD.CouplingBetweenObjects", "PMD.ExcessiveImports"})
+class ChangedPathRules implements AutoCloseable {
+
+    static final String NAME = "pathMessageRules";
+    private static final char PATH_SEPARATOR = '/';
+    private static final Pattern GLOB_TOKEN = Pattern.compile("\\*\\*/|\\*\\*|\\*|\\?|[^*?]+");
+    private static final Map<String, String> GLOB_WILDCARDS = Map.of(
+            "**/", "(?:.*/)?", "**", ".*", "*", "[^/]*", "?", "[^/]"
+    );
+
+    @ToString.Exclude
+    private final Repository repository;
+
+    private final List<PathMessageRule> rules;
+
+    @ToString.Exclude
+    private final List<CompiledRule> compiledRules;
+
+    @ToString.Exclude
+    private final Optional<ForkJoinPool> pool;
+
+    @ToString.Exclude
+    private final LongAdder numOfDiffedCommits;
+
+    @ToString.Exclude
+    private final LongAdder numOfFilteredCommits;
+
+    @ToString.Exclude
+    private List<Candidate> batch;
+
+    /**
+     * Constructs an instance of this class.
+     * @param repository repository whose commits are walked
+     * @param rules rules that should be applied; rules without paths are ignored
+     * @param messagePatterns compiles allowed commit messages regexes of the rules, with the case sensitivity,
+     *                        the regex engine and the match timeout of the validation
+     * @param parallelism number of threads that diff commits; if it is not greater than one,
+     *                    commits are diffed by the walking thread
+     */
+    ChangedPathRules(
+            Repository repository, Collection<PathMessageRule> rules,
+            Function<String, CaseConsideringPattern> messagePatterns, int parallelism
+    ) {
+        this.repository = repository;
+        this.rules = List.copyOf(rules);
+        this.compiledRules = rules.stream()
+                                  .filter(rule -> StringUtils.isNotBlank(StringUtils.strip(rule.getPaths(), "/")))
+                                  .map(rule -> new CompiledRule(rule, messagePatterns))
+                                  .collect(Collectors.toUnmodifiableList());
+        // Threads of the pool are started only when the first batch is submitted:
+        this.pool = Optional.of(parallelism)
+                            .filter(threads -> threads > 1 && !compiledRules.isEmpty())
+                            .map(ForkJoinPool::new);
+        this.numOfDiffedCommits = new LongAdder();
+        this.numOfFilteredCommits = new LongAdder();
+        this.batch = new ArrayList<>(MessageMatching.BATCH_SIZE);
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Checks the first line of the message of the specified commit against all rules and schedules a diff
+     * of the commit if the first line doesn't match the allowed pattern of any of the rules.
+     * @param commit walked commit
+     * @param subject first line of the commit message, which has already been extracted
+     * @return commit whose diff has been scheduled; empty if the commit meets all rules regardless
+     *         of the paths it changes
+     */
+    Optional<Candidate> accept(RevCommit commit, CharSequence subject) {
+        // Streams are avoided if there are no rules, because this method is performed for every walked commit:
+        if (compiledRules.isEmpty()) {
+            return Optional.empty();
+        }
+        List<CompiledRule> failedRules = compiledRules.stream()
+                                                      .filter(rule -> !rule.messagePredicate.test(subject))
+                                                      .collect(Collectors.toUnmodifiableList());
+        return Optional.of(failedRules).filter(violatedRules -> !violatedRules.isEmpty()).map(violatedRules -> {
+            String description = MessageMismatch.describe(commit);
+            Candidate candidate = new Candidate(
+                    commit.copy(), description, commit.getCommitTime(), subject.toString(), violatedRules,
+                    batch.size()
+            );
+            batch.add(candidate);
+            Optional.of(batch).filter(fullBatch -> fullBatch.size() >= MessageMatching.BATCH_SIZE)
+                    .ifPresent(fullBatch -> submit());
+            return candidate;
+        });
+    }
+
+    /**
+     * Waits until the specified commit is diffed. If the batch of the commit hasn't been submitted yet,
+     * it is submitted right away.
+     * @param candidate commit returned by {@link #accept(RevCommit, CharSequence)}
+     * @return violations of rules by the commit
+     */
+    List<RequirementsViolation> violations(Candidate candidate) {
+        Optional.of(candidate).filter(pendingCandidate -> pendingCandidate.batchTask.isEmpty())
+                .ifPresent(pendingCandidate -> submit());
+        return candidate.batchTask.orElseThrow().join().get(candidate.batchIndex);
+    }
+
+    /**
+     * Submits commits that have been accepted since the last submission, if any, to be diffed,
+     * without waiting until the batch is full.
+     */
+    void submit() {
+        Optional.of(batch).filter(lastBatch -> !lastBatch.isEmpty()).ifPresent(lastBatch -> {
+            batch = new ArrayList<>(MessageMatching.BATCH_SIZE);
+            ForkJoinTask<List<List<RequirementsViolation>>> task = ForkJoinTask.adapt(() -> diff(lastBatch));
+            lastBatch.forEach(candidate -> candidate.batchTask = Optional.of(task));
+            pool.ifPresentOrElse(threads -> threads.execute(task), task::invoke);
+        });
+    }
+
+    long getNumOfDiffedCommits() {
+        return numOfDiffedCommits.sum();
+    }
+
+    long getNumOfFilteredCommits() {
+        return numOfFilteredCommits.sum();
+    }
+
+    @Override
+    public void close() {
+        pool.ifPresent(ForkJoinPool::shutdownNow);
+        Optional.of(compiledRules).filter(compiled -> !compiled.isEmpty()).ifPresent(compiled -> log.debug(
+                "Number of diffed commits: '{}'. Number of commits skipped due to changed-path filters: '{}'",
+                numOfDiffedCommits.sum(), numOfFilteredCommits.sum()
+        ));
+    }
+
+    /**
+     * Diffs the specified commits. Every batch is diffed by a single thread, so it gets its own reader.
+     * @return violations of every commit, in the order of the commits
+     */
+    @SneakyThrows
+    private List<List<RequirementsViolation>> diff(Collection<Candidate> candidates) {
+        try (ObjectReader reader = repository.newObjectReader(); RevWalk revWalk = new RevWalk(reader)) {
+            Optional<CommitGraph> commitGraph = reader.getCommitGraph();
+            return candidates.stream()
+                             .map(candidate -> candidate.failedRules.stream().flatMap(
+                                     rule -> violation(revWalk, commitGraph, candidate, rule).stream()
+                             ).collect(Collectors.toUnmodifiableList()))
+                             .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    private Optional<RequirementsViolation> violation(
+            RevWalk revWalk, Optional<CommitGraph> commitGraph, Candidate candidate, CompiledRule rule
+    ) {
+        boolean mayBeChanged = commitGraph.map(graph -> mayBeChanged(graph, candidate.commitId, rule)).orElse(true);
+        Optional<String> changedPath = Optional.of(rule)
+                                               .filter(checkedRule -> mayBeChanged)
+                                               .flatMap(checkedRule -> changedPath(revWalk, candidate, checkedRule));
+        return changedPath.map(path -> {
+            String reason = String.format(
+                    "it changes '%s', which matches '%s', so its message must match '%s'",
+                    path, rule.rule.getPaths(), rule.rule.getAllowedCommitMessagesRegex()
+            );
+            RuleViolation ruleViolation = new RuleViolation(
+                    candidate.commitId, candidate.description, candidate.commitTime, candidate.subject, NAME, reason
+            );
+            log.debug("Rule violated: {}", ruleViolation);
+            return new RequirementsViolation(ruleViolation);
+        });
+    }
+
+    /**
+     * Checks whether the changed-path filter of the specified commit, if any, allows that the commit changes
+     * the literal directory of the specified rule.
+     */
+    private boolean mayBeChanged(CommitGraph commitGraph, ObjectId commitId, CompiledRule rule) {
+        int graphPosition = commitGraph.findGraphPosition(commitId);
+        boolean mayBeChanged = rule.literalDirectory.isEmpty() || graphPosition < 0 || Optional.ofNullable(
+                commitGraph.getChangedPathFilter(graphPosition)
+        ).map(filter -> rule.isPossiblyIn(filter)).orElse(true);
+        Optional.of(mayBeChanged).filter(isPossible -> !isPossible).ifPresent(
+                isPossible -> numOfFilteredCommits.increment()
+        );
+        return mayBeChanged;
+    }
+
+    private Optional<String> changedPath(RevWalk revWalk, Candidate candidate, CompiledRule rule) {
+        numOfDiffedCommits.increment();
+        return rule.changedPath(revWalk, candidate.commitId);
+    }
+
+    /**
+     * Commit whose message doesn't match allowed patterns of some rules, together with the batch
+     * it is diffed in, once the batch is submitted.
+     */
+    static final class Candidate {
+
+        private final ObjectId commitId;
+        private final String description;
+        private final int commitTime;
+        private final String subject;
+        private final List<CompiledRule> failedRules;
+        private final int batchIndex;
+        private Optional<ForkJoinTask<List<List<RequirementsViolation>>>> batchTask;
+
+        @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+        private Candidate(
+                ObjectId commitId, String description, int commitTime, String subject,
+                List<CompiledRule> failedRules, int batchIndex
+        ) {
+            this.commitId = commitId;
+            this.description = description;
+            this.commitTime = commitTime;
+            this.subject = subject;
+            this.failedRules = failedRules;
+            this.batchIndex = batchIndex;
+            this.batchTask = Optional.empty();
+        }
+    }
+
+    /**
+     * Rule whose patterns have been compiled. The message predicate is used only by the walking thread.
+     */
+    private static final class CompiledRule {
+
+        private final PathMessageRule rule;
+        private final Predicate<CharSequence> messagePredicate;
+        private final Pattern pathPattern;
+        private final String literalDirectory;
+
+        private CompiledRule(PathMessageRule rule, Function<String, CaseConsideringPattern> messagePatterns) {
+            this.rule = rule;
+            this.messagePredicate = messagePatterns.apply(rule.getAllowedCommitMessagesRegex()).newMatchPredicate();
+            String glob = StringUtils.strip(rule.getPaths(), String.valueOf(PATH_SEPARATOR));
+            Matcher globTokens = GLOB_TOKEN.matcher(glob);
+            StringBuilder pathRegex = new StringBuilder();
+            while (globTokens.find()) {
+                String token = globTokens.group();
+                pathRegex.append(GLOB_WILDCARDS.getOrDefault(token, Pattern.quote(token)));
+            }
+            // A glob that matches a directory applies to all paths inside it:
+            this.pathPattern = Pattern.compile(pathRegex + "(?:/.*)?");
+            // The longest directory without wildcards, which contains all paths matched by the glob:
+            int firstWildcard = StringUtils.indexOfAny(glob, "*?");
+            String literalPart = firstWildcard < 0 ? glob : glob.substring(0, firstWildcard);
+            int literalEnd = firstWildcard < 0 ? literalPart.length() : Math.max(0, literalPart.lastIndexOf('/'));
+            this.literalDirectory = literalPart.substring(0, literalEnd);
+        }
+
+        private boolean isPossiblyIn(ChangedPathFilter changedPathFilter) {
+            return changedPathFilter.maybeContains(literalDirectory.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Finds a path matched by this rule among paths changed by the specified commit, if any.
+         */
+        @SneakyThrows
+        private Optional<String> changedPath(RevWalk revWalk, ObjectId commitId) {
+            RevCommit commit = revWalk.parseCommit(commitId);
+            try (TreeWalk treeWalk = new TreeWalk(revWalk.getObjectReader())) {
+                Optional<RevCommit> firstParent = Arrays.stream(commit.getParents()).findFirst();
+                AbstractTreeIterator parentTree = firstParent.isPresent() ? new CanonicalTreeParser(
+                        null, revWalk.getObjectReader(), revWalk.parseCommit(firstParent.get()).getTree()
+                ) : new EmptyTreeIterator();
+                treeWalk.addTree(parentTree);
+                treeWalk.addTree(commit.getTree());
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(treeFilter());
+                while (treeWalk.next()) {
+                    String path = treeWalk.getPathString();
+                    if (pathPattern.matcher(path).matches()) {
+                        return Optional.of(path);
+                    }
+                }
+                return Optional.empty();
+            }
+        }
+
+        private TreeFilter treeFilter() {
+            return literalDirectory.isEmpty() ? TreeFilter.ANY_DIFF
+                    : AndTreeFilter.create(PathFilter.create(literalDirectory), TreeFilter.ANY_DIFF);
+        }
+    }
+}
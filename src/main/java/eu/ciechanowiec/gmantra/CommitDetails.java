@@ -0,0 +1,85 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Parts of a walked commit passed to {@link CommitRule}s. Every commit is parsed once for all rules:
+ * only parts needed by any of the rules are parsed, and they are shared by all the rules.
+ */
+@ToString
+@SuppressWarnings("PMD.DataClass")
+class CommitDetails {
+
+    private final String subject;
+
+    @ToString.Exclude
+    private final Optional<String> fullMessage;
+
+    private final Optional<PersonIdent> author;
+    private final int parentCount;
+
+    /**
+     * Constructs an instance of this class.
+     * @param commit commit whose parts should be parsed; its body must not be disposed yet
+     * @param subject first line of the commit message, which has already been extracted
+     * @param requiredParts parts of the commit that should be parsed
+     */
+    CommitDetails(RevCommit commit, String subject, Set<CommitRule.Part> requiredParts) {
+        this.subject = subject;
+        this.fullMessage = Optional.of(commit)
+                                   .filter(parsed -> requiredParts.contains(CommitRule.Part.FULL_MESSAGE))
+                                   .map(RevCommit::getFullMessage);
+        this.author = Optional.of(commit)
+                              .filter(parsed -> requiredParts.contains(CommitRule.Part.AUTHOR))
+                              .map(RevCommit::getAuthorIdent);
+        this.parentCount = commit.getParentCount();
+    }
+
+    /**
+     * Constructs an instance of this class for a message that hasn't been committed yet. Only the message is known,
+     * so the author isn't available and the number of parents is zero; rules that need them must not be applied.
+     * @param subject first line of the message
+     * @param fullMessage whole message
+     */
+    CommitDetails(String subject, String fullMessage) {
+        this.subject = subject;
+        this.fullMessage = Optional.of(fullMessage);
+        this.author = Optional.empty();
+        this.parentCount = 0;
+    }
+
+    String getSubject() {
+        return subject;
+    }
+
+    /**
+     * Returns the whole message of the commit.
+     * @return whole message of the commit
+     * @throws IllegalStateException if the whole message hasn't been declared as a required part
+     */
+    String getFullMessage() {
+        return fullMessage.orElseThrow(() -> notParsed(CommitRule.Part.FULL_MESSAGE));
+    }
+
+    /**
+     * Returns the author of the commit.
+     * @return author of the commit
+     * @throws IllegalStateException if the author hasn't been declared as a required part
+     */
+    PersonIdent getAuthor() {
+        return author.orElseThrow(() -> notParsed(CommitRule.Part.AUTHOR));
+    }
+
+    int getParentCount() {
+        return parentCount;
+    }
+
+    private IllegalStateException notParsed(CommitRule.Part part) {
+        return new IllegalStateException(String.format("%s hasn't been declared as a required part", part));
+    }
+}
@@ -0,0 +1,219 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.internal.storage.commitgraph.CommitGraphWriter;
+import org.eclipse.jgit.internal.storage.commitgraph.GraphCommits;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.SystemReader;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Commit-graph file of a repository, i.e. '{@code objects/info/commit-graph}'. The file stores parents,
+ * generation numbers and commit times of commits, so a walk over the history can be performed without
+ * loading commit objects, and only commits whose messages are actually matched need to be loaded.
+ * <p>
+ * The file is written by native git, e.g. by '{@code git commit-graph write}', '{@code git gc}'
+ * or '{@code git fetch}' with '{@code fetch.writeCommitGraph}' enabled. JGit reads it only if
+ * '{@code core.commitGraph}' is enabled, which is the default in native git, but not in JGit.
+ * <p>
+ * The file can also store changed-path filters of commits, which are used by {@link ChangedPathRules}.
+ * JGit reads them only if '{@code commitGraph.readChangedPaths}' is enabled in its own configuration.
+ * Both settings are enabled by {@link #enable()} only for the duration of a validation.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings("PMD.ExcessiveImports")
+class CommitGraphFile {
+
+    private static final String INFO_DIRECTORY_NAME = "info";
+    private static final TemporarySetting COMMIT_GRAPH = new TemporarySetting(
+            ConfigConstants.CONFIG_CORE_SECTION, ConfigConstants.CONFIG_COMMIT_GRAPH
+    );
+    private static final TemporarySetting READ_CHANGED_PATHS = new TemporarySetting(
+            ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, ConfigConstants.CONFIG_KEY_READ_CHANGED_PATHS
+    );
+
+    @ToString.Exclude
+    private final Repository repository;
+    private final Optional<Path> objectsDirectory;
+    private final boolean useChangedPathFilters;
+
+    CommitGraphFile(Repository repository) {
+        this(repository, false);
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param repository repository whose commit-graph file is used
+     * @param useChangedPathFilters '{@code true}' if changed-path filters should be written to and read from
+     *                              the commit-graph file; '{@code false}' otherwise
+     */
+    CommitGraphFile(Repository repository, boolean useChangedPathFilters) {
+        this.repository = repository;
+        this.useChangedPathFilters = useChangedPathFilters;
+        // Only file-based repositories have a commit-graph file:
+        this.objectsDirectory = Optional.of(repository.getObjectDatabase())
+                                        .filter(ObjectDirectory.class::isInstance)
+                                        .map(ObjectDirectory.class::cast)
+                                        .map(objectDirectory -> objectDirectory.getDirectory().toPath());
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Makes walks over the history of the repository read the commit-graph file, if it exists, until the returned
+     * enablement is closed. The change is applied only to the in-memory configuration of the repository and only if
+     * '{@code core.commitGraph}' isn't explicitly configured, so an explicit opt-out is respected. The same
+     * applies to '{@code commitGraph.readChangedPaths}' in the in-memory JGit configuration, if changed-path
+     * filters are used. Both configurations are shared, the former through the
+     * {@link org.eclipse.jgit.lib.RepositoryCache} and the latter by the whole JVM, so a setting is unset
+     * only once all overlapping enablements are closed.
+     * @return enablement that restores the configurations once closed
+     */
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    Enablement enable() {
+        Enablement commitGraph = COMMIT_GRAPH.enable(repository.getConfig());
+        Enablement changedPathFilters = useChangedPathFilters
+                ? READ_CHANGED_PATHS.enable(SystemReader.getInstance().getJGitConfig()) : () -> { };
+        return () -> {
+            changedPathFilters.close();
+            commitGraph.close();
+        };
+    }
+
+    /**
+     * Writes the commit-graph file for all commits reachable from references of the repository,
+     * unless the existing file already covers the specified commit. The file is written atomically,
+     * so concurrent readers either see the previous or the new file.
+     * @param tip commit that should be covered by the commit-graph file
+     */
+    @SneakyThrows
+    void writeIfStale(ObjectId tip) {
+        boolean isEnabled = repository.getConfig().get(CoreConfig.KEY).enableCommitGraph();
+        boolean isStale = objectsDirectory.isPresent() && isEnabled && !covers(tip);
+        log.debug("Should the commit-graph file of {} be written? Answer: '{}'", this, isStale);
+        objectsDirectory.filter(directory -> isStale).ifPresent(directory -> write(directory, tip));
+    }
+
+    @SneakyThrows
+    private void write(Path objectsDirectory, ObjectId tip) {
+        Path graphFile = objectsDirectory.resolve(Constants.INFO_COMMIT_GRAPH);
+        Path directory = objectsDirectory.resolve(INFO_DIRECTORY_NAME);
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, "commit_", ".tmp");
+        Instant start = Instant.now();
+        try (RevWalk revWalk = new RevWalk(repository);
+             OutputStream output = Files.newOutputStream(temporaryFile)) {
+            GraphCommits commits = GraphCommits.fromWalk(NullProgressMonitor.INSTANCE, wants(tip), revWalk);
+            new CommitGraphWriter(commits, useChangedPathFilters).write(NullProgressMonitor.INSTANCE, output);
+            output.close();
+            Files.move(temporaryFile, graphFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        log.info("Commit-graph file {} written in {} ms", graphFile, Duration.between(start, Instant.now()).toMillis());
+    }
+
+    private boolean covers(ObjectId commit) throws IOException {
+        try (ObjectReader reader = repository.newObjectReader()) {
+            boolean isCovered = reader.getCommitGraph()
+                                      .filter(commitGraph -> commitGraph.findGraphPosition(commit) >= 0)
+                                      .isPresent();
+            log.debug("Is {} covered by the commit-graph file of {}? Answer: '{}'", commit, this, isCovered);
+            return isCovered;
+        }
+    }
+
+    private Set<ObjectId> wants(ObjectId tip) throws IOException {
+        Stream<ObjectId> refTargets = repository.getRefDatabase()
+                                                .getRefs()
+                                                .stream()
+                                                .map(Ref::getObjectId)
+                                                .flatMap(objectId -> Optional.ofNullable(objectId).stream());
+        return Stream.concat(Stream.of(tip), refTargets).collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Enablement of the commit-graph file, which is revoked once closed.
+     */
+    @FunctionalInterface
+    interface Enablement extends AutoCloseable {
+
+        @Override
+        void close();
+    }
+
+    /**
+     * Boolean setting that is enabled in shared in-memory configurations for as long as at least one enablement
+     * of it is open. The first enablement sets the setting and the last one unsets it, unless the setting
+     * has been explicitly configured, in which case it is never changed.
+     */
+    @ToString
+    private static final class TemporarySetting {
+
+        private final String section;
+        private final String name;
+        @ToString.Exclude
+        private final Map<Config, Integer> numsOfEnablements;
+
+        private TemporarySetting(String section, String name) {
+            this.section = section;
+            this.name = name;
+            this.numsOfEnablements = new IdentityHashMap<>();
+        }
+
+        private Enablement enable(Config config) {
+            synchronized (numsOfEnablements) {
+                int numOfEnablements = numsOfEnablements.getOrDefault(config, 0);
+                boolean isConfigured = numOfEnablements == 0 && Optional.ofNullable(
+                        config.getString(section, null, name)
+                ).isPresent();
+                log.debug("Is {} configured explicitly? Answer: '{}'", this, isConfigured);
+                Conditional.onTrueExecute(
+                        !isConfigured && numOfEnablements == 0, () -> config.setBoolean(section, null, name, true)
+                );
+                Conditional.onFalseExecute(
+                        isConfigured, () -> numsOfEnablements.put(config, numOfEnablements + 1)
+                );
+                return isConfigured ? () -> { } : () -> disable(config);
+            }
+        }
+
+        private void disable(Config config) {
+            synchronized (numsOfEnablements) {
+                int numOfEnablements = numsOfEnablements.remove(config) - 1;
+                Conditional.conditional(numOfEnablements > 0)
+                           .onTrue(() -> numsOfEnablements.put(config, numOfEnablements))
+                           .onFalse(() -> config.unset(section, null, name))
+                           .execute();
+                log.debug("Disabled {}. Number of remaining enablements: {}", this, numOfEnablements);
+            }
+        }
+    }
+}
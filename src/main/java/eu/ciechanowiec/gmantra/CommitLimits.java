@@ -0,0 +1,144 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.Builder;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.CommitTimeRevFilter;
+import org.eclipse.jgit.revwalk.filter.MaxCountRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Limits of the history subjected to the validation of commit messages. Contrary to 'startCommitHash',
+ * the limits don't require a specific commit to be known in advance and are enforced inside the walk
+ * over the history, so the walk terminates as soon as a limit is reached.
+ */
+@Slf4j
+@ToString
+class CommitLimits {
+
+    private final Optional<Instant> startCommitDate;
+    private final Optional<Duration> maxCommitAge;
+    private final int maxCommits;
+    private final Optional<String> baseRef;
+
+    /**
+     * Constructs an instance of this class. Values that cannot be parsed are reported with a warning
+     * and ignored, as if they weren't specified.
+     * @param startCommitDate ISO-8601 date (e.g. '{@code 2024-03-15}') or date-time with an offset
+     *                        (e.g. '{@code 2024-03-15T16:36:00+01:00}'); commits older than this date
+     *                        aren't validated
+     * @param maxCommitAge ISO-8601 duration (e.g. '{@code P90D}'); commits older than this duration,
+     *                     counting from the start of the validation, aren't validated
+     * @param maxCommits maximal number of the most recent commits that are validated;
+     *                   non-positive values mean no limit
+     * @param baseRef reference (e.g. '{@code origin/main}') or hash of a commit; if specified, only commits
+     *                reachable from HEAD, but not reachable from the specified commit are validated,
+     *                i.e. commits introduced by the current branch since its merge-base with the specified one
+     */
+    @Builder
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    CommitLimits(String startCommitDate, String maxCommitAge, int maxCommits, String baseRef) {
+        this.startCommitDate = parse(startCommitDate, this::parseDate);
+        this.maxCommitAge = parse(maxCommitAge, Duration::parse);
+        this.maxCommits = maxCommits;
+        this.baseRef = Optional.ofNullable(baseRef).filter(StringUtils::isNotBlank).map(String::trim);
+        log.debug("Initialized: {}", this);
+    }
+
+    private CommitLimits(CommitLimits limits, Optional<String> baseRef) {
+        this.startCommitDate = limits.startCommitDate;
+        this.maxCommitAge = limits.maxCommitAge;
+        this.maxCommits = limits.maxCommits;
+        this.baseRef = baseRef;
+    }
+
+    static CommitLimits none() {
+        return CommitLimits.builder().build();
+    }
+
+    /**
+     * Tells whether any limit is set.
+     * @return '{@code true}' if any limit is set; '{@code false}' otherwise
+     */
+    boolean isBounded() {
+        return startCommitDate.isPresent() || maxCommitAge.isPresent() || maxCommits > 0 || baseRef.isPresent();
+    }
+
+    /**
+     * Tells whether the limits depend on the moment of the validation, so that the same history might be limited
+     * differently by subsequent validations.
+     * @return '{@code true}' if the maximal age of commits is set; '{@code false}' otherwise
+     */
+    boolean isTimeRelative() {
+        return maxCommitAge.isPresent();
+    }
+
+    Optional<String> getBaseRef() {
+        return baseRef;
+    }
+
+    /**
+     * Returns these limits without the base reference, which is resolved in the repository where it was specified.
+     * @return copy of these limits without the base reference
+     */
+    CommitLimits withoutBaseRef() {
+        return new CommitLimits(this, Optional.empty());
+    }
+
+    /**
+     * Translates these limits into a filter for a walk over the history.
+     * @param ignoreMergeCommits '{@code true}' if merge commits should be skipped by the filter;
+     *                           merge commits don't count towards the maximal number of commits
+     * @param now moment of the validation, from which the maximal commit age is counted
+     * @return filter for a walk over the history
+     */
+    @SuppressWarnings("ChainedMethodCall")
+    RevFilter toRevFilter(boolean ignoreMergeCommits, Instant now) {
+        Optional<Instant> oldestAllowed = Stream.concat(
+                startCommitDate.stream(), maxCommitAge.map(now::minus).stream()
+        ).max(Instant::compareTo);
+        // The order matters, because the maximal count is incremented only for commits accepted by previous filters:
+        List<RevFilter> filters = Stream.of(
+                Optional.of(RevFilter.NO_MERGES).filter(filter -> ignoreMergeCommits),
+                oldestAllowed.map(Date::from).map(CommitTimeRevFilter::after),
+                Optional.of(maxCommits).filter(count -> count > 0).map(MaxCountRevFilter::create)
+        ).flatMap(Optional::stream).collect(Collectors.toUnmodifiableList());
+        log.debug("Filters for {}: {}", this, filters);
+        return filters.size() > 1 ? AndRevFilter.create(filters) : filters.stream().findFirst().orElse(RevFilter.ALL);
+    }
+
+    private Instant parseDate(String date) {
+        try {
+            return OffsetDateTime.parse(date).toInstant();
+        } catch (DateTimeParseException exception) {
+            log.trace("Not a date-time: '{}'", date, exception);
+            return LocalDate.parse(date).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        }
+    }
+
+    @SuppressWarnings("squid:S1166")
+    private <T> Optional<T> parse(String value, Function<String, T> parser) {
+        Optional<String> specifiedValue = Optional.ofNullable(value).filter(StringUtils::isNotBlank);
+        try {
+            return specifiedValue.map(String::trim).map(parser);
+        } catch (DateTimeParseException exception) {
+            log.warn("Unable to parse this value: '{}'. It will be ignored", value, exception);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * First line of a commit message extracted during a walk over the history, so that it can be matched
+ * after the body of the commit has been disposed by the walk, possibly by another thread. Violations
+ * of {@link CommitRule}s need the body of the commit, so they are found by the walking thread right away
+ * and carried along with the first line, so that they are reported in the order of the walk. The same applies
+ * to the pending diff of the commit scheduled by {@link ChangedPathRules}, if any.
+ */
+@ToString
+@Getter(AccessLevel.PACKAGE)
+class CommitMessage {
+
+    @ToString.Exclude
+    private final RevCommit commit;
+    private final CharSequence shortMessage;
+    private final List<RequirementsViolation> ruleViolations;
+    private final Optional<ChangedPathRules.Candidate> pathCandidate;
+    private final boolean isMismatch;
+
+    CommitMessage(
+            RevCommit commit, CharSequence shortMessage, List<RequirementsViolation> ruleViolations,
+            Optional<ChangedPathRules.Candidate> pathCandidate
+    ) {
+        this(commit, shortMessage, ruleViolations, pathCandidate, false);
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param commit commit the message comes from
+     * @param shortMessage first line of the commit message, possibly a {@link CommitSubject} view
+     * @param ruleViolations violations of {@link CommitRule}s found for the commit
+     * @param pathCandidate pending diff of the commit scheduled by {@link ChangedPathRules}, if any
+     * @param isMismatch '{@code true}' if the first line is known not to match the allowed pattern;
+     *                   '{@code false}' if it matches or hasn't been matched yet
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    CommitMessage(
+            RevCommit commit, CharSequence shortMessage, List<RequirementsViolation> ruleViolations,
+            Optional<ChangedPathRules.Candidate> pathCandidate, boolean isMismatch
+    ) {
+        this.commit = commit;
+        this.shortMessage = shortMessage;
+        this.ruleViolations = ruleViolations;
+        this.pathCandidate = pathCandidate;
+        this.isMismatch = isMismatch;
+    }
+
+    /**
+     * Returns a copy of this message that is known not to match the allowed pattern.
+     * @return copy of this message that is known not to match the allowed pattern
+     */
+    CommitMessage mismatched() {
+        return new CommitMessage(commit, shortMessage, ruleViolations, pathCandidate, true);
+    }
+
+    /**
+     * Checks whether this message should be reported, i.e. whether it doesn't match the allowed pattern,
+     * any {@link CommitRule} has been violated by its commit or the commit might violate {@link PathMessageRule}s.
+     * @return '{@code true}' if this message should be reported; '{@code false}' otherwise
+     */
+    boolean isViolating() {
+        return isMismatch || !ruleViolations.isEmpty() || pathCandidate.isPresent();
+    }
+}
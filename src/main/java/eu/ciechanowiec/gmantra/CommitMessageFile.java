@@ -0,0 +1,109 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * File with a commit message that hasn't been committed yet, e.g. the file passed to the '{@code commit-msg}'
+ * Git hook. The repository is opened only if the allowed pattern depends on the current branch, i.e. if there are
+ * any branch message rules.
+ */
+@Slf4j
+@ToString
+class CommitMessageFile {
+
+    private static final String COMMENT_PREFIX = "#";
+    private static final String SCISSORS_LINE = "# ------------------------ >8 ------------------------";
+
+    private final Path file;
+
+    CommitMessageFile(Path file) {
+        this.file = file;
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Returns the first line of the message, determined in the same way as for committed messages, i.e. the first
+     * paragraph with line breaks replaced by spaces. Comment lines, which Git removes from the message anyway,
+     * and leading blank lines are skipped.
+     * @return first line of the message
+     */
+    String shortMessage() {
+        return lines().stream()
+                      .dropWhile(String::isBlank)
+                      .takeWhile(line -> !line.isBlank())
+                      .collect(Collectors.joining(" "));
+    }
+
+    /**
+     * Returns the whole message as Git is going to commit it, i.e. without comment lines, without everything below
+     * the scissors line added by '{@code git commit --verbose}' and without leading and trailing blank lines.
+     * @return whole message
+     */
+    String fullMessage() {
+        return String.join("\n", lines()).strip();
+    }
+
+    @SneakyThrows
+    private List<String> lines() {
+        return Files.readAllLines(file, StandardCharsets.UTF_8)
+                    .stream()
+                    .takeWhile(line -> !SCISSORS_LINE.equals(line))
+                    .filter(line -> !line.startsWith(COMMENT_PREFIX))
+                    .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Validates the message against the specified requirements. If any branch message rules are specified,
+     * the allowed pattern is chosen for the current branch of the repository, like for committed messages.
+     * Commit rules that need nothing but the message are applied as well; other commit rules are skipped.
+     * @param requirements requirements to validate the message against
+     * @param settings settings of the validation
+     * @param repositoryProvider provider of the repository that the message is going to be committed to
+     * @return violations of the requirements; empty if the message meets all the applied requirements
+     */
+    List<RequirementsViolation> validate(
+            RepositoryRequirements requirements, ValidationSettings settings, RepositoryProvider repositoryProvider
+    ) {
+        RepositoryRequirements messageRequirements = Optional.of(requirements).filter(
+                configured -> !configured.getBranchMessageRules().isEmpty()
+        ).map(configured -> forRepository(configured, repositoryProvider)).orElse(requirements);
+        CaseConsideringPattern allowedPattern = new CaseConsideringPattern(
+                messageRequirements.getAllowedCommitMessagesRegex(), messageRequirements.isAreCaseSensitiveMatches(),
+                settings.getRegexEngine(), settings.getMatchTimeout()
+        );
+        String shortMessage = shortMessage();
+        boolean matches = allowedPattern.newMatchPredicate().test(shortMessage);
+        log.debug("Does the message from {} match? Answer: '{}'", this, matches);
+        Optional<RequirementsViolation> mismatch = Optional.of(shortMessage).filter(message -> !matches).map(
+                message -> new RequirementsViolation(String.format(
+                        "This message: '%s' does not match this pattern: '%s'", message, allowedPattern
+                ), RequirementsViolation.COMMIT_MESSAGE_RULE)
+        );
+        List<RequirementsViolation> ruleViolations = messageRequirements.getCommitRules()
+                                                                        .withRegexEngine(
+                                                                                settings.getRegexEngine(),
+                                                                                settings.getMatchTimeout()
+                                                                        )
+                                                                        .validate(shortMessage, fullMessage());
+        return Stream.concat(mismatch.stream(), ruleViolations.stream()).collect(Collectors.toUnmodifiableList());
+    }
+
+    private static RepositoryRequirements forRepository(
+            RepositoryRequirements requirements, RepositoryProvider repositoryProvider
+    ) {
+        try (Repository repository = repositoryProvider.get()) {
+            return requirements.forRepository(repository);
+        }
+    }
+}
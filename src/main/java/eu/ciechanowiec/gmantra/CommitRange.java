@@ -0,0 +1,291 @@
+package eu.ciechanowiec.gmantra;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Range of commits reachable from the 'until' commit, but reachable neither from the 'since' commit
+ * nor from the 'base' commit. Both the 'since' and the 'base' commits are optional; if none of them
+ * is specified, the range spans the whole history of 'until'.
+ * <p>
+ * A range might have more than one 'until' commit, e.g. tips of all pushed branches. In such a case, the range
+ * spans commits reachable from any of them and is walked from all of them at once, so commits shared
+ * by histories of different 'until' commits are walked only once.
+ */
+@Slf4j
+@ToString
+@SuppressFBWarnings(value = "EI_EXPOSE_REP2", justification = "Commits are shared with walks by design")
+class CommitRange {
+
+    @ToString.Exclude
+    private final Repository repository;
+    private final Optional<RevCommit> since;
+    private final List<RevCommit> untils;
+    private final Optional<RevCommit> base;
+    private final RevFilter filter;
+
+    @ToString.Exclude
+    private final ValidationMetrics metrics;
+
+    /**
+     * Constructs an instance of this class.
+     * @param repository repository the commits belong to
+     * @param since optional commit that starts this range; the commit itself isn't a part of this range
+     * @param untils commits that end this range; at least one commit is required
+     * @param base optional commit, e.g. the tip of a branch the 'until' commit is going to be merged into,
+     *             commits reachable from which aren't a part of this range; in other words, this range
+     *             is limited to commits that follow the merge-base of the 'base' and the 'until' commits
+     * @param filter filter that commits must be accepted by to be walked
+     * @param metrics metrics that walks over this range are recorded in
+     */
+    @Builder
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    CommitRange(
+            Repository repository, RevCommit since, @Singular List<RevCommit> untils, RevCommit base,
+            RevFilter filter, ValidationMetrics metrics
+    ) {
+        this.repository = repository;
+        this.since = Optional.ofNullable(since);
+        this.untils = List.copyOf(untils);
+        this.base = Optional.ofNullable(base);
+        this.filter = Optional.ofNullable(filter).orElse(RevFilter.ALL);
+        this.metrics = Optional.ofNullable(metrics).orElseGet(ValidationMetrics::new);
+        log.debug("Initialized: {}", this);
+    }
+
+    Optional<RevCommit> getSince() {
+        return since;
+    }
+
+    /**
+     * Returns the first 'until' commit of this range, which is the only one if this range has been built
+     * for a single tip.
+     * @return first 'until' commit of this range
+     */
+    RevCommit getUntil() {
+        return untils.get(0);
+    }
+
+    /**
+     * Walks commits in this range ('since' is exclusive and 'until' is inclusive) that aren't reachable
+     * from any of the excluded tips, from the newest to the oldest one, and passes them to the specified action
+     * one at a time. Only commits accepted by the filter of this range are passed; the walk terminates as soon
+     * as the filter rejects all remaining commits. Walked commits aren't collected and their bodies are disposed
+     * right after the action is performed, so the memory consumed by the walk doesn't depend on the size
+     * of commit messages. If the repository has a commit-graph file, only commits passed to the action are loaded.
+     * @param excludedTips commits which, together with their ancestors, should not be walked
+     * @param action action to perform for every walked commit
+     * @return boundaries of the walk, i.e. excluded commits that are parents of walked commits, as well as
+     *         'until' commits that are excluded themselves, e.g. because they are ancestors of an excluded tip
+     */
+    Set<RevCommit> walk(Collection<? extends ObjectId> excludedTips, Consumer<RevCommit> action) {
+        return walk(excludedTips, action, () -> false);
+    }
+
+    /**
+     * Walks commits in this range like {@link #walk(Collection, Consumer)}, but stops the walk as soon as
+     * the specified condition is met. The condition is checked before every walked commit. If the walk is stopped
+     * early, the returned boundaries are incomplete.
+     * @param excludedTips commits which, together with their ancestors, should not be walked
+     * @param action action to perform for every walked commit
+     * @param stopCondition condition which, once met, stops the walk
+     * @return boundaries of the walk, i.e. excluded commits that are parents of walked commits, as well as
+     *         'until' commits that are excluded themselves, e.g. because they are ancestors of an excluded tip
+     */
+    @SneakyThrows
+    Set<RevCommit> walk(
+            Collection<? extends ObjectId> excludedTips, Consumer<RevCommit> action, BooleanSupplier stopCondition
+    ) {
+        log.debug("Walking {}, excluding {} tip(s)", this, excludedTips.size());
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            List<RevCommit> startCommits = untils.stream()
+                                                 .map(until -> markStart(revWalk, until))
+                                                 .collect(Collectors.toUnmodifiableList());
+            since.ifPresent(sinceCommit -> markUninteresting(revWalk, sinceCommit));
+            base.ifPresent(baseCommit -> markUninteresting(revWalk, baseCommit));
+            excludedTips.forEach(tip -> markUninteresting(revWalk, tip));
+            // The frontier is tracked before filtering, so that parents of skipped commits are also considered:
+            FrontierTracker frontierTracker = new FrontierTracker();
+            revWalk.setRevFilter(AndRevFilter.create(frontierTracker, filter.clone()));
+            // With a commit-graph, commits are walked and filtered without loading them, so a commit
+            // is loaded only right before the action; without a commit-graph, loading happens anyway:
+            boolean hasCommitGraph = revWalk.getObjectReader().getCommitGraph().isPresent();
+            revWalk.setRetainBody(!hasCommitGraph);
+            traverse(revWalk, action, stopCondition, frontierTracker, hasCommitGraph);
+            return frontierTracker.boundaries(startCommits);
+        }
+    }
+
+    @SneakyThrows
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    private void traverse(
+            RevWalk revWalk, Consumer<RevCommit> action, BooleanSupplier stopCondition,
+            FrontierTracker frontierTracker, boolean hasCommitGraph
+    ) {
+        long start = System.nanoTime();
+        long actionNanos = 0;
+        int numOfWalkedCommits = 0;
+        int numOfWalkedMergeCommits = 0;
+        Iterator<RevCommit> commits = revWalk.iterator();
+        boolean isStopped = stopCondition.getAsBoolean();
+        while (!isStopped && commits.hasNext()) {
+            RevCommit commit = commits.next();
+            // Filtering is required, because due to clock skew the walk might return excluded commits:
+            if (!commit.has(RevFlag.UNINTERESTING)) {
+                revWalk.parseBody(commit);
+                long actionStart = System.nanoTime();
+                action.accept(commit);
+                actionNanos += System.nanoTime() - actionStart;
+                commit.disposeBody();
+                numOfWalkedCommits++;
+                numOfWalkedMergeCommits += mergeCount(commit);
+            }
+            isStopped = stopCondition.getAsBoolean();
+        }
+        long walkNanos = System.nanoTime() - start;
+        log.debug(
+                "Number of walked commits: '{}'. Walked in {} ms. Was the commit-graph used? '{}'. Stopped early? '{}'",
+                numOfWalkedCommits, Duration.ofNanos(walkNanos).toMillis(), hasCommitGraph, isStopped
+        );
+        // The action is the matching of commit messages, so its duration isn't a part of the walk:
+        metrics.addDuration(ValidationMetrics.Phase.COMMIT_WALK, walkNanos - actionNanos);
+        metrics.addDuration(ValidationMetrics.Phase.MATCHING, actionNanos);
+        metrics.countWalkedCommits(
+                frontierTracker.numOfVisitedCommits,
+                frontierTracker.numOfVisitedMergeCommits - numOfWalkedMergeCommits
+        );
+    }
+
+    private static int mergeCount(RevCommit commit) {
+        return commit.getParentCount() > 1 ? 1 : 0;
+    }
+
+    /**
+     * Checks whether the specified commit is accepted by the filter of this range, as if it was the only
+     * walked commit, and isn't reachable from the 'base' commit.
+     * @param commit commit to check
+     * @return '{@code true}' if the commit is accepted by this range; '{@code false}' otherwise
+     */
+    @SneakyThrows
+    @SuppressWarnings("squid:S1166")
+    boolean accepts(RevCommit commit) {
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            boolean isReachableFromBase = base.filter(baseCommit -> isMergedInto(commit, baseCommit)).isPresent();
+            boolean isAccepted = !isReachableFromBase && filter.clone().include(revWalk, commit);
+            log.debug("Is {} accepted by {}? Answer: '{}'", commit, filter, isAccepted);
+            return isAccepted;
+        } catch (StopWalkException exception) {
+            log.debug("{} is beyond the limits of {}", commit, filter);
+            return false;
+        }
+    }
+
+    /**
+     * Checks whether the specified commit precedes this range, i.e. is the 'since' commit, the 'base' commit
+     * or an ancestor of any of them.
+     * @param commit commit to check
+     * @return '{@code true}' if the commit precedes this range; '{@code false}' otherwise
+     */
+    boolean precedes(RevCommit commit) {
+        return Stream.concat(since.stream(), base.stream())
+                     .anyMatch(precedingCommit -> isMergedInto(commit, precedingCommit));
+    }
+
+    @SneakyThrows
+    private boolean isMergedInto(RevCommit ancestor, RevCommit descendant) {
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            return revWalk.isMergedInto(revWalk.parseCommit(ancestor), revWalk.parseCommit(descendant));
+        }
+    }
+
+    @SneakyThrows
+    private RevCommit markStart(RevWalk revWalk, ObjectId commitId) {
+        RevCommit commit = revWalk.parseCommit(commitId);
+        revWalk.markStart(commit);
+        return commit;
+    }
+
+    @SneakyThrows
+    private void markUninteresting(RevWalk revWalk, ObjectId commitId) {
+        try {
+            revWalk.markUninteresting(revWalk.parseCommit(commitId));
+        } catch (MissingObjectException | IncorrectObjectTypeException exception) {
+            // Tips of references to trees or blobs have no history, so there is nothing to exclude:
+            log.debug("Commit '{}' doesn't exist and will not be excluded", commitId.name(), exception);
+        }
+    }
+
+    /**
+     * Tracks parents of commits visited by a walk that haven't been visited yet. Only the frontier
+     * of the walk is tracked, so the memory consumption doesn't depend on the length of the history.
+     * Visited commits are also counted, regardless of whether they are accepted by subsequent filters.
+     */
+    private static final class FrontierTracker extends RevFilter {
+
+        private final Set<RevCommit> unvisitedParents = new HashSet<>();
+        private long numOfVisitedCommits;
+        private long numOfVisitedMergeCommits;
+
+        @Override
+        public boolean include(RevWalk walker, RevCommit commit) {
+            unvisitedParents.remove(commit);
+            unvisitedParents.addAll(Arrays.asList(commit.getParents()));
+            numOfVisitedCommits++;
+            numOfVisitedMergeCommits += mergeCount(commit);
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings(
+                {"NoClone", "SuperClone", "MethodDoesntCallSuperMethod", "PMD.CloneMethodMustImplementCloneable"}
+        )
+        @SuppressFBWarnings({"CN_IDIOM_NO_SUPER_CALL", "CN_IMPLEMENTS_CLONE_BUT_NOT_CLONEABLE"})
+        public FrontierTracker clone() {
+            return new FrontierTracker();
+        }
+
+        @Override
+        public boolean requiresCommitBody() {
+            return false;
+        }
+
+        /**
+         * Returns excluded commits at which the walk has stopped. If a start commit has been excluded itself,
+         * the walk has stopped right at it, so such a start commit is a boundary as well.
+         * @param startCommits commits the walk has been started from
+         * @return boundaries of the walk
+         */
+        Set<RevCommit> boundaries(Collection<RevCommit> startCommits) {
+            return Stream.concat(unvisitedParents.stream(), startCommits.stream())
+                         .filter(commit -> commit.has(RevFlag.UNINTERESTING))
+                         .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package eu.ciechanowiec.gmantra;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Requirement that every validated commit must meet, in addition to the allowed pattern of commit messages.
+ * Rules don't walk the history on their own: all rules are applied to every commit during the same walk
+ * in which commit messages are matched, so adding a rule doesn't add a walk. Every rule declares parts
+ * of commits it needs, so parts needed by no rule aren't parsed at all.
+ * <p>
+ * Rules are applied only by the walking thread, one commit at a time, so they don't need to be thread-safe.
+ */
+interface CommitRule {
+
+    /**
+     * Part of a commit that a rule might need.
+     */
+    enum Part {
+
+        /**
+         * First line of the message, which is extracted from every walked commit anyway.
+         */
+        SUBJECT,
+
+        /**
+         * Whole message, which is decoded only if any rule needs it.
+         */
+        FULL_MESSAGE,
+
+        /**
+         * Author, who is parsed only if any rule needs it.
+         */
+        AUTHOR,
+
+        /**
+         * Parents, which are known without parsing the commit.
+         */
+        PARENTS
+    }
+
+    /**
+     * Returns the name of this rule, i.e. the name of the plugin parameter which specifies this rule.
+     * Violations of this rule are reported under this name.
+     * @return name of this rule
+     */
+    String getName();
+
+    /**
+     * Returns parts of commits this rule needs. Only these parts can be read from commits passed to this rule.
+     * @return parts of commits this rule needs
+     */
+    Set<Part> getRequiredParts();
+
+    /**
+     * Validates the specified commit.
+     * @param commit commit to validate
+     * @return reason why the commit violates this rule, e.g. '{@code the subject is too long}';
+     *         empty if the commit meets this rule
+     */
+    Optional<String> validate(CommitDetails commit);
+
+    /**
+     * Returns this rule with its regular expressions, if it has any, matched by the specified engine
+     * within the specified timeout, like the allowed pattern of commit messages is.
+     * @param engine engine that should perform matches
+     * @param matchTimeout maximal duration of a single match performed by the {@link RegexEngine#JAVA} engine;
+     *                     non-positive values mean no limit
+     * @return this rule with its regular expressions matched by the specified engine; by default, this rule itself
+     */
+    default CommitRule withRegexEngine(RegexEngine engine, Duration matchTimeout) {
+        return this;
+    }
+}
@@ -0,0 +1,158 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.Builder;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * {@link CommitRule}s applied to every commit walked during the validation of commit messages. Every commit
+ * is parsed once for all the rules, and only parts of commits needed by any of the rules are parsed, so e.g.
+ * whole messages aren't decoded if no rule needs them.
+ */
+@Slf4j
+@ToString
+class CommitRules {
+
+    /**
+     * Names and descriptions of built-in rules, in the order in which they are applied.
+     */
+    static final List<Map.Entry<String, String>> BUILT_IN_RULES = List.of(
+            Map.entry(AuthorEmailRule.NAME, "Email addresses of authors of commits must match the allowed pattern"),
+            Map.entry(SubjectLengthRule.NAME, "First lines of commit messages must not exceed the maximal length"),
+            Map.entry(SignOffRule.NAME, "Commit messages must contain a 'Signed-off-by' trailer"),
+            Map.entry(ForbiddenWordsRule.NAME, "Commit messages must not contain forbidden words")
+    );
+
+    private static final Set<CommitRule.Part> MESSAGE_PARTS = Set.of(
+            CommitRule.Part.SUBJECT, CommitRule.Part.FULL_MESSAGE
+    );
+
+    private final List<CommitRule> rules;
+
+    @ToString.Exclude
+    private final Set<CommitRule.Part> requiredParts;
+
+    /**
+     * Constructs an instance of this class with the specified rules.
+     * @param rules rules that should be applied, in the order in which they should be applied
+     */
+    CommitRules(Collection<? extends CommitRule> rules) {
+        this.rules = List.copyOf(rules);
+        this.requiredParts = rules.stream()
+                                  .flatMap(rule -> rule.getRequiredParts().stream())
+                                  .collect(Collectors.toCollection(() -> EnumSet.noneOf(CommitRule.Part.class)));
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Constructs an instance of this class with built-in rules. Rules that aren't specified aren't applied.
+     * @param allowedAuthorEmailsRegex regular expression that email addresses of authors of commits must match
+     * @param maxSubjectLength maximal length of first lines of commit messages; non-positive values mean no limit
+     * @param requireSignOff '{@code true}' if commit messages must contain a '{@code Signed-off-by}' trailer;
+     *                       '{@code false}' otherwise
+     * @param forbiddenWords comma-separated words that commit messages must not contain
+     */
+    @Builder
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    CommitRules(String allowedAuthorEmailsRegex, int maxSubjectLength, boolean requireSignOff, String forbiddenWords) {
+        this(Stream.of(
+                Optional.ofNullable(allowedAuthorEmailsRegex)
+                        .filter(StringUtils::isNotBlank)
+                        .map(AuthorEmailRule::new),
+                Optional.of(maxSubjectLength)
+                        .filter(maxLength -> maxLength > 0)
+                        .map(SubjectLengthRule::new),
+                Optional.of(requireSignOff)
+                        .filter(Boolean::booleanValue)
+                        .map(isRequired -> new SignOffRule()),
+                Optional.ofNullable(forbiddenWords)
+                        .filter(words -> StringUtils.isNotBlank(StringUtils.remove(words, ',')))
+                        .map(ForbiddenWordsRule::new)
+        ).flatMap(Optional::stream).collect(Collectors.toUnmodifiableList()));
+    }
+
+    /**
+     * Returns these rules with their regular expressions matched by the specified engine within the specified
+     * timeout, like the allowed pattern of commit messages is.
+     * @param engine engine that should perform matches
+     * @param matchTimeout maximal duration of a single match performed by the {@link RegexEngine#JAVA} engine;
+     *                     non-positive values mean no limit
+     * @return these rules with their regular expressions matched by the specified engine
+     */
+    CommitRules withRegexEngine(RegexEngine engine, Duration matchTimeout) {
+        return new CommitRules(rules.stream()
+                                    .map(rule -> rule.withRegexEngine(engine, matchTimeout))
+                                    .collect(Collectors.toUnmodifiableList()));
+    }
+
+    static CommitRules none() {
+        return CommitRules.builder().build();
+    }
+
+    /**
+     * Applies all rules to the specified commit. This method is performed for every walked commit, so if there
+     * are no rules, it allocates nothing.
+     * @param commit commit to validate; its body must not be disposed yet
+     * @param subject first line of the commit message, which has already been extracted
+     * @return violations of the rules, in the order of the rules; empty if the commit meets all the rules
+     */
+    List<RequirementsViolation> validate(RevCommit commit, CharSequence subject) {
+        // Conditionals and streams are avoided if there are no rules, because this method is performed
+        // for every walked commit:
+        if (rules.isEmpty()) {
+            return List.of();
+        }
+        CommitDetails commitDetails = new CommitDetails(commit, subject.toString(), requiredParts);
+        return rules.stream()
+                    .flatMap(rule -> rule.validate(commitDetails)
+                                         .map(reason -> violation(commit, commitDetails, rule, reason))
+                                         .stream())
+                    .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Applies rules that need nothing but the message to the specified message that hasn't been committed yet,
+     * e.g. to the message passed to the '{@code commit-msg}' Git hook. Other rules, e.g. the rule of email
+     * addresses of authors, are skipped, because the commit doesn't exist yet; they are applied during the walk.
+     * @param subject first line of the message
+     * @param fullMessage whole message
+     * @return violations of the applied rules, in the order of the rules; empty if the message meets all of them
+     */
+    List<RequirementsViolation> validate(String subject, String fullMessage) {
+        CommitDetails messageDetails = new CommitDetails(subject, fullMessage);
+        return rules.stream()
+                    .filter(rule -> MESSAGE_PARTS.containsAll(rule.getRequiredParts()))
+                    .flatMap(rule -> rule.validate(messageDetails)
+                                         .map(reason -> violation(subject, rule, reason))
+                                         .stream())
+                    .collect(Collectors.toUnmodifiableList());
+    }
+
+    private RequirementsViolation violation(String subject, CommitRule rule, String reason) {
+        String message = String.format(
+                "This message: '%s' violates the '%s' rule: %s", subject, rule.getName(), reason
+        );
+        log.debug("Rule violated: {}", message);
+        return new RequirementsViolation(message, rule.getName());
+    }
+
+    private RequirementsViolation violation(
+            RevCommit commit, CommitDetails commitDetails, CommitRule rule, String reason
+    ) {
+        RuleViolation ruleViolation = new RuleViolation(commit, commitDetails.getSubject(), rule.getName(), reason);
+        log.debug("Rule violated: {}", ruleViolation);
+        return new RequirementsViolation(ruleViolation);
+    }
+}
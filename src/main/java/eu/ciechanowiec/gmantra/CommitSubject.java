@@ -0,0 +1,89 @@
+package eu.ciechanowiec.gmantra;
+
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * First line of a commit message located directly in the raw buffer of the commit. The first line is the same
+ * as the one returned by {@link RevCommit#getShortMessage()}, i.e. the first paragraph of the message with line
+ * breaks replaced by spaces, but if it consists of ASCII characters only, which is the case for the vast majority
+ * of commits, it is neither decoded nor copied: it is matched through a view of the raw buffer. Other first lines
+ * are decoded by JGit, so the encoding declared in the header of the commit is honored. The body of the message
+ * is never decoded.
+ * <p>
+ * The raw buffer isn't modified by the walk once the body of the commit has been disposed, so the view stays valid
+ * afterwards, e.g. while it waits for a concurrent matching.
+ */
+final class CommitSubject implements CharSequence {
+
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final byte[] buffer;
+    private final int start;
+    private final int end;
+
+    private CommitSubject(byte[] buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * Locates the first line of the message of the specified commit.
+     * @param commit commit whose first line should be located; its body must not be disposed yet
+     * @return first line of the message of the commit
+     */
+    static CharSequence locate(RevCommit commit) {
+        // Conditionals and lambdas are avoided, because this method is performed for every walked commit:
+        byte[] buffer = commit.getRawBuffer();
+        int messageStart = RawParseUtils.commitMessage(buffer, 0);
+        if (messageStart < 0) {
+            return StringUtils.EMPTY;
+        }
+        int subjectEnd = RawParseUtils.endOfParagraph(buffer, messageStart);
+        return isPlainAscii(buffer, messageStart, subjectEnd)
+                ? new CommitSubject(buffer, messageStart, subjectEnd) : commit.getShortMessage();
+    }
+
+    /**
+     * Checks whether the specified bytes are ASCII characters, which are the same in UTF-8, tried first by JGit,
+     * and have no carriage returns, which are removed by JGit together with the following line feeds.
+     */
+    private static boolean isPlainAscii(byte[] buffer, int from, int to) {
+        for (int index = from; index < to; index++) {
+            byte character = buffer[index];
+            if (character < 0 || character == CARRIAGE_RETURN) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return end - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        Objects.checkIndex(index, length());
+        byte character = buffer[start + index];
+        return character == LINE_FEED ? ' ' : (char) character;
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        Objects.checkFromToIndex(from, to, length());
+        return new CommitSubject(buffer, start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, start, length(), StandardCharsets.US_ASCII).replace((char) LINE_FEED, ' ');
+    }
+}
@@ -0,0 +1,217 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validation results kept by the JVM between Maven sessions. Classes of the plugin stay loaded between builds
+ * performed by the Maven daemon (mvnd), so a repository that hasn't changed since the previous build isn't
+ * validated again. Different versions of the plugin are loaded by different class loaders, so they never share
+ * the results.
+ * <p>
+ * Every result is bound to a snapshot of references of the repository, i.e. to the target of HEAD and to IDs
+ * of all references, except for {@link VerdictNotes#NOTES_REF}, which validations themselves update. The
+ * snapshot is taken from the reference database of the repository, which rereads loose references and the
+ * '{@code packed-refs}' file only if their modification state has changed, so checking an unchanged repository
+ * is cheap, especially if the repository is kept open between builds, like repositories opened by {@link
+ * RepositoryProvider} are. Results of validations with limits relative to the moment of the validation are
+ * never kept, and neither are results of validations that recurse into submodules.
+ * <p>
+ * Only the latest result is kept for every repository, so the number of kept results is bounded by the number
+ * of repositories validated by the daemon, and results of validations against other requirements replace
+ * each other.
+ * <p>
+ * Concurrent builds in the same daemon are safe: validations of the same repository against the same
+ * requirements are performed one at a time, and a validation that waited for another one reuses its result
+ * if the references haven't changed in the meantime. Validations are performed outside the map of results,
+ * so they hold no lock of the map while they are performed.
+ */
+@Slf4j
+@ToString
+class DaemonResults {
+
+    private static final Map<String, PendingResult> RESULTS = new ConcurrentHashMap<>();
+    private static final String SNAPSHOT_SEPARATOR = String.valueOf(Character.MIN_VALUE);
+
+    @ToString.Exclude
+    private final Map<String, PendingResult> results;
+
+    DaemonResults() {
+        this.results = RESULTS;
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Returns the result of the validation of the specified repository against the specified requirements.
+     * If the repository has already been validated against the same requirements and its references haven't
+     * changed since then, the previously computed result is reused; otherwise, the validation is performed
+     * by the specified supplier.
+     * @param repository validated repository
+     * @param requirements requirements against which the repository is validated
+     * @param settings settings with which the repository is validated
+     * @param validation performs the validation if the result isn't available yet
+     * @return result of the validation
+     */
+    ValidationResult get(
+            Repository repository, RepositoryRequirements requirements, ValidationSettings settings,
+            Supplier<ValidationResult> validation
+    ) {
+        // References of submodules aren't covered by the snapshot of references of the repository:
+        boolean isCacheable = !requirements.getCommitLimits().isTimeRelative()
+                              && !requirements.getRefScope().isRecurseSubmodules();
+        return Optional.of(repository)
+                       .filter(cacheableRepository -> isCacheable)
+                       .map(cacheableRepository -> get(
+                               String.format(
+                                       "%s-%d", requirements.fingerprint(settings), settings.violationLimit()
+                               ),
+                               repository, validation
+                       ))
+                       .orElseGet(validation);
+    }
+
+    private ValidationResult get(String key, Repository repository, Supplier<ValidationResult> validation) {
+        String repositoryKey = String.valueOf(repository.getDirectory());
+        // The snapshot is taken before the validation, so references changed during the validation invalidate it:
+        PendingResult newResult = new PendingResult(key, () -> {
+            String snapshot = snapshot(repository);
+            return new SnapshotResult(snapshot, validation.get());
+        });
+        Optional<PendingResult> cachedResult = Optional.ofNullable(results.putIfAbsent(repositoryKey, newResult));
+        // If another validation has replaced the cached result in the meantime, its result is reused in the same way:
+        return cachedResult.isEmpty() ? validate(repositoryKey, newResult)
+                                      : reuse(repositoryKey, repository, cachedResult.get(), newResult).orElseGet(
+                                              () -> get(key, repository, validation)
+                                      );
+    }
+
+    /**
+     * Reuses the specified cached result, waiting for it if it is still being computed, if it has been computed
+     * against the same requirements and is up to date. Otherwise, replaces it with the specified new result,
+     * unless another validation has replaced it first.
+     * @return reused or new result; empty if another validation has replaced the cached result first
+     */
+    private Optional<ValidationResult> reuse(
+            String repositoryKey, Repository repository, PendingResult cachedResult, PendingResult newResult
+    ) {
+        boolean isSameKey = cachedResult.getKey().equals(newResult.getKey());
+        // Results for other requirements are replaced without waiting for them:
+        Optional<SnapshotResult> upToDateResult = Optional.of(cachedResult)
+                                                          .filter(result -> isSameKey)
+                                                          .map(result -> await(repositoryKey, result))
+                                                          .filter(result -> isUpToDate(repository, result));
+        log.debug("Is the validation result for {} kept by the JVM up to date? '{}'",
+                  repositoryKey, upToDateResult.isPresent());
+        return upToDateResult.map(SnapshotResult::getResult)
+                             .or(() -> Optional.of(newResult)
+                                               .filter(replacement -> results.replace(
+                                                       repositoryKey, cachedResult, replacement
+                                               ))
+                                               .map(replacement -> validate(repositoryKey, replacement)));
+    }
+
+    private boolean isUpToDate(Repository repository, SnapshotResult result) {
+        return snapshot(repository).equals(result.getSnapshot());
+    }
+
+    private ValidationResult validate(String repositoryKey, PendingResult newResult) {
+        newResult.run();
+        return await(repositoryKey, newResult).getResult();
+    }
+
+    /**
+     * Waits for the specified result. Failed validations aren't kept, so they are performed again
+     * by subsequent builds.
+     */
+    @SneakyThrows
+    @SuppressWarnings("PMD.PreserveStackTrace")
+    private SnapshotResult await(String repositoryKey, PendingResult result) {
+        try {
+            return result.get();
+        } catch (ExecutionException exception) {
+            results.remove(repositoryKey, result);
+            throw exception.getCause();
+        }
+    }
+
+    /**
+     * Returns a hash of the target of HEAD and of IDs of all references of the specified repository,
+     * except for verdict notes.
+     */
+    @SneakyThrows
+    @SuppressWarnings("ChainedMethodCall")
+    private static String snapshot(Repository repository) {
+        Stream<Ref> head = Optional.ofNullable(repository.exactRef(Constants.HEAD)).stream();
+        String refs = Stream.concat(head, repository.getRefDatabase().getRefs().stream())
+                            .filter(ref -> !VerdictNotes.NOTES_REF.equals(ref.getName()))
+                            .sorted(Comparator.comparing(Ref::getName))
+                            .map(ref -> String.join(
+                                    " ", ref.getName(), ref.getTarget().getName(), String.valueOf(ref.getObjectId())
+                            ))
+                            .collect(Collectors.joining(SNAPSHOT_SEPARATOR));
+        byte[] refsBytes = refs.getBytes(StandardCharsets.UTF_8);
+        try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            return formatter.idFor(Constants.OBJ_BLOB, refsBytes).name();
+        }
+    }
+
+    /**
+     * Validation result with the snapshot of references it is bound to.
+     */
+    @ToString
+    private static final class SnapshotResult {
+
+        private final String snapshot;
+
+        @ToString.Exclude
+        private final ValidationResult result;
+
+        private SnapshotResult(String snapshot, ValidationResult result) {
+            this.snapshot = snapshot;
+            this.result = result;
+        }
+
+        private String getSnapshot() {
+            return snapshot;
+        }
+
+        private ValidationResult getResult() {
+            return result;
+        }
+    }
+
+    /**
+     * Validation of a repository that is pending or has been performed, with the key of the requirements
+     * and the settings it is performed with.
+     */
+    private static final class PendingResult extends FutureTask<SnapshotResult> {
+
+        private final String key;
+
+        private PendingResult(String key, Callable<SnapshotResult> validation) {
+            super(validation);
+            this.key = key;
+        }
+
+        private String getKey() {
+            return key;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Rule that commit messages, including their bodies, must not contain any of the forbidden words,
+ * e.g. '{@code WIP}' or '{@code fixup}'. Words are matched as whole words, case-insensitively, and all of them
+ * are searched for in a single pass over the message.
+ * <p>
+ * The searched regular expression consists only of constructs that both {@link RegexEngine}s interpret
+ * in the same way: word boundaries are spelled out as classes of word characters instead of lookarounds,
+ * and cases are folded by listing all cases of every letter instead of by flags.
+ */
+@Slf4j
+@ToString
+class ForbiddenWordsRule implements CommitRule {
+
+    static final String NAME = "forbiddenWords";
+    private static final String WORDS_SEPARATOR = ",";
+    private static final String NON_WORD_CHARACTER = "[^\\p{L}\\p{M}\\p{Nd}\\p{Nl}\\p{Pc}]";
+
+    @ToString.Exclude
+    private final String forbiddenWords;
+    private final CaseConsideringPattern forbiddenPattern;
+
+    /**
+     * Constructs an instance of this class.
+     * @param forbiddenWords comma-separated forbidden words; at least one word is required
+     */
+    ForbiddenWordsRule(String forbiddenWords) {
+        this(forbiddenWords, RegexEngine.JAVA, Duration.ZERO);
+    }
+
+    private ForbiddenWordsRule(String forbiddenWords, RegexEngine engine, Duration matchTimeout) {
+        this.forbiddenWords = forbiddenWords;
+        String alternatives = Stream.of(forbiddenWords.split(WORDS_SEPARATOR))
+                                    .map(String::trim)
+                                    .filter(StringUtils::isNotEmpty)
+                                    .distinct()
+                                    .map(ForbiddenWordsRule::caseless)
+                                    .collect(Collectors.joining("|"));
+        this.forbiddenPattern = new CaseConsideringPattern(
+                String.format("(?:^|%s)(%s)(?:%s|$)", NON_WORD_CHARACTER, alternatives, NON_WORD_CHARACTER),
+                true, engine, matchTimeout
+        );
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Converts the specified word into a regular expression that matches the word in any case.
+     */
+    private static String caseless(String word) {
+        return word.codePoints().mapToObj(codePoint -> {
+            List<String> cases = IntStream.of(
+                    codePoint, Character.toLowerCase(codePoint), Character.toUpperCase(codePoint),
+                    Character.toTitleCase(codePoint)
+            ).distinct().mapToObj(ForbiddenWordsRule::literal).collect(Collectors.toUnmodifiableList());
+            return cases.size() == 1 ? cases.get(0) : cases.stream().collect(Collectors.joining("", "[", "]"));
+        }).collect(Collectors.joining());
+    }
+
+    private static String literal(int codePoint) {
+        return Character.isLetterOrDigit(codePoint)
+                ? Character.toString(codePoint) : String.format("\\x{%x}", codePoint);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<Part> getRequiredParts() {
+        return Set.of(Part.FULL_MESSAGE);
+    }
+
+    @Override
+    public Optional<String> validate(CommitDetails commit) {
+        return forbiddenPattern.newFindFunction(1)
+                               .apply(commit.getFullMessage())
+                               .map(foundWord -> String.format(
+                                       "the message contains this forbidden word: '%s'", foundWord
+                               ));
+    }
+
+    @Override
+    public CommitRule withRegexEngine(RegexEngine engine, Duration matchTimeout) {
+        return new ForbiddenWordsRule(forbiddenWords, engine, matchTimeout);
+    }
+}
@@ -0,0 +1,205 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Command-line entry point of the validation, which doesn't require Maven, so it starts fast enough
+ * to be used in Git hooks. The configuration of the plugin is read straight from the '{@code pom.xml}' file
+ * of the project. Supported options:
+ * <ul>
+ *     <li>'{@code --directory <path>}' - directory of the validated repository; the current directory by default;</li>
+ *     <li>'{@code --pom <path>}' - '{@code pom.xml}' file to read the configuration from; the '{@code pom.xml}'
+ *     file in the directory of the repository by default; if the file doesn't exist, the default configuration
+ *     is used;</li>
+ *     <li>'{@code --message-file <path>}' - file with a commit message to validate instead of the repository,
+ *     as passed to the '{@code commit-msg}' hook; in this case, the repository is opened only if the allowed
+ *     pattern depends on the current branch, i.e. if there are any branch message rules
+ *     (see {@link CommitMessageFile});</li>
+ *     <li>'{@code --ref-updates <path>}' - file with updates of references requested by a push, in the format
+ *     passed to the '{@code pre-receive}' hook, or '{@code -}' to read them from the standard input; only names
+ *     of created branches and commits introduced by the push are validated in this case
+ *     (see {@link PushValidator}).</li>
+ * </ul>
+ * If the directory isn't specified, the repository is resolved like by Git itself, i.e. with respect
+ * to the environment variables such as '{@code GIT_DIR}', which are set for hooks.
+ * The exit code is '{@code 0}' if no violations are found, '{@code 1}' if violations are found and the
+ * '{@code failOnViolations}' parameter is enabled, and '{@code 2}' if the options are invalid.
+ * <p>
+ * Nothing is logged by this class, because the logging is configured by {@link #main(String...)}
+ * before it is initialized.
+ */
+@SuppressWarnings({"PMD.SystemPrintln", "PMD.DoNotTerminateVM"})
+class GitMantraCli {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_VIOLATIONS = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final String DIRECTORY_OPTION = "--directory";
+    private static final String POM_OPTION = "--pom";
+    private static final String MESSAGE_FILE_OPTION = "--message-file";
+    private static final String REF_UPDATES_OPTION = "--ref-updates";
+    private static final Set<String> OPTIONS = Set.of(
+            DIRECTORY_OPTION, POM_OPTION, MESSAGE_FILE_OPTION, REF_UPDATES_OPTION
+    );
+    private static final String STANDARD_INPUT = "-";
+    private static final String LOG_LEVEL_PROPERTY = "tinylog.level";
+    private static final String USAGE = "Usage: java -jar gmantra-cli.jar [--directory <path>] [--pom <path>] "
+                                        + "[--message-file <path> | --ref-updates <path>|-]";
+
+    private final InputStream input;
+    private final PrintStream output;
+
+    GitMantraCli(InputStream input, PrintStream output) {
+        this.input = input;
+        this.output = output;
+    }
+
+    /**
+     * Runs the validation and terminates the JVM with the resulting exit code. Unless the log level
+     * is configured explicitly, only warnings and errors are logged, so that the output consists of violations.
+     * @param args command-line options
+     */
+    public static void main(String... args) {
+        Conditional.onTrueExecute(
+                Optional.ofNullable(System.getProperty(LOG_LEVEL_PROPERTY)).isEmpty(),
+                () -> System.setProperty(LOG_LEVEL_PROPERTY, "warn")
+        );
+        System.exit(new GitMantraCli(System.in, System.err).run(args));
+    }
+
+    /**
+     * Runs the validation.
+     * @param args command-line options
+     * @return exit code
+     */
+    @SuppressWarnings("squid:S1166")
+    int run(String... args) {
+        try {
+            Map<String, String> options = parse(args);
+            Path directory = Path.of(options.getOrDefault(DIRECTORY_OPTION, "."));
+            PluginConfiguration configuration = Optional.ofNullable(options.get(POM_OPTION))
+                                                        .map(Path::of)
+                                                        .or(() -> Optional.of(directory.resolve("pom.xml")))
+                                                        .filter(Files::isRegularFile)
+                                                        .map(PluginConfiguration::read)
+                                                        .orElseGet(PluginConfiguration::defaults);
+            RepositoryProvider repositoryProvider = Optional.ofNullable(options.get(DIRECTORY_OPTION))
+                                                            .map(File::new)
+                                                            .map(RepositoryProvider::new)
+                                                            .orElseGet(RepositoryProvider::new);
+            ValidationResult validationResult = Optional.ofNullable(options.get(MESSAGE_FILE_OPTION))
+                    .map(messageFile -> validate(
+                            new CommitMessageFile(Path.of(messageFile)), configuration, repositoryProvider
+                    ))
+                    .orElseGet(() -> validate(repositoryProvider, validatorFactory(options, configuration)));
+            return report(validationResult, configuration);
+        } catch (IllegalArgumentException exception) {
+            output.println(exception.getMessage());
+            output.println(USAGE);
+            return EXIT_USAGE;
+        }
+    }
+
+    private ValidationResult validate(
+            CommitMessageFile messageFile, PluginConfiguration configuration, RepositoryProvider repositoryProvider
+    ) {
+        List<RequirementsViolation> violations = messageFile.validate(
+                configuration.requirements(), configuration.settings(), repositoryProvider
+        );
+        return new ValidationResult(violations);
+    }
+
+    private ValidationResult validate(
+            RepositoryProvider repositoryProvider, Function<Repository, Validator> validatorFactory
+    ) {
+        try (Repository repository = repositoryProvider.get()) {
+            return validatorFactory.apply(repository).validate();
+        }
+    }
+
+    private Function<Repository, Validator> validatorFactory(
+            Map<String, String> options, PluginConfiguration configuration
+    ) {
+        RepositoryRequirements requirements = configuration.requirements();
+        ValidationSettings settings = configuration.settings();
+        Function<Repository, Validator> clusterFactory
+                = repository -> new ValidatorsCluster(repository, requirements, settings)::validate;
+        return Optional.ofNullable(options.get(REF_UPDATES_OPTION))
+                       .map(this::readRefUpdates)
+                       .<Function<Repository, Validator>>map(refUpdates -> repository -> new PushValidator(
+                               repository, requirements, settings, refUpdates
+                       ))
+                       .orElse(clusterFactory);
+    }
+
+    @SneakyThrows
+    private List<PushedRefUpdate> readRefUpdates(String source) {
+        try (BufferedReader reader = STANDARD_INPUT.equals(source)
+                ? new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(source), StandardCharsets.UTF_8)) {
+            return reader.lines()
+                         .filter(line -> !line.isBlank())
+                         .map(PushedRefUpdate::parse)
+                         .collect(Collectors.toUnmodifiableList());
+        }
+    }
+
+    private int report(ValidationResult validationResult, PluginConfiguration configuration) {
+        List<RequirementsViolation> violations = List.copyOf(validationResult.getViolations());
+        int maxLoggedViolations = configuration.getMaxLoggedViolations();
+        long numOfPrintedViolations = maxLoggedViolations > 0 ? maxLoggedViolations : violations.size();
+        violations.stream()
+                  .limit(numOfPrintedViolations)
+                  .map(RequirementsViolation::getMessage)
+                  .forEach(output::println);
+        Conditional.onTrueExecute(violations.size() > numOfPrintedViolations, () -> output.printf(
+                "... and %d more violation(s)%n", violations.size() - numOfPrintedViolations
+        ));
+        Conditional.onFalseExecute(violations.isEmpty(), () -> output.printf(
+                "Git Mantra: %d violation(s) found%n", violations.size()
+        ));
+        boolean doFail = configuration.isFailOnViolations() && !violations.isEmpty();
+        return doFail ? EXIT_VIOLATIONS : EXIT_OK;
+    }
+
+    private Map<String, String> parse(String... args) {
+        Conditional.isTrueOrThrow(
+                args.length % 2 == 0, new IllegalArgumentException("Every option requires a value")
+        );
+        Map<String, String> options = IntStream.iterate(0, argIndex -> argIndex < args.length, argIndex -> argIndex + 2)
+                                               .boxed()
+                                               .collect(Collectors.toUnmodifiableMap(
+                                                       argIndex -> args[argIndex], argIndex -> args[argIndex + 1],
+                                                       (first, last) -> last
+                                               ));
+        options.keySet().stream().filter(option -> !OPTIONS.contains(option)).findFirst().ifPresent(option -> {
+            throw new IllegalArgumentException(String.format("Unknown option: '%s'", option));
+        });
+        Conditional.isFalseOrThrow(
+                options.containsKey(MESSAGE_FILE_OPTION) && options.containsKey(REF_UPDATES_OPTION),
+                new IllegalArgumentException(String.format(
+                        "Options '%s' and '%s' are mutually exclusive", MESSAGE_FILE_OPTION, REF_UPDATES_OPTION
+                ))
+        );
+        return options;
+    }
+}
@@ -0,0 +1,113 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validation of a {@link CommitRange} that reuses verdicts persisted in a {@link VerdictStore}.
+ * <p>
+ * Violations of a full validation are passed to the listener as soon as they are found. Violations found
+ * by a walk that reuses verdicts are passed to the listener only together with the reused ones, once it is known
+ * that the validated tips cover the range, since otherwise the range is walked once again.
+ */
+@Slf4j
+@ToString
+class IncrementalValidation {
+
+    private final VerdictStore verdictStore;
+
+    @ToString.Exclude
+    private final Function<ViolationListener, MessageMatching> matching;
+
+    @ToString.Exclude
+    private final ViolationListener listener;
+
+    /**
+     * Constructs an instance of this class.
+     * @param verdictStore store of verdicts of validated tips
+     * @param matching creates a matching that passes violations to the specified listener
+     * @param listener listener notified of every violation found in, or reused for, the validated range
+     */
+    IncrementalValidation(
+            VerdictStore verdictStore, Function<ViolationListener, MessageMatching> matching,
+            ViolationListener listener
+    ) {
+        this.verdictStore = verdictStore;
+        this.matching = matching;
+        this.listener = listener;
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Validates only commits that aren't reachable from tips validated by previous validations
+     * and reuses violations recorded for those tips. If the validated tips don't cover all
+     * the already visited history, the whole range is validated. That is also the case if the 'until'
+     * commit is an ancestor of a validated tip, e.g. after a reset or after checking out the branch
+     * a validated branch has been built on: the verdict of such a tip includes violations of commits
+     * that don't belong to the range, so it can't be reused. The 'until' commit of the range
+     * is recorded as a validated tip afterwards.
+     * @param range range of commits to validate; the 'since' commit itself isn't validated
+     * @return violations found in the range
+     */
+    List<RequirementsViolation> validate(CommitRange range) {
+        RevCommit until = range.getUntil();
+        Optional<List<RequirementsViolation>> untilVerdict = verdictStore.find(until);
+        untilVerdict.ifPresent(verdict -> {
+            log.debug("Reusing verdict for already validated {}", until);
+            verdict.forEach(listener::found);
+        });
+        return untilVerdict.orElseGet(() -> reuse(verdictStore.tips(), range).orElseGet(() -> {
+            List<RequirementsViolation> violations = validateAll(range);
+            verdictStore.save(until, violations, List.of());
+            return violations;
+        }));
+    }
+
+    private Optional<List<RequirementsViolation>> reuse(Set<ObjectId> validatedTips, CommitRange range) {
+        List<RequirementsViolation> newViolations;
+        Set<RevCommit> boundaries;
+        try (MessageMatching newMatching = matching.apply(ViolationListener.NONE)) {
+            boundaries = range.walk(validatedTips, newMatching);
+            newViolations = newMatching.finish();
+        }
+        List<RevCommit> reusedTips = boundaries.stream()
+                                               .filter(validatedTips::contains)
+                                               .collect(Collectors.toUnmodifiableList());
+        List<List<RequirementsViolation>> reusedVerdicts = reusedTips.stream()
+                                                                     .map(verdictStore::find)
+                                                                     .flatMap(Optional::stream)
+                                                                     .collect(Collectors.toUnmodifiableList());
+        // An excluded 'until' commit is a boundary itself, so a walk that has visited nothing isn't covered:
+        boolean isCovered = reusedVerdicts.size() == reusedTips.size() && boundaries.stream().allMatch(
+                boundary -> validatedTips.contains(boundary) || range.precedes(boundary)
+        );
+        log.debug("Boundaries of the walk: {}. Covered by validated tips: '{}'", boundaries, isCovered);
+        return Optional.of(isCovered)
+                       .filter(Boolean::booleanValue)
+                       .map(covered -> {
+                           verdictStore.save(range.getUntil(), newViolations, reusedTips);
+                           // Histories of different tips might overlap, so violations are merged:
+                           List<RequirementsViolation> violations = VerdictStore.merge(Stream.concat(
+                                   newViolations.stream(), reusedVerdicts.stream().flatMap(Collection::stream)
+                           ));
+                           violations.forEach(listener::found);
+                           return violations;
+                       });
+    }
+
+    private List<RequirementsViolation> validateAll(CommitRange range) {
+        try (MessageMatching fullMatching = matching.apply(listener)) {
+            return fullMatching.validate(range);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.Writer;
+import java.util.stream.Collectors;
+
+/**
+ * Writer of a report in the JUnit XML format, which is understood by most CI servers. Every violation
+ * is reported as a failed test case named after the violated rule and the commit. If there are no violations,
+ * a single passed test case is reported, so that the report is never empty.
+ * <p>
+ * Test cases are written as soon as violations are found, so the suite that contains them has no counts.
+ * The numbers of tests and failures are written afterwards, as a trailing summary suite without test cases.
+ */
+class JUnitXmlReportWriter extends AbstractViolationReportWriter {
+
+    private static final String SUITE_NAME = "gmantra";
+
+    JUnitXmlReportWriter(Writer output) {
+        super(output);
+    }
+
+    @Override
+    void begin() {
+        print("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        printLine(String.format("<testsuites name=\"%s\">", SUITE_NAME));
+        printLine(String.format("  <testsuite name=\"%s\">", SUITE_NAME));
+    }
+
+    @Override
+    void write(RequirementsViolation violation) {
+        String rule = violation.getRule();
+        String name = violation.getCommitId().map(ObjectId::name).orElse(rule);
+        String details = fields(violation).entrySet()
+                                          .stream()
+                                          .map(field -> String.format("%s: %s", field.getKey(), field.getValue()))
+                                          .collect(Collectors.joining("\n"));
+        printLine(String.format("    <testcase classname=\"%s.%s\" name=\"%s\">", SUITE_NAME, rule, xml(name)));
+        printLine(String.format(
+                "      <failure type=\"%s\" message=\"%s\">%s</failure>",
+                rule, xml(violation.getMessage()), xml(details)
+        ));
+        printLine("    </testcase>");
+    }
+
+    @Override
+    void end(int numOfViolations) {
+        Conditional.onTrueExecute(
+                numOfViolations == 0,
+                () -> printLine(String.format("    <testcase classname=\"%s\" name=\"repository\"/>", SUITE_NAME))
+        );
+        printLine("  </testsuite>");
+        printLine(String.format(
+                "  <testsuite name=\"%s.summary\" tests=\"%d\" failures=\"%d\" errors=\"0\" skipped=\"0\"/>",
+                SUITE_NAME, Math.max(numOfViolations, 1), numOfViolations
+        ));
+        print("</testsuites>\n");
+    }
+}
@@ -0,0 +1,30 @@
+package eu.ciechanowiec.gmantra;
+
+import java.io.Writer;
+
+/**
+ * Writer of a report in the JSON Lines format, i.e. a report where every line is a JSON object
+ * that describes a single violation.
+ */
+class JsonLinesReportWriter extends AbstractViolationReportWriter {
+
+    JsonLinesReportWriter(Writer output) {
+        super(output);
+    }
+
+    @Override
+    void begin() {
+        // The format has neither a header nor a footer
+    }
+
+    @Override
+    void write(RequirementsViolation violation) {
+        print(json(fields(violation)));
+        print("\n");
+    }
+
+    @Override
+    void end(int numOfViolations) {
+        // The format has neither a header nor a footer
+    }
+}
@@ -0,0 +1,20 @@
+package eu.ciechanowiec.gmantra;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.Duration;
+
+class MatchTimeoutException extends RuntimeException {
+
+    private static final int MAX_INPUT_LENGTH = 100;
+
+    MatchTimeoutException(CharSequence input, CaseConsideringPattern pattern, Duration timeout) {
+        super(String.format(
+                "Matching of this input: '%s' against this pattern: '%s' exceeded the time limit of %d ms. "
+                + "The pattern is probably prone to catastrophic backtracking; simplify the pattern "
+                + "or use the '%s' regex engine",
+                StringUtils.abbreviate(input.toString(), MAX_INPUT_LENGTH), pattern, timeout.toMillis(),
+                RegexEngine.AUTOMATON
+        ));
+    }
+}
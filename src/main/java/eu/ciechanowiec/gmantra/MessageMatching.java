@@ -0,0 +1,341 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Matching of messages of commits passed by a walk one at a time. If the parallelism is greater than one,
+ * first lines of commit messages are extracted by the walking thread and matched in batches concurrently
+ * by a dedicated pool, while the walk proceeds. Regardless of the parallelism, violations are reported in the
+ * order in which commits have been walked.
+ * <p>
+ * Unless any {@link CommitRule} is applied, matching allocates nothing but a {@link CommitSubject} view of the first
+ * line of every commit message: a single matcher is reused for all messages matched by the same thread, and
+ * violations are captured as {@link MessageMismatch}es, which are rendered only when reported.
+ * <p>
+ * The number of batches that are matched at the same time is bounded, so the memory consumed by the matching
+ * doesn't depend on the number of walked commits. Ranges that fit into a single batch are always matched
+ * by the walking thread, so validation of small ranges doesn't pay for the parallelism.
+ * <p>
+ * {@link CommitRules} are applied to every walked commit as well, in the same walk. They need the body
+ * of the commit, so they are always applied by the walking thread, and their violations are reported
+ * together with the mismatch of the message of the same commit, if any.
+ * <p>
+ * {@link ChangedPathRules} are applied in the same walk, too, but they need diffs of commits, which are computed
+ * in batches, possibly concurrently. Pending diffs are carried along with first lines of commit messages, so their
+ * violations are reported together with other violations of the same commit, in the order of the walk, and count
+ * towards the limit of violations.
+ * <p>
+ * Once the limit of violations is reached, the walk over a range is stopped. Batches that are matched
+ * concurrently are reported as soon as they are matched, so the walk stops shortly after the limit is reached
+ * even if the matching is parallel.
+ * <p>
+ * If a JDK Flight Recorder recording is running when the matching is created, every {@link #BATCH_SIZE} walked
+ * commits are recorded as a {@link ValidationEvents.WalkBatch} and matches slower than the threshold of the
+ * {@link ValidationEvents.SlowMatch} are recorded as well. Otherwise, no events are instantiated at all.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings("PMD.DoNotUseThreads")
+class MessageMatching implements Consumer<RevCommit>, AutoCloseable {
+
+    static final int BATCH_SIZE = 1024;
+    private static final int PENDING_BATCHES_PER_THREAD = 2;
+
+    private final int parallelism;
+    private final CaseConsideringPattern allowedPattern;
+    private final CommitRules commitRules;
+    private final ChangedPathRules changedPathRules;
+    private final int violationLimit;
+
+    @ToString.Exclude
+    private final ViolationListener listener;
+
+    @ToString.Exclude
+    private final boolean isWalkBatchRecorded;
+
+    @ToString.Exclude
+    private final boolean isSlowMatchRecorded;
+
+    @ToString.Exclude
+    private final Predicate<CharSequence> matchPredicate;
+
+    @ToString.Exclude
+    private final Optional<ForkJoinPool> pool;
+
+    @ToString.Exclude
+    private final Deque<ForkJoinTask<List<CommitMessage>>> pendingBatches;
+
+    @ToString.Exclude
+    private final List<RequirementsViolation> violations;
+
+    @ToString.Exclude
+    private final ValidationMetrics metrics;
+
+    @ToString.Exclude
+    private List<CommitMessage> batch;
+
+    @ToString.Exclude
+    private long numOfUnfinishedCommits;
+
+    @ToString.Exclude
+    private long numOfUnfinishedViolatedCommits;
+
+    @ToString.Exclude
+    private Optional<ValidationEvents.WalkBatch> walkBatch;
+
+    /**
+     * Constructs an instance of this class.
+     * @param parallelism number of threads that match messages; if it is not greater than one,
+     *                    messages are matched by the walking thread
+     * @param allowedPattern pattern that commit messages must match
+     * @param commitRules rules that walked commits must meet
+     * @param changedPathRules rules that walked commits must meet depending on paths they change
+     * @param metrics metrics that numbers of matched commits are recorded in
+     * @param violationLimit number of violations after which the walk over a range is stopped
+     *                       and further violations aren't reported
+     * @param listener listener notified of every reported violation as soon as it is reported
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    MessageMatching(
+            int parallelism, CaseConsideringPattern allowedPattern, CommitRules commitRules,
+            ChangedPathRules changedPathRules, ValidationMetrics metrics, int violationLimit, ViolationListener listener
+    ) {
+        this.parallelism = parallelism;
+        this.allowedPattern = allowedPattern;
+        this.commitRules = commitRules;
+        this.changedPathRules = changedPathRules;
+        this.violationLimit = violationLimit;
+        this.listener = listener;
+        this.isWalkBatchRecorded = new ValidationEvents.WalkBatch().isEnabled();
+        this.isSlowMatchRecorded = new ValidationEvents.SlowMatch().isEnabled();
+        this.matchPredicate = allowedPattern.newMatchPredicate();
+        // Threads of the pool are started only when the first batch is submitted:
+        this.pool = Optional.of(parallelism).filter(threads -> threads > 1).map(ForkJoinPool::new);
+        this.pendingBatches = new ArrayDeque<>();
+        this.violations = new ArrayList<>();
+        this.metrics = metrics;
+        this.batch = new ArrayList<>(BATCH_SIZE);
+        this.walkBatch = Optional.empty();
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Walks all commits in the specified range and matches their messages. The walk is stopped as soon as
+     * the limit of violations is reached.
+     * @param range range of commits to validate
+     * @return violations found in the range, in the order of the walk
+     */
+    List<RequirementsViolation> validate(CommitRange range) {
+        return validate(range, Set.of());
+    }
+
+    /**
+     * Walks commits in the specified range that aren't reachable from any of the excluded tips and matches
+     * their messages. The walk is stopped as soon as the limit of violations is reached.
+     * @param range range of commits to validate
+     * @param excludedTips commits which, together with their ancestors, should not be validated
+     * @return violations found in the range, in the order of the walk
+     */
+    List<RequirementsViolation> validate(CommitRange range, Collection<? extends ObjectId> excludedTips) {
+        range.walk(excludedTips, this, this::isLimitReached);
+        return finish();
+    }
+
+    /**
+     * Validates the specified commit and waits until messages of all accepted commits are matched.
+     * @param commit commit to validate
+     * @return violations related to the specified commit, i.e. the mismatch of its message, if the message
+     *         doesn't match the allowed pattern, followed by violations of rules
+     */
+    List<RequirementsViolation> validate(RevCommit commit) {
+        int numOfViolations = violations.size();
+        accept(commit);
+        return finish().stream().skip(numOfViolations).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Checks whether the limit of violations has been reached by the violations reported so far.
+     * @return '{@code true}' if the limit of violations has been reached; '{@code false}' otherwise
+     */
+    boolean isLimitReached() {
+        return violations.size() >= violationLimit;
+    }
+
+    @Override
+    public void accept(RevCommit commit) {
+        // The body of the commit is disposed after this method returns, so the first line is located right away.
+        // Conditionals and lambdas are avoided, because this method is performed for every walked commit:
+        CharSequence shortMessage = CommitSubject.locate(commit);
+        List<RequirementsViolation> ruleViolations = commitRules.validate(commit, shortMessage);
+        Optional<ChangedPathRules.Candidate> pathCandidate = changedPathRules.accept(commit, shortMessage);
+        numOfUnfinishedCommits++;
+        if (isWalkBatchRecorded) {
+            recordWalkedCommit();
+        }
+        if (pool.isEmpty()) {
+            match(commit, shortMessage, ruleViolations, pathCandidate);
+        } else {
+            enqueue(commit, shortMessage, ruleViolations, pathCandidate);
+        }
+    }
+
+    /**
+     * Waits until messages of all accepted commits are matched.
+     * @return violations found among all accepted commits, in the order of acceptance,
+     *         but no more than the limit of violations
+     */
+    List<RequirementsViolation> finish() {
+        metrics.measureExecution(ValidationMetrics.Phase.MATCHING, () -> {
+            awaitPendingBatches(0);
+            findViolatingMessages(batch, matchPredicate).forEach(this::report);
+        });
+        batch = new ArrayList<>(BATCH_SIZE);
+        commitWalkBatch();
+        metrics.countMatchedCommits(numOfUnfinishedCommits, numOfUnfinishedViolatedCommits);
+        numOfUnfinishedCommits = 0;
+        numOfUnfinishedViolatedCommits = 0;
+        log.debug("Matching finished by {}. Number of violations: {}", this, violations.size());
+        return List.copyOf(violations.subList(0, Math.min(violations.size(), violationLimit)));
+    }
+
+    @Override
+    public void close() {
+        pool.ifPresent(ForkJoinPool::shutdownNow);
+        changedPathRules.close();
+    }
+
+    private void match(
+            RevCommit commit, CharSequence shortMessage, List<RequirementsViolation> ruleViolations,
+            Optional<ChangedPathRules.Candidate> pathCandidate
+    ) {
+        boolean matches = matches(matchPredicate, commit, shortMessage);
+        log.trace("Does the message of {} match? Answer: '{}'", commit, matches);
+        if (!matches || !ruleViolations.isEmpty() || pathCandidate.isPresent()) {
+            report(new CommitMessage(commit, shortMessage, ruleViolations, pathCandidate, !matches));
+        }
+    }
+
+    private void enqueue(
+            RevCommit commit, CharSequence shortMessage, List<RequirementsViolation> ruleViolations,
+            Optional<ChangedPathRules.Candidate> pathCandidate
+    ) {
+        batch.add(new CommitMessage(commit, shortMessage, ruleViolations, pathCandidate));
+        if (batch.size() >= BATCH_SIZE) {
+            submit(batch);
+        }
+    }
+
+    private void submit(List<CommitMessage> fullBatch) {
+        batch = new ArrayList<>(BATCH_SIZE);
+        // Commits of the batch are diffed while their messages are matched, so reporting them doesn't wait long:
+        changedPathRules.submit();
+        ForkJoinPool threads = pool.orElseThrow();
+        // Every batch is matched by a single thread, so it gets its own predicate:
+        pendingBatches.add(threads.submit(() -> findViolatingMessages(fullBatch, allowedPattern.newMatchPredicate())));
+        awaitPendingBatches(parallelism * PENDING_BATCHES_PER_THREAD);
+        reportMatchedBatches();
+    }
+
+    private void reportMatchedBatches() {
+        // Batches that have already been matched are reported right away, so the walk can be stopped early:
+        while (!pendingBatches.isEmpty() && pendingBatches.getFirst().isDone()) {
+            pendingBatches.removeFirst().join().forEach(this::report);
+        }
+    }
+
+    private void awaitPendingBatches(int maxNumOfPendingBatches) {
+        while (pendingBatches.size() > maxNumOfPendingBatches) {
+            // Batches are awaited in the order of submission, so violations are ordered as commits:
+            pendingBatches.removeFirst().join().forEach(this::report);
+        }
+    }
+
+    private List<CommitMessage> findViolatingMessages(
+            List<CommitMessage> commitMessages, Predicate<CharSequence> batchMatchPredicate
+    ) {
+        return commitMessages.stream()
+                             .map(commitMessage -> matches(
+                                     batchMatchPredicate, commitMessage.getCommit(), commitMessage.getShortMessage()
+                             ) ? commitMessage : commitMessage.mismatched())
+                             .filter(CommitMessage::isViolating)
+                             .collect(Collectors.toUnmodifiableList());
+    }
+
+    private boolean matches(Predicate<CharSequence> predicate, ObjectId commitId, CharSequence shortMessage) {
+        if (!isSlowMatchRecorded) {
+            return predicate.test(shortMessage);
+        }
+        ValidationEvents.SlowMatch event = new ValidationEvents.SlowMatch();
+        event.begin();
+        boolean matches = predicate.test(shortMessage);
+        event.end();
+        // The threshold of the event is checked before the commit ID is formatted:
+        if (event.shouldCommit()) {
+            event.commitId = commitId.name();
+            event.pattern = allowedPattern.toString();
+            event.commit();
+        }
+        return matches;
+    }
+
+    private void recordWalkedCommit() {
+        ValidationEvents.WalkBatch event = walkBatch.orElseGet(() -> {
+            ValidationEvents.WalkBatch newEvent = new ValidationEvents.WalkBatch();
+            newEvent.begin();
+            walkBatch = Optional.of(newEvent);
+            return newEvent;
+        });
+        event.numOfCommits++;
+        if (event.numOfCommits >= BATCH_SIZE) {
+            commitWalkBatch();
+        }
+    }
+
+    private void commitWalkBatch() {
+        walkBatch.ifPresent(event -> {
+            event.numOfReportedViolations = violations.size();
+            event.commit();
+        });
+        walkBatch = Optional.empty();
+    }
+
+    /**
+     * Reports a mismatch and violations of rules related to the same commit, waiting for the diff of the commit
+     * if needed, and passes them to the listener. Mismatches are reported only by the walking thread, because
+     * the commit can be modified by the walk.
+     */
+    private void report(CommitMessage violatingMessage) {
+        int numOfPreviousViolations = violations.size();
+        Optional.of(violatingMessage).filter(CommitMessage::isMismatch).map(
+                mismatch -> new MessageMismatch(
+                        mismatch.getCommit(), mismatch.getShortMessage().toString(), allowedPattern
+                )
+        ).ifPresent(messageMismatch -> {
+            log.debug("Mismatch found: {}", messageMismatch);
+            violations.add(new RequirementsViolation(messageMismatch));
+        });
+        violations.addAll(violatingMessage.getRuleViolations());
+        violatingMessage.getPathCandidate().map(changedPathRules::violations).ifPresent(violations::addAll);
+        numOfUnfinishedViolatedCommits += violations.size() > numOfPreviousViolations ? 1 : 0;
+        // Only violations within the limit are passed on, because further ones aren't reported by the result:
+        int numOfReportedViolations = Math.min(violations.size(), violationLimit);
+        violations.subList(Math.min(numOfPreviousViolations, numOfReportedViolations), numOfReportedViolations)
+                  .forEach(listener::found);
+    }
+}
@@ -0,0 +1,86 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Commit message that doesn't match the allowed pattern. Only the structured data is captured when
+ * the mismatch is detected; the human-readable description is rendered when it is actually reported.
+ */
+@ToString
+@Getter(AccessLevel.PACKAGE)
+class MessageMismatch {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @ToString.Exclude
+    private final ObjectId commitId;
+    private final String commitDescription;
+    private final int commitTime;
+    private final String shortMessage;
+    private final String pattern;
+
+    /**
+     * Constructs an instance of this class.
+     * @param commit commit whose message doesn't match the pattern; its description is captured as well,
+     *               so the commit can be modified afterwards by the walk it comes from
+     * @param shortMessage first line of the commit message
+     * @param pattern pattern that the message doesn't match
+     */
+    MessageMismatch(RevCommit commit, String shortMessage, CaseConsideringPattern pattern) {
+        this.commitId = commit.copy();
+        this.commitDescription = describe(commit);
+        this.commitTime = commit.getCommitTime();
+        this.shortMessage = shortMessage;
+        this.pattern = pattern.toString();
+    }
+
+    /**
+     * Constructs an instance of this class from data captured when the mismatch was detected.
+     * @param commitId ID of the commit whose message doesn't match the pattern
+     * @param commitDescription description of the commit
+     * @param commitTime time of the commit, in seconds since the epoch
+     * @param shortMessage first line of the commit message
+     * @param pattern pattern that the message doesn't match
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    MessageMismatch(ObjectId commitId, String commitDescription, int commitTime, String shortMessage, String pattern) {
+        this.commitId = commitId.copy();
+        this.commitDescription = commitDescription;
+        this.commitTime = commitTime;
+        this.shortMessage = shortMessage;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Describes the specified commit by its ID and time. Contrary to {@link RevCommit#toString()}, the description
+     * doesn't contain flags of the commit, which depend on the state of the walk the commit comes from, so the same
+     * commit is described in the same way by every walk, whether sequential or parallel, and by persisted verdicts.
+     * @param commit commit to describe
+     * @return description of the commit, e.g. '{@code commit 46a8a54d66d624f4da7d663db41e9788b023b848 1710516935}'
+     */
+    static String describe(RevCommit commit) {
+        return String.format("commit %s %d", commit.name(), commit.getCommitTime());
+    }
+
+    String render() {
+        return String.format(
+                "This message: '%s' from this commit: '%s' [%s] does not match this pattern: '%s'",
+                shortMessage, commitDescription, readableCommitTime(), pattern
+        );
+    }
+
+    @SuppressWarnings("ChainedMethodCall")
+    private String readableCommitTime() {
+        return Instant.ofEpochSecond(commitTime)
+                      .atZone(ZoneId.systemDefault())
+                      .format(TIME_FORMATTER);
+    }
+}
@@ -2,173 +2,284 @@ package eu.ciechanowiec.gmantra;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import eu.ciechanowiec.conditional.Conditional;
-import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
-import java.util.Spliterator;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 @Slf4j
 @ToString
+@SuppressWarnings({"PMD.CouplingBetweenObjects", "ClassFanOutComplexity"})
 class MessageValidator implements Validator {
 
     private final Repository repository;
     private final String startCommitHash;
     private final CaseConsideringPattern allowedPattern;
+    private final CommitRules commitRules;
+    private final List<PathMessageRule> pathMessageRules;
+    private final boolean isCaseSensitive;
+    private final RegexEngine regexEngine;
+    private final Duration matchTimeout;
     private final boolean ignoreMergeCommits;
+    private final CommitLimits commitLimits;
+    private final RefScope refScope;
+    private final boolean useVerdictCache;
+    private final boolean useVerdictNotes;
+    private final boolean useCommitGraph;
+    private final boolean writeCommitGraph;
+    private final int parallelism;
+    private final int violationLimit;
 
     @ToString.Exclude
-    private final Function<Iterable<RevCommit>, List<RevCommit>> toList = iterable -> {
-        Spliterator<RevCommit> spliterator = iterable.spliterator();
-        return StreamSupport.stream(spliterator, false)
-                            .collect(Collectors.toUnmodifiableList());
-    };
+    private final String requirementsFingerprint;
 
     @ToString.Exclude
-    private final Predicate<RevCommit> isNotMergeCommit = commit -> {
-            int numOfParents = commit.getParentCount();
-            return numOfParents < NumberUtils.INTEGER_TWO;
-    };
+    private final ValidationMetrics metrics;
 
-    @SuppressWarnings("FeatureEnvy")
-    MessageValidator(Repository repository, RepositoryRequirements repositoryRequirements) {
+    @ToString.Exclude
+    private final ViolationListener listener;
+
+    MessageValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings
+    ) {
+        this(repository, repositoryRequirements, settings, new ValidationMetrics());
+    }
+
+    MessageValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics
+    ) {
+        this(repository, repositoryRequirements, settings, metrics, ViolationListener.NONE);
+    }
+
+    @SuppressWarnings({"FeatureEnvy", "PMD.ExcessiveParameterList", "ParameterNumber"})
+    MessageValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics, ViolationListener listener
+    ) {
         this.repository = repository;
-        this.startCommitHash = repositoryRequirements.getStartCommitHash();
-        String allowedCommitMessagesRegex = repositoryRequirements.getAllowedCommitMessagesRegex();
-        boolean isCaseSensitive = repositoryRequirements.isAreCaseSensitiveMatches();
-        this.allowedPattern = new CaseConsideringPattern(allowedCommitMessagesRegex, isCaseSensitive);
-        this.ignoreMergeCommits = repositoryRequirements.isIgnoreMergeCommits();
+        RepositoryRequirements requirements = repositoryRequirements.forRepository(repository);
+        this.startCommitHash = requirements.getStartCommitHash();
+        this.isCaseSensitive = requirements.isAreCaseSensitiveMatches();
+        this.regexEngine = settings.getRegexEngine();
+        this.matchTimeout = settings.getMatchTimeout();
+        this.allowedPattern = pattern(requirements.getAllowedCommitMessagesRegex());
+        this.commitRules = requirements.getCommitRules().withRegexEngine(regexEngine, matchTimeout);
+        this.pathMessageRules = requirements.getPathMessageRules();
+        this.ignoreMergeCommits = requirements.isIgnoreMergeCommits();
+        this.commitLimits = requirements.getCommitLimits();
+        this.refScope = requirements.getRefScope();
+        this.useVerdictCache = settings.isUseVerdictCache();
+        this.useVerdictNotes = settings.isUseVerdictNotes();
+        this.useCommitGraph = settings.isUseCommitGraph();
+        this.writeCommitGraph = settings.isWriteCommitGraph();
+        int configuredParallelism = settings.getParallelism();
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        this.parallelism = configuredParallelism > 0 ? configuredParallelism : availableProcessors;
+        this.violationLimit = settings.violationLimit();
+        this.requirementsFingerprint = requirements.fingerprint(settings);
+        this.metrics = metrics;
+        this.listener = listener;
         log.debug("Initialized: {}", this);
     }
 
-    @SneakyThrows
+    /**
+     * Validates messages of commits in the history of HEAD or, in the all-refs mode, in histories of all
+     * references in the scope, which are walked at once.
+     * @return violations found in the validated history
+     */
     @Override
     public ValidationResult validate() {
-        log.info("Started validation by {}", this);
-        try (Git git = new Git(repository)) {
-            List<RevCommit> commits = ranged(git, startCommitHash, "HEAD");
-            List<RevCommit> commitsWithoutMergeCommits = considerMergeCommits(commits);
-            return validate(commitsWithoutMergeCommits);
+        return validate(violationLimit);
+    }
+
+    @Override
+    @SuppressWarnings("PMD.UnusedLocalVariable")
+    public ValidationResult validate(int limit) {
+        try (CommitGraphFile.Enablement enablement = enableCommitGraph()) {
+            return refScope.isAllRefs() ? validateAllRefs(limit) : validateHead(limit);
+        }
+    }
+
+    /**
+     * Validates messages of commits reachable from any of the specified tips, but not from any of the excluded
+     * tips, in a single walk, so commits shared by histories of different tips are validated only once.
+     * The requirements are applied as to the history of HEAD, except that the 'since' commit itself isn't
+     * validated and the verdict cache isn't used. The commit-graph file is read, if enabled, but never written,
+     * because the tips might not be referenced yet, e.g. during a push.
+     * @param tips commits whose histories should be validated; tips that aren't commits are skipped
+     * @param excludedTips commits which, together with their ancestors, should not be validated,
+     *                     e.g. tips of references that already exist in the repository
+     * @return violations found in the histories of the tips
+     */
+    @SuppressWarnings("PMD.UnusedLocalVariable")
+    ValidationResult validate(Collection<? extends ObjectId> tips, Collection<? extends ObjectId> excludedTips) {
+        try (CommitGraphFile.Enablement enablement = enableCommitGraph()) {
+            return validate(tips, excludedTips, violationLimit);
         }
     }
 
-    private ValidationResult validate(@SuppressWarnings("TypeMayBeWeakened") List<RevCommit> commits) {
-        int numOfCommits = commits.size();
-        log.debug("Validating this number of commits: '{}'", numOfCommits);
-        ValidationResult validationResult = commits.stream()
-                .map(this::validate)
-                .flatMap(Optional::stream)
-                .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
+    private ValidationResult validate(
+            Collection<? extends ObjectId> tips, Collection<? extends ObjectId> excludedTips, int limit
+    ) {
+        log.info("Started validation of {} tip(s), excluding {} tip(s), by {}", tips.size(), excludedTips.size(), this);
+        List<RevCommit> untils = metrics.measure(
+                ValidationMetrics.Phase.REF_RESOLUTION, () -> tips.stream()
+                                                                  .map(tip -> parse(repository, tip.name()))
+                                                                  .flatMap(Optional::stream)
+                                                                  .collect(Collectors.toUnmodifiableList())
+        );
+        ValidationResult validationResult = Optional.of(untils).filter(commits -> !commits.isEmpty()).map(
+                commits -> metrics.measure(ValidationMetrics.Phase.REF_RESOLUTION, () -> range(commits))
+        ).map(range -> validateAll(range, excludedTips, limit))
+         .map(ValidationResult::new)
+         .orElseGet(ValidationResult::new);
         log.debug("Validated by {}. {}", this, validationResult);
         return validationResult;
     }
 
-    @SuppressWarnings({"unchecked", "squid:S1612"})
-    private Optional<RequirementsViolation> validate(RevCommit commit) {
-        log.debug("Validating {}. [{}]", commit, readableTime(commit));
-        String shortMessage = commit.getShortMessage();
-        Matcher matcher = allowedPattern.matcher(shortMessage);
-        boolean matches = matcher.matches();
-        log.debug(
-                "Does this message: '{}' from this commit: '{}' match this pattern: '{}'? Answer: '{}'",
-                 shortMessage, commit, allowedPattern, matches
-        );
-        String violationMessage = String.format(
-                "This message: '%s' from this commit: '%s' [%s] does not match this pattern: '%s'",
-                 shortMessage, commit, readableTime(commit), allowedPattern
+    private ValidationResult validate(CommitRange range, int limit) {
+        List<RequirementsViolation> rangeViolations = verdictStore(range, limit).map(
+                store -> new IncrementalValidation(
+                        store, matchingListener -> matching(limit, matchingListener), listener
+                ).validate(range)
+        ).orElseGet(
+                () -> validateAll(range, List.of(), limit)
         );
-        return Conditional.conditional(matches)
-                          .onTrue(() -> Optional.empty())
-                          .onFalse(() -> Optional.of(new RequirementsViolation(violationMessage)))
-                          .get(Optional.class);
+        // 'since' is inclusive, but is never persisted in the verdict cache, so it is validated separately:
+        List<RequirementsViolation> sinceViolations = range.getSince()
+                                                           .filter(since -> rangeViolations.size() < limit)
+                                                           .filter(range::accepts)
+                                                           .map(since -> validate(
+                                                                   since, limit - rangeViolations.size()
+                                                           ))
+                                                           .orElseGet(List::of);
+        return Stream.concat(rangeViolations.stream(), sinceViolations.stream())
+                     .limit(limit)
+                     .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
     }
 
-    private List<RevCommit> considerMergeCommits(List<RevCommit> commits) {
-        return ignoreMergeCommits ? withoutMergeCommits(commits) : commits;
+    private List<RequirementsViolation> validate(RevCommit commit, int limit) {
+        try (MessageMatching matching = matching(limit, listener)) {
+            return matching.validate(commit);
+        }
     }
 
-    @SuppressWarnings("ChainedMethodCall")
-    private String readableTime(RevCommit commit) {
-        int commitTime = commit.getCommitTime();
-        return Instant.ofEpochSecond(commitTime)
-                      .atZone(ZoneId.systemDefault())
-                      .format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    private ValidationResult validateAllRefs(int limit) {
+        List<ObjectId> tips = metrics.measure(
+                ValidationMetrics.Phase.REF_RESOLUTION, () -> refScope.tips(repository)
+        );
+        return validate(tips, List.of(), limit);
     }
 
-    private List<RevCommit> withoutMergeCommits(@SuppressWarnings("TypeMayBeWeakened") List<RevCommit> commits) {
-        log.debug("Excluding merge commits");
-        int numOfCommitsBefore = commits.size();
-        List<RevCommit> commitsWithoutMergeCommits = commits.stream()
-                                                            .filter(isNotMergeCommit)
-                                                            .collect(Collectors.toUnmodifiableList());
-        int numOfCommitsAfter = commitsWithoutMergeCommits.size();
-        log.debug("Number of commits before excluding merge commits: '{}'. After exclusion: '{}'",
-                   numOfCommitsBefore, numOfCommitsAfter);
-        return commitsWithoutMergeCommits;
+    private ValidationResult validateHead(int limit) {
+        log.info("Started validation by {}", this);
+        Optional<RevCommit> untilNullable = metrics.measure(
+                ValidationMetrics.Phase.REF_RESOLUTION, () -> parse(repository, "HEAD")
+        );
+        untilNullable.ifPresent(this::prepareCommitGraph);
+        ValidationResult validationResult = untilNullable.map(
+                until -> metrics.measure(ValidationMetrics.Phase.REF_RESOLUTION, () -> range(List.of(until)))
+        ).map(range -> validate(range, limit)).orElseGet(ValidationResult::new);
+        log.debug("Validated by {}. {}", this, validationResult);
+        return validationResult;
     }
 
-    @SuppressWarnings("PMD.CloseResource")
-    private List<RevCommit> ranged(
-            Git git, String sinceCommitHash, @SuppressWarnings("SameParameterValue") String untilCommitHash
+    private List<RequirementsViolation> validateAll(
+            CommitRange range, Collection<? extends ObjectId> excludedTips, int limit
     ) {
-        log.debug("Extracting ranged commits since '{}' and until '{}'", sinceCommitHash, untilCommitHash);
-        Repository gitRepository = git.getRepository();
-        Optional<RevCommit> sinceNullable = parse(gitRepository, sinceCommitHash);
-        Optional<RevCommit> untilNullable = parse(gitRepository, untilCommitHash);
-        return sinceNullable.flatMap(
-                sinceCommit -> untilNullable.map(untilCommit -> ranged(git, sinceCommit, untilCommit))
-        ).orElse(
-                untilNullable.map(untilCommit -> extractCommits(git, untilCommit)).orElse(List.of())
+        try (MessageMatching matching = matching(limit, listener)) {
+            return matching.validate(range, excludedTips);
+        }
+    }
+
+    private MessageMatching matching(int limit, ViolationListener matchingListener) {
+        ChangedPathRules changedPathRules = new ChangedPathRules(
+                repository, pathMessageRules, this::pattern, parallelism
+        );
+        return new MessageMatching(
+                parallelism, allowedPattern, commitRules, changedPathRules, metrics, limit, matchingListener
         );
     }
 
-    @SneakyThrows
-    private List<RevCommit> ranged(Git git, RevCommit since, RevCommit until) {
-        log.debug("Extracting ranged commits since '{}' and until '{}'", since, until);
-        LogCommand logCommand = git.log();
-        // 'since' is exclusive and 'until' is inclusive:
-        Iterable<RevCommit> commitsWithoutSinceAsIterable = logCommand.addRange(since, until).call();
-        List<RevCommit> commitsWithoutSinceAsList = toList.apply(commitsWithoutSinceAsIterable);
-        List<RevCommit> commits = Stream.concat(commitsWithoutSinceAsList.stream(), Stream.of(since))
-                                        .collect(Collectors.toUnmodifiableList());
-        int numOfCommits = commits.size();
-        log.debug("Number of extracted commits: '{}'", numOfCommits);
-        return commits;
+    private CaseConsideringPattern pattern(String regex) {
+        return new CaseConsideringPattern(regex, isCaseSensitive, regexEngine, matchTimeout);
     }
 
-    @SneakyThrows
-    private List<RevCommit> extractCommits(Git git, RevCommit until) {
-        log.debug("Extracting commits until '{}'", until);
-        LogCommand logCommand = git.log();
-        Iterable<RevCommit> commitsIterable = logCommand.add(until).call();
-        List<RevCommit> commitsList = toList.apply(commitsIterable);
-        int numOfCommits = commitsList.size();
-        log.debug("Number of extracted commits: '{}'", numOfCommits);
-        return commitsList;
+    private CommitGraphFile.Enablement enableCommitGraph() {
+        return useCommitGraph ? commitGraphFile().enable() : () -> { };
+    }
+
+    private void prepareCommitGraph(RevCommit until) {
+        Conditional.onTrueExecute(useCommitGraph && writeCommitGraph, () -> metrics.measureExecution(
+                ValidationMetrics.Phase.COMMIT_GRAPH_WRITE, () -> commitGraphFile().writeIfStale(until)
+        ));
+    }
+
+    private CommitGraphFile commitGraphFile() {
+        // Changed-path filters are useful only for path rules, but writing them makes writes slower:
+        return new CommitGraphFile(repository, !pathMessageRules.isEmpty());
+    }
+
+    private CommitRange range(Collection<RevCommit> untils) {
+        CommitRange.CommitRangeBuilder rangeBuilder = CommitRange.builder()
+                                                                 .repository(repository)
+                                                                 .untils(untils)
+                                                                 .metrics(metrics);
+        // Merge commits are skipped inside the walk, so they are neither parsed further nor matched:
+        rangeBuilder.filter(commitLimits.toRevFilter(ignoreMergeCommits, Instant.now()));
+        parse(repository, startCommitHash).ifPresent(rangeBuilder::since);
+        commitLimits.getBaseRef()
+                    .flatMap(baseRef -> parse(repository, baseRef))
+                    .ifPresent(rangeBuilder::base);
+        return rangeBuilder.build();
+    }
+
+    private Optional<VerdictStore> verdictStore(CommitRange range, int limit) {
+        // The resolved 'since' is a part of the key, because the same 'startCommitHash'
+        // might be resolved differently over time, e.g. if the commit has been fetched in the meantime:
+        String sinceId = range.getSince().map(ObjectId::name).orElse(StringUtils.EMPTY);
+        String cacheKey = String.format("%s-%s", requirementsFingerprint, sinceId);
+        // Limited walks are cheap, while verdicts found within limits that change over time cannot be reused.
+        // Walks stopped after a limited number of violations leave the history partially validated, so their
+        // verdicts cannot be reused either:
+        boolean isViolationLimited = limit < Integer.MAX_VALUE;
+        boolean isCacheApplicable = useVerdictCache && !commitLimits.isBounded() && !isViolationLimited;
+        log.debug("Is the verdict cache applicable? '{}'", isCacheApplicable);
+        return Optional.of(repository)
+                       .filter(validatedRepository -> isCacheApplicable)
+                       .flatMap(validatedRepository -> VerdictStore.open(
+                               validatedRepository, cacheKey, useVerdictNotes
+                       ));
+    }
+
+    private Optional<RevCommit> parse(Repository repository, String commitHash) {
+        ValidationEvents.RefResolution event = new ValidationEvents.RefResolution();
+        event.begin();
+        Optional<RevCommit> revCommit = resolve(repository, commitHash);
+        if (event.shouldCommit()) {
+            event.gitDirectory = String.valueOf(repository.getDirectory());
+            event.ref = commitHash;
+            event.commitId = revCommit.map(ObjectId::name).orElse(StringUtils.EMPTY);
+            event.commit();
+        }
+        return revCommit;
     }
 
     @SuppressWarnings("PMD.AvoidCatchingGenericException")
     @SuppressFBWarnings("DCN_NULLPOINTER_EXCEPTION")
-    private Optional<RevCommit> parse(Repository repository, String commitHash) {
+    private Optional<RevCommit> resolve(Repository repository, String commitHash) {
         log.debug("Parsing commit '{}' in {}", commitHash, repository);
         try {
             ObjectId commitID = repository.resolve(commitHash);
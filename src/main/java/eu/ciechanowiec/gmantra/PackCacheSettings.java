@@ -0,0 +1,255 @@
+package eu.ciechanowiec.gmantra;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.Builder;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.SystemUtils;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
+import org.eclipse.jgit.internal.storage.file.Pack;
+import org.eclipse.jgit.lib.Config;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Settings of the cache through which JGit reads pack files, i.e. of the {@link WindowCacheConfig}. Pack files
+ * are read in windows, which are cached up to a limit, and deltified objects are resolved with the help of a cache
+ * of delta bases. Defaults of JGit are tailored to small repositories, so with large pack files both caches thrash.
+ * <p>
+ * Every setting is resolved in the following order: the value specified explicitly, the value configured in the
+ * '{@code core}' section of the git configuration and finally a value chosen from the total size of pack files
+ * of the repository and the maximal heap size. The cache is shared by all repositories opened in the same JVM,
+ * e.g. by all builds run by the same Maven daemon, and reconfiguring it drops all cached windows. Therefore,
+ * values chosen automatically never fall below the ones installed before, so that alternating validations
+ * of differently sized repositories don't reconfigure the cache back and forth, and the cache is reconfigured
+ * only if the resolved settings differ from the ones installed before.
+ */
+@Slf4j
+@ToString
+class PackCacheSettings {
+
+    /**
+     * Total size of pack files from which pack files are considered large.
+     */
+    static final long LARGE_PACKS_SIZE = 256L * WindowCacheConfig.MB;
+
+    private static final int MIN_WINDOW_SIZE = 4 * WindowCacheConfig.KB;
+    private static final int LARGE_PACKS_WINDOW_SIZE = 64 * WindowCacheConfig.KB;
+    private static final int HEAP_SHARE = 4;
+    private static final int DELTA_BASE_SHARE = 64;
+    private static final Object INSTALLATION_LOCK = new Object();
+    private static WindowCacheConfig installed = new WindowCacheConfig();
+
+    private final Optional<Long> packedGitLimit;
+    private final Optional<Integer> packedGitWindowSize;
+    private final Optional<Boolean> packedGitMmap;
+    private final Optional<Integer> deltaBaseCacheLimit;
+    private final Optional<Integer> streamFileThreshold;
+
+    /**
+     * Constructs an instance of this class. Sizes are specified in bytes, optionally with a '{@code k}',
+     * '{@code m}' or '{@code g}' suffix, e.g. '{@code 256m}'. Values that aren't specified or cannot be parsed
+     * are resolved from the git configuration or chosen automatically; values that cannot be parsed are
+     * reported with a warning.
+     * @param packedGitLimit maximal number of bytes of pack files cached in memory at once
+     * @param packedGitWindowSize number of bytes of a pack file read at once; rounded down to a power of two
+     * @param packedGitMmap '{@code true}' if pack files should be memory-mapped instead of read into the heap
+     * @param deltaBaseCacheLimit maximal number of bytes of the cache of delta bases
+     * @param streamFileThreshold size of objects from which objects are streamed instead of loaded into the heap
+     */
+    @Builder
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    @SuppressFBWarnings("CT_CONSTRUCTOR_THROW")
+    PackCacheSettings(
+            String packedGitLimit, String packedGitWindowSize, Boolean packedGitMmap,
+            String deltaBaseCacheLimit, String streamFileThreshold
+    ) {
+        this.packedGitLimit = parse(
+                packedGitLimit, value -> org.eclipse.jgit.util.StringUtils.parseLongWithSuffix(value, true)
+        );
+        this.packedGitWindowSize = parseInt(packedGitWindowSize);
+        this.packedGitMmap = Optional.ofNullable(packedGitMmap);
+        this.deltaBaseCacheLimit = parseInt(deltaBaseCacheLimit);
+        this.streamFileThreshold = parseInt(streamFileThreshold);
+        log.debug("Initialized: {}", this);
+    }
+
+    static PackCacheSettings automatic() {
+        return PackCacheSettings.builder().build();
+    }
+
+    /**
+     * Resolves these settings for the specified repository, with values chosen automatically not lower than
+     * the ones installed before, and installs them as the configuration of the JGit cache of pack files,
+     * unless equal settings have already been installed.
+     * @param repository repository whose pack files are going to be read
+     */
+    void install(Repository repository) {
+        install(this, repository);
+    }
+
+    private static void install(PackCacheSettings settings, Repository repository) {
+        synchronized (INSTALLATION_LOCK) {
+            WindowCacheConfig windowCacheConfig = settings.resolve(repository, installed);
+            String description = describe(windowCacheConfig);
+            boolean isChanged = !description.equals(describe(installed));
+            Conditional.conditional(isChanged)
+                       .onTrue(() -> {
+                           windowCacheConfig.install();
+                           // Recorded only once installed, so a failed installation is retried by the next call:
+                           installed = windowCacheConfig;
+                           log.info("Pack cache configured: {}", description);
+                       })
+                       .onFalse(() -> log.debug("Pack cache already configured: {}", description))
+                       .execute();
+        }
+    }
+
+    /**
+     * Resolves these settings for the specified repository.
+     * @param repository repository whose pack files are going to be read
+     * @return configuration of the JGit cache of pack files
+     */
+    WindowCacheConfig resolve(Repository repository) {
+        return resolve(repository, new WindowCacheConfig());
+    }
+
+    /**
+     * Resolves these settings for the specified repository. Sizes of caches chosen automatically are raised
+     * to the sizes of the specified configuration, and so is the memory mapping, while values specified explicitly
+     * or configured in the git configuration are used as they are.
+     * @param repository repository whose pack files are going to be read
+     * @param floor configuration whose values are the lowest values chosen automatically,
+     *              e.g. the configuration installed before
+     * @return configuration of the JGit cache of pack files
+     */
+    @SuppressWarnings("ChainedMethodCall")
+    WindowCacheConfig resolve(Repository repository, WindowCacheConfig floor) {
+        Config gitConfig = repository.getConfig();
+        WindowCacheConfig configured = new WindowCacheConfig().fromConfig(gitConfig);
+        long packsSize = packsSize(repository);
+        long heapBudget = Runtime.getRuntime().maxMemory() / HEAP_SHARE;
+        log.debug("Total size of pack files in {}: {} bytes. Heap budget: {} bytes", repository, packsSize, heapBudget);
+        // Memory-mapped windows aren't a part of the heap, so packs that don't fit into the heap are mapped.
+        // Mapped files cannot be deleted on Windows, though, which might break subsequent repacking:
+        boolean isMmap = choose(
+                packedGitMmap, isConfigured(gitConfig, ConfigConstants.CONFIG_KEY_PACKED_GIT_MMAP),
+                configured::isPackedGitMMAP,
+                () -> floor.isPackedGitMMAP() || packsSize > heapBudget && !SystemUtils.IS_OS_WINDOWS
+        );
+        int windowSize = Math.max(MIN_WINDOW_SIZE, Integer.highestOneBit(choose(
+                packedGitWindowSize, isConfigured(gitConfig, ConfigConstants.CONFIG_KEY_PACKED_GIT_WINDOWSIZE),
+                configured::getPackedGitWindowSize,
+                () -> Math.max(
+                        floor.getPackedGitWindowSize(),
+                        automaticWindowSize(packsSize, configured.getPackedGitWindowSize())
+                )
+        )));
+        long limit = choose(
+                packedGitLimit, isConfigured(gitConfig, ConfigConstants.CONFIG_KEY_PACKED_GIT_LIMIT),
+                configured::getPackedGitLimit,
+                () -> Math.max(
+                        floor.getPackedGitLimit(),
+                        automaticLimit(configured.getPackedGitLimit(), packsSize, heapBudget, isMmap)
+                )
+        );
+        int deltaBaseLimit = choose(
+                deltaBaseCacheLimit, isConfigured(gitConfig, ConfigConstants.CONFIG_KEY_DELTA_BASE_CACHE_LIMIT),
+                configured::getDeltaBaseCacheLimit,
+                () -> toInt(Math.max(
+                        Math.max(floor.getDeltaBaseCacheLimit(), configured.getDeltaBaseCacheLimit()),
+                        Math.min(packsSize / DELTA_BASE_SHARE, heapBudget)
+                ))
+        );
+        int streamThreshold = choose(
+                streamFileThreshold, isConfigured(gitConfig, ConfigConstants.CONFIG_KEY_STREAM_FILE_THRESHOLD),
+                configured::getStreamFileThreshold,
+                () -> toInt(Math.min(configured.getStreamFileThreshold(), heapBudget))
+        );
+        configured.setPackedGitMMAP(isMmap);
+        configured.setPackedGitWindowSize(windowSize);
+        // The limit must cover at least a single window:
+        configured.setPackedGitLimit(Math.max(limit, windowSize));
+        configured.setDeltaBaseCacheLimit(deltaBaseLimit);
+        configured.setStreamFileThreshold(streamThreshold);
+        return configured;
+    }
+
+    static String describe(WindowCacheConfig windowCacheConfig) {
+        return String.format(
+                "[packedGitLimit=%s], [packedGitWindowSize=%s], [packedGitMmap=%s], [deltaBaseCacheLimit=%s], "
+                + "[streamFileThreshold=%s]",
+                format(windowCacheConfig.getPackedGitLimit()), format(windowCacheConfig.getPackedGitWindowSize()),
+                windowCacheConfig.isPackedGitMMAP(), format(windowCacheConfig.getDeltaBaseCacheLimit()),
+                format(windowCacheConfig.getStreamFileThreshold())
+        );
+    }
+
+    private static String format(long size) {
+        return org.eclipse.jgit.util.StringUtils.formatWithSuffix(size);
+    }
+
+    private static int automaticWindowSize(long packsSize, int defaultWindowSize) {
+        return packsSize >= LARGE_PACKS_SIZE ? LARGE_PACKS_WINDOW_SIZE : defaultWindowSize;
+    }
+
+    private static long automaticLimit(long defaultLimit, long packsSize, long heapBudget, boolean isMmap) {
+        // Memory-mapped windows don't consume the heap, so all packs can be cached at once:
+        long cachedPacksSize = isMmap ? packsSize : Math.min(packsSize, heapBudget);
+        return Math.max(defaultLimit, cachedPacksSize);
+    }
+
+    private static <T> T choose(
+            Optional<T> specified, boolean isConfigured, Supplier<T> configured, Supplier<T> automatic
+    ) {
+        return specified.orElseGet(isConfigured ? configured : automatic);
+    }
+
+    private static boolean isConfigured(Config gitConfig, String key) {
+        return Optional.ofNullable(gitConfig.getString(ConfigConstants.CONFIG_CORE_SECTION, null, key)).isPresent();
+    }
+
+    @SuppressWarnings("ChainedMethodCall")
+    private static long packsSize(Repository repository) {
+        // Only file-based repositories have pack files:
+        return Optional.of(repository.getObjectDatabase())
+                       .filter(ObjectDirectory.class::isInstance)
+                       .map(ObjectDirectory.class::cast)
+                       .map(ObjectDirectory::getPacks)
+                       .stream()
+                       .flatMap(Collection::stream)
+                       .map(Pack::getPackFile)
+                       .mapToLong(File::length)
+                       .sum();
+    }
+
+    private static int toInt(long size) {
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private Optional<Integer> parseInt(String value) {
+        return parse(value, specifiedValue -> org.eclipse.jgit.util.StringUtils.parseIntWithSuffix(
+                specifiedValue, true
+        ));
+    }
+
+    @SuppressWarnings("squid:S1166")
+    private <T> Optional<T> parse(String value, Function<String, T> parser) {
+        Optional<String> specifiedValue = Optional.ofNullable(value).filter(StringUtils::isNotBlank);
+        try {
+            return specifiedValue.map(String::trim).map(parser);
+        } catch (NumberFormatException exception) {
+            log.warn("Unable to parse this size: '{}'. It will be ignored", value, exception);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+
+import java.util.Optional;
+
+/**
+ * Commit messages required for commits that change paths matching a glob, e.g. '{@code db/migrations/**}'.
+ * This class is public and has a public no-argument constructor, because it is instantiated by Maven
+ * from elements of the '{@code pathMessageRules}' parameter of the plugin.
+ */
+@ToString
+@SuppressWarnings({"unused", "FieldMayBeFinal", "PMD.ImmutableField"})
+public class PathMessageRule {
+
+    private String paths;
+    private String allowedCommitMessagesRegex;
+
+    /**
+     * Constructs an instance of this class, whose fields are injected by Maven afterwards.
+     */
+    public PathMessageRule() {
+        this("", ".*");
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param paths glob for paths the rule applies to, relative to the root of the repository; '{@code *}' matches
+     *              any part of a single name, '{@code **}' matches any number of directories, and a glob matching
+     *              a directory applies to all paths inside it
+     * @param allowedCommitMessagesRegex regular expression that first lines of messages of commits changing
+     *                                   any of the paths must match
+     */
+    PathMessageRule(String paths, String allowedCommitMessagesRegex) {
+        this.paths = paths;
+        this.allowedCommitMessagesRegex = allowedCommitMessagesRegex;
+    }
+
+    String getPaths() {
+        // Maven injects no value if the element is empty:
+        return Optional.ofNullable(paths).orElse("");
+    }
+
+    String getAllowedCommitMessagesRegex() {
+        return Optional.ofNullable(allowedCommitMessagesRegex).orElse(".*");
+    }
+}
@@ -0,0 +1,292 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Configuration of the plugin read straight from the '{@code pom.xml}' file of a project, without starting Maven.
+ * Only parameters specified in the '{@code configuration}' element of the plugin declaration are read. References
+ * to properties (e.g. '{@code ${allowed.messages}}') are resolved against properties of the same '{@code pom.xml}'
+ * file and system properties; parameters with references that cannot be resolved are reported with a warning
+ * and ignored. Parameters that aren't specified get the same default values as in {@link ValidatorMojo}.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings("PMD.CouplingBetweenObjects")
+class PluginConfiguration {
+
+    static final String PLUGIN_ARTIFACT_ID = "gmantra-maven-plugin";
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("\\$\\{([^}]+)}");
+    private static final String DEFAULT_REGEX = ".*";
+    private static final int DEFAULT_MAX_LOGGED_VIOLATIONS = 100;
+
+    private final Map<String, String> parameters;
+    private final List<BranchMessageRule> branchMessageRules;
+    private final List<PathMessageRule> pathMessageRules;
+
+    @ToString.Exclude
+    private final Map<String, String> properties;
+
+    PluginConfiguration(Map<String, String> parameters, Map<String, String> properties) {
+        this(parameters, List.of(), List.of(), properties);
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param parameters values of parameters of the plugin, by names of the parameters; the values might contain
+     *                   references to properties
+     * @param branchMessageRules values of the '{@code branchMessageRules}' parameter; the regexes of the rules
+     *                           might contain references to properties
+     * @param pathMessageRules values of the '{@code pathMessageRules}' parameter; the paths and regexes
+     *                         of the rules might contain references to properties
+     * @param properties properties that references to properties are resolved against, by names of the properties
+     */
+    PluginConfiguration(
+            Map<String, String> parameters, List<BranchMessageRule> branchMessageRules,
+            List<PathMessageRule> pathMessageRules, Map<String, String> properties
+    ) {
+        this.parameters = Map.copyOf(parameters);
+        this.branchMessageRules = List.copyOf(branchMessageRules);
+        this.pathMessageRules = List.copyOf(pathMessageRules);
+        this.properties = Map.copyOf(properties);
+        log.debug("Initialized: {}", this);
+    }
+
+    static PluginConfiguration defaults() {
+        return new PluginConfiguration(Map.of(), Map.of());
+    }
+
+    /**
+     * Reads the configuration of the plugin from the specified '{@code pom.xml}' file. If the file doesn't
+     * declare the plugin, the default configuration is returned.
+     * @param pomFile '{@code pom.xml}' file to read
+     * @return configuration of the plugin
+     */
+    @SneakyThrows
+    static PluginConfiguration read(Path pomFile) {
+        log.debug("Reading the plugin configuration from {}", pomFile);
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+        Document pom = factory.newDocumentBuilder().parse(pomFile.toFile());
+        Element project = pom.getDocumentElement();
+        Map<String, String> properties = childElements(project, "properties").flatMap(PluginConfiguration::children)
+                                                                             .collect(toValues());
+        List<Element> configuration = descendants(pom, "plugin")
+                .filter(plugin -> childElements(plugin, "artifactId").map(Node::getTextContent)
+                                                                     .map(String::trim)
+                                                                     .anyMatch(PLUGIN_ARTIFACT_ID::equals))
+                .findFirst()
+                .stream()
+                .flatMap(plugin -> childElements(plugin, "configuration"))
+                .collect(Collectors.toUnmodifiableList());
+        Map<String, String> parameters = configuration.stream()
+                                                      .flatMap(PluginConfiguration::children)
+                                                      .collect(toValues());
+        List<BranchMessageRule> branchMessageRules = configuration.stream()
+                                                                  .flatMap(element -> childElements(
+                                                                          element, "branchMessageRules"
+                                                                  ))
+                                                                  .flatMap(PluginConfiguration::children)
+                                                                  .map(PluginConfiguration::toBranchMessageRule)
+                                                                  .collect(Collectors.toUnmodifiableList());
+        List<PathMessageRule> pathMessageRules = configuration.stream()
+                                                              .flatMap(element -> childElements(
+                                                                      element, "pathMessageRules"
+                                                              ))
+                                                              .flatMap(PluginConfiguration::children)
+                                                              .map(PluginConfiguration::toPathMessageRule)
+                                                              .collect(Collectors.toUnmodifiableList());
+        return new PluginConfiguration(parameters, branchMessageRules, pathMessageRules, properties);
+    }
+
+    /**
+     * Returns requirements specified by this configuration.
+     * @return requirements specified by this configuration
+     */
+    RepositoryRequirements requirements() {
+        CommitLimits commitLimits = CommitLimits.builder()
+                                                .startCommitDate(get("startCommitDate", null))
+                                                .maxCommitAge(get("maxCommitAge", null))
+                                                .maxCommits(getInt("maxCommits", 0))
+                                                .baseRef(get("baseRef", null))
+                                                .build();
+        RefScope refScope = RefScope.builder()
+                                    .allRefs(getBoolean("allRefs", false))
+                                    .refPrefixes(get("refPrefixes", null))
+                                    .recurseSubmodules(getBoolean("recurseSubmodules", false))
+                                    .build();
+        CommitRules commitRules = CommitRules.builder()
+                                             .allowedAuthorEmailsRegex(get(AuthorEmailRule.NAME, null))
+                                             .maxSubjectLength(getInt(SubjectLengthRule.NAME, 0))
+                                             .requireSignOff(getBoolean(SignOffRule.NAME, false))
+                                             .forbiddenWords(get(ForbiddenWordsRule.NAME, null))
+                                             .build();
+        return RepositoryRequirements.builder()
+                                     .allowedBranchesRegex(get("allowedBranchesRegex", DEFAULT_REGEX))
+                                     .allowedCommitMessagesRegex(get("allowedCommitMessagesRegex", DEFAULT_REGEX))
+                                     .areCaseSensitiveMatches(getBoolean("areCaseSensitiveMatches", true))
+                                     .startCommitHash(get("startCommitHash", StringUtils.EMPTY))
+                                     .ignoreMergeCommits(getBoolean("ignoreMergeCommits", true))
+                                     .commitLimits(commitLimits)
+                                     .refScope(refScope)
+                                     .commitRules(commitRules)
+                                     .branchMessageRules(resolvedBranchMessageRules())
+                                     .pathMessageRules(resolvedPathMessageRules())
+                                     .build();
+    }
+
+    /**
+     * Returns validation settings specified by this configuration.
+     * @return validation settings specified by this configuration
+     */
+    ValidationSettings settings() {
+        ValidationSettings defaults = ValidationSettings.defaults();
+        Duration matchTimeout = Optional.ofNullable(get("matchTimeout", null))
+                                        .map(ValidationSettings::parseMatchTimeout)
+                                        .orElse(defaults.getMatchTimeout());
+        return ValidationSettings.builder()
+                                 .useVerdictCache(getBoolean("useVerdictCache", defaults.isUseVerdictCache()))
+                                 .useVerdictNotes(getBoolean("useVerdictNotes", defaults.isUseVerdictNotes()))
+                                 .useCommitGraph(getBoolean("useCommitGraph", defaults.isUseCommitGraph()))
+                                 .writeCommitGraph(getBoolean("writeCommitGraph", defaults.isWriteCommitGraph()))
+                                 .parallelism(getInt("parallelism", defaults.getParallelism()))
+                                 .regexEngine(RegexEngine.valueOf(get("regexEngine", defaults.getRegexEngine().name())))
+                                 .matchTimeout(matchTimeout)
+                                 .failFast(getBoolean("failFast", defaults.isFailFast()))
+                                 .maxReportedViolations(
+                                         getInt("maxReportedViolations", defaults.getMaxReportedViolations())
+                                 )
+                                 .build();
+    }
+
+    boolean isFailOnViolations() {
+        return getBoolean("failOnViolations", true);
+    }
+
+    int getMaxLoggedViolations() {
+        return getInt("maxLoggedViolations", DEFAULT_MAX_LOGGED_VIOLATIONS);
+    }
+
+    private String get(String name, String defaultValue) {
+        return Optional.ofNullable(parameters.get(name)).flatMap(this::resolve).orElse(defaultValue);
+    }
+
+    private boolean getBoolean(String name, boolean defaultValue) {
+        return Optional.ofNullable(get(name, null)).map(Boolean::parseBoolean).orElse(defaultValue);
+    }
+
+    private int getInt(String name, int defaultValue) {
+        return Optional.ofNullable(get(name, null)).map(Integer::parseInt).orElse(defaultValue);
+    }
+
+    private Optional<String> resolve(String value) {
+        boolean isResolvable = PROPERTY_REFERENCE.matcher(value)
+                                                 .results()
+                                                 .allMatch(reference -> property(reference.group(1)).isPresent());
+        Conditional.onFalseExecute(
+                isResolvable, () -> log.warn("Unable to resolve this value: '{}'. It will be ignored", value)
+        );
+        return Optional.of(value)
+                       .filter(resolvableValue -> isResolvable)
+                       .map(resolvableValue -> PROPERTY_REFERENCE.matcher(resolvableValue).replaceAll(
+                               reference -> Matcher.quoteReplacement(property(reference.group(1)).orElseThrow())
+                       ));
+    }
+
+    private List<BranchMessageRule> resolvedBranchMessageRules() {
+        return branchMessageRules.stream()
+                                 .flatMap(rule -> resolve(rule.getBranchesRegex()).map(
+                                         branchesRegex -> new BranchMessageRule(
+                                                 branchesRegex, rule.getAllowedCommitMessagesRegexes()
+                                                                    .stream()
+                                                                    .map(this::resolve)
+                                                                    .flatMap(Optional::stream)
+                                                                    .collect(Collectors.toUnmodifiableList())
+                                         )
+                                 ).stream())
+                                 .collect(Collectors.toUnmodifiableList());
+    }
+
+    private List<PathMessageRule> resolvedPathMessageRules() {
+        return pathMessageRules.stream()
+                               .flatMap(rule -> resolve(rule.getPaths()).flatMap(
+                                       paths -> resolve(rule.getAllowedCommitMessagesRegex()).map(
+                                               regex -> new PathMessageRule(paths, regex)
+                                       )
+                               ).stream())
+                               .collect(Collectors.toUnmodifiableList());
+    }
+
+    private Optional<String> property(String name) {
+        return Optional.ofNullable(properties.get(name)).or(() -> Optional.ofNullable(System.getProperty(name)));
+    }
+
+    private static Collector<Element, ?, Map<String, String>> toValues() {
+        // Elements that occur more than once are resolved as in Maven, i.e. the last one wins:
+        return Collectors.toMap(Element::getTagName, element -> element.getTextContent().trim(), (first, last) -> last);
+    }
+
+    private static BranchMessageRule toBranchMessageRule(Element rule) {
+        String branchesRegex = childElements(rule, "branchesRegex").map(Element::getTextContent)
+                                                                   .map(String::trim)
+                                                                   .reduce((first, last) -> last)
+                                                                   .orElse(DEFAULT_REGEX);
+        List<String> allowedCommitMessagesRegexes = childElements(rule, "allowedCommitMessagesRegexes")
+                .flatMap(PluginConfiguration::children)
+                .map(regex -> regex.getTextContent().trim())
+                .collect(Collectors.toUnmodifiableList());
+        return new BranchMessageRule(branchesRegex, allowedCommitMessagesRegexes);
+    }
+
+    private static PathMessageRule toPathMessageRule(Element rule) {
+        Map<String, String> values = children(rule).collect(toValues());
+        return new PathMessageRule(
+                values.getOrDefault("paths", StringUtils.EMPTY),
+                values.getOrDefault("allowedCommitMessagesRegex", DEFAULT_REGEX)
+        );
+    }
+
+    private static Stream<Element> descendants(Document document, String tagName) {
+        return elements(document.getElementsByTagName(tagName));
+    }
+
+    private static Stream<Element> childElements(Element parent, String tagName) {
+        return children(parent).filter(child -> tagName.equals(child.getTagName()));
+    }
+
+    private static Stream<Element> children(Element parent) {
+        NodeList childNodes = parent.getChildNodes();
+        return IntStream.range(0, childNodes.getLength())
+                        .mapToObj(childNodes::item)
+                        .filter(Element.class::isInstance)
+                        .map(Element.class::cast);
+    }
+
+    private static Stream<Element> elements(NodeList nodes) {
+        return IntStream.range(0, nodes.getLength())
+                        .mapToObj(nodes::item)
+                        .map(Element.class::cast);
+    }
+}
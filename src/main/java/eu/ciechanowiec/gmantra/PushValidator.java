@@ -0,0 +1,115 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validation of all updates of references requested by a single push, e.g. in the '{@code pre-receive}' Git hook
+ * of a Git server, where the pushed objects are already present in the repository, but references aren't
+ * updated yet. Names of created branches are validated as by {@link BranchValidator}. Messages of commits
+ * introduced by the push are validated in a single walk from all new tips, which excludes commits reachable
+ * from references that already exist in the repository and from old tips of updated references. Thus, every
+ * new commit is validated once, even if it is pushed to many references, and commits accepted by earlier pushes
+ * aren't validated again, so the cost of the validation depends only on the size of the push.
+ */
+@Slf4j
+@ToString
+class PushValidator implements Validator {
+
+    @ToString.Exclude
+    private final Repository repository;
+
+    private final Collection<PushedRefUpdate> refUpdates;
+    private final BranchValidator branchValidator;
+    private final MessageValidator messageValidator;
+    private final int violationLimit;
+
+    @ToString.Exclude
+    private final ValidationMetrics metrics;
+
+    PushValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            Collection<PushedRefUpdate> refUpdates
+    ) {
+        this(repository, repositoryRequirements, settings, refUpdates, new ValidationMetrics());
+    }
+
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    PushValidator(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            Collection<PushedRefUpdate> refUpdates, ValidationMetrics metrics
+    ) {
+        this.repository = repository;
+        this.refUpdates = List.copyOf(refUpdates);
+        this.branchValidator = new BranchValidator(repository, repositoryRequirements, settings, metrics);
+        this.messageValidator = new MessageValidator(repository, repositoryRequirements, settings, metrics);
+        this.violationLimit = settings.violationLimit();
+        this.metrics = metrics;
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Validates names of created branches and messages of commits introduced by the push. Once the limit
+     * of violations is reached by invalid branch names, commit messages aren't validated at all.
+     * @return violations found among the updates, but no more than the limit of violations
+     */
+    @Override
+    public ValidationResult validate() {
+        log.info("Started validation of {} reference update(s) by {}", refUpdates.size(), this);
+        List<RequirementsViolation> branchViolations = refUpdates.stream()
+                                                                 .filter(PushedRefUpdate::isBranchCreation)
+                                                                 .map(PushedRefUpdate::getRefName)
+                                                                 .map(Repository::shortenRefName)
+                                                                 .map(branchValidator::validate)
+                                                                 .flatMap(Optional::stream)
+                                                                 .limit(violationLimit)
+                                                                 .collect(Collectors.toUnmodifiableList());
+        Collection<RequirementsViolation> messageViolations = branchViolations.size() < violationLimit
+                ? validateNewCommits().getViolations() : List.of();
+        ValidationResult validationResult = Stream.concat(branchViolations.stream(), messageViolations.stream())
+                .limit(violationLimit)
+                .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
+        log.debug("Validated by {}. {}", this, validationResult);
+        return validationResult;
+    }
+
+    private ValidationResult validateNewCommits() {
+        Set<ObjectId> newTips = refUpdates.stream()
+                                          .filter(refUpdate -> !refUpdate.isDeletion())
+                                          .map(PushedRefUpdate::getNewId)
+                                          .collect(Collectors.toUnmodifiableSet());
+        Set<ObjectId> excludedTips = metrics.measure(ValidationMetrics.Phase.REF_RESOLUTION, this::existingTips);
+        return messageValidator.validate(newTips, excludedTips);
+    }
+
+    /**
+     * Returns tips of all references that already exist in the repository and old tips of updated references.
+     * Old tips of updated references are usually the same as tips of existing references, but they are
+     * included explicitly in case the references are updated concurrently.
+     */
+    @SneakyThrows
+    private Set<ObjectId> existingTips() {
+        Stream<ObjectId> referencedTips = repository.getRefDatabase()
+                                                    .getRefs()
+                                                    .stream()
+                                                    .map(Ref::getObjectId)
+                                                    .flatMap(Stream::ofNullable);
+        Stream<ObjectId> oldTips = refUpdates.stream()
+                                             .filter(refUpdate -> !refUpdate.isCreation())
+                                             .map(PushedRefUpdate::getOldId);
+        Set<ObjectId> existingTips = Stream.concat(referencedTips, oldTips).collect(Collectors.toUnmodifiableSet());
+        log.debug("Number of existing tips: {}", existingTips.size());
+        return existingTips;
+    }
+}
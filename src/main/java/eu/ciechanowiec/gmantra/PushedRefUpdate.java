@@ -0,0 +1,69 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Update of a reference requested by a push, as passed to the '{@code pre-receive}' Git hook on the standard input,
+ * i.e. as a '{@code <old-id> <new-id> <ref-name>}' line. A reference that is being created has the zero ID
+ * as the old ID, and a reference that is being deleted has the zero ID as the new ID.
+ */
+@ToString
+@Getter(AccessLevel.PACKAGE)
+class PushedRefUpdate {
+
+    private static final Pattern LINE_PATTERN = Pattern.compile("^(\\p{XDigit}{40}) (\\p{XDigit}{40}) (\\S+)$");
+    private static final int OLD_ID_GROUP = 1;
+    private static final int NEW_ID_GROUP = 2;
+    private static final int REF_NAME_GROUP = 3;
+
+    private final ObjectId oldId;
+    private final ObjectId newId;
+    private final String refName;
+
+    PushedRefUpdate(ObjectId oldId, ObjectId newId, String refName) {
+        this.oldId = oldId;
+        this.newId = newId;
+        this.refName = refName;
+    }
+
+    /**
+     * Parses a line passed to the '{@code pre-receive}' Git hook.
+     * @param line line to parse
+     * @return update of a reference described by the line
+     * @throws IllegalArgumentException if the line doesn't describe an update of a reference
+     */
+    static PushedRefUpdate parse(String line) {
+        Matcher matcher = LINE_PATTERN.matcher(line.strip());
+        Conditional.isTrueOrThrow(
+                matcher.matches(), new IllegalArgumentException(String.format("Invalid reference update: '%s'", line))
+        );
+        return new PushedRefUpdate(
+                ObjectId.fromString(matcher.group(OLD_ID_GROUP)), ObjectId.fromString(matcher.group(NEW_ID_GROUP)),
+                matcher.group(REF_NAME_GROUP)
+        );
+    }
+
+    boolean isCreation() {
+        return ObjectId.zeroId().equals(oldId);
+    }
+
+    boolean isDeletion() {
+        return ObjectId.zeroId().equals(newId);
+    }
+
+    /**
+     * Checks whether this update creates a branch, i.e. a reference with the '{@code refs/heads/}' prefix.
+     * @return '{@code true}' if this update creates a branch; '{@code false}' otherwise
+     */
+    boolean isBranchCreation() {
+        return isCreation() && !isDeletion() && refName.startsWith(Constants.R_HEADS);
+    }
+}
@@ -0,0 +1,120 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.Builder;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * References subjected to the validation. By default, only the name of the current branch and the history
+ * of HEAD are validated. In the all-refs mode, names of all references with any of the specified prefixes
+ * are validated instead, as well as histories of all of them, e.g. to audit all branches of a repository.
+ * In either mode, submodules of the repository can be validated as well, in the same mode.
+ */
+@Slf4j
+@ToString
+class RefScope {
+
+    private static final String PREFIXES_SEPARATOR = ",";
+
+    private final boolean allRefs;
+    private final List<String> refPrefixes;
+    private final boolean recurseSubmodules;
+
+    /**
+     * Constructs an instance of this class.
+     * @param allRefs '{@code true}' if all references with the specified prefixes should be validated;
+     *                '{@code false}' if only the current branch and the history of HEAD should be validated
+     * @param refPrefixes comma-separated prefixes of validated references (e.g. '{@code refs/heads/,
+     *                    refs/remotes/origin/}'); '{@code refs/heads/}' if not specified; ignored
+     *                    and dropped if not all references are validated
+     * @param recurseSubmodules '{@code true}' if submodules of the repository, including nested ones, should be
+     *                          validated as well; '{@code false}' otherwise
+     */
+    @Builder
+    RefScope(boolean allRefs, String refPrefixes, boolean recurseSubmodules) {
+        this.allRefs = allRefs;
+        // Prefixes are a part of the fingerprint of requirements, so they are dropped if they aren't used,
+        // e.g. the default prefixes of the Mojo, which would otherwise make equal requirements look different:
+        List<String> specifiedPrefixes = Stream.ofNullable(refPrefixes)
+                                               .filter(prefixes -> allRefs)
+                                               .flatMap(prefixes -> Stream.of(prefixes.split(PREFIXES_SEPARATOR)))
+                                               .map(String::trim)
+                                               .filter(StringUtils::isNotEmpty)
+                                               .distinct()
+                                               .collect(Collectors.toUnmodifiableList());
+        this.refPrefixes = allRefs && specifiedPrefixes.isEmpty() ? List.of(Constants.R_HEADS) : specifiedPrefixes;
+        this.recurseSubmodules = recurseSubmodules;
+        log.debug("Initialized: {}", this);
+    }
+
+    static RefScope currentBranch() {
+        return RefScope.builder().build();
+    }
+
+    boolean isAllRefs() {
+        return allRefs;
+    }
+
+    boolean isRecurseSubmodules() {
+        return recurseSubmodules;
+    }
+
+    /**
+     * Returns all references of the specified repository with any of the prefixes of this scope. Symbolic
+     * references, e.g. '{@code refs/remotes/origin/HEAD}', are skipped, because they are validated
+     * as the references they point to.
+     * @param repository repository whose references should be returned
+     * @return references with any of the prefixes of this scope, ordered by names
+     */
+    @SneakyThrows
+    List<Ref> refs(Repository repository) {
+        List<Ref> refs = repository.getRefDatabase()
+                                   .getRefsByPrefix(refPrefixes.toArray(String[]::new))
+                                   .stream()
+                                   .filter(ref -> !ref.isSymbolic())
+                                   .collect(Collectors.toMap(Ref::getName, ref -> ref, (first, second) -> first))
+                                   .values()
+                                   .stream()
+                                   .sorted(Comparator.comparing(Ref::getName))
+                                   .collect(Collectors.toUnmodifiableList());
+        log.debug("Number of references in {}: {}", this, refs.size());
+        return refs;
+    }
+
+    /**
+     * Returns tips of all references of the specified repository with any of the prefixes of this scope.
+     * @param repository repository whose tips should be returned
+     * @return tips of references with any of the prefixes of this scope, ordered by names of the references
+     */
+    List<ObjectId> tips(Repository repository) {
+        return refs(repository).stream().map(Ref::getObjectId).collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Returns the name of the branch represented by the specified reference, i.e. the name of the reference
+     * without the longest matching prefix of this scope, e.g. '{@code feature}' for
+     * '{@code refs/remotes/origin/feature}' if '{@code refs/remotes/origin/}' is one of the prefixes.
+     * @param ref reference whose branch name should be returned
+     * @return name of the branch represented by the specified reference
+     */
+    String branchName(Ref ref) {
+        String refName = ref.getName();
+        Optional<String> matchingPrefix = refPrefixes.stream()
+                                                     .filter(refName::startsWith)
+                                                     .filter(prefix -> prefix.length() < refName.length())
+                                                     .max(Comparator.comparingInt(String::length));
+        return matchingPrefix.map(prefix -> refName.substring(prefix.length())).orElse(refName);
+    }
+}
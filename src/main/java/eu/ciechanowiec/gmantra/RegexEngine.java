@@ -0,0 +1,22 @@
+package eu.ciechanowiec.gmantra;
+
+/**
+ * Engine that matches branch names and commit messages against regular expressions.
+ */
+enum RegexEngine {
+
+    /**
+     * {@link java.util.regex.Pattern}, which supports the full syntax of Java regular expressions,
+     * but uses backtracking, so the time of matching might grow exponentially with the input length.
+     */
+    JAVA,
+
+    /**
+     * Automaton-based engine (RE2/J), which matches in time linear in the input length. Regular expressions
+     * that use constructs unsupported by automata, like backreferences or lookarounds, or constructs that RE2/J
+     * interprets differently, like intersections of character classes, are matched by {@link #JAVA} instead.
+     * Contrary to {@link #JAVA}, case-insensitive matches fold cases of all Unicode letters, not only
+     * of US-ASCII ones.
+     */
+    AUTOMATON
+}
@@ -0,0 +1,41 @@
+package eu.ciechanowiec.gmantra;
+
+import java.io.Writer;
+import java.util.function.Function;
+
+/**
+ * Format of a machine-readable report of violations.
+ */
+enum ReportFormat {
+
+    /**
+     * JSON Lines, i.e. one JSON object per violation per line.
+     */
+    JSON_LINES("gmantra-violations.jsonl", JsonLinesReportWriter::new),
+
+    /**
+     * JUnit XML, understood by most CI servers.
+     */
+    JUNIT_XML("TEST-gmantra.xml", JUnitXmlReportWriter::new),
+
+    /**
+     * SARIF 2.1.0, understood by code scanning tools.
+     */
+    SARIF("gmantra.sarif", SarifReportWriter::new);
+
+    private final String fileName;
+    private final Function<Writer, AbstractViolationReportWriter> writerFactory;
+
+    ReportFormat(String fileName, Function<Writer, AbstractViolationReportWriter> writerFactory) {
+        this.fileName = fileName;
+        this.writerFactory = writerFactory;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    AbstractViolationReportWriter newWriter(Writer output) {
+        return writerFactory.apply(output);
+    }
+}
@@ -4,10 +4,15 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
 import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+import org.eclipse.jgit.util.FS;
 
 import java.io.File;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static eu.ciechanowiec.sneakyfun.SneakySupplier.sneaky;
 
@@ -32,18 +37,43 @@ class RepositoryProvider {
     }
 
     Repository get() {
-        return lazySource.get();
+        ValidationEvents.RepositoryOpen event = new ValidationEvents.RepositoryOpen();
+        event.begin();
+        Repository repository = lazySource.get();
+        if (event.shouldCommit()) {
+            event.gitDirectory = String.valueOf(repository.getDirectory());
+            event.commit();
+        }
+        return repository;
     }
 
+    /**
+     * Opens the repository of the current directory. The repository is opened through the {@link RepositoryCache}
+     * of JGit, so it stays open between builds run by the same JVM, e.g. by the Maven daemon (mvnd), and its
+     * objects and references aren't reread by subsequent builds unless they have changed. Closing the returned
+     * repository only releases it; JGit closes it once it hasn't been used for a while. Repositories with object
+     * directories overridden by the environment aren't cached, because the cache identifies repositories only
+     * by their git directories.
+     */
     @SneakyThrows
     @SuppressWarnings("ChainedMethodCall")
     private Repository fromCurrentDirectory() {
         log.debug("Resolving the current git repository");
-        Repository repository = new FileRepositoryBuilder().readEnvironment()
-                                                           .findGitDir()
-                                                           .build();
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().readEnvironment()
+                                                                   .findGitDir();
+        boolean isCacheable = Stream.of(builder.getObjectDirectory(), builder.getAlternateObjectDirectories())
+                                    .allMatch(Objects::isNull);
+        Repository repository = Optional.ofNullable(builder.getGitDir())
+                                        .filter(gitDir -> isCacheable)
+                                        .map(RepositoryProvider::openCached)
+                                        .orElseGet(sneaky(builder::build));
         File repositoryDirectory = repository.getDirectory();
         log.info("Git directory for the current git repository: {}", repositoryDirectory);
         return repository;
     }
+
+    @SneakyThrows
+    private static Repository openCached(File gitDir) {
+        return RepositoryCache.open(RepositoryCache.FileKey.exact(gitDir, FS.DETECTED));
+    }
 }
@@ -1,31 +1,136 @@
 package eu.ciechanowiec.gmantra;
 
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Getter;
+import lombok.Singular;
+import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Requirements that a repository must meet. Requirements that aren't specified are met by any repository,
+ * except that matches are case-sensitive and merge commits are ignored by default.
+ */
 @Slf4j
 @ToString
 @Getter(AccessLevel.PACKAGE)
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 class RepositoryRequirements {
 
-    private final String allowedBranchesRegex;
-    private final String allowedCommitMessagesRegex;
-    private final boolean areCaseSensitiveMatches;
-    private final String startCommitHash;
-    private final boolean ignoreMergeCommits;
-
-    @SuppressWarnings({"ParameterNumber", "ConstructorWithTooManyParameters", "PMD.ExcessiveParameterList"})
-    RepositoryRequirements(
-            String allowedBranchesRegex, String allowedCommitMessagesRegex, boolean areCaseSensitiveMatches,
-            String startCommitHash, boolean ignoreMergeCommits
-    ) {
-        this.allowedBranchesRegex = allowedBranchesRegex;
-        this.allowedCommitMessagesRegex = allowedCommitMessagesRegex;
-        this.areCaseSensitiveMatches = areCaseSensitiveMatches;
-        this.startCommitHash = startCommitHash;
-        this.ignoreMergeCommits = ignoreMergeCommits;
-        log.debug("Initialized: {}", this);
+    private static final String FINGERPRINT_SEPARATOR = String.valueOf(Character.MIN_VALUE);
+    private static final String ANY_REGEX = ".*";
+
+    @Builder.Default
+    private final String allowedBranchesRegex = ANY_REGEX;
+
+    @Builder.Default
+    private final String allowedCommitMessagesRegex = ANY_REGEX;
+
+    @Builder.Default
+    private final boolean areCaseSensitiveMatches = true;
+
+    @Builder.Default
+    private final String startCommitHash = StringUtils.EMPTY;
+
+    @Builder.Default
+    private final boolean ignoreMergeCommits = true;
+
+    @Builder.Default
+    private final CommitLimits commitLimits = CommitLimits.none();
+
+    @Builder.Default
+    private final RefScope refScope = RefScope.currentBranch();
+
+    @Builder.Default
+    private final CommitRules commitRules = CommitRules.none();
+
+    @Singular(ignoreNullCollections = true)
+    private final List<BranchMessageRule> branchMessageRules;
+
+    @Singular(ignoreNullCollections = true)
+    private final List<PathMessageRule> pathMessageRules;
+
+    /**
+     * Returns a stable hash of all requirements and of the settings of matching. Two instances of
+     * {@link RepositoryRequirements} have the same fingerprint if and only if they would produce the same validation
+     * verdicts, so the fingerprint can be used as a key for persisted verdicts. The regex engine is a part
+     * of the fingerprint, because engines might interpret the same regular expression differently, so verdicts found
+     * by one engine must not be reused by another. The match timeout isn't, because a match that exceeds it fails
+     * the validation instead of producing a verdict.
+     * @param settings settings of the validation, whose regex engine is considered
+     * @return hexadecimal fingerprint of these requirements
+     */
+    @SuppressWarnings("ChainedMethodCall")
+    String fingerprint(ValidationSettings settings) {
+        String canonicalForm = String.join(
+                FINGERPRINT_SEPARATOR, allowedBranchesRegex, allowedCommitMessagesRegex,
+                String.valueOf(areCaseSensitiveMatches), String.valueOf(startCommitHash),
+                String.valueOf(ignoreMergeCommits), commitLimits.toString(), refScope.toString(),
+                commitRules.toString(), branchMessageRules.toString(), pathMessageRules.toString(),
+                settings.getRegexEngine().name()
+        );
+        byte[] canonicalBytes = canonicalForm.getBytes(StandardCharsets.UTF_8);
+        try (ObjectInserter.Formatter formatter = new ObjectInserter.Formatter()) {
+            return formatter.idFor(Constants.OBJ_BLOB, canonicalBytes).name();
+        }
+    }
+
+    /**
+     * Returns requirements applicable to submodules of the repository. The 'since' commit and the base reference
+     * of commit limits identify commits of the repository, not of its submodules, so they aren't resolved
+     * in submodules, where they might identify unrelated commits or nothing at all.
+     * @return requirements applicable to submodules, without the 'since' commit and the base reference
+     */
+    RepositoryRequirements forSubmodules() {
+        return toBuilder().startCommitHash(StringUtils.EMPTY)
+                          .commitLimits(commitLimits.withoutBaseRef())
+                          .build();
+    }
+
+    /**
+     * Returns requirements applicable to the current branch of the specified repository. Branch message rules
+     * are resolved here, once per validation: if any of them applies to the current branch, the allowed commit
+     * messages of the first such rule are combined into a single regular expression that replaces the allowed
+     * commit messages regex. Branch message rules aren't applied if there is no current branch, i.e. in the
+     * all-refs mode and in bare repositories, e.g. during a push.
+     * @param repository repository whose current branch should be considered
+     * @return requirements applicable to the current branch, without branch message rules if any of them applies
+     */
+    RepositoryRequirements forRepository(Repository repository) {
+        boolean hasCurrentBranch = !branchMessageRules.isEmpty() && !refScope.isAllRefs() && !repository.isBare();
+        return Optional.of(repository)
+                       .filter(currentRepository -> hasCurrentBranch)
+                       .flatMap(RepositoryRequirements::currentBranch)
+                       .flatMap(this::branchMessageRule)
+                       .map(rule -> toBuilder().allowedCommitMessagesRegex(
+                               CaseConsideringPattern.union(rule.getAllowedCommitMessagesRegexes())
+                       ).clearBranchMessageRules().build())
+                       .orElse(this);
+    }
+
+    private Optional<BranchMessageRule> branchMessageRule(String branchName) {
+        Optional<BranchMessageRule> rule = branchMessageRules.stream()
+                                                             .filter(candidate -> candidate.appliesTo(
+                                                                     branchName, areCaseSensitiveMatches
+                                                             ))
+                                                             .findFirst();
+        log.info("Branch message rule applicable to '{}' branch: {}", branchName, rule);
+        return rule;
+    }
+
+    @SneakyThrows
+    private static Optional<String> currentBranch(Repository repository) {
+        return Optional.ofNullable(repository.getBranch());
     }
 }
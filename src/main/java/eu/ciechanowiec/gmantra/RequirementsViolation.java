@@ -1,14 +1,175 @@
 package eu.ciechanowiec.gmantra;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
-import lombok.Getter;
 import lombok.ToString;
+import org.eclipse.jgit.lib.ObjectId;
 
-@ToString
-@AllArgsConstructor(access = AccessLevel.PACKAGE)
-@Getter(AccessLevel.PACKAGE)
+import java.time.Instant;
+import java.util.Optional;
+
+@ToString(onlyExplicitlyIncluded = true)
 class RequirementsViolation {
 
-    private final String message;
+    static final String BRANCH_RULE = "allowedBranchesRegex";
+    static final String COMMIT_MESSAGE_RULE = "allowedCommitMessagesRegex";
+
+    private final Optional<String> message;
+    private final Optional<MessageMismatch> messageMismatch;
+    private final Optional<RuleViolation> ruleViolation;
+    private final Optional<ObjectId> commitId;
+    private final String rule;
+    private final Optional<String> repositoryPath;
+
+    /**
+     * Constructs a violation that isn't related to any commit.
+     * @param message description of this violation
+     * @param rule name of the violated requirement, e.g. '{@link #COMMIT_MESSAGE_RULE}' for a message
+     *             that hasn't been committed yet
+     */
+    RequirementsViolation(String message, String rule) {
+        this.message = Optional.of(message);
+        this.messageMismatch = Optional.empty();
+        this.ruleViolation = Optional.empty();
+        this.commitId = Optional.empty();
+        this.rule = rule;
+        this.repositoryPath = Optional.empty();
+    }
+
+    RequirementsViolation(String message, ObjectId commitId) {
+        this(message, commitId, COMMIT_MESSAGE_RULE);
+    }
+
+    /**
+     * Constructs a violation related to a commit.
+     * @param message description of this violation
+     * @param commitId ID of the commit that caused this violation
+     * @param rule name of the violated requirement, e.g. the name of a {@link CommitRule}
+     */
+    RequirementsViolation(String message, ObjectId commitId, String rule) {
+        this.message = Optional.of(message);
+        this.messageMismatch = Optional.empty();
+        this.ruleViolation = Optional.empty();
+        this.commitId = Optional.of(commitId);
+        this.rule = rule;
+        this.repositoryPath = Optional.empty();
+    }
+
+    RequirementsViolation(MessageMismatch messageMismatch) {
+        this.message = Optional.empty();
+        this.messageMismatch = Optional.of(messageMismatch);
+        this.ruleViolation = Optional.empty();
+        this.commitId = Optional.of(messageMismatch.getCommitId());
+        this.rule = COMMIT_MESSAGE_RULE;
+        this.repositoryPath = Optional.empty();
+    }
+
+    RequirementsViolation(RuleViolation ruleViolation) {
+        this.message = Optional.empty();
+        this.messageMismatch = Optional.empty();
+        this.ruleViolation = Optional.of(ruleViolation);
+        this.commitId = Optional.of(ruleViolation.getCommitId());
+        this.rule = ruleViolation.getRule();
+        this.repositoryPath = Optional.empty();
+    }
+
+    private RequirementsViolation(RequirementsViolation violation, String repositoryPath) {
+        this.message = violation.message;
+        this.messageMismatch = violation.messageMismatch;
+        this.ruleViolation = violation.ruleViolation;
+        this.commitId = violation.commitId;
+        this.rule = violation.rule;
+        this.repositoryPath = Optional.of(repositoryPath);
+    }
+
+    /**
+     * Returns a copy of this violation that is tagged with the path of the repository it has been found in,
+     * e.g. with the path of a submodule.
+     * @param path path of the repository relative to the top-level repository, e.g. '{@code libs/core}'
+     * @return copy of this violation tagged with the path of the repository
+     */
+    RequirementsViolation inRepository(String path) {
+        return new RequirementsViolation(this, path);
+    }
+
+    /**
+     * Returns the description of this violation, prefixed with the path of the repository it has been found in,
+     * if it isn't the top-level repository. If this violation is a {@link MessageMismatch} or a {@link RuleViolation},
+     * the description is rendered on every call, so it should be called only when the violation is reported.
+     * @return description of this violation
+     */
+    @ToString.Include(name = "message")
+    String getMessage() {
+        String description = message.or(() -> messageMismatch.map(MessageMismatch::render))
+                                    .orElseGet(() -> ruleViolation.orElseThrow().render());
+        return repositoryPath.map(path -> String.format("[%s] %s", path, description)).orElse(description);
+    }
+
+    /**
+     * Returns the path of the repository this violation has been found in, if it isn't the top-level repository.
+     * @return path of the repository relative to the top-level repository
+     */
+    Optional<String> getRepositoryPath() {
+        return repositoryPath;
+    }
+
+    /**
+     * Returns the structured details of this violation, if this violation is a mismatch of a commit message.
+     * @return structured details of this violation
+     */
+    Optional<MessageMismatch> getMessageMismatch() {
+        return messageMismatch;
+    }
+
+    /**
+     * Returns the structured details of this violation, if this violation is a violation of a rule by a commit.
+     * @return structured details of this violation
+     */
+    Optional<RuleViolation> getRuleViolation() {
+        return ruleViolation;
+    }
+
+    /**
+     * Returns the ID of the commit that caused this violation, if the violation is related to a commit.
+     * @return ID of the commit that caused this violation
+     */
+    Optional<ObjectId> getCommitId() {
+        return commitId;
+    }
+
+    /**
+     * Returns the name of the requirement violated by this violation, i.e. the name of the plugin parameter
+     * which specifies that requirement. Violations related to commits are violations of commit message requirements.
+     * @return name of the violated requirement
+     */
+    String getRule() {
+        return rule;
+    }
+
+    /**
+     * Returns the time of the commit that caused this violation, if this violation is a mismatch of a commit message
+     * or a violation of a rule by a commit.
+     * @return time of the commit that caused this violation
+     */
+    Optional<Instant> getCommitTime() {
+        return messageMismatch.map(MessageMismatch::getCommitTime)
+                              .or(() -> ruleViolation.map(RuleViolation::getCommitTime))
+                              .map(Instant::ofEpochSecond);
+    }
+
+    /**
+     * Returns the first line of the message of the commit that caused this violation, if this violation
+     * is a mismatch of a commit message or a violation of a rule by a commit.
+     * @return first line of the commit message
+     */
+    Optional<String> getSubject() {
+        return messageMismatch.map(MessageMismatch::getShortMessage)
+                              .or(() -> ruleViolation.map(RuleViolation::getShortMessage));
+    }
+
+    /**
+     * Returns the pattern that wasn't matched, if this violation is a mismatch of a commit message.
+     * @return pattern that wasn't matched
+     */
+    Optional<String> getPattern() {
+        return messageMismatch.map(MessageMismatch::getPattern);
+    }
 }
@@ -0,0 +1,66 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Commit that violates a {@link CommitRule} or a {@link PathMessageRule}. Like for a {@link MessageMismatch},
+ * only the structured data is captured when the violation is detected; the human-readable description
+ * is rendered when it is actually reported.
+ */
+@ToString
+@Getter(AccessLevel.PACKAGE)
+class RuleViolation {
+
+    @ToString.Exclude
+    private final ObjectId commitId;
+    private final String commitDescription;
+    private final int commitTime;
+    private final String shortMessage;
+    private final String rule;
+    private final String reason;
+
+    /**
+     * Constructs an instance of this class.
+     * @param commit commit that violates the rule; its description is captured as well,
+     *               so the commit can be modified afterwards by the walk it comes from
+     * @param shortMessage first line of the commit message
+     * @param rule name of the violated rule
+     * @param reason reason why the commit violates the rule
+     */
+    RuleViolation(RevCommit commit, String shortMessage, String rule, String reason) {
+        this(commit, MessageMismatch.describe(commit), commit.getCommitTime(), shortMessage, rule, reason);
+    }
+
+    /**
+     * Constructs an instance of this class from data captured when the violation was detected.
+     * @param commitId ID of the commit that violates the rule
+     * @param commitDescription description of the commit
+     * @param commitTime time of the commit, in seconds since the epoch
+     * @param shortMessage first line of the commit message
+     * @param rule name of the violated rule
+     * @param reason reason why the commit violates the rule
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    RuleViolation(
+            ObjectId commitId, String commitDescription, int commitTime, String shortMessage, String rule,
+            String reason
+    ) {
+        this.commitId = commitId.copy();
+        this.commitDescription = commitDescription;
+        this.commitTime = commitTime;
+        this.shortMessage = shortMessage;
+        this.rule = rule;
+        this.reason = reason;
+    }
+
+    String render() {
+        return String.format(
+                "This commit: '%s' with message '%s' violates the '%s' rule: %s",
+                commitDescription, shortMessage, rule, reason
+        );
+    }
+}
@@ -0,0 +1,82 @@
+package eu.ciechanowiec.gmantra;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writer of a report in the SARIF 2.1.0 format, which is understood by code scanning tools. Every violation
+ * is reported as a result of the rule it violates, with structured fields of the violation as properties
+ * and the commit ID as a partial fingerprint, so that the same violation is recognized across reports.
+ */
+class SarifReportWriter extends AbstractViolationReportWriter {
+
+    private static final List<Map.Entry<String, String>> PLUGIN_RULES = List.of(
+            Map.entry(
+                    RequirementsViolation.BRANCH_RULE, "The name of the current branch must match the allowed pattern"
+            ),
+            Map.entry(RequirementsViolation.COMMIT_MESSAGE_RULE, "Commit messages must match the allowed pattern"),
+            Map.entry(
+                    ChangedPathRules.NAME, "Messages of commits that change matching paths must match the path rule"
+            )
+    );
+
+    private boolean isFirstResult;
+
+    SarifReportWriter(Writer output) {
+        super(output);
+        this.isFirstResult = true;
+    }
+
+    @Override
+    void begin() {
+        print("{\n"
+              + "  \"$schema\": \"https://json.schemastore.org/sarif-2.1.0.json\",\n"
+              + "  \"version\": \"2.1.0\",\n"
+              + "  \"runs\": [\n"
+              + "    {\n"
+              + "      \"tool\": {\n"
+              + "        \"driver\": {\n"
+              + "          \"name\": \"Git Mantra\",\n"
+              + "          \"informationUri\": \"https://github.com/ciechanowiec/gmantra\",\n"
+              + "          \"rules\": [\n");
+        String rules = Stream.concat(PLUGIN_RULES.stream(), CommitRules.BUILT_IN_RULES.stream())
+                             .map(rule -> "            " + rule(rule.getKey(), rule.getValue()))
+                             .collect(Collectors.joining(",\n"));
+        printLine(rules);
+        print("          ]\n"
+              + "        }\n"
+              + "      },\n"
+              + "      \"results\": [");
+    }
+
+    @Override
+    void write(RequirementsViolation violation) {
+        String fingerprints = violation.getCommitId()
+                                       .map(commitId -> json(Map.of("commitId", commitId.name())))
+                                       .map(commitFingerprint -> ", \"partialFingerprints\": " + commitFingerprint)
+                                       .orElse("");
+        printLine(isFirstResult ? "" : ",");
+        print(String.format(
+                "        {\"ruleId\": %s, \"level\": \"error\", \"message\": {\"text\": %s}%s, \"properties\": %s}",
+                json(violation.getRule()), json(violation.getMessage()), fingerprints,
+                json(fields(violation))
+        ));
+        isFirstResult = false;
+    }
+
+    @Override
+    void end(int numOfViolations) {
+        print("\n"
+              + "      ]\n"
+              + "    }\n"
+              + "  ]\n"
+              + "}\n");
+    }
+
+    private String rule(String id, String description) {
+        return String.format("{\"id\": %s, \"shortDescription\": {\"text\": %s}}", json(id), json(description));
+    }
+}
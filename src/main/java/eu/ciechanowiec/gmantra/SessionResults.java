@@ -0,0 +1,115 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Validation results shared by all plugin executions within a single Maven session. Thanks to that,
+ * in a multi-module build the repository is validated only once for every distinct configuration
+ * and all subsequent modules reuse the result of the first validation. Results of validations performed
+ * within a Maven session are also kept by the JVM as {@link DaemonResults}, so that subsequent sessions
+ * run by the same Maven daemon (mvnd) reuse them as long as the repository doesn't change.
+ */
+@Slf4j
+@ToString
+class SessionResults {
+
+    @ToString.Exclude
+    private final Map<String, FutureTask<ValidationResult>> results;
+
+    private final Optional<DaemonResults> daemonResults;
+
+    SessionResults(MavenSession session) {
+        SessionData sessionData = session.getRepositorySession().getData();
+        // The class object is used as a key, so that different versions of the plugin, which are loaded
+        // by different class loaders, never share the results:
+        Map<String, FutureTask<ValidationResult>> initialResults = new ConcurrentHashMap<>();
+        sessionData.set(SessionResults.class, null, initialResults);
+        this.results = resultsFrom(sessionData);
+        this.daemonResults = Optional.of(new DaemonResults());
+        log.debug("Initialized: {}", this);
+    }
+
+    SessionResults() {
+        this.results = new ConcurrentHashMap<>();
+        this.daemonResults = Optional.empty();
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Returns the result of the validation of the specified repository against the specified requirements
+     * with default {@link ValidationSettings}.
+     * @param repository validated repository
+     * @param requirements requirements against which the repository is validated
+     * @param validation performs the validation if the result isn't available yet
+     * @return result of the validation
+     */
+    ValidationResult get(
+            Repository repository, RepositoryRequirements requirements, Supplier<ValidationResult> validation
+    ) {
+        return get(repository, requirements, ValidationSettings.defaults(), validation);
+    }
+
+    /**
+     * Returns the result of the validation of the specified repository against the specified requirements.
+     * If such a validation hasn't been performed yet within the current session, it is performed by the
+     * specified supplier; otherwise, the previously computed result is reused. If the same validation is being
+     * performed by another thread, its result is awaited. Results of validations stopped after different numbers
+     * of violations are never shared.
+     * @param repository validated repository
+     * @param requirements requirements against which the repository is validated
+     * @param settings settings with which the repository is validated
+     * @param validation performs the validation if the result isn't available yet
+     * @return result of the validation
+     */
+    ValidationResult get(
+            Repository repository, RepositoryRequirements requirements, ValidationSettings settings,
+            Supplier<ValidationResult> validation
+    ) {
+        String key = String.format(
+                "%s-%s-%d", repository.getDirectory(), requirements.fingerprint(settings), settings.violationLimit()
+        );
+        FutureTask<ValidationResult> newResult = new FutureTask<>(
+                () -> daemonResults.map(daemon -> daemon.get(repository, requirements, settings, validation))
+                                   .orElseGet(validation)
+        );
+        Optional<FutureTask<ValidationResult>> cachedResult = Optional.ofNullable(results.putIfAbsent(key, newResult));
+        boolean isAvailable = cachedResult.isPresent();
+        log.debug("Is the validation result for '{}' already available in the current session? '{}'", key, isAvailable);
+        // The validation is performed outside the map, so it holds no lock of the map and can use other maps:
+        Conditional.onFalseExecute(isAvailable, newResult::run);
+        return await(key, cachedResult.orElse(newResult));
+    }
+
+    /**
+     * Waits for the specified result. Failed validations aren't kept, so they are performed again
+     * by subsequent executions.
+     */
+    @SneakyThrows
+    @SuppressWarnings("PMD.PreserveStackTrace")
+    private ValidationResult await(String key, FutureTask<ValidationResult> result) {
+        try {
+            return result.get();
+        } catch (ExecutionException exception) {
+            results.remove(key, result);
+            throw exception.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, FutureTask<ValidationResult>> resultsFrom(SessionData sessionData) {
+        return (Map<String, FutureTask<ValidationResult>>) sessionData.get(SessionResults.class);
+    }
+}
@@ -0,0 +1,40 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Rule that every commit message must contain a '{@code Signed-off-by}' trailer, as added
+ * by '{@code git commit --signoff}'.
+ */
+@Slf4j
+@ToString
+class SignOffRule implements CommitRule {
+
+    static final String NAME = "requireSignOff";
+    private static final Pattern SIGN_OFF_TRAILER = Pattern.compile("^Signed-off-by: \\S.*$", Pattern.MULTILINE);
+
+    SignOffRule() {
+        log.debug("Initialized: {}", this);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<Part> getRequiredParts() {
+        return Set.of(Part.FULL_MESSAGE);
+    }
+
+    @Override
+    public Optional<String> validate(CommitDetails commit) {
+        boolean isSignedOff = SIGN_OFF_TRAILER.matcher(commit.getFullMessage()).find();
+        return Optional.of("the message has no 'Signed-off-by' trailer").filter(reason -> !isSignedOff);
+    }
+}
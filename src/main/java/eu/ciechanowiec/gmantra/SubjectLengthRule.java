@@ -0,0 +1,47 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Rule that the first line of a commit message must not be longer than the specified number of characters.
+ * Characters are counted as Unicode code points, so e.g. an emoji counts as a single character.
+ */
+@Slf4j
+@ToString
+class SubjectLengthRule implements CommitRule {
+
+    static final String NAME = "maxSubjectLength";
+
+    private final int maxSubjectLength;
+
+    SubjectLengthRule(int maxSubjectLength) {
+        this.maxSubjectLength = maxSubjectLength;
+        log.debug("Initialized: {}", this);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Set<Part> getRequiredParts() {
+        return Set.of(Part.SUBJECT);
+    }
+
+    @Override
+    public Optional<String> validate(CommitDetails commit) {
+        String subject = commit.getSubject();
+        int subjectLength = subject.codePointCount(0, subject.length());
+        return Optional.of(subjectLength)
+                       .filter(length -> length > maxSubjectLength)
+                       .map(length -> String.format(
+                               "the message '%s' is %d characters long, which is more than %d",
+                               subject, length, maxSubjectLength
+                       ));
+    }
+}
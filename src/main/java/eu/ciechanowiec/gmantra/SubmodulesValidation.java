@@ -0,0 +1,174 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Validation of a repository together with all its submodules, including nested ones. Submodules are discovered
+ * by a walk over the index of the repository, and every submodule is validated by its own
+ * {@link ValidatorsCluster}, concurrently with the repository and other submodules, on a pool bounded by the number
+ * of available processors. Sequential validation of many submodules would multiply the time of the validation.
+ * <p>
+ * Violations found in submodules are tagged with paths of the submodules and reported after violations found
+ * in the repository, in the order of the index, so the result doesn't depend on the order in which validations finish.
+ * Submodules that aren't initialized, i.e. whose repositories haven't been cloned, are skipped with a warning.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings("PMD.DoNotUseThreads")
+class SubmodulesValidation {
+
+    private static final String PATH_SEPARATOR = "/";
+
+    private final Repository repository;
+    private final RepositoryRequirements submoduleRequirements;
+    private final ValidationSettings settings;
+
+    @ToString.Exclude
+    private final ValidationMetrics metrics;
+
+    @ToString.Exclude
+    private final ViolationListener listener;
+
+    /**
+     * Constructs an instance of this class.
+     * @param repository repository whose submodules are validated
+     * @param repositoryRequirements requirements against which the repository is validated
+     * @param settings settings with which the repository and its submodules are validated
+     * @param metrics metrics of the validation of the repository
+     * @param listener listener notified of every violation found in submodules, which are tagged
+     *                 with paths of the submodules
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    SubmodulesValidation(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics, ViolationListener listener
+    ) {
+        this.repository = repository;
+        this.submoduleRequirements = repositoryRequirements.forSubmodules();
+        this.settings = settings;
+        this.metrics = metrics;
+        this.listener = listener;
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Validates the repository by the specified validation and all its submodules concurrently.
+     * @param repositoryValidation validation of the repository itself, which records its metrics
+     *                             in the metrics of this validation
+     * @return violations found in the repository, followed by violations found in submodules,
+     *         but no more than the limit of violations
+     */
+    ValidationResult validate(Supplier<ValidationResult> repositoryValidation) {
+        List<Submodule> submodules = metrics.measure(
+                ValidationMetrics.Phase.REF_RESOLUTION, () -> submodules(repository, "")
+        );
+        log.info("Number of submodules validated together with {}: {}", repository, submodules.size());
+        int availableProcessors = Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, Math.min(submodules.size() + 1, availableProcessors)));
+        try {
+            ForkJoinTask<ValidationResult> repositoryTask = pool.submit(repositoryValidation::get);
+            List<ForkJoinTask<List<RequirementsViolation>>> submoduleTasks = submodules.stream()
+                    .map(submodule -> pool.submit(submodule::validate))
+                    .collect(Collectors.toUnmodifiableList());
+            // Tasks are joined in the order of submission, so violations are ordered as submodules:
+            Collection<RequirementsViolation> repositoryViolations = repositoryTask.join().getViolations();
+            List<RequirementsViolation> violations = Stream.concat(
+                    repositoryViolations.stream(), submoduleTasks.stream().flatMap(task -> task.join().stream())
+            ).limit(settings.violationLimit()).collect(Collectors.toUnmodifiableList());
+            Conditional.onTrueExecute(isViolationLimited(), () -> violations.subList(
+                    repositoryViolations.size(), violations.size()
+            ).forEach(listener::found));
+            submodules.forEach(submodule -> metrics.add(submodule.metrics));
+            return new ValidationResult(violations);
+        } finally {
+            pool.shutdownNow();
+            submodules.forEach(Submodule::close);
+        }
+    }
+
+    /**
+     * Checks whether the number of violations is limited. If so, which violations of submodules are reported
+     * depends on violations of the repository and of preceding submodules, so violations of submodules are passed
+     * to the listener only once all validations are finished. Otherwise, they are passed as soon as they are found.
+     */
+    private boolean isViolationLimited() {
+        return settings.violationLimit() < Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns initialized submodules of the specified repository and, recursively, their submodules,
+     * in the order of the index. Bare repositories have no index, so they have no submodules either.
+     */
+    private List<Submodule> submodules(Repository parent, String parentPath) {
+        return Optional.of(parent)
+                       .filter(nonBareParent -> !nonBareParent.isBare())
+                       .map(nonBareParent -> walkSubmodules(nonBareParent, parentPath))
+                       .orElseGet(List::of);
+    }
+
+    @SneakyThrows
+    private List<Submodule> walkSubmodules(Repository parent, String parentPath) {
+        List<Submodule> submodules = new ArrayList<>();
+        try (SubmoduleWalk walk = SubmoduleWalk.forIndex(parent)) {
+            while (walk.next()) {
+                String path = parentPath + walk.getPath();
+                Optional.ofNullable(walk.getRepository()).ifPresentOrElse(submoduleRepository -> {
+                    submodules.add(new Submodule(path, submoduleRepository));
+                    submodules.addAll(submodules(submoduleRepository, path + PATH_SEPARATOR));
+                }, () -> log.warn("Submodule '{}' isn't initialized and will not be validated", path));
+            }
+        }
+        return submodules;
+    }
+
+    /**
+     * Submodule validated by its own {@link ValidatorsCluster}, with its own metrics, because metrics
+     * aren't synchronized.
+     */
+    private final class Submodule implements AutoCloseable {
+
+        private final String path;
+        private final Repository submoduleRepository;
+        private final ValidationMetrics metrics;
+
+        private Submodule(String path, Repository submoduleRepository) {
+            this.path = path;
+            this.submoduleRepository = submoduleRepository;
+            this.metrics = SubmodulesValidation.this.metrics.newPart();
+        }
+
+        private List<RequirementsViolation> validate() {
+            log.debug("Validating submodule '{}'", path);
+            ViolationListener submoduleListener = isViolationLimited() ? ViolationListener.NONE
+                                                                       : listener.inRepository(path);
+            ValidatorsCluster cluster = ValidatorsCluster.forSubmodule(
+                    submoduleRepository, submoduleRequirements, settings, metrics, submoduleListener
+            );
+            return cluster.validate()
+                          .getViolations()
+                          .stream()
+                          .map(violation -> violation.inRepository(path))
+                          .collect(Collectors.toUnmodifiableList());
+        }
+
+        @Override
+        public void close() {
+            submoduleRepository.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package eu.ciechanowiec.gmantra;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * Events of the validation emitted into JDK Flight Recorder (JFR), so that a recording of a slow build shows
+ * which phases, commits or patterns were expensive. The events are recorded only if a recording is running,
+ * e.g. if the JVM is started with '{@code -XX:StartFlightRecording}', and can be enabled, disabled and given
+ * thresholds by JFR settings, like any other events, by the names of the events.
+ * <p>
+ * If the recording is disabled, the events cost nothing: fields of the events are populated only if the events
+ * are going to be committed, and events emitted per walked commit aren't even instantiated. Whether events
+ * emitted per walked commit are recorded is decided once per walk, so they are recorded only by walks that
+ * have started after the recording.
+ */
+@SuppressWarnings({
+        "PMD.DataClass", "PMD.MissingStaticMethodInNonInstantiatableClass", "VisibilityModifier",
+        "squid:ClassVariableVisibilityCheck"
+})
+@SuppressFBWarnings(value = "URF_UNREAD_FIELD", justification = "Fields of events are read by JDK Flight Recorder")
+final class ValidationEvents {
+
+    private static final String CATEGORY = "Git Mantra";
+
+    private ValidationEvents() {
+        // Only nested classes are used
+    }
+
+    /**
+     * Opening of a repository by the {@link RepositoryProvider}.
+     */
+    @Name("eu.ciechanowiec.gmantra.RepositoryOpen")
+    @Label("Repository Open")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class RepositoryOpen extends Event {
+
+        @Label("Git Directory")
+        String gitDirectory;
+    }
+
+    /**
+     * Resolution of a reference or a commit hash to a commit by the {@link MessageValidator}.
+     */
+    @Name("eu.ciechanowiec.gmantra.RefResolution")
+    @Label("Ref Resolution")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class RefResolution extends Event {
+
+        @Label("Git Directory")
+        String gitDirectory;
+
+        @Label("Ref")
+        @Description("Reference or commit hash that was resolved")
+        String ref;
+
+        @Label("Commit ID")
+        @Description("Resolved commit; empty if the reference couldn't be resolved")
+        String commitId;
+    }
+
+    /**
+     * Walk over a batch of {@link MessageMatching#BATCH_SIZE} consecutive commits, or fewer at the end of the walk,
+     * including matching of their messages if the messages are matched by the walking thread.
+     */
+    @Name("eu.ciechanowiec.gmantra.WalkBatch")
+    @Label("Walk Batch")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class WalkBatch extends Event {
+
+        @Label("Walked Commits")
+        int numOfCommits;
+
+        @Label("Reported Violations")
+        @Description("Violations reported by the walk so far, including violations reported in previous batches")
+        int numOfReportedViolations;
+    }
+
+    /**
+     * Matching of the first line of a commit message that took longer than the threshold of the event.
+     */
+    @Name("eu.ciechanowiec.gmantra.SlowMatch")
+    @Label("Slow Match")
+    @Category(CATEGORY)
+    @Threshold("20 ms")
+    @StackTrace(false)
+    static final class SlowMatch extends Event {
+
+        @Label("Commit ID")
+        String commitId;
+
+        @Label("Pattern")
+        String pattern;
+    }
+
+    /**
+     * Validation of a repository by the {@link ValidatorsCluster}, including validation of its submodules.
+     */
+    @Name("eu.ciechanowiec.gmantra.Validation")
+    @Label("Validation")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Validation extends Event {
+
+        @Label("Git Directory")
+        String gitDirectory;
+
+        @Label("Violations")
+        int numOfViolations;
+    }
+}
@@ -0,0 +1,289 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Metrics of a single plugin execution: durations of particular phases, numbers of processed commits
+ * and the growth of the peak heap memory usage. Metrics are recorded only by the thread that performs
+ * the execution, so they aren't synchronized.
+ * <p>
+ * Peak usages of heap memory pools are tracked by the JVM for the whole JVM and are shared by everything it runs,
+ * e.g. by other modules built concurrently in a parallel Maven build or by other builds run by the same Maven
+ * daemon. For that reason, peak usages are never reset. Instead, they are recorded when the metrics are created,
+ * and only the growth of the peak usage of every heap memory pool beyond the recorded one is reported. The growth
+ * is zero if the execution never uses more memory than was used at some point before it. It still includes
+ * memory consumed by other threads during the execution.
+ */
+@Slf4j
+@ToString
+class ValidationMetrics {
+
+    /**
+     * Phase of a plugin execution.
+     */
+    enum Phase {
+
+        /**
+         * Opening of the repository.
+         */
+        REPOSITORY_OPEN("repositoryOpen"),
+
+        /**
+         * Resolution of the current branch, the HEAD and other commits specified by references or hashes.
+         */
+        REF_RESOLUTION("refResolution"),
+
+        /**
+         * Writing of the commit-graph file.
+         */
+        COMMIT_GRAPH_WRITE("commitGraphWrite"),
+
+        /**
+         * Walk over the history, including loading of walked commits, but excluding matching of their messages.
+         */
+        COMMIT_WALK("commitWalk"),
+
+        /**
+         * Matching of commit messages and of the branch name, including waiting for concurrently matched messages.
+         */
+        MATCHING("matching"),
+
+        /**
+         * Reporting of violations.
+         */
+        REPORTING("reporting");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+    }
+
+    private static final long BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final Instant start;
+    private final Map<Phase, Long> phaseNanos;
+    @ToString.Exclude
+    private final Map<String, Long> initialPeakHeapUsages;
+    private long numOfWalkedCommits;
+    private long numOfSkippedMergeCommits;
+    private long numOfMatchedCommits;
+    private long numOfViolatedCommits;
+    private long numOfViolations;
+
+    ValidationMetrics() {
+        this(Instant.now(), peakHeapUsages());
+    }
+
+    private ValidationMetrics(Instant start, Map<String, Long> initialPeakHeapUsages) {
+        this.start = start;
+        this.initialPeakHeapUsages = initialPeakHeapUsages;
+        this.phaseNanos = new EnumMap<>(Phase.class);
+        Arrays.stream(Phase.values()).forEach(phase -> phaseNanos.put(phase, 0L));
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Creates empty metrics of a part of the execution that is performed by another thread, e.g. of the validation
+     * of a submodule. Contrary to new metrics, peak heap memory usages aren't recorded again.
+     * @return empty metrics of a part of the execution, to be added to these metrics once the part is finished
+     */
+    ValidationMetrics newPart() {
+        return new ValidationMetrics(start, initialPeakHeapUsages);
+    }
+
+    /**
+     * Adds durations and numbers of commits recorded by the specified part of the execution to these metrics.
+     * Durations of parts performed concurrently are summed up, so they might exceed the duration of the execution.
+     * @param part metrics of a finished part of the execution, created by {@link #newPart()}
+     */
+    void add(ValidationMetrics part) {
+        part.phaseNanos.forEach(this::addDuration);
+        countWalkedCommits(part.numOfWalkedCommits, part.numOfSkippedMergeCommits);
+        countMatchedCommits(part.numOfMatchedCommits, part.numOfViolatedCommits);
+    }
+
+    /**
+     * Performs the specified action and adds its duration to the duration of the specified phase.
+     * @param phase phase the action belongs to
+     * @param action action to perform
+     * @param <T> type of the result of the action
+     * @return result of the action
+     */
+    <T> T measure(Phase phase, Supplier<T> action) {
+        long actionStart = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            addDuration(phase, System.nanoTime() - actionStart);
+        }
+    }
+
+    /**
+     * Performs the specified action and adds its duration to the duration of the specified phase.
+     * @param phase phase the action belongs to
+     * @param action action to perform
+     */
+    void measureExecution(Phase phase, Runnable action) {
+        measure(phase, () -> {
+            action.run();
+            return phase;
+        });
+    }
+
+    /**
+     * Adds the specified duration to the duration of the specified phase.
+     * @param phase phase the duration belongs to
+     * @param nanos duration in nanoseconds
+     */
+    void addDuration(Phase phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    /**
+     * Records commits visited by a walk over the history.
+     * @param walkedCommits number of commits visited by the walk, including commits that haven't been
+     *                      passed to the action of the walk
+     * @param skippedMergeCommits number of visited merge commits that haven't been passed to the action
+     *                            of the walk
+     */
+    void countWalkedCommits(long walkedCommits, long skippedMergeCommits) {
+        numOfWalkedCommits += walkedCommits;
+        numOfSkippedMergeCommits += skippedMergeCommits;
+    }
+
+    /**
+     * Records commits whose messages have been matched.
+     * @param matchedCommits number of commits whose messages have been matched
+     * @param violatedCommits number of matched commits whose messages don't match the allowed pattern
+     */
+    void countMatchedCommits(long matchedCommits, long violatedCommits) {
+        numOfMatchedCommits += matchedCommits;
+        numOfViolatedCommits += violatedCommits;
+    }
+
+    /**
+     * Records the number of violations in the result of the validation, including violations
+     * reused from previous validations.
+     * @param violations number of violations
+     */
+    void countViolations(long violations) {
+        numOfViolations += violations;
+    }
+
+    /**
+     * Returns the duration of the specified phase.
+     * @param phase phase to return the duration of
+     * @return duration of the specified phase
+     */
+    Duration duration(Phase phase) {
+        return Duration.ofNanos(phaseNanos.get(phase));
+    }
+
+    long getNumOfWalkedCommits() {
+        return numOfWalkedCommits;
+    }
+
+    long getNumOfSkippedMergeCommits() {
+        return numOfSkippedMergeCommits;
+    }
+
+    long getNumOfMatchedCommits() {
+        return numOfMatchedCommits;
+    }
+
+    long getNumOfViolatedCommits() {
+        return numOfViolatedCommits;
+    }
+
+    /**
+     * Logs a one-line summary of these metrics and, if the file is specified, writes them to that file as JSON.
+     * @param metricsFile file the metrics should be written to; existing file is overwritten
+     */
+    @SneakyThrows
+    void report(Optional<Path> metricsFile) {
+        long peakHeapGrowthBytes = peakHeapGrowthBytes();
+        String phases = Arrays.stream(Phase.values())
+                              .map(phase -> String.format("%s=%d ms", phase.key, duration(phase).toMillis()))
+                              .collect(Collectors.joining(", "));
+        log.info("Validation metrics: {}, walked commits={}, skipped merge commits={}, matched commits={}, "
+                 + "violated commits={}, violations={}, peak heap growth={} MB", phases, numOfWalkedCommits,
+                 numOfSkippedMergeCommits, numOfMatchedCommits, numOfViolatedCommits, numOfViolations,
+                 peakHeapGrowthBytes / BYTES_PER_MEGABYTE);
+        metricsFile.ifPresent(file -> write(file, toJson(peakHeapGrowthBytes)));
+    }
+
+    @SneakyThrows
+    private void write(Path file, String json) {
+        Path absoluteFile = file.toAbsolutePath();
+        Optional.ofNullable(absoluteFile.getParent()).ifPresent(this::createDirectories);
+        Files.writeString(absoluteFile, json, StandardCharsets.UTF_8);
+        log.info("Validation metrics written to {}", absoluteFile);
+    }
+
+    @SneakyThrows
+    private void createDirectories(Path directory) {
+        Files.createDirectories(directory);
+    }
+
+    private String toJson(long peakHeapGrowthBytes) {
+        String phasesMillis = Arrays.stream(Phase.values())
+                                    .map(phase -> String.format(
+                                            "    \"%s\": %d", phase.key, duration(phase).toMillis()
+                                    ))
+                                    .collect(Collectors.joining(String.format(",%n")));
+        return String.format(
+                "{%n"
+                + "  \"startedAt\": \"%s\",%n"
+                + "  \"phasesMillis\": {%n%s%n  },%n"
+                + "  \"commits\": {%n"
+                + "    \"walked\": %d,%n"
+                + "    \"skippedMerges\": %d,%n"
+                + "    \"matched\": %d,%n"
+                + "    \"violated\": %d%n"
+                + "  },%n"
+                + "  \"violations\": %d,%n"
+                + "  \"peakHeapGrowthBytes\": %d%n"
+                + "}%n",
+                start, phasesMillis, numOfWalkedCommits, numOfSkippedMergeCommits, numOfMatchedCommits,
+                numOfViolatedCommits, numOfViolations, peakHeapGrowthBytes
+        );
+    }
+
+    private long peakHeapGrowthBytes() {
+        return peakHeapUsages().entrySet()
+                               .stream()
+                               .mapToLong(peakUsage -> {
+                                   long initialPeakUsage = initialPeakHeapUsages.getOrDefault(peakUsage.getKey(), 0L);
+                                   return Math.max(0L, peakUsage.getValue() - initialPeakUsage);
+                               })
+                               .sum();
+    }
+
+    private static Map<String, Long> peakHeapUsages() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                                .stream()
+                                .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP)
+                                .collect(Collectors.toUnmodifiableMap(
+                                        MemoryPoolMXBean::getName, memoryPool -> memoryPool.getPeakUsage().getUsed()
+                                ));
+    }
+}
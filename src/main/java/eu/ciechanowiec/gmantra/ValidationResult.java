@@ -1,5 +1,6 @@
 package eu.ciechanowiec.gmantra;
 
+import eu.ciechanowiec.conditional.Conditional;
 import lombok.Getter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
@@ -29,9 +30,21 @@ class ValidationResult {
         log.debug("Initialized: {}", this);
     }
 
-    void logViolations() {
+    /**
+     * Logs descriptions of violations of this result as errors.
+     * @param maxLoggedViolations maximal number of logged violations; if there are more violations,
+     *                            only the first ones are logged, followed by the number of the remaining ones;
+     *                            non-positive values mean no limit
+     */
+    void logViolations(int maxLoggedViolations) {
+        long numOfLoggedViolations = maxLoggedViolations > 0 ? maxLoggedViolations : violations.size();
         violations.stream()
+                  .limit(numOfLoggedViolations)
                   .map(RequirementsViolation::getMessage)
                   .forEach(log::error);
+        long numOfSkippedViolations = violations.size() - Math.min(numOfLoggedViolations, violations.size());
+        Conditional.onTrueExecute(numOfSkippedViolations > 0, () -> log.error(
+                "... and {} more violation(s), which aren't logged", numOfSkippedViolations
+        ));
     }
 }
@@ -0,0 +1,113 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Settings that influence how the validation is performed, but, contrary to {@link RepositoryRequirements},
+ * not what its verdict is, except for the {@link RegexEngine}, whose engines differ in details and which is therefore
+ * a part of the {@link RepositoryRequirements#fingerprint(ValidationSettings)}, and limits of the number of violations,
+ * which stop the validation early and so truncate the reported violations.
+ */
+@Slf4j
+@ToString
+@Builder
+@Getter(AccessLevel.PACKAGE)
+class ValidationSettings {
+
+    static final Duration DEFAULT_MATCH_TIMEOUT = Duration.ofSeconds(5);
+
+    /**
+     * '{@code true}' if verdicts of already validated commits should be persisted in the git directory
+     * and reused by subsequent validations; '{@code false}' otherwise.
+     */
+    @Builder.Default
+    private final boolean useVerdictCache = true;
+
+    /**
+     * '{@code true}' if verdicts of already validated commits should be persisted in {@link VerdictNotes},
+     * which can be shared between clones of the repository, instead of the git directory; '{@code false}'
+     * otherwise. Ignored if verdicts aren't persisted at all.
+     */
+    private final boolean useVerdictNotes;
+
+    /**
+     * '{@code true}' if the commit-graph file of the repository, if it exists, should be used to walk
+     * over the history without loading commits that aren't validated; '{@code false}' otherwise.
+     */
+    @Builder.Default
+    private final boolean useCommitGraph = true;
+
+    /**
+     * '{@code true}' if the commit-graph file of the repository should be written before the validation
+     * whenever it doesn't exist yet or doesn't cover the validated commits; '{@code false}' otherwise.
+     * Ignored if the commit-graph file isn't used.
+     */
+    private final boolean writeCommitGraph;
+
+    /**
+     * Number of threads that match commit messages. If equal to '{@code 1}', messages are matched
+     * sequentially; if not positive, the number of available processors is used.
+     */
+    @Builder.Default
+    private final int parallelism = 1;
+
+    /**
+     * Engine that matches branch names and commit messages against regular expressions.
+     */
+    @Builder.Default
+    private final RegexEngine regexEngine = RegexEngine.JAVA;
+
+    /**
+     * Maximal duration of a single match performed by the {@link RegexEngine#JAVA} engine, after which
+     * the validation fails with a {@link MatchTimeoutException}. Non-positive values mean no limit.
+     */
+    @Builder.Default
+    private final Duration matchTimeout = DEFAULT_MATCH_TIMEOUT;
+
+    /**
+     * '{@code true}' if the validation should stop as soon as the first violation is found; '{@code false}'
+     * otherwise. If enabled, all other limits of the number of violations are ignored.
+     */
+    private final boolean failFast;
+
+    /**
+     * Maximal number of violations after which the validation stops. Non-positive values mean no limit.
+     */
+    private final int maxReportedViolations;
+
+    static ValidationSettings defaults() {
+        return ValidationSettings.builder().build();
+    }
+
+    /**
+     * Returns the number of violations after which the validation stops.
+     * @return number of violations after which the validation stops; '{@link Integer#MAX_VALUE}' if there is no limit
+     */
+    int violationLimit() {
+        int reportedViolationsLimit = maxReportedViolations > 0 ? maxReportedViolations : Integer.MAX_VALUE;
+        return failFast ? 1 : reportedViolationsLimit;
+    }
+
+    /**
+     * Parses the maximal duration of a single match. A value that cannot be parsed is reported
+     * with a warning and the default duration is returned instead.
+     * @param matchTimeout ISO-8601 duration, e.g. '{@code PT5S}'
+     * @return parsed duration
+     */
+    @SuppressWarnings("squid:S1166")
+    static Duration parseMatchTimeout(String matchTimeout) {
+        try {
+            return Duration.parse(matchTimeout.trim());
+        } catch (DateTimeParseException exception) {
+            log.warn("Unable to parse this duration: '{}'. {} will be used", matchTimeout, DEFAULT_MATCH_TIMEOUT);
+            return DEFAULT_MATCH_TIMEOUT;
+        }
+    }
+}
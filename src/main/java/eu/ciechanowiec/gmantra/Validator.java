@@ -1,7 +1,22 @@
 package eu.ciechanowiec.gmantra;
 
+import java.util.stream.Collectors;
+
 @FunctionalInterface
 interface Validator {
 
     ValidationResult validate();
+
+    /**
+     * Validates, but reports no more than the specified number of violations. By default, the limit is applied
+     * to violations found by {@link #validate()}, so validators that can stop early should override this method.
+     * @param violationLimit number of violations after which the validation stops
+     * @return violations found by the validation, but no more than the specified number
+     */
+    default ValidationResult validate(int violationLimit) {
+        return validate().getViolations()
+                         .stream()
+                         .limit(violationLimit)
+                         .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
+    }
 }
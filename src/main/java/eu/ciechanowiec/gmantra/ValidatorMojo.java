@@ -3,23 +3,23 @@ package eu.ciechanowiec.gmantra;
 import eu.ciechanowiec.conditional.Conditional;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.eclipse.jgit.lib.Repository;
 
 import java.io.File;
+import java.util.List;
 import java.util.Optional;
 
-@Mojo(
-        name = ValidatorMojo.GOAL_NAME, defaultPhase = LifecyclePhase.VALIDATE
-)
+@Mojo(name = ValidatorMojo.GOAL_NAME, defaultPhase = LifecyclePhase.VALIDATE)
 @Slf4j
-@SuppressWarnings(
-        {"unused", "PMD.AvoidDuplicateLiterals", "InstanceVariableMayNotBeInitialized", "ClassWithTooManyFields"}
-)
-class ValidatorMojo extends AbstractMojo {
+@SuppressWarnings({
+        "unused", "PMD.AvoidDuplicateLiterals", "InstanceVariableMayNotBeInitialized",
+        "ClassWithTooManyFields", "PMD.TooManyFields", "ClassFanOutComplexity"
+})
+class ValidatorMojo extends AbstractValidatorMojo {
 
     static final String GOAL_NAME = "validate";
 
@@ -54,6 +54,51 @@ class ValidatorMojo extends AbstractMojo {
     @Parameter(property = "gmantra.allowedCommitMessagesRegex", defaultValue = ".*")
     private String allowedCommitMessagesRegex;
 
+    /**
+     * Rules with a '{@code branchesRegex}' and '{@code allowedCommitMessagesRegexes}'. The first rule whose
+     * '{@code branchesRegex}' matches the current branch replaces the '{@code allowedCommitMessagesRegex}' with
+     * its regexes, combined into one. Not applied in the '{@code allRefs}' mode. By default, there are no rules.
+     */
+    @Parameter
+    private List<BranchMessageRule> branchMessageRules;
+
+    /**
+     * Rules with '{@code paths}' (a glob, e.g. <i>db/**</i>) and an '{@code allowedCommitMessagesRegex}' that commits
+     * changing matching paths must also match, besides other rules. By default, there are no rules.
+     */
+    @Parameter
+    private List<PathMessageRule> pathMessageRules;
+
+    /**
+     * A regular expression (regex) for allowed email addresses of authors of commits, matched case-insensitively.
+     * Like all rules for commits, it is checked in the same walk over the history as commit messages.
+     * <br>
+     * By default, this value isn't set, which means that all email addresses are allowed.
+     */
+    @Parameter(property = "gmantra.allowedAuthorEmailsRegex")
+    private String allowedAuthorEmailsRegex;
+
+    /**
+     * The maximal number of characters of the first line of a commit message. The default value is '{@code 0}',
+     * which means no limit.
+     */
+    @Parameter(property = "gmantra.maxSubjectLength", defaultValue = "0")
+    private int maxSubjectLength;
+
+    /**
+     * '{@code true}' if every commit message must contain a '{@code Signed-off-by}' trailer; '{@code false}'
+     * otherwise. The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.requireSignOff", defaultValue = "false")
+    private boolean requireSignOff;
+
+    /**
+     * Comma-separated words (e.g. <i>WIP,fixup</i>) that commit messages, including their bodies, must not contain,
+     * matched as whole words, case-insensitively. By default, this value isn't set.
+     */
+    @Parameter(property = "gmantra.forbiddenWords")
+    private String forbiddenWords;
+
     /**
      * '{@code true}' if matches for branch names and commit messages must be performed in a case-sensitive manner;
      * '{@code false}' otherwise.
@@ -99,6 +144,78 @@ class ValidatorMojo extends AbstractMojo {
     @Parameter(property = "gmantra.ignoreMergeCommits", defaultValue = "true")
     private boolean ignoreMergeCommits;
 
+    /**
+     * An ISO-8601 date (e.g. <i>2024-03-15</i>) or date-time with an offset (e.g. <i>2024-03-15T16:36:00+01:00</i>).
+     * Commits older than the specified date aren't subject to the validation of commit messages,
+     * and the walk over the history stops at the first such commit.
+     * <br>
+     * By default, this value isn't set. If the value cannot be parsed, a warning is issued, and the plugin execution
+     * proceeds as if this value wasn't specified.
+     */
+    @Parameter(property = "gmantra.startCommitDate")
+    private String startCommitDate;
+
+    /**
+     * An ISO-8601 duration (e.g. <i>P90D</i> for 90 days). Commits older than the specified duration, counting from
+     * the moment of the plugin execution, aren't subject to the validation of commit messages, and the walk over
+     * the history stops at the first such commit.
+     * <br>
+     * By default, this value isn't set. If the value cannot be parsed, a warning is issued, and the plugin execution
+     * proceeds as if this value wasn't specified.
+     */
+    @Parameter(property = "gmantra.maxCommitAge")
+    private String maxCommitAge;
+
+    /**
+     * The maximal number of the most recent commits whose messages are validated. Merge commits ignored due to
+     * the '{@code ignoreMergeCommits}' setting don't count. The default value is '{@code 0}', which means no limit.
+     */
+    @Parameter(property = "gmantra.maxCommits", defaultValue = "0")
+    private int maxCommits;
+
+    /**
+     * A Git reference (e.g. <i>origin/main</i>) or hash of a commit the current branch is going to be merged into.
+     * If specified, only commits reachable from the HEAD, but not reachable from the specified commit, are subject
+     * to the validation of commit messages. In other words, only commits that follow the merge-base of the HEAD
+     * and the specified commit are validated, i.e. exactly the commits introduced by the current branch.
+     * <br>
+     * By default, this value isn't set. If the specified commit doesn't exist, a warning is issued, and the plugin
+     * execution proceeds as if this value wasn't specified.
+     */
+    @Parameter(property = "gmantra.baseRef")
+    private String baseRef;
+
+    /**
+     * '{@code true}' if all references with any of the '{@code refPrefixes}' should be validated instead of the
+     * current branch; '{@code false}' otherwise. In this mode, names of all such references, without the prefixes,
+     * are validated against the '{@code allowedBranchesRegex}', and messages of commits reachable from any of them
+     * are validated in a single walk over the history, so commits shared by many references are validated only once.
+     * The verdict cache isn't used in this mode.
+     * <br>
+     * The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.allRefs", defaultValue = "false")
+    private boolean allRefs;
+
+    /**
+     * Comma-separated prefixes of references validated in the '{@code allRefs}' mode
+     * (e.g. <i>refs/heads/,refs/remotes/origin/</i>). Ignored if the '{@code allRefs}' mode isn't enabled.
+     * <br>
+     * The default value is '<i>refs/heads/</i>'.
+     */
+    @Parameter(property = "gmantra.refPrefixes", defaultValue = "refs/heads/")
+    private String refPrefixes;
+
+    /**
+     * '{@code true}' if initialized submodules, including nested ones, should be validated concurrently with the
+     * repository against the same requirements; '{@code false}' otherwise. The default value is '{@code false}'.
+     */
+    @Parameter(property = "gmantra.recurseSubmodules", defaultValue = "false")
+    private boolean recurseSubmodules;
+
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
     private final RepositoryProvider repositoryProvider;
 
     ValidatorMojo() {
@@ -111,6 +228,7 @@ class ValidatorMojo extends AbstractMojo {
             String allowedCommitMessagesRegex, boolean areCaseSensitiveMatches,
             String startCommitHash, boolean ignoreMergeCommits
     ) {
+        super(ValidationSettings.defaults());
         repositoryProvider = new RepositoryProvider(codeDirectory);
         this.failOnViolations = failOnViolations;
         this.allowedBranchesRegex = allowedBranchesRegex;
@@ -123,20 +241,59 @@ class ValidatorMojo extends AbstractMojo {
     @Override
     public void execute() {
         log.info("Started plugin execution. Goal: '{}'", GOAL_NAME);
-        startCommitHash = Optional.ofNullable(startCommitHash).orElse(StringUtils.EMPTY);
-        RepositoryRequirements requirements = new RepositoryRequirements(
-                allowedBranchesRegex, allowedCommitMessagesRegex,
-                areCaseSensitiveMatches, startCommitHash, ignoreMergeCommits
-        );
-        log.info("Injected configuration parameters: [failOnViolations={}], [RepositoryRequirements={}]",
-                  failOnViolations, requirements);
-        try (Repository repository = repositoryProvider.get()) {
-            ValidatorsCluster validatorsCluster = new ValidatorsCluster(repository, requirements);
-            ValidationResult validationResult = validatorsCluster.validate();
-            validationResult.logViolations();
-            boolean isValid = validationResult.isOK();
-            boolean doFail = failOnViolations && !isValid;
+        RepositoryRequirements requirements = requirements();
+        ValidationSettings settings = settings();
+        log.info("Injected configuration parameters: [failOnViolations={}], [RepositoryRequirements={}], "
+                 + "[ValidationSettings={}]", failOnViolations, requirements, settings);
+        SessionResults sessionResults = Optional.ofNullable(session)
+                                                .map(SessionResults::new)
+                                                .orElseGet(SessionResults::new);
+        ValidationMetrics metrics = new ValidationMetrics();
+        ValidationMetrics.Phase openPhase = ValidationMetrics.Phase.REPOSITORY_OPEN;
+        PackCacheSettings packCacheSettings = packCacheSettings();
+        try (Repository repository = metrics.measure(openPhase, repositoryProvider::get);
+             ViolationReports reports = openReports()) {
+            // The pack cache is configured before any object is read, so the walk uses it from the beginning:
+            metrics.measureExecution(openPhase, () -> packCacheSettings.install(repository));
+            // Violations are written to reports as soon as they are found, unless the result is reused:
+            ValidationResult validationResult = sessionResults.get(
+                    repository, requirements, settings,
+                    () -> new ValidatorsCluster(repository, requirements, settings, metrics, reports).validate()
+            );
+            metrics.measureExecution(ValidationMetrics.Phase.REPORTING, () -> report(validationResult, reports));
+            metrics.countViolations(validationResult.getViolations().size());
+            metrics.report(metricsFile());
+            boolean doFail = failOnViolations && !validationResult.isOK();
             Conditional.isFalseOrThrow(doFail, new InvalidRepositoryException(validationResult));
         }
     }
+
+    private RepositoryRequirements requirements() {
+        CommitLimits commitLimits = CommitLimits.builder()
+                                                .startCommitDate(startCommitDate)
+                                                .maxCommitAge(maxCommitAge)
+                                                .maxCommits(maxCommits)
+                                                .baseRef(baseRef)
+                                                .build();
+        RefScope refScope = RefScope.builder()
+                                    .allRefs(allRefs)
+                                    .refPrefixes(refPrefixes)
+                                    .recurseSubmodules(recurseSubmodules)
+                                    .build();
+        CommitRules commitRules = new CommitRules(
+                allowedAuthorEmailsRegex, maxSubjectLength, requireSignOff, forbiddenWords
+        );
+        return RepositoryRequirements.builder()
+                                     .allowedBranchesRegex(allowedBranchesRegex)
+                                     .allowedCommitMessagesRegex(allowedCommitMessagesRegex)
+                                     .areCaseSensitiveMatches(areCaseSensitiveMatches)
+                                     .startCommitHash(Optional.ofNullable(startCommitHash).orElse(StringUtils.EMPTY))
+                                     .ignoreMergeCommits(ignoreMergeCommits)
+                                     .commitLimits(commitLimits)
+                                     .refScope(refScope)
+                                     .commitRules(commitRules)
+                                     .branchMessageRules(branchMessageRules)
+                                     .pathMessageRules(pathMessageRules)
+                                     .build();
+    }
 }
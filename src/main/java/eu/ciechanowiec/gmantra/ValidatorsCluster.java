@@ -4,39 +4,160 @@ import eu.ciechanowiec.conditional.Conditional;
 import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @ToString
 class ValidatorsCluster {
 
+    @ToString.Exclude
+    private final Repository repository;
+
     private final Collection<Validator> validators;
+    private final int violationLimit;
+
+    @ToString.Exclude
+    private final Optional<SubmodulesValidation> submodulesValidation;
 
     ValidatorsCluster(Repository repository, RepositoryRequirements repositoryRequirements) {
-        Validator branchValidator = new BranchValidator(repository, repositoryRequirements);
-        Validator messageValidator = new MessageValidator(repository, repositoryRequirements);
-        validators = List.of(branchValidator, messageValidator);
+        this(repository, repositoryRequirements, ValidationSettings.defaults());
+    }
+
+    ValidatorsCluster(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings
+    ) {
+        this(repository, repositoryRequirements, settings, new ValidationMetrics());
+    }
+
+    ValidatorsCluster(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics
+    ) {
+        this(repository, repositoryRequirements, settings, metrics, ViolationListener.NONE);
+    }
+
+    /**
+     * Constructs an instance of this class.
+     * @param repository validated repository
+     * @param repositoryRequirements requirements against which the repository is validated
+     * @param settings settings with which the repository is validated
+     * @param metrics metrics of the validation
+     * @param listener listener notified of every violation as soon as it is found, including violations
+     *                 found in submodules
+     */
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    ValidatorsCluster(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics, ViolationListener listener
+    ) {
+        this(
+                repository,
+                List.of(
+                        new BranchValidator(repository, repositoryRequirements, settings, metrics, listener),
+                        new MessageValidator(repository, repositoryRequirements, settings, metrics, listener)
+                ),
+                settings.violationLimit(),
+                Optional.of(repositoryRequirements)
+                        .filter(requirements -> requirements.getRefScope().isRecurseSubmodules())
+                        .map(requirements -> new SubmodulesValidation(
+                                repository, requirements, settings, metrics, listener
+                        ))
+        );
+    }
+
+    private ValidatorsCluster(
+            Repository repository, Collection<Validator> validators, int violationLimit,
+            Optional<SubmodulesValidation> submodulesValidation
+    ) {
+        this.repository = repository;
+        this.validators = validators;
+        this.violationLimit = violationLimit;
+        this.submodulesValidation = submodulesValidation;
         log.debug("Initialized: {}", this);
     }
 
+    /**
+     * Creates a cluster that validates a submodule, but not its own submodules, which are validated separately.
+     * Git checks out submodules at detached HEADs, so the name of the current branch of a submodule is validated
+     * only if its HEAD is attached to a branch or if all references are validated.
+     * @param submodule repository of the submodule
+     * @param repositoryRequirements requirements against which the submodule is validated
+     * @param settings settings with which the submodule is validated
+     * @param metrics metrics of the validation of the submodule
+     * @param listener listener notified of every violation found in the submodule
+     * @return cluster that validates the submodule
+     */
     @SneakyThrows
+    @SuppressWarnings({"PMD.ExcessiveParameterList", "ParameterNumber"})
+    static ValidatorsCluster forSubmodule(
+            Repository submodule, RepositoryRequirements repositoryRequirements, ValidationSettings settings,
+            ValidationMetrics metrics, ViolationListener listener
+    ) {
+        boolean isDetached = ObjectId.isId(submodule.getFullBranch());
+        boolean validatesBranch = !isDetached || repositoryRequirements.getRefScope().isAllRefs();
+        List<Validator> validators = Stream.of(
+                Optional.<Validator>of(new BranchValidator(
+                        submodule, repositoryRequirements, settings, metrics, listener
+                )).filter(branchValidator -> validatesBranch),
+                Optional.<Validator>of(new MessageValidator(
+                        submodule, repositoryRequirements, settings, metrics, listener
+                ))
+        ).flatMap(Optional::stream).collect(Collectors.toUnmodifiableList());
+        return new ValidatorsCluster(submodule, validators, settings.violationLimit(), Optional.empty());
+    }
+
+    /**
+     * Validates the repository by all validators of this cluster, one after another. Once the limit of violations
+     * is reached, subsequent validators are skipped, so e.g. in the fail-fast mode commit messages aren't walked
+     * at all if the branch name is already invalid. If submodules are validated as well, they are validated
+     * concurrently with the repository.
+     * @return violations found by all performed validators, but no more than the limit of violations
+     */
     ValidationResult validate() {
-        int numOfValidators = validators.size();
-        log.debug("Started validation by {} validator(s)", numOfValidators);
-        ValidationResult validationResult = validators.stream()
-                .map(Validator::validate)
-                .map(ValidationResult::getViolations)
-                .flatMap(Collection::stream)
-                .collect(Collectors.collectingAndThen(Collectors.toUnmodifiableList(), ValidationResult::new));
+        ValidationEvents.Validation event = new ValidationEvents.Validation();
+        event.begin();
+        ValidationResult validationResult = submodulesValidation.map(
+                submodules -> submodules.validate(this::validateRepository)
+        ).orElseGet(this::validateRepository);
+        if (event.shouldCommit()) {
+            event.gitDirectory = String.valueOf(repository.getDirectory());
+            event.numOfViolations = validationResult.getViolations().size();
+            event.commit();
+        }
         boolean isValid = validationResult.isOK();
         Conditional.conditional(isValid)
                    .onTrue(() -> log.info("Validation result: {}", validationResult))
-                   .onFalse(() -> log.error("Validation result: {}", validationResult))
+                   .onFalse(() -> log.error(
+                           "Validation result: {} violation(s) found", validationResult.getViolations().size()
+                   ))
                    .execute();
         return validationResult;
     }
+
+    private ValidationResult validateRepository() {
+        int numOfValidators = validators.size();
+        log.debug("Started validation by {} validator(s)", numOfValidators);
+        List<RequirementsViolation> violations = new ArrayList<>();
+        Iterator<Validator> remainingValidators = validators.iterator();
+        // Every validator is given only the part of the limit left by previous validators, so it stops as soon
+        // as the limit is reached. No limit stays no limit, so that verdicts of unlimited walks are still cached:
+        while (violations.size() < violationLimit && remainingValidators.hasNext()) {
+            int remainingLimit = violationLimit == Integer.MAX_VALUE
+                    ? Integer.MAX_VALUE : violationLimit - violations.size();
+            violations.addAll(remainingValidators.next().validate(remainingLimit).getViolations());
+        }
+        Conditional.onTrueExecute(violations.size() >= violationLimit, () -> log.info(
+                "Validation stopped after the limit of {} violation(s) had been reached", violationLimit
+        ));
+        return new ValidationResult(violations);
+    }
 }
@@ -0,0 +1,146 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * On-disk store of commit message verdicts, located in the '{@code gmantra}' subdirectory of a git directory.
+ * <p>
+ * The store remembers validated tips, i.e. commits which have been validated together with all their ancestors.
+ * For every tip, violations found among the tip and its ancestors are recorded, so that a subsequent validation
+ * can stop the walk at a validated tip and reuse its violations instead of matching the same messages again.
+ * <p>
+ * Every store is bound to a single fingerprint of {@link RepositoryRequirements}, so a change of any requirement
+ * makes the previously persisted verdicts unreachable. Verdicts are persisted in the {@link VerdictFormat},
+ * so violations reused from the store can be reported in the same way as new ones.
+ */
+@Slf4j
+@ToString
+class VerdictCache implements VerdictStore {
+
+    static final int MAX_NUM_OF_TIPS = 16;
+    private static final String DIRECTORY_NAME = "gmantra";
+    private static final String FILE_NAME_PREFIX = "verdicts-";
+
+    private final Path directory;
+    private final Path file;
+
+    @ToString.Exclude
+    private final VerdictFormat format;
+
+    @ToString.Exclude
+    @Getter(value = AccessLevel.PRIVATE, lazy = true)
+    private final Map<ObjectId, List<RequirementsViolation>> loadedTips = load();
+
+    VerdictCache(File gitDirectory, String fingerprint) {
+        this.directory = gitDirectory.toPath().resolve(DIRECTORY_NAME);
+        this.file = directory.resolve(FILE_NAME_PREFIX + fingerprint);
+        this.format = new VerdictFormat();
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Reads all validated tips. The store is read only once, so tips saved afterwards aren't returned.
+     * @return validated tips
+     */
+    @Override
+    public Set<ObjectId> tips() {
+        return Collections.unmodifiableSet(getLoadedTips().keySet());
+    }
+
+    @Override
+    public Optional<List<RequirementsViolation>> find(ObjectId tip) {
+        return Optional.ofNullable(getLoadedTips().get(tip));
+    }
+
+    /**
+     * Reads all validated tips together with violations recorded for them.
+     * If the store doesn't exist or is corrupted, an empty map is returned.
+     * @return validated tips mapped to violations found among the tips and their ancestors,
+     *         ordered from the least to the most recently validated tip
+     */
+    Map<ObjectId, List<RequirementsViolation>> load() {
+        try {
+            List<String> lines = Files.isRegularFile(file) ? Files.readAllLines(file, StandardCharsets.UTF_8)
+                                                            : List.of();
+            Map<ObjectId, List<RequirementsViolation>> tips = format.parse(lines);
+            log.debug("Loaded {} validated tip(s) from {}", tips.size(), file);
+            return tips;
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException exception) {
+            log.warn("Unable to read verdicts from {}. They will be ignored", file, exception);
+            return new LinkedHashMap<>();
+        }
+    }
+
+    /**
+     * Records the specified tip as validated. Violations recorded for the reused tips are copied
+     * to the verdict of the tip, so that every verdict can be read on its own. Only the {@link #MAX_NUM_OF_TIPS}
+     * most recently validated tips are retained.
+     * @param tip commit that has been validated together with all its ancestors
+     * @param newViolations violations found among the tip and those of its ancestors that aren't reachable
+     *                      from any of the reused tips; only violations related to commits are persisted
+     * @param reusedTips validated tips whose verdicts cover all remaining ancestors of the tip
+     */
+    @Override
+    public void save(
+            ObjectId tip, List<RequirementsViolation> newViolations, Collection<? extends ObjectId> reusedTips
+    ) {
+        Map<ObjectId, List<RequirementsViolation>> tips = load();
+        Stream<RequirementsViolation> reusedViolations = reusedTips.stream()
+                                                                   .map(tips::get)
+                                                                   .flatMap(Stream::ofNullable)
+                                                                   .flatMap(Collection::stream);
+        List<RequirementsViolation> violations = VerdictStore.merge(
+                Stream.concat(newViolations.stream(), reusedViolations)
+        );
+        ObjectId tipId = tip.toObjectId();
+        tips.remove(tipId);
+        tips.put(tipId, violations);
+        Iterator<ObjectId> eldestFirst = tips.keySet().iterator();
+        while (tips.size() > MAX_NUM_OF_TIPS) {
+            eldestFirst.next();
+            eldestFirst.remove();
+        }
+        try {
+            write(tips);
+            log.debug("Saved {} validated tip(s) to {}", tips.size(), file);
+        } catch (IOException exception) {
+            log.warn("Unable to save verdicts to {}", file, exception);
+        }
+    }
+
+    private void write(Map<ObjectId, List<RequirementsViolation>> tips) throws IOException {
+        List<String> lines = tips.entrySet()
+                                 .stream()
+                                 .flatMap(tip -> format.toLines(tip.getKey(), tip.getValue()))
+                                 .collect(Collectors.toUnmodifiableList());
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, FILE_NAME_PREFIX, ".tmp");
+        try {
+            Files.write(temporaryFile, lines, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.lib.ObjectId;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Line-based format of validated tips and violations recorded for them, shared by all {@link VerdictStore}s.
+ * Mismatches of commit messages and violations of rules by commits are written together with their structured
+ * data, so violations read back can be reported in the same way as new ones. Other violations related to commits
+ * are written together with names of violated rules.
+ */
+class VerdictFormat {
+
+    private static final String TIP = "tip";
+    private static final String VIOLATION = "violation";
+    private static final String MISMATCH = "mismatch";
+    private static final String RULE = "rule";
+    private static final char SEPARATOR = ' ';
+    private static final int NUM_OF_VIOLATION_LINE_PARTS = 5;
+    private static final int NUM_OF_MISMATCH_LINE_PARTS = 7;
+    private static final int NUM_OF_RULE_LINE_PARTS = 8;
+    private static final Map<String, Integer> NUMS_OF_LINE_PARTS = Map.of(
+            MISMATCH, NUM_OF_MISMATCH_LINE_PARTS, RULE, NUM_OF_RULE_LINE_PARTS
+    );
+    private static final Map<Character, Character> ESCAPED_CHARACTERS = Map.of(
+            'n', '\n', 'r', '\r', 's', SEPARATOR
+    );
+    private static final Pattern ESCAPE_SEQUENCE = Pattern.compile("\\\\(.)", Pattern.DOTALL);
+
+    /**
+     * Converts the specified validated tip and violations recorded for it into lines.
+     * @param tip commit that has been validated together with all its ancestors
+     * @param violations violations found among the tip and its ancestors; only violations related
+     *                   to commits are converted
+     * @return lines describing the tip, starting with the line of the tip itself
+     */
+    Stream<String> toLines(ObjectId tip, Collection<RequirementsViolation> violations) {
+        Stream<String> violationLines = violations.stream().flatMap(
+                violation -> violation.getMessageMismatch()
+                                      .map(mismatch -> toLine(tip, mismatch))
+                                      .or(() -> violation.getRuleViolation()
+                                                         .map(ruleViolation -> toLine(tip, ruleViolation)))
+                                      .or(() -> violation.getCommitId().map(commitId -> String.join(
+                                              String.valueOf(SEPARATOR), VIOLATION, tip.name(), commitId.name(),
+                                              violation.getRule(), escape(violation.getMessage())
+                                      )))
+                                      .stream()
+        );
+        return Stream.concat(Stream.of(TIP + SEPARATOR + tip.name()), violationLines);
+    }
+
+    private String toLine(ObjectId tip, MessageMismatch mismatch) {
+        // Separators inside fields are escaped, so the fields can be split unambiguously:
+        return String.join(
+                String.valueOf(SEPARATOR), MISMATCH, tip.name(), mismatch.getCommitId().name(),
+                String.valueOf(mismatch.getCommitTime()), escapeField(mismatch.getCommitDescription()),
+                escapeField(mismatch.getShortMessage()), escapeField(mismatch.getPattern())
+        );
+    }
+
+    private String toLine(ObjectId tip, RuleViolation ruleViolation) {
+        return String.join(
+                String.valueOf(SEPARATOR), RULE, tip.name(), ruleViolation.getCommitId().name(),
+                String.valueOf(ruleViolation.getCommitTime()), escapeField(ruleViolation.getCommitDescription()),
+                escapeField(ruleViolation.getShortMessage()), escapeField(ruleViolation.getRule()),
+                escape(ruleViolation.getReason())
+        );
+    }
+
+    /**
+     * Parses lines produced by {@link #toLines(ObjectId, Collection)} for any number of tips.
+     * @param lines lines to parse
+     * @return validated tips mapped to violations recorded for them, in the order of the lines
+     * @throws IllegalArgumentException if any of the lines is malformed
+     * @throws IndexOutOfBoundsException if any of the lines is malformed
+     */
+    Map<ObjectId, List<RequirementsViolation>> parse(Collection<String> lines) {
+        return lines.stream()
+                    .map(this::parse)
+                    .collect(Collectors.groupingBy(
+                            Map.Entry::getKey, LinkedHashMap::new,
+                            Collectors.flatMapping(entry -> entry.getValue().stream(), Collectors.toList())
+                    ));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map.Entry<ObjectId, Optional<RequirementsViolation>> parse(String line) {
+        String lineType = StringUtils.substringBefore(line, SEPARATOR);
+        int numOfLineParts = NUMS_OF_LINE_PARTS.getOrDefault(lineType, NUM_OF_VIOLATION_LINE_PARTS);
+        String[] lineParts = line.split(String.valueOf(SEPARATOR), numOfLineParts);
+        ObjectId tip = ObjectId.fromString(lineParts[1]);
+        return Conditional.conditional(TIP.equals(lineType))
+                          .onTrue(() -> Map.entry(tip, Optional.<RequirementsViolation>empty()))
+                          .onFalse(() -> Map.entry(tip, Optional.of(parseViolation(lineType, lineParts))))
+                          .get(Map.Entry.class);
+    }
+
+    private RequirementsViolation parseViolation(String lineType, String... lineParts) {
+        boolean isViolation = VIOLATION.equals(lineType) && lineParts.length == NUM_OF_VIOLATION_LINE_PARTS;
+        boolean isMismatch = MISMATCH.equals(lineType) && lineParts.length == NUM_OF_MISMATCH_LINE_PARTS;
+        boolean isRuleViolation = RULE.equals(lineType) && lineParts.length == NUM_OF_RULE_LINE_PARTS;
+        Conditional.isTrueOrThrow(
+                isViolation || isMismatch || isRuleViolation,
+                new IllegalArgumentException(String.format("Unexpected line type: '%s'", lineType))
+        );
+        ObjectId commitId = ObjectId.fromString(lineParts[2]);
+        return Optional.of(lineParts)
+                       .filter(parts -> isMismatch)
+                       .map(parts -> new RequirementsViolation(parseMismatch(commitId, parts)))
+                       .or(() -> Optional.of(lineParts)
+                                         .filter(parts -> isRuleViolation)
+                                         .map(parts -> new RequirementsViolation(parseRuleViolation(commitId, parts))))
+                       .orElseGet(() -> new RequirementsViolation(
+                               unescape(lineParts[NUM_OF_VIOLATION_LINE_PARTS - 1]), commitId,
+                               lineParts[NUM_OF_VIOLATION_LINE_PARTS - 2]
+                       ));
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private MessageMismatch parseMismatch(ObjectId commitId, String... lineParts) {
+        return new MessageMismatch(
+                commitId, unescape(lineParts[4]), Integer.parseInt(lineParts[3]),
+                unescape(lineParts[5]), unescape(lineParts[6])
+        );
+    }
+
+    @SuppressWarnings("MagicNumber")
+    private RuleViolation parseRuleViolation(ObjectId commitId, String... lineParts) {
+        return new RuleViolation(
+                commitId, unescape(lineParts[4]), Integer.parseInt(lineParts[3]),
+                unescape(lineParts[5]), unescape(lineParts[6]), unescape(lineParts[7])
+        );
+    }
+
+    private String escapeField(String text) {
+        return escape(text).replace(String.valueOf(SEPARATOR), "\\s");
+    }
+
+    private String escape(String text) {
+        return text.replace("\\", "\\\\")
+                   .replace("\n", "\\n")
+                   .replace("\r", "\\r");
+    }
+
+    private String unescape(String text) {
+        Matcher escapeSequences = ESCAPE_SEQUENCE.matcher(text);
+        return escapeSequences.replaceAll(escapeSequence -> {
+            char escapedCharacter = escapeSequence.group(1).charAt(0);
+            char character = ESCAPED_CHARACTERS.getOrDefault(escapedCharacter, escapedCharacter);
+            return Matcher.quoteReplacement(String.valueOf(character));
+        });
+    }
+}
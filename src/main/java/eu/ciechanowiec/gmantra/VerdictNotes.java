@@ -0,0 +1,338 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.notes.Note;
+import org.eclipse.jgit.notes.NoteMap;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Store of commit message verdicts kept in Git notes under the {@link #NOTES_REF} reference, which can be fetched
+ * from and pushed to remotes like any other reference. Thus, verdicts found by one clone of a repository, e.g.
+ * on one CI agent, can be reused by all other clones, including fresh ones, whose local {@link VerdictCache}
+ * is always empty.
+ * <p>
+ * Every validated tip is annotated with a note that records only violations found by the validation of the tip
+ * and links to notes of the validated tips it has reused, so violations of the same ancestors aren't copied
+ * into every note. Once a tip would be linked to more than {@link #MAX_NUM_OF_LINKED_NOTES} notes, the linked
+ * violations are copied into its note instead, so reading a verdict never requires more than that many notes.
+ * Only notes of the {@link #MAX_NUM_OF_TIPS} newest validated tips, by commit time, and notes they are linked to
+ * are retained.
+ * <p>
+ * A single note can hold verdicts found against many different requirements: every line of the note is prefixed
+ * with the key of the store that has written it, and only lines with the key of this store are read. Notes
+ * of tips that don't exist in the repository, e.g. tips fetched together with notes from a remote, are harmless:
+ * they are skipped by walks like any other missing commit and are the first ones to be pruned.
+ */
+@Slf4j
+@ToString
+@SuppressWarnings("ClassFanOutComplexity")
+class VerdictNotes implements VerdictStore {
+
+    static final String NOTES_REF = Constants.R_NOTES + "gmantra";
+    static final int MAX_NUM_OF_TIPS = VerdictCache.MAX_NUM_OF_TIPS;
+    static final int MAX_NUM_OF_LINKED_NOTES = 16;
+    private static final char KEY_SEPARATOR = ' ';
+    private static final String BASE = "base";
+
+    @ToString.Exclude
+    private final Repository repository;
+
+    private final String linePrefix;
+
+    @ToString.Exclude
+    private final VerdictFormat format;
+
+    VerdictNotes(Repository repository, String key) {
+        this.repository = repository;
+        this.linePrefix = key + KEY_SEPARATOR;
+        this.format = new VerdictFormat();
+        log.debug("Initialized: {}", this);
+    }
+
+    /**
+     * Reads all tips annotated with notes that record verdicts for the key of this store. Notes that cannot
+     * be read or are corrupted are ignored. The number of read notes is bounded by the pruning of old notes.
+     * @return validated tips
+     */
+    @Override
+    public Set<ObjectId> tips() {
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            NoteMap noteMap = noteMap(revWalk, notesCommit(revWalk));
+            Set<ObjectId> tips = verdicts(noteMap, revWalk.getObjectReader()).keySet();
+            log.debug("Found {} validated tip(s) in {}", tips.size(), NOTES_REF);
+            return tips;
+        } catch (IOException exception) {
+            log.warn("Unable to read {}. Verdicts in it will be ignored", NOTES_REF, exception);
+            return Set.of();
+        }
+    }
+
+    /**
+     * Reads violations recorded for the specified tip from its note and from notes it is linked to.
+     * Only those notes are read.
+     * @param tip commit that might have been validated together with all its ancestors
+     * @return violations found among the tip and its ancestors; empty if the tip hasn't been validated
+     *         or any of the notes cannot be read
+     */
+    @Override
+    public Optional<List<RequirementsViolation>> find(ObjectId tip) {
+        try (RevWalk revWalk = new RevWalk(repository)) {
+            NoteMap noteMap = noteMap(revWalk, notesCommit(revWalk));
+            return linkedVerdicts(noteMap, revWalk.getObjectReader(), List.of(tip)).map(
+                    verdicts -> VerdictStore.merge(verdicts.stream().flatMap(verdict -> verdict.violations.stream()))
+            );
+        } catch (IOException exception) {
+            log.warn("Unable to read {}. Verdicts in it will be ignored", NOTES_REF, exception);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Annotates the specified tip with a note that records the new violations and links to notes of the reused
+     * tips, then prunes notes of old tips. Verdicts recorded in notes for other keys are retained.
+     * @param tip commit that has been validated together with all its ancestors
+     * @param newViolations violations found among the tip and those of its ancestors that aren't reachable
+     *                      from any of the reused tips; only violations related to commits are persisted
+     * @param reusedTips validated tips whose verdicts cover all remaining ancestors of the tip
+     */
+    @Override
+    public void save(
+            ObjectId tip, List<RequirementsViolation> newViolations, Collection<? extends ObjectId> reusedTips
+    ) {
+        try (RevWalk revWalk = new RevWalk(repository); ObjectInserter inserter = repository.newObjectInserter()) {
+            Optional<RevCommit> notesCommit = notesCommit(revWalk);
+            NoteMap noteMap = noteMap(revWalk, notesCommit);
+            ObjectReader reader = revWalk.getObjectReader();
+            Optional<Verdict> verdict = linkedVerdicts(noteMap, reader, reusedTips).map(
+                    linkedVerdicts -> verdict(tip, newViolations, reusedTips, linkedVerdicts)
+            );
+            if (verdict.isEmpty()) {
+                log.warn("Unable to read verdicts reused by {}. It will not be saved to {}", tip.name(), NOTES_REF);
+                return;
+            }
+            write(noteMap, reader, inserter, tip, verdict.get());
+            prune(noteMap, revWalk, inserter, tip);
+            commit(noteMap, inserter, notesCommit, tip);
+        } catch (IOException exception) {
+            log.warn("Unable to save verdicts for {} to {}", tip.name(), NOTES_REF, exception);
+        }
+    }
+
+    private Verdict verdict(
+            ObjectId tip, List<RequirementsViolation> newViolations, Collection<? extends ObjectId> reusedTips,
+            Collection<Verdict> linkedVerdicts
+    ) {
+        boolean isCompacted = linkedVerdicts.size() >= MAX_NUM_OF_LINKED_NOTES;
+        log.debug("Linking {} to {} note(s). Compacted? '{}'", tip.name(), linkedVerdicts.size(), isCompacted);
+        return isCompacted ? new Verdict(VerdictStore.merge(Stream.concat(
+                                     newViolations.stream(),
+                                     linkedVerdicts.stream().flatMap(linkedVerdict -> linkedVerdict.violations.stream())
+                             )), List.of())
+                           : new Verdict(newViolations, List.copyOf(reusedTips));
+    }
+
+    private void write(NoteMap noteMap, ObjectReader reader, ObjectInserter inserter, ObjectId tip, Verdict verdict)
+            throws IOException {
+        Stream<String> verdictLines = format.toLines(tip, verdict.violations);
+        Stream<String> baseLines = verdict.bases.stream().map(base -> String.join(
+                String.valueOf(KEY_SEPARATOR), BASE, tip.name(), base.name()
+        ));
+        Stream<String> newLines = Stream.concat(verdictLines, baseLines).map(line -> linePrefix + line);
+        Stream<String> retainedLines = otherLines(noteMap, reader, tip).stream();
+        String message = Stream.concat(retainedLines, newLines).collect(Collectors.joining("\n", "", "\n"));
+        noteMap.set(tip, message, inserter);
+    }
+
+    /**
+     * Removes verdicts for the key of this store from notes of all tips, except for the {@link #MAX_NUM_OF_TIPS}
+     * newest ones, by commit time, and the tips whose notes they are linked to.
+     */
+    private void prune(NoteMap noteMap, RevWalk revWalk, ObjectInserter inserter, ObjectId savedTip)
+            throws IOException {
+        ObjectReader reader = revWalk.getObjectReader();
+        Map<ObjectId, Verdict> verdicts = verdicts(noteMap, reader);
+        Map<ObjectId, Long> commitTimes = new HashMap<>();
+        for (ObjectId tip : verdicts.keySet()) {
+            commitTimes.put(tip, commitTime(revWalk, tip));
+        }
+        Stream<ObjectId> newestTips = verdicts.keySet().stream().sorted(
+                Comparator.comparing((ObjectId tip) -> !tip.equals(savedTip))
+                          .thenComparing(commitTimes::get, Comparator.reverseOrder())
+        ).limit(MAX_NUM_OF_TIPS);
+        Set<ObjectId> retainedTips = new HashSet<>();
+        Deque<ObjectId> unvisitedTips = newestTips.collect(Collectors.toCollection(ArrayDeque::new));
+        while (!unvisitedTips.isEmpty()) {
+            ObjectId tip = unvisitedTips.pop();
+            if (retainedTips.add(tip)) {
+                Optional.ofNullable(verdicts.get(tip)).ifPresent(verdict -> unvisitedTips.addAll(verdict.bases));
+            }
+        }
+        List<ObjectId> prunedTips = verdicts.keySet()
+                                            .stream()
+                                            .filter(tip -> !retainedTips.contains(tip))
+                                            .collect(Collectors.toUnmodifiableList());
+        for (ObjectId prunedTip : prunedTips) {
+            List<String> otherLines = otherLines(noteMap, reader, prunedTip);
+            if (otherLines.isEmpty()) {
+                noteMap.remove(prunedTip);
+            } else {
+                noteMap.set(prunedTip, String.join("\n", otherLines) + "\n", inserter);
+            }
+        }
+        log.debug("Pruned {} of {} validated tip(s) in {}", prunedTips.size(), verdicts.size(), NOTES_REF);
+    }
+
+    @SuppressWarnings("squid:S1166")
+    private long commitTime(RevWalk revWalk, ObjectId tip) throws IOException {
+        try {
+            return revWalk.parseCommit(tip).getCommitTime();
+        } catch (MissingObjectException exception) {
+            // Tips that don't exist in the repository are pruned first:
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private void commit(NoteMap noteMap, ObjectInserter inserter, Optional<RevCommit> notesCommit, ObjectId tip)
+            throws IOException {
+        CommitBuilder commitBuilder = new CommitBuilder();
+        commitBuilder.setTreeId(noteMap.writeTree(inserter));
+        commitBuilder.setAuthor(new PersonIdent(repository));
+        commitBuilder.setCommitter(commitBuilder.getAuthor());
+        commitBuilder.setMessage("Verdicts saved for " + tip.name());
+        notesCommit.ifPresent(commitBuilder::setParentId);
+        ObjectId newNotesCommit = inserter.insert(commitBuilder);
+        inserter.flush();
+        RefUpdate refUpdate = repository.updateRef(NOTES_REF);
+        refUpdate.setExpectedOldObjectId(notesCommit.map(RevCommit::getId).orElse(ObjectId.zeroId()));
+        refUpdate.setNewObjectId(newNotesCommit);
+        RefUpdate.Result result = refUpdate.update();
+        boolean isUpdated = result == RefUpdate.Result.NEW || result == RefUpdate.Result.FAST_FORWARD;
+        if (isUpdated) {
+            log.debug("Saved verdicts for {} to {}", tip.name(), NOTES_REF);
+        } else {
+            log.warn("Unable to save verdicts for {} to {}. Result: {}", tip.name(), NOTES_REF, result);
+        }
+    }
+
+    private Optional<RevCommit> notesCommit(RevWalk revWalk) throws IOException {
+        Optional<Ref> notesRef = Optional.ofNullable(repository.exactRef(NOTES_REF));
+        return notesRef.isPresent() ? Optional.of(revWalk.parseCommit(notesRef.get().getObjectId()))
+                                    : Optional.empty();
+    }
+
+    private NoteMap noteMap(RevWalk revWalk, Optional<RevCommit> notesCommit) throws IOException {
+        // Notes are read lazily, so only the looked up notes are loaded:
+        return notesCommit.isPresent() ? NoteMap.read(revWalk.getObjectReader(), notesCommit.get())
+                                       : NoteMap.newEmptyMap();
+    }
+
+    /**
+     * Reads verdicts of the specified tips and of all tips their notes are linked to.
+     * @return read verdicts; empty if any of them cannot be read
+     */
+    private Optional<Collection<Verdict>> linkedVerdicts(
+            NoteMap noteMap, ObjectReader reader, Collection<? extends ObjectId> tips
+    ) throws IOException {
+        Map<ObjectId, Verdict> linkedVerdicts = new HashMap<>();
+        Deque<ObjectId> unvisitedTips = new ArrayDeque<>(tips);
+        while (!unvisitedTips.isEmpty()) {
+            ObjectId tip = unvisitedTips.pop().toObjectId();
+            if (!linkedVerdicts.containsKey(tip)) {
+                Optional<Verdict> verdict = Optional.ofNullable(noteMap.getNote(tip))
+                                                    .flatMap(note -> read(note, reader));
+                if (verdict.isEmpty()) {
+                    return Optional.empty();
+                }
+                linkedVerdicts.put(tip, verdict.get());
+                unvisitedTips.addAll(verdict.get().bases);
+            }
+        }
+        return Optional.of(linkedVerdicts.values());
+    }
+
+    private Map<ObjectId, Verdict> verdicts(NoteMap noteMap, ObjectReader reader) {
+        Map<ObjectId, Verdict> verdicts = new HashMap<>();
+        StreamSupport.stream(noteMap.spliterator(), false)
+                     .forEach(note -> read(note, reader).ifPresent(verdict -> verdicts.put(note.copy(), verdict)));
+        return verdicts;
+    }
+
+    private Optional<Verdict> read(Note note, ObjectReader reader) {
+        try {
+            List<String> lines = text(note, reader).lines()
+                                                   .filter(line -> line.startsWith(linePrefix))
+                                                   .map(line -> line.substring(linePrefix.length()))
+                                                   .collect(Collectors.toUnmodifiableList());
+            Map<Boolean, List<String>> linesByBase = lines.stream().collect(Collectors.partitioningBy(
+                    line -> line.startsWith(BASE + KEY_SEPARATOR)
+            ));
+            List<ObjectId> bases = new ArrayList<>();
+            for (String baseLine : linesByBase.get(true)) {
+                bases.add(ObjectId.fromString(StringUtils.substringAfterLast(baseLine, KEY_SEPARATOR)));
+            }
+            // Only verdicts for the annotated commit itself are trusted:
+            return Optional.ofNullable(format.parse(linesByBase.get(false)).get(note))
+                           .map(violations -> new Verdict(violations, bases));
+        } catch (IOException | IllegalArgumentException | IndexOutOfBoundsException exception) {
+            log.warn("Unable to read verdicts from the note of {}. They will be ignored", note.name(), exception);
+            return Optional.empty();
+        }
+    }
+
+    private List<String> otherLines(NoteMap noteMap, ObjectReader reader, ObjectId tip) throws IOException {
+        Optional<Note> note = Optional.ofNullable(noteMap.getNote(tip));
+        String text = note.isPresent() ? text(note.get(), reader) : StringUtils.EMPTY;
+        return text.lines()
+                   .filter(line -> !line.startsWith(linePrefix))
+                   .collect(Collectors.toUnmodifiableList());
+    }
+
+    private String text(Note note, ObjectReader reader) throws IOException {
+        byte[] bytes = reader.open(note.getData(), Constants.OBJ_BLOB).getBytes();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Violations recorded in the note of a single tip, together with tips whose notes it is linked to.
+     */
+    private static final class Verdict {
+
+        private final List<RequirementsViolation> violations;
+        private final List<ObjectId> bases;
+
+        private Verdict(List<RequirementsViolation> violations, List<ObjectId> bases) {
+            this.violations = violations;
+            this.bases = bases;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Persistent store of validated tips, i.e. commits which have been validated together with all their ancestors,
+ * and violations found among the tips and their ancestors. Every store is bound to a single key, which is derived
+ * from a fingerprint of {@link RepositoryRequirements}, so verdicts found against other requirements are never
+ * reused. Stores never fail the validation: verdicts that cannot be read or written are ignored.
+ */
+interface VerdictStore {
+
+    /**
+     * Opens the store of verdicts of the specified repository.
+     * @param repository repository whose verdicts are stored
+     * @param key key that the store is bound to
+     * @param useNotes '{@code true}' if verdicts should be stored in {@link VerdictNotes}, which are shared
+     *                 through remotes; '{@code false}' if they should be stored in the local {@link VerdictCache}
+     * @return store of verdicts of the repository; empty if the repository has no git directory for the local
+     *         {@link VerdictCache}
+     */
+    static Optional<VerdictStore> open(Repository repository, String key, boolean useNotes) {
+        return useNotes ? Optional.of(new VerdictNotes(repository, key))
+                        : Optional.ofNullable(repository.getDirectory())
+                                  .map(gitDirectory -> new VerdictCache(gitDirectory, key));
+    }
+
+    /**
+     * Merges the specified violations, so that every violation of every commit is reported only once.
+     * @param violations violations to merge, e.g. violations of different tips whose histories overlap
+     * @return distinct violations in the order of their first occurrence
+     */
+    static List<RequirementsViolation> merge(Stream<RequirementsViolation> violations) {
+        // A commit might violate the same rule many times, e.g. many path message rules, so the whole description
+        // of the violation, which includes the violated pattern, is a part of its identity:
+        return violations.collect(Collectors.toMap(
+                                 violation -> List.of(
+                                         violation.getCommitId(), violation.getRule(), violation.getMessage()
+                                 ),
+                                 Function.identity(),
+                                 (first, second) -> first, LinkedHashMap::new
+                         ))
+                         .values()
+                         .stream()
+                         .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Reads all validated tips, without violations recorded for them.
+     * @return validated tips
+     */
+    Set<ObjectId> tips();
+
+    /**
+     * Reads violations recorded for the specified tip.
+     * @param tip commit that might have been validated together with all its ancestors
+     * @return violations found among the tip and its ancestors; empty if the tip hasn't been validated
+     *         or its verdict cannot be read
+     */
+    Optional<List<RequirementsViolation>> find(ObjectId tip);
+
+    /**
+     * Records the specified tip as validated.
+     * @param tip commit that has been validated together with all its ancestors
+     * @param newViolations violations found among the tip and those of its ancestors that aren't reachable
+     *                      from any of the reused tips; only violations related to commits are persisted
+     * @param reusedTips validated tips whose verdicts cover all remaining ancestors of the tip
+     */
+    void save(ObjectId tip, List<RequirementsViolation> newViolations, Collection<? extends ObjectId> reusedTips);
+}
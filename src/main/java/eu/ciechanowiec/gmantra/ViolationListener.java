@@ -0,0 +1,32 @@
+package eu.ciechanowiec.gmantra;
+
+/**
+ * Receiver of violations, notified of every violation as soon as the validation finds it, e.g. to write it
+ * to {@link ViolationReports} while the validation is still in progress. Violations are passed only within
+ * the limit of violations, so every passed violation is a part of the final {@link ValidationResult}.
+ * <p>
+ * Repositories and their submodules are validated concurrently, so listeners must be thread-safe.
+ */
+@FunctionalInterface
+interface ViolationListener {
+
+    /**
+     * Listener that ignores all violations.
+     */
+    ViolationListener NONE = violation -> { };
+
+    /**
+     * Notifies this listener of a found violation.
+     * @param violation found violation
+     */
+    void found(RequirementsViolation violation);
+
+    /**
+     * Returns a listener that passes violations to this listener, tagged with the specified path of a submodule.
+     * @param repositoryPath path of the submodule the violations are found in
+     * @return listener of violations found in the submodule
+     */
+    default ViolationListener inRepository(String repositoryPath) {
+        return violation -> found(violation.inRepository(repositoryPath));
+    }
+}
@@ -0,0 +1,97 @@
+package eu.ciechanowiec.gmantra;
+
+import eu.ciechanowiec.conditional.Conditional;
+import lombok.SneakyThrows;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Machine-readable reports of violations, written to files in a single directory. Reports are opened before
+ * the validation and every violation is written to all of them as soon as the validation finds it, through
+ * a buffered writer, so no report is built in memory as a whole. Parts of reports that depend on the number
+ * of violations, like the summary of the JUnit XML report, are written when the reports are closed.
+ * <p>
+ * Violations that are reused rather than found, e.g. verdicts of the verdict cache, are passed to reports
+ * like found ones. Results reused from {@link SessionResults} involve no validation at all, so they are
+ * {@link #replay(ValidationResult)}ed as a whole.
+ */
+@Slf4j
+@ToString
+class ViolationReports implements ViolationListener, AutoCloseable {
+
+    private final Path directory;
+
+    @ToString.Exclude
+    private final List<Report> reports;
+
+    @ToString.Exclude
+    private int numOfViolations;
+
+    /**
+     * Constructs an instance of this class and opens all reports. Existing reports are overwritten.
+     * @param formats formats of reports to write
+     * @param directory directory which reports should be written to; it is created if it doesn't exist
+     *                  and at least one report is written
+     */
+    ViolationReports(Collection<ReportFormat> formats, Path directory) {
+        this.directory = directory;
+        this.reports = Set.copyOf(formats)
+                          .stream()
+                          .map(format -> new Report(format, directory))
+                          .collect(Collectors.toUnmodifiableList());
+        log.debug("Initialized: {}", this);
+    }
+
+    @Override
+    public synchronized void found(RequirementsViolation violation) {
+        numOfViolations++;
+        reports.forEach(report -> report.writer.write(violation));
+    }
+
+    /**
+     * Writes violations of the specified result, unless violations have already been written while the result
+     * was being validated, e.g. if the result has been reused from {@link SessionResults}.
+     * @param validationResult result whose violations should be written
+     */
+    synchronized void replay(ValidationResult validationResult) {
+        Conditional.onTrueExecute(numOfViolations == 0, () -> validationResult.getViolations().forEach(this::found));
+    }
+
+    @Override
+    public synchronized void close() {
+        reports.forEach(report -> report.close(numOfViolations));
+    }
+
+    private static final class Report {
+
+        private final Path file;
+        private final Writer output;
+        private final AbstractViolationReportWriter writer;
+
+        @SneakyThrows
+        private Report(ReportFormat format, Path directory) {
+            Files.createDirectories(directory);
+            this.file = directory.resolve(format.getFileName());
+            this.output = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+            this.writer = format.newWriter(output);
+            writer.begin();
+        }
+
+        @SneakyThrows
+        private void close(int numOfViolations) {
+            try (Writer closedOutput = output) {
+                writer.end(numOfViolations);
+            }
+            log.info("Report of {} violation(s) written to {}", numOfViolations, file);
+        }
+    }
+}
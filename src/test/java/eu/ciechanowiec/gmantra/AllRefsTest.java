@@ -0,0 +1,140 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Validates all branches of a bare repository with many branches forked from a shared history.
+ */
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class AllRefsTest {
+
+    private static final int NUM_OF_SHARED_COMMITS = 1_000;
+    private static final int NUM_OF_BRANCHES = 300;
+    private static final int NUM_OF_BRANCH_COMMITS = 3;
+    private static final int INVALID_BRANCHES_INTERVAL = 100;
+    private static final String REMOTE_PREFIX = "refs/remotes/origin/";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    void testAllRefs() {
+        try (FileRepository repository = createRepository()) {
+            RefScope allRefs = RefScope.builder().allRefs(true).refPrefixes(" refs/heads/, " + REMOTE_PREFIX).build();
+            RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                        .allowedBranchesRegex("main|feature/[0-9]+")
+                                                                        .allowedCommitMessagesRegex("messagus-[0-9]+")
+                                                                        .refScope(allRefs)
+                                                                        .build();
+            ValidationMetrics metrics = new ValidationMetrics();
+            ValidationSettings settings = ValidationSettings.defaults();
+            List<String> rules = new ValidatorsCluster(repository, requirements, settings, metrics)
+                    .validate()
+                    .getViolations()
+                    .stream()
+                    .map(RequirementsViolation::getRule)
+                    .collect(Collectors.toUnmodifiableList());
+            int numOfInvalidBranches = NUM_OF_BRANCHES / INVALID_BRANCHES_INTERVAL;
+            assertAll(
+                    () -> assertEquals(2 * NUM_OF_BRANCHES + 1, allRefs.refs(repository).size()),
+                    // Invalid branches are both local and remote-tracking ones:
+                    () -> assertEquals(
+                            2L * numOfInvalidBranches,
+                            rules.stream().filter(RequirementsViolation.BRANCH_RULE::equals).count()
+                    ),
+                    // The first shared commit and the first commit of every invalid branch have invalid messages:
+                    () -> assertEquals(
+                            numOfInvalidBranches + 1,
+                            rules.stream().filter(RequirementsViolation.COMMIT_MESSAGE_RULE::equals).count()
+                    ),
+                    () -> assertEquals(
+                            NUM_OF_SHARED_COMMITS + NUM_OF_BRANCHES * NUM_OF_BRANCH_COMMITS,
+                            metrics.getNumOfMatchedCommits()
+                    )
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testBranchNames() {
+        try (FileRepository repository = createRepository()) {
+            RefScope allRefs = RefScope.builder().allRefs(true).refPrefixes("refs/," + REMOTE_PREFIX).build();
+            List<String> branchNames = allRefs.refs(repository)
+                                              .stream()
+                                              .map(allRefs::branchName)
+                                              .collect(Collectors.toUnmodifiableList());
+            assertAll(
+                    () -> assertTrue(branchNames.contains("heads/main")),
+                    () -> assertTrue(branchNames.contains("feature/1")),
+                    () -> assertTrue(RefScope.builder().allRefs(true).build().refs(repository).stream().allMatch(
+                            ref -> ref.getName().startsWith(Constants.R_HEADS)
+                    ))
+            );
+        }
+    }
+
+    /**
+     * Creates a repository with the 'main' branch and branches forked from it. The same branches are created
+     * as remote-tracking ones, so their histories are shared. Every branch with an index that is a multiple
+     * of the invalid branches interval has an invalid name and an invalid message of its first commit.
+     */
+    @SneakyThrows
+    private FileRepository createRepository() {
+        FileRepository repository = new FileRepository(tempDirectory.resolve("all-refs").toFile());
+        repository.create(true);
+        try (SyntheticHistory history = new SyntheticHistory(repository)) {
+            ObjectId main = history.write(
+                    NUM_OF_SHARED_COMMITS, commitIndex -> commitIndex == 0 ? "invalidus-0" : "messagus-0"
+            );
+            Map<String, ObjectId> tips = IntStream.range(0, NUM_OF_BRANCHES)
+                    .mapToObj(branchIndex -> writeBranch(history, main, branchIndex))
+                    .flatMap(branchTips -> branchTips.entrySet().stream())
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            history.updateRef(Constants.R_HEADS + "main", main);
+            tips.forEach(history::updateRef);
+        }
+        return repository;
+    }
+
+    private Map<String, ObjectId> writeBranch(SyntheticHistory history, ObjectId main, int branchIndex) {
+        boolean isInvalid = branchIndex % INVALID_BRANCHES_INTERVAL == 0;
+        String message = "messagus-" + branchIndex;
+        ObjectId branch = history.write(
+                NUM_OF_BRANCH_COMMITS, commitIndex -> isInvalid && commitIndex == 0 ? "invalidus" : message, main
+        );
+        String branchName = String.format(isInvalid ? "Feature_%d" : "feature/%d", branchIndex);
+        return Map.of(Constants.R_HEADS + branchName, branch, REMOTE_PREFIX + branchName, branch);
+    }
+
+    @Test
+    void testUnusedPrefixes() {
+        RefScope mojoDefaults = RefScope.builder().refPrefixes(Constants.R_HEADS).build();
+        RefScope allRefs = RefScope.builder().allRefs(true).build();
+        RefScope allHeads = RefScope.builder().allRefs(true).refPrefixes(Constants.R_HEADS).build();
+        ValidationSettings settings = ValidationSettings.defaults();
+        assertAll(
+                () -> assertEquals(RefScope.currentBranch().toString(), mojoDefaults.toString()),
+                () -> assertEquals(
+                        RepositoryRequirements.builder().build().fingerprint(settings),
+                        RepositoryRequirements.builder().refScope(mojoDefaults).build().fingerprint(settings)
+                ),
+                // Prefixes are still used in the all-refs mode, with the same default as the Mojo:
+                () -> assertEquals(allHeads.toString(), allRefs.toString())
+        );
+    }
+}
@@ -0,0 +1,72 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class BranchMessageRulesTest {
+
+    private static final String RELEASE_BRANCH = "release/1.0";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testBranchMessageRules() {
+        try (Git git = createRepository()) {
+            Repository repository = git.getRepository();
+            RepositoryRequirements requirements = requirements(RefScope.currentBranch());
+            git.checkout().setCreateBranch(true).setName(RELEASE_BRANCH).call();
+            ValidationResult releaseResult = new ValidatorsCluster(repository, requirements).validate();
+            RepositoryRequirements releaseRequirements = requirements.forRepository(repository);
+            git.checkout().setCreateBranch(true).setName("feature/1").call();
+            ValidationResult featureResult = new ValidatorsCluster(repository, requirements).validate();
+            ValidationResult allRefsResult = new ValidatorsCluster(
+                    repository, requirements(RefScope.builder().allRefs(true).build())
+            ).validate();
+            assertAll(
+                    // On the release branch, both regexes of the first applicable rule are allowed:
+                    () -> assertEquals(1, releaseResult.getViolations().size()),
+                    () -> assertEquals(
+                            "(?:RLS-[0-9]+: .+)|(?:HOT-[0-9]+: .+)", releaseRequirements.getAllowedCommitMessagesRegex()
+                    ),
+                    () -> assertTrue(releaseRequirements.getBranchMessageRules().isEmpty()),
+                    // Verdicts cached on the release branch aren't reused on the feature branch:
+                    () -> assertEquals(2, featureResult.getViolations().size()),
+                    () -> assertSame(requirements, requirements.forRepository(repository)),
+                    () -> assertEquals(2, allRefsResult.getViolations().size())
+            );
+        }
+    }
+
+    private RepositoryRequirements requirements(RefScope refScope) {
+        List<BranchMessageRule> branchMessageRules = List.of(
+                new BranchMessageRule("hotfix/.+", List.of("HOT-[0-9]+: .+")),
+                new BranchMessageRule("release/.+", List.of("RLS-[0-9]+: .+", "HOT-[0-9]+: .+")),
+                new BranchMessageRule("release/.+", List.of(".*"))
+        );
+        return RepositoryRequirements.builder()
+                                     .allowedCommitMessagesRegex("feature: .+")
+                                     .refScope(refScope)
+                                     .branchMessageRules(branchMessageRules)
+                                     .build();
+    }
+
+    private Git createRepository() {
+        Git git = TestRepositories.init(tempDirectory.resolve("branch-message-rules"));
+        TestRepositories.commit(git, "RLS-1: first release");
+        TestRepositories.commit(git, "HOT-2: urgent fix");
+        TestRepositories.commit(git, "feature: new button");
+        return git;
+    }
+}
@@ -0,0 +1,150 @@
+package eu.ciechanowiec.gmantra;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseConsideringPatternTest {
+
+    private static final String CATASTROPHIC_REGEX = "(.*a){20}";
+    private static final String CATASTROPHIC_INPUT = "a".repeat(28) + "!";
+    private static final String BACKREFERENCE_REGEX = "(a)\\1";
+
+    @ParameterizedTest
+    @CsvSource(
+            {
+                    "messagus-[0-9]+, true, messagus-1, true, true",
+                    "messagus-[0-9]+, true, MESSAGUS-1, false, false",
+                    "messagus-[0-9]+, false, MESSAGUS-1, true, true",
+                    "żółw, false, ŻÓŁW, false, true",
+                    "(AG|MISC): .+, true, 'AG: something', true, true",
+                    "(AG|MISC): .+, true, 'AG:', false, false",
+                    "(a)\\1, true, aa, true, true",
+                    "(a)\\1, true, ab, false, false",
+                    "(?=messagus).*, true, messagus-1, true, true",
+                    "(?=messagus).*, true, dalidorka, false, false",
+                    "'[a-z&&[^x]]+', true, abc, true, true",
+                    "'[a-z&&[^x]]+', true, x, false, false",
+                    "'[a[0-9]]+', true, a1, true, true",
+                    "(?U)\\w, true, ł, true, true"
+            }
+    )
+    @SuppressWarnings({"ParameterNumber", "PMD.ExcessiveParameterList"})
+    void testRegexEngines(
+            String regex, boolean isCaseSensitive, String input, boolean expectedJavaMatch,
+            boolean expectedAutomatonMatch
+    ) {
+        Duration timeout = Duration.ofSeconds(1);
+        Predicate<CharSequence> java = new CaseConsideringPattern(
+                regex, isCaseSensitive, RegexEngine.JAVA, timeout
+        ).newMatchPredicate();
+        Predicate<CharSequence> automaton = new CaseConsideringPattern(
+                regex, isCaseSensitive, RegexEngine.AUTOMATON, timeout
+        ).newMatchPredicate();
+        assertAll(
+                () -> assertEquals(expectedJavaMatch, java.test(input)),
+                () -> assertEquals(expectedAutomatonMatch, automaton.test(input))
+        );
+    }
+
+    @Test
+    void testAutomatonIsLinear() {
+        Predicate<CharSequence> automaton = new CaseConsideringPattern(
+                CATASTROPHIC_REGEX, true, RegexEngine.AUTOMATON, Duration.ZERO
+        ).newMatchPredicate();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertFalse(automaton.test(CATASTROPHIC_INPUT)));
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            {
+                    "'[a-z&&[^x]]', true",
+                    "'[[:alpha:]]', true",
+                    "'\\0101', true",
+                    "'a\\vb', true",
+                    "'\\bab', true",
+                    "'(?iU)ab', true",
+                    "'[a-z]&&[0-9]', false",
+                    "'\\[a&&b]', false",
+                    "'\\Q[a&&[b]]\\E', false",
+                    "'[\\[a]\\\\v', false",
+                    "'(?i:ab)-[0-9]+: .+', false"
+            }
+    )
+    void testDivergentConstructs(String regex, boolean isDivergent) {
+        assertEquals(isDivergent, CaseConsideringPattern.divergentConstruct(regex).isPresent());
+    }
+
+    @Test
+    void testMatchTimeout() {
+        Predicate<CharSequence> java = new CaseConsideringPattern(
+                CATASTROPHIC_REGEX, true, RegexEngine.JAVA, Duration.ofMillis(100)
+        ).newMatchPredicate();
+        MatchTimeoutException exception = assertTimeoutPreemptively(
+                Duration.ofSeconds(5),
+                () -> assertThrows(MatchTimeoutException.class, () -> java.test(CATASTROPHIC_INPUT))
+        );
+        assertAll(
+                () -> assertTrue(exception.getMessage().contains(CATASTROPHIC_REGEX)),
+                // The time limit is counted separately for every match:
+                () -> assertFalse(java.test("b"))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            {
+                    "ab, true",
+                    "AG-1: fix, true",
+                    "AB, false",
+                    "aa, true",
+                    "bb, true",
+                    "ba, false",
+                    "ab-ab, true",
+                    "ab-ba, false"
+            }
+    )
+    void testUnion(String input, boolean expectedMatch) {
+        // Backreferences of every alternative refer to its own groups and inline flags stay local:
+        String union = CaseConsideringPattern.union(
+                List.of("ab", "(?i:ag)-[0-9]+: .+", BACKREFERENCE_REGEX, "(b)\\1", "((a)(b))-\\1")
+        );
+        Predicate<CharSequence> java = new CaseConsideringPattern(union, true).newMatchPredicate();
+        assertAll(
+                () -> assertEquals(expectedMatch, java.test(input)),
+                () -> assertEquals(BACKREFERENCE_REGEX, CaseConsideringPattern.union(List.of(BACKREFERENCE_REGEX)))
+        );
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+            {
+                    "AG-1: fix, true",
+                    "abab, true",
+                    "abba, false",
+                    "<ticket>x, true",
+                    "(<ticket>x, true",
+                    "ticket, false"
+            }
+    )
+    void testUnionOfNamedGroups(String input, boolean expectedMatch) {
+        // Every regex is valid on its own and the same group name is used by many of them; escaped openings stay:
+        String union = CaseConsideringPattern.union(
+                List.of("(?<ticket>[A-Z]+)-[0-9]+: .+", "(?<ticket>[a-z]+)\\k<ticket>", "\\(?<ticket>x")
+        );
+        Predicate<CharSequence> java = new CaseConsideringPattern(union, true).newMatchPredicate();
+        Predicate<CharSequence> automaton = new CaseConsideringPattern(
+                union, true, RegexEngine.AUTOMATON, Duration.ZERO
+        ).newMatchPredicate();
+        assertAll(
+                () -> assertEquals(expectedMatch, java.test(input)),
+                () -> assertEquals(expectedMatch, automaton.test(input))
+        );
+    }
+}
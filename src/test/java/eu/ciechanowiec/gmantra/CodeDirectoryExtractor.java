@@ -0,0 +1,47 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import net.lingala.zip4j.ZipFile;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+final class CodeDirectoryExtractor {
+
+    private CodeDirectoryExtractor() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    @SneakyThrows
+    static File extract() {
+        ClassLoader classLoader = CodeDirectoryExtractor.class.getClassLoader();
+        URL zipURL = classLoader.getResource("repo-1.zip");
+        Objects.requireNonNull(zipURL);
+        URI zipURI = zipURL.toURI();
+        File zip = new File(zipURI);
+        Path zipPath = zip.toPath();
+        try (
+                ZipInputStream zipIS = new ZipInputStream(Files.newInputStream(zipPath));
+                ZipFile zipFile = new ZipFile(zip)
+        ) {
+            ZipEntry rootDirectory = Optional.ofNullable(zipIS.getNextEntry()).orElseThrow();
+            String rootDirectoryName = rootDirectory.getName();
+            Path unzippedPath = Files.createTempDirectory("project_unzipped_");
+            String unzippedPathAsString = unzippedPath.toString();
+            zipFile.extractFile(rootDirectoryName, unzippedPathAsString);
+            URI unzippedURI = unzippedPath.toUri();
+            Path unzippedRootDirectoryPath = Path.of(unzippedURI).resolve(rootDirectoryName);
+            URI unzippedRootDirectoryURI = unzippedRootDirectoryPath.toUri();
+            File unzipped = new File(unzippedRootDirectoryURI);
+            unzipped.deleteOnExit();
+            return unzipped;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitLimitsTest {
+
+    @ParameterizedTest
+    @CsvSource(
+            {
+                    "'', '', 0, '', '', 2",
+                    "2024-03-15T16:36:00+01:00, '', 0, '', '', 1",
+                    "2024-03-16, '', 0, '', '', 0",
+                    "2024-03-14, '', 0, '', '', 2",
+                    "'', P36500D, 0, '', '', 2",
+                    "'', PT1S, 0, '', '', 0",
+                    "'', '', 3, '', '', 0",
+                    "'', '', 4, '', '', 1",
+                    "'', '', 5, '', '', 2",
+                    "'', '', 1, 46a8a54d66d6, '', 1",
+                    "2024-03-16, '', 0, 46a8a54d66d6, '', 0",
+                    "yesterday, 90 days, 0, '', '', 2",
+                    "'', '', 0, '', branchus-1, 0",
+                    "'', '', 0, '', d61ea0b, 0",
+                    "'', '', 0, '', 46a8a54d66d6, 1",
+                    "'', '', 0, 46a8a54d66d6, d61ea0b, 0",
+                    "'', '', 0, '', origin/nonexistent, 2"
+            }
+    )
+    @SuppressWarnings({"PMD.CloseResource", "ParameterNumber", "PMD.ExcessiveParameterList"})
+    void testCommitLimits(
+            String startCommitDate, String maxCommitAge, int maxCommits, String startCommitHash, String baseRef,
+            int expectedNumOfViolations
+    ) {
+        File codeDirectory = CodeDirectoryExtractor.extract();
+        Repository repository = new RepositoryProvider(codeDirectory).get();
+        CommitLimits commitLimits = CommitLimits.builder()
+                                                .startCommitDate(startCommitDate)
+                                                .maxCommitAge(maxCommitAge)
+                                                .maxCommits(maxCommits)
+                                                .baseRef(baseRef)
+                                                .build();
+        RepositoryRequirements repositoryRequirements
+                = RepositoryRequirements.builder()
+                                        .allowedCommitMessagesRegex("messagus-[3-5]")
+                                        .startCommitHash(startCommitHash)
+                                        .commitLimits(commitLimits)
+                                        .build();
+        ValidationResult validationResult = new ValidatorsCluster(repository, repositoryRequirements).validate();
+        assertAll(
+                () -> assertEquals(expectedNumOfViolations, validationResult.getViolations().size()),
+                () -> assertNotEquals(
+                        commitLimits.isBounded(),
+                        repository.getDirectory().toPath().resolve("gmantra").toFile().exists()
+                )
+        );
+    }
+}
@@ -0,0 +1,205 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.apache.commons.lang3.StringUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class CommitRulesTest {
+
+    private static final int MAX_SUBJECT_LENGTH = 20;
+    private static final String VALID_EMAIL = "herman@example.com";
+    private static final String SIGN_OFF = "\n\nSigned-off-by: Herman Ciechanowiec <herman@example.com>\n";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testBuiltInRules() {
+        try (Git git = createRepository()) {
+            CommitRules commitRules = CommitRules.builder()
+                                                 .allowedAuthorEmailsRegex(".+@EXAMPLE\\.com")
+                                                 .maxSubjectLength(MAX_SUBJECT_LENGTH)
+                                                 .requireSignOff(true)
+                                                 .forbiddenWords(" WIP,, fixup ")
+                                                 .build();
+            RepositoryRequirements requirements = requirements(commitRules);
+            Repository repository = git.getRepository();
+            ValidationMetrics metrics = new ValidationMetrics();
+            ValidationResult firstResult = new ValidatorsCluster(
+                    repository, requirements, ValidationSettings.defaults(), metrics
+            ).validate();
+            ValidationResult secondResult = new ValidatorsCluster(repository, requirements).validate();
+            assertAll(
+                    // Violations are reported in the order of the walk, from the newest commit:
+                    () -> assertEquals(
+                            List.of(
+                                    RequirementsViolation.COMMIT_MESSAGE_RULE, AuthorEmailRule.NAME,
+                                    SubjectLengthRule.NAME, SignOffRule.NAME, ForbiddenWordsRule.NAME
+                            ),
+                            rules(firstResult)
+                    ),
+                    () -> assertEquals(3, metrics.getNumOfMatchedCommits()),
+                    () -> assertEquals(2, metrics.getNumOfViolatedCommits()),
+                    () -> assertTrue(firstResult.toString().contains("forbidden word: 'WIP'")),
+                    // The second result is reused from the verdict cache:
+                    () -> assertEquals(firstResult.toString(), secondResult.toString()),
+                    () -> assertEquals(rules(firstResult), rules(secondResult)),
+                    () -> assertNotEquals(
+                            requirements(CommitRules.none()).fingerprint(ValidationSettings.defaults()),
+                            requirements.fingerprint(ValidationSettings.defaults())
+                    )
+            );
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(RegexEngine.class)
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testRegexEngines(RegexEngine engine) {
+        try (Git git = createRepository()) {
+            CommitRules commitRules = CommitRules.builder()
+                                                 .allowedAuthorEmailsRegex(".+@EXAMPLE\\.com")
+                                                 .forbiddenWords("WIP, żółw, c++")
+                                                 .build();
+            ValidationSettings settings = ValidationSettings.builder().regexEngine(engine).build();
+            ValidationResult result = new ValidatorsCluster(
+                    git.getRepository(), requirements(commitRules), settings
+            ).validate();
+            CommitRules engineRules = commitRules.withRegexEngine(engine, settings.getMatchTimeout());
+            assertAll(
+                    () -> assertEquals(
+                            List.of(RequirementsViolation.COMMIT_MESSAGE_RULE, AuthorEmailRule.NAME,
+                                    ForbiddenWordsRule.NAME),
+                            rules(result)
+                    ),
+                    () -> assertEquals(Optional.of("Żółw"), forbiddenWord(engineRules, "add Żółw.")),
+                    () -> assertEquals(Optional.of("C++"), forbiddenWord(engineRules, "port to C++")),
+                    () -> assertEquals(Optional.of("wip"), forbiddenWord(engineRules, "wip\n")),
+                    // Forbidden words are matched only as whole words:
+                    () -> assertEquals(Optional.empty(), forbiddenWord(engineRules, "wipe żółwik WIP_1"))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testCustomRule() {
+        try (Git git = createRepository()) {
+            ParentsRule parentsRule = new ParentsRule();
+            RepositoryRequirements requirements = requirements(new CommitRules(List.of(parentsRule)));
+            ValidationResult result = new ValidatorsCluster(git.getRepository(), requirements).validate();
+            assertAll(
+                    () -> assertEquals(
+                            List.of(RequirementsViolation.COMMIT_MESSAGE_RULE, ParentsRule.NAME), rules(result)
+                    ),
+                    // Every commit is passed to the rule once:
+                    () -> assertEquals(3, parentsRule.numOfValidatedCommits)
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testMessageFile() {
+        Path messageFile = Files.writeString(
+                tempDirectory.resolve("COMMIT_EDITMSG"),
+                "messagus-1 WIP of a long subject\n\n# Signed-off-by: Herman Ciechanowiec <herman@example.com>\n"
+                + "# ------------------------ >8 ------------------------\n" + SIGN_OFF
+        );
+        CommitRules commitRules = CommitRules.builder()
+                                             .allowedAuthorEmailsRegex(".+@example\\.org")
+                                             .maxSubjectLength(MAX_SUBJECT_LENGTH)
+                                             .requireSignOff(true)
+                                             .forbiddenWords("WIP")
+                                             .build();
+        // No repository is needed, because there are no branch message rules:
+        List<RequirementsViolation> violations = new CommitMessageFile(messageFile).validate(
+                requirements(commitRules), ValidationSettings.defaults(), new RepositoryProvider(messageFile.toFile())
+        );
+        assertEquals(
+                List.of(SubjectLengthRule.NAME, SignOffRule.NAME, ForbiddenWordsRule.NAME),
+                violations.stream().map(RequirementsViolation::getRule).collect(Collectors.toUnmodifiableList())
+        );
+    }
+
+    private Optional<String> forbiddenWord(CommitRules commitRules, String message) {
+        return commitRules.validate(message, message)
+                          .stream()
+                          .map(RequirementsViolation::getMessage)
+                          .map(violation -> StringUtils.substringBetween(violation, "forbidden word: '", "'"))
+                          .findFirst();
+    }
+
+    private RepositoryRequirements requirements(CommitRules commitRules) {
+        return RepositoryRequirements.builder()
+                                     .allowedCommitMessagesRegex("messagus-.+")
+                                     .commitRules(commitRules)
+                                     .build();
+    }
+
+    private List<String> rules(ValidationResult result) {
+        return result.getViolations()
+                     .stream()
+                     .map(RequirementsViolation::getRule)
+                     .collect(Collectors.toUnmodifiableList());
+    }
+
+    private Git createRepository() {
+        Git git = TestRepositories.init(tempDirectory.resolve("commit-rules"));
+        commit(git, "messagus-1" + SIGN_OFF, VALID_EMAIL);
+        commit(git, "messagus-2 WIP\n\nFixes the build.\n", VALID_EMAIL);
+        commit(git, "Too long subject of the third commit" + SIGN_OFF, "herman@example.org");
+        return git;
+    }
+
+    @SneakyThrows
+    private void commit(Git git, String message, String authorEmail) {
+        TestRepositories.emptyCommit(git, message).setAuthor("Herman Ciechanowiec", authorEmail).call();
+    }
+
+    /**
+     * Rule that root commits are forbidden.
+     */
+    private static final class ParentsRule implements CommitRule {
+
+        private static final String NAME = "noRootCommits";
+
+        private int numOfValidatedCommits;
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Set<Part> getRequiredParts() {
+            return Set.of(Part.PARENTS);
+        }
+
+        @Override
+        public Optional<String> validate(CommitDetails commit) {
+            numOfValidatedCommits++;
+            // Parts that haven't been declared as required aren't parsed:
+            assertThrows(IllegalStateException.class, commit::getFullMessage);
+            return Optional.of("root commits are forbidden").filter(reason -> commit.getParentCount() == 0);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.TreeFormatter;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommitSubjectTest {
+
+    private static final String NON_ASCII_SUBJECT = "żółw: naprawa";
+
+    @ParameterizedTest
+    @ValueSource(
+            strings = {
+                    "messagus-1",
+                    "messagus-1\n",
+                    "messagus-1\n\nBody of the message.\n",
+                    "messagus-1\nwrapped subject\n\nBody of the message.\n",
+                    "messagus-1\r\nwrapped subject\r\n\r\nBody of the message.\r\n",
+                    "messagus-1\rwrapped subject",
+                    "\n\nmessagus-1",
+                    "żółw: naprawa\n\nBody of the message.\n",
+                    ""
+            }
+    )
+    void testSameAsShortMessage(String message) {
+        RevCommit commit = commit(message, StandardCharsets.UTF_8);
+        CharSequence subject = CommitSubject.locate(commit);
+        assertAll(
+                () -> assertEquals(commit.getShortMessage(), subject.toString()),
+                () -> assertEquals(commit.getShortMessage(), new StringBuilder(subject).toString()),
+                () -> assertTrue(new CaseConsideringPattern("(?s).*", true).newMatchPredicate().test(subject))
+        );
+    }
+
+    @Test
+    void testView() {
+        CharSequence subject = CommitSubject.locate(commit("AG-1: first\nsecond\n\nBody.\n", StandardCharsets.UTF_8));
+        assertAll(
+                () -> assertInstanceOf(CommitSubject.class, subject),
+                () -> assertEquals("AG-1: first second", subject.toString()),
+                () -> assertEquals("first second", subject.subSequence("AG-1: ".length(), subject.length()).toString()),
+                () -> assertEquals(' ', subject.charAt("AG-1: first".length())),
+                () -> assertThrows(IndexOutOfBoundsException.class, () -> subject.charAt(subject.length())),
+                () -> assertTrue(new CaseConsideringPattern(
+                        "AG-[0-9]+: .+", true, RegexEngine.AUTOMATON, ValidationSettings.DEFAULT_MATCH_TIMEOUT
+                ).newMatchPredicate().test(subject))
+        );
+    }
+
+    @Test
+    void testDeclaredEncoding() {
+        Charset encoding = Charset.forName("ISO-8859-2");
+        CharSequence subject = CommitSubject.locate(commit(NON_ASCII_SUBJECT + "\n\nBody.\n", encoding));
+        assertEquals(NON_ASCII_SUBJECT, subject.toString());
+    }
+
+    @SneakyThrows
+    private RevCommit commit(String message, Charset encoding) {
+        try (InMemoryRepository repository = new InMemoryRepository(new DfsRepositoryDescription("subjects"));
+             ObjectInserter inserter = repository.newObjectInserter();
+             RevWalk revWalk = new RevWalk(repository)) {
+            PersonIdent author = new PersonIdent("Herman Ciechanowiec", "herman@example.com");
+            CommitBuilder commitBuilder = new CommitBuilder();
+            commitBuilder.setTreeId(inserter.insert(new TreeFormatter()));
+            commitBuilder.setAuthor(author);
+            commitBuilder.setCommitter(author);
+            commitBuilder.setEncoding(encoding);
+            commitBuilder.setMessage(message);
+            ObjectId commitId = inserter.insert(commitBuilder);
+            inserter.flush();
+            return revWalk.parseCommit(commitId);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class DaemonResultsTest {
+
+    private static final int NUM_OF_CONCURRENT_BUILDS = 8;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testDaemonResults() {
+        try (Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get()) {
+            RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                        .allowedCommitMessagesRegex("messagus-.+")
+                                                                        .build();
+            ValidationSettings settings = ValidationSettings.defaults();
+            AtomicInteger numOfValidations = new AtomicInteger();
+            Supplier<ValidationResult> validation = () -> {
+                numOfValidations.incrementAndGet();
+                return new ValidatorsCluster(repository, requirements).validate();
+            };
+            ValidationResult firstResult = new DaemonResults().get(repository, requirements, settings, validation);
+            ValidationResult secondResult = new DaemonResults().get(repository, requirements, settings, validation);
+            assertAll(
+                    () -> assertSame(firstResult, secondResult),
+                    () -> assertEquals(1, numOfValidations.get())
+            );
+            // Any change of references invalidates the result:
+            TestRepositories.commit(Git.wrap(repository), "invalidus");
+            Set<ValidationResult> concurrentResults = IntStream.range(0, NUM_OF_CONCURRENT_BUILDS)
+                    .parallel()
+                    .mapToObj(build -> new DaemonResults().get(repository, requirements, settings, validation))
+                    .collect(Collectors.toSet());
+            ValidationResult concurrentResult = concurrentResults.iterator().next();
+            assertAll(
+                    // Concurrent builds of the same repository validate it only once:
+                    () -> assertEquals(1, concurrentResults.size()),
+                    () -> assertEquals(2, numOfValidations.get()),
+                    () -> assertNotEquals(firstResult.toString(), concurrentResult.toString())
+            );
+        }
+    }
+
+    @Test
+    @SuppressWarnings("PMD.CloseResource")
+    void testVerdictNotes() {
+        try (Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get()) {
+            RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                        .allowedCommitMessagesRegex("messagus-.+")
+                                                                        .build();
+            ValidationSettings settings = ValidationSettings.builder().useVerdictNotes(true).build();
+            AtomicInteger numOfValidations = new AtomicInteger();
+            Supplier<ValidationResult> validation = () -> {
+                numOfValidations.incrementAndGet();
+                return new ValidatorsCluster(repository, requirements, settings).validate();
+            };
+            new DaemonResults().get(repository, requirements, settings, validation);
+            new DaemonResults().get(repository, requirements, settings, validation);
+            // Notes written by the first validation don't invalidate its result:
+            assertAll(
+                    () -> assertNotNull(repository.exactRef(VerdictNotes.NOTES_REF)),
+                    () -> assertEquals(1, numOfValidations.get())
+            );
+        }
+    }
+
+    @Test
+    @SuppressWarnings("PMD.CloseResource")
+    void testOneResultPerRepository() {
+        try (Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get()) {
+            RepositoryRequirements firstRequirements = RepositoryRequirements.builder()
+                                                                             .allowedCommitMessagesRegex("messagus-.+")
+                                                                             .build();
+            RepositoryRequirements secondRequirements = firstRequirements.toBuilder()
+                                                                         .allowedCommitMessagesRegex(".+")
+                                                                         .build();
+            AtomicInteger numOfValidations = new AtomicInteger();
+            Supplier<ValidationResult> validation = () -> {
+                numOfValidations.incrementAndGet();
+                return new ValidationResult();
+            };
+            ValidationSettings settings = ValidationSettings.defaults();
+            new DaemonResults().get(repository, firstRequirements, settings, validation);
+            new DaemonResults().get(repository, secondRequirements, settings, validation);
+            new DaemonResults().get(repository, secondRequirements, settings, validation);
+            assertEquals(2, numOfValidations.get());
+            // The result for the second requirements has replaced the one for the first requirements:
+            new DaemonResults().get(repository, firstRequirements, settings, validation);
+            assertEquals(3, numOfValidations.get());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("PMD.CloseResource")
+    void testTimeRelativeLimits() {
+        try (Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get()) {
+            RepositoryRequirements requirements
+                    = RepositoryRequirements.builder()
+                                            .commitLimits(CommitLimits.builder().maxCommitAge("P90D").build())
+                                            .build();
+            AtomicInteger numOfValidations = new AtomicInteger();
+            Supplier<ValidationResult> validation = () -> {
+                numOfValidations.incrementAndGet();
+                return new ValidationResult();
+            };
+            new DaemonResults().get(repository, requirements, ValidationSettings.defaults(), validation);
+            new DaemonResults().get(repository, requirements, ValidationSettings.defaults(), validation);
+            assertEquals(2, numOfValidations.get());
+        }
+    }
+}
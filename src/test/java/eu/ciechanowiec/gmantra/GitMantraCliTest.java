@@ -0,0 +1,193 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class GitMantraCliTest {
+
+    private static final String POM_TEMPLATE =
+            "<project>%n"
+            + "  <properties>%n"
+            + "    <allowed.messages>messagus-[%s]</allowed.messages>%n"
+            + "  </properties>%n"
+            + "  <build>%n"
+            + "    <plugins>%n"
+            + "      <plugin>%n"
+            + "        <artifactId>maven-compiler-plugin</artifactId>%n"
+            + "        <configuration>%n"
+            + "          <allowedBranchesRegex>branchus</allowedBranchesRegex>%n"
+            + "        </configuration>%n"
+            + "      </plugin>%n"
+            + "      <plugin>%n"
+            + "        <artifactId>gmantra-maven-plugin</artifactId>%n"
+            + "        <configuration>%n"
+            + "          <allowedBranchesRegex>main</allowedBranchesRegex>%n"
+            + "          <allowedCommitMessagesRegex>${allowed.messages}</allowedCommitMessagesRegex>%n"
+            + "          <startCommitHash>${undefined}</startCommitHash>%n"
+            + "          <maxLoggedViolations>1</maxLoggedViolations>%n"
+            + "          <branchMessageRules>%n"
+            + "            <branchMessageRule>%n"
+            + "              <branchesRegex>release/.+</branchesRegex>%n"
+            + "              <allowedCommitMessagesRegexes>%n"
+            + "                <allowedCommitMessagesRegex>RLS-[0-9]+: .+</allowedCommitMessagesRegex>%n"
+            + "                <allowedCommitMessagesRegex>${allowed.messages}</allowedCommitMessagesRegex>%n"
+            + "              </allowedCommitMessagesRegexes>%n"
+            + "            </branchMessageRule>%n"
+            + "          </branchMessageRules>%n"
+            + "        </configuration>%n"
+            + "      </plugin>%n"
+            + "    </plugins>%n"
+            + "  </build>%n"
+            + "</project>%n";
+
+    @TempDir
+    private Path tempDirectory;
+    private File codeDirectory;
+    private ByteArrayOutputStream output;
+    private GitMantraCli gitMantraCli;
+
+    @BeforeEach
+    void setup() {
+        codeDirectory = CodeDirectoryExtractor.extract();
+        output = new ByteArrayOutputStream();
+        gitMantraCli = new GitMantraCli(
+                InputStream.nullInputStream(), new PrintStream(output, true, StandardCharsets.UTF_8)
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testPluginConfiguration() {
+        PluginConfiguration configuration = PluginConfiguration.read(pom("0-9"));
+        RepositoryRequirements requirements = configuration.requirements();
+        assertAll(
+                () -> assertEquals("main", requirements.getAllowedBranchesRegex()),
+                () -> assertEquals("messagus-[0-9]", requirements.getAllowedCommitMessagesRegex()),
+                () -> assertEquals("", requirements.getStartCommitHash()),
+                () -> assertEquals(1, configuration.getMaxLoggedViolations()),
+                () -> assertEquals(
+                        List.of(new BranchMessageRule("release/.+", List.of("RLS-[0-9]+: .+", "messagus-[0-9]")))
+                            .toString(),
+                        requirements.getBranchMessageRules().toString()
+                ),
+                () -> assertTrue(configuration.isFailOnViolations()),
+                () -> assertEquals(
+                        ValidationSettings.builder().build().toString(), configuration.settings().toString()
+                )
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testMessageFile() {
+        Path pom = pom("0-9");
+        Path validMessage = Files.writeString(
+                tempDirectory.resolve("VALID_EDITMSG"), String.format("%n# Comment%nmessagus-7%n%nBody%n")
+        );
+        Path invalidMessage = Files.writeString(
+                tempDirectory.resolve("INVALID_EDITMSG"), String.format("Added%nsomething%n%nmessagus-7%n")
+        );
+        int validExitCode = gitMantraCli.run("--pom", pom.toString(), "--message-file", validMessage.toString());
+        int invalidExitCode = gitMantraCli.run("--pom", pom.toString(), "--message-file", invalidMessage.toString());
+        assertAll(
+                () -> assertEquals(GitMantraCli.EXIT_OK, validExitCode),
+                () -> assertEquals(GitMantraCli.EXIT_VIOLATIONS, invalidExitCode),
+                () -> assertTrue(output.toString(StandardCharsets.UTF_8).contains(
+                        "This message: 'Added something' does not match this pattern: 'messagus-[0-9]'"
+                ))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testMessageFileWithBranchMessageRules() {
+        String directory = codeDirectory.toString();
+        String pom = pom("0-9").toString();
+        String message = Files.writeString(
+                tempDirectory.resolve("RELEASE_EDITMSG"), String.format("RLS-7: Released%n")
+        ).toString();
+        int mainExitCode = gitMantraCli.run("--directory", directory, "--pom", pom, "--message-file", message);
+        try (Git git = Git.open(codeDirectory)) {
+            git.checkout().setCreateBranch(true).setName("release/7").call();
+        }
+        int releaseExitCode = gitMantraCli.run("--directory", directory, "--pom", pom, "--message-file", message);
+        assertAll(
+                () -> assertEquals(GitMantraCli.EXIT_VIOLATIONS, mainExitCode),
+                () -> assertEquals(GitMantraCli.EXIT_OK, releaseExitCode)
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testRepository() {
+        String directory = codeDirectory.toString();
+        int validExitCode = gitMantraCli.run("--directory", directory, "--pom", pom("0-9").toString());
+        int invalidExitCode = gitMantraCli.run("--directory", directory, "--pom", pom("3-5").toString());
+        int defaultExitCode = gitMantraCli.run("--directory", directory);
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertAll(
+                () -> assertEquals(GitMantraCli.EXIT_OK, validExitCode),
+                () -> assertEquals(GitMantraCli.EXIT_VIOLATIONS, invalidExitCode),
+                () -> assertEquals(GitMantraCli.EXIT_OK, defaultExitCode),
+                () -> assertTrue(printed.contains("This message: 'messagus-2'")),
+                () -> assertTrue(printed.contains("... and 1 more violation(s)")),
+                () -> assertTrue(printed.contains("Git Mantra: 2 violation(s) found"))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testRefUpdates() {
+        String head = new RepositoryProvider(codeDirectory).get().resolve(Constants.HEAD).name();
+        Path refUpdates = Files.writeString(tempDirectory.resolve("ref-updates"), String.format(
+                "%s %s refs/heads/main%n%s %s refs/heads/branchus%n", head, head, ObjectId.zeroId().name(), head
+        ));
+        int exitCode = gitMantraCli.run(
+                "--directory", codeDirectory.toString(), "--pom", pom("3-5").toString(),
+                "--ref-updates", refUpdates.toString()
+        );
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertAll(
+                () -> assertEquals(GitMantraCli.EXIT_VIOLATIONS, exitCode),
+                () -> assertTrue(printed.contains("This branch name: 'branchus' does not match this pattern: 'main'")),
+                () -> assertTrue(printed.contains("Git Mantra: 1 violation(s) found"))
+        );
+    }
+
+    @Test
+    void testInvalidOptions() {
+        assertAll(
+                () -> assertEquals(GitMantraCli.EXIT_USAGE, gitMantraCli.run("--pom")),
+                () -> assertEquals(GitMantraCli.EXIT_USAGE, gitMantraCli.run("--unknown", "value")),
+                () -> assertEquals(GitMantraCli.EXIT_USAGE, gitMantraCli.run(
+                        "--message-file", "COMMIT_EDITMSG", "--ref-updates", "-"
+                )),
+                () -> assertTrue(output.toString(StandardCharsets.UTF_8).contains("Unknown option: '--unknown'"))
+        );
+    }
+
+    @SneakyThrows
+    private Path pom(String allowedDigits) {
+        return Files.writeString(
+                tempDirectory.resolve(String.format("pom-%s.xml", allowedDigits)),
+                String.format(POM_TEMPLATE, allowedDigits)
+        );
+    }
+}
@@ -0,0 +1,162 @@
+package eu.ciechanowiec.gmantra;
+
+import com.sun.management.ThreadMXBean;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Validates a long synthetic history. By default, the history consists of 100 000 commits in order to keep
+ * the build fast; a longer history can be validated by setting the '{@code gmantra.test.numOfCommits}'
+ * system property. The '{@code large-history}' profile runs this test once again with a history of a million
+ * commits in a separate JVM with a heap of 256 MB; the heap can't be smaller, because JGit keeps all commits
+ * in memory while it writes the commit-graph file. Durations of validations and bytes allocated by them are logged.
+ */
+@Slf4j
+class LargeHistoryTest {
+
+    private static final int NUM_OF_COMMITS = Integer.getInteger("gmantra.test.numOfCommits", 100_000);
+    private static final int INVALID_COMMITS_INTERVAL = 10_000;
+    private static final int MAX_REPORTED_VIOLATIONS = 3;
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    void testLargeHistory() {
+        try (FileRepository repository = createRepository()) {
+            ValidationSettings sequential = ValidationSettings.builder().useVerdictCache(false).build();
+            ValidationSettings parallel = ValidationSettings.builder().useVerdictCache(false).parallelism(4).build();
+            List<String> sequentialViolations = validate(repository, sequential);
+            assertAll(
+                    () -> assertEquals(NUM_OF_COMMITS / INVALID_COMMITS_INTERVAL, sequentialViolations.size()),
+                    () -> assertEquals(sequentialViolations, validate(repository, parallel))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testLargeHistoryWithCommitGraph() {
+        try (FileRepository repository = createRepository()) {
+            ValidationSettings withoutGraph = ValidationSettings.builder()
+                                                                .useVerdictCache(false)
+                                                                .useCommitGraph(false)
+                                                                .build();
+            ValidationSettings writingGraph = ValidationSettings.builder()
+                                                                .useVerdictCache(false)
+                                                                .writeCommitGraph(true)
+                                                                .build();
+            ValidationSettings withGraph = ValidationSettings.builder().useVerdictCache(false).build();
+            int expectedNumOfViolations = NUM_OF_COMMITS / INVALID_COMMITS_INTERVAL;
+            assertAll(
+                    () -> assertEquals(expectedNumOfViolations, validate(repository, withoutGraph).size()),
+                    () -> assertEquals(expectedNumOfViolations, validate(repository, writingGraph).size()),
+                    () -> assertTrue(Files.exists(
+                            repository.getObjectsDirectory().toPath().resolve(Constants.INFO_COMMIT_GRAPH)
+                    )),
+                    () -> assertEquals(expectedNumOfViolations, validate(repository, withGraph).size())
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void testLargeHistoryWithViolationLimits() {
+        try (FileRepository repository = createRepository()) {
+            ValidationSettings unlimited = ValidationSettings.builder().useVerdictCache(false).build();
+            ValidationSettings failFast = ValidationSettings.builder().failFast(true).build();
+            ValidationSettings capped = ValidationSettings.builder()
+                                                          .maxReportedViolations(MAX_REPORTED_VIOLATIONS)
+                                                          .parallelism(4)
+                                                          .build();
+            List<String> allViolations = validate(repository, unlimited);
+            ValidationMetrics failFastMetrics = new ValidationMetrics();
+            List<String> failFastViolations = validate(repository, failFast, failFastMetrics);
+            List<String> cappedViolations = validate(repository, capped);
+            RepositoryRequirements invalidBranch = RepositoryRequirements.builder()
+                                                                         .allowedBranchesRegex("branchus")
+                                                                         .allowedCommitMessagesRegex("messagus-[0-9]+")
+                                                                         .build();
+            ValidationMetrics invalidBranchMetrics = new ValidationMetrics();
+            ValidationResult invalidBranchResult = new ValidatorsCluster(
+                    repository, invalidBranch, failFast, invalidBranchMetrics
+            ).validate();
+            ValidationSettings cappedAtTwo = ValidationSettings.builder().maxReportedViolations(2).build();
+            ValidationMetrics cappedAtTwoMetrics = new ValidationMetrics();
+            ValidationResult cappedAtTwoResult = new ValidatorsCluster(
+                    repository, invalidBranch, cappedAtTwo, cappedAtTwoMetrics
+            ).validate();
+            assertAll(
+                    () -> assertEquals(allViolations.subList(0, 1), failFastViolations),
+                    () -> assertTrue(failFastMetrics.getNumOfWalkedCommits() < 2L * INVALID_COMMITS_INTERVAL),
+                    () -> assertEquals(allViolations.subList(0, MAX_REPORTED_VIOLATIONS), cappedViolations),
+                    () -> assertEquals(
+                            List.of(RequirementsViolation.BRANCH_RULE),
+                            invalidBranchResult.getViolations()
+                                               .stream()
+                                               .map(RequirementsViolation::getRule)
+                                               .collect(Collectors.toUnmodifiableList())
+                    ),
+                    () -> assertEquals(0, invalidBranchMetrics.getNumOfWalkedCommits()),
+                    // The invalid branch name leaves only one violation of the limit for commit messages:
+                    () -> assertEquals(2, cappedAtTwoResult.getViolations().size()),
+                    () -> assertTrue(cappedAtTwoMetrics.getNumOfWalkedCommits() < 2L * INVALID_COMMITS_INTERVAL)
+            );
+        }
+    }
+
+    @SneakyThrows
+    private FileRepository createRepository() {
+        FileRepository repository = new FileRepository(tempDirectory.resolve("large-history").toFile());
+        repository.create(true);
+        try (SyntheticHistory history = new SyntheticHistory(repository)) {
+            ObjectId head = history.write(NUM_OF_COMMITS, SyntheticHistory.messages(INVALID_COMMITS_INTERVAL));
+            history.updateRef(Constants.HEAD, head);
+        }
+        return repository;
+    }
+
+    private List<String> validate(FileRepository repository, ValidationSettings settings) {
+        return validate(repository, settings, new ValidationMetrics());
+    }
+
+    @SuppressWarnings("PMD.DoNotUseThreads")
+    private List<String> validate(FileRepository repository, ValidationSettings settings, ValidationMetrics metrics) {
+        RepositoryRequirements repositoryRequirements
+                = RepositoryRequirements.builder()
+                                        .allowedCommitMessagesRegex("messagus-[0-9]+")
+                                        .build();
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBytesBefore = threads.getThreadAllocatedBytes(threadId);
+        Instant start = Instant.now();
+        ValidationResult validationResult = new ValidatorsCluster(
+                repository, repositoryRequirements, settings, metrics
+        ).validate();
+        long durationMillis = Duration.between(start, Instant.now()).toMillis();
+        long allocatedBytes = threads.getThreadAllocatedBytes(threadId) - allocatedBytesBefore;
+        long allocatedBytesPerCommit = allocatedBytes / NUM_OF_COMMITS;
+        log.info("Validated {} commits with {} in {} ms. Bytes allocated by the validating thread per commit: {}",
+                 NUM_OF_COMMITS, settings, durationMillis, allocatedBytesPerCommit);
+        return validationResult.getViolations()
+                               .stream()
+                               .map(RequirementsViolation::getMessage)
+                               .collect(Collectors.toUnmodifiableList());
+    }
+}
@@ -0,0 +1,62 @@
+package eu.ciechanowiec.gmantra;
+
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings("MagicNumber")
+class PackCacheSettingsTest {
+
+    @Test
+    @SuppressWarnings("PMD.CloseResource")
+    void testPackCacheSettings() {
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        WindowCacheConfig defaults = new WindowCacheConfig();
+        WindowCacheConfig automatic = PackCacheSettings.automatic().resolve(repository);
+        WindowCacheConfig specified = PackCacheSettings.builder()
+                                                       .packedGitLimit("512m")
+                                                       .packedGitWindowSize("100k")
+                                                       .packedGitMmap(true)
+                                                       .deltaBaseCacheLimit("64m")
+                                                       .streamFileThreshold("not-a-size")
+                                                       .build()
+                                                       .resolve(repository);
+        repository.getConfig().setString(
+                ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_KEY_PACKED_GIT_WINDOWSIZE, "16k"
+        );
+        WindowCacheConfig configured = PackCacheSettings.automatic().resolve(repository);
+        WindowCacheConfig overridden = PackCacheSettings.builder()
+                                                        .packedGitWindowSize("32k")
+                                                        .build()
+                                                        .resolve(repository);
+        WindowCacheConfig installed = new WindowCacheConfig();
+        installed.setPackedGitLimit(WindowCacheConfig.MB * 1024L);
+        installed.setPackedGitMMAP(true);
+        // Automatic values never fall below the installed ones, e.g. ones installed for a larger repository:
+        WindowCacheConfig raised = PackCacheSettings.automatic().resolve(repository, installed);
+        WindowCacheConfig lowered = PackCacheSettings.builder()
+                                                     .packedGitLimit("512m")
+                                                     .build()
+                                                     .resolve(repository, installed);
+        assertAll(
+                () -> assertEquals(defaults.getPackedGitLimit(), automatic.getPackedGitLimit()),
+                () -> assertEquals(defaults.getPackedGitWindowSize(), automatic.getPackedGitWindowSize()),
+                () -> assertFalse(automatic.isPackedGitMMAP()),
+                () -> assertEquals(defaults.getDeltaBaseCacheLimit(), automatic.getDeltaBaseCacheLimit()),
+                () -> assertEquals(512L * WindowCacheConfig.MB, specified.getPackedGitLimit()),
+                () -> assertEquals(64 * WindowCacheConfig.KB, specified.getPackedGitWindowSize()),
+                () -> assertTrue(specified.isPackedGitMMAP()),
+                () -> assertEquals(64 * WindowCacheConfig.MB, specified.getDeltaBaseCacheLimit()),
+                () -> assertEquals(automatic.getStreamFileThreshold(), specified.getStreamFileThreshold()),
+                () -> assertEquals(16 * WindowCacheConfig.KB, configured.getPackedGitWindowSize()),
+                () -> assertEquals(32 * WindowCacheConfig.KB, overridden.getPackedGitWindowSize()),
+                () -> assertEquals(1024L * WindowCacheConfig.MB, raised.getPackedGitLimit()),
+                () -> assertTrue(raised.isPackedGitMMAP()),
+                () -> assertEquals(16 * WindowCacheConfig.KB, raised.getPackedGitWindowSize()),
+                () -> assertEquals(512L * WindowCacheConfig.MB, lowered.getPackedGitLimit())
+        );
+    }
+}
@@ -0,0 +1,326 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.lib.ConfigConstants;
+import org.eclipse.jgit.lib.CoreConfig;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.SystemReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class PathMessageRulesTest {
+
+    private static final List<PathMessageRule> RULES = List.of(
+            new PathMessageRule("db/migrations/**", "DBA-[0-9]+: .+"),
+            new PathMessageRule("**/*.lock", "deps: .+"),
+            new PathMessageRule("/", ".*")
+    );
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testPathMessageRules() {
+        try (Git git = createRepository()) {
+            RepositoryRequirements requirements
+                    = RepositoryRequirements.builder()
+                                            .allowedCommitMessagesRegex("(?:feature|deps|DBA-[0-9]+): .+")
+                                            .pathMessageRules(RULES)
+                                            .build();
+            ValidationResult result = new ValidatorsCluster(git.getRepository(), requirements).validate();
+            List<String> messages = result.getViolations()
+                                          .stream()
+                                          .map(RequirementsViolation::toString)
+                                          .collect(Collectors.toUnmodifiableList());
+            assertAll(
+                    () -> assertEquals(2, messages.size()),
+                    () -> assertTrue(result.getViolations().stream().map(RequirementsViolation::getRule)
+                                           .allMatch(ChangedPathRules.NAME::equals)),
+                    () -> assertTrue(messages.stream().anyMatch(
+                            message -> message.contains("feature: sneaky migration")
+                                       && message.contains("db/migrations/001.sql")
+                    )),
+                    () -> assertTrue(messages.stream().anyMatch(
+                            message -> message.contains("feature: bump") && message.contains("app/lib/app.lock")
+                    ))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testLimitedViolations() {
+        try (Git git = createRepository()) {
+            RepositoryRequirements requirements
+                    = RepositoryRequirements.builder()
+                                            .allowedCommitMessagesRegex("(?:feature|deps): .+")
+                                            .pathMessageRules(RULES)
+                                            .build();
+            ValidationMetrics failFastMetrics = new ValidationMetrics();
+            ValidationSettings failFast = ValidationSettings.builder().useVerdictCache(false).failFast(true).build();
+            List<String> failFastViolations = new ValidatorsCluster(
+                    git.getRepository(), anyMessage(), failFast, failFastMetrics
+            ).validate().getViolations().stream().map(RequirementsViolation::getMessage).collect(Collectors.toList());
+            ValidationSettings capped = ValidationSettings.builder()
+                                                          .useVerdictCache(false)
+                                                          .maxReportedViolations(2)
+                                                          .parallelism(2)
+                                                          .build();
+            List<String> cappedViolations = new ValidatorsCluster(git.getRepository(), requirements, capped)
+                    .validate()
+                    .getViolations()
+                    .stream()
+                    .map(RequirementsViolation::getMessage)
+                    .collect(Collectors.toUnmodifiableList());
+            assertAll(
+                    // Only path message rules are violated, but the walk is stopped at the first violation:
+                    () -> assertEquals(1, failFastViolations.size()),
+                    () -> assertTrue(failFastViolations.get(0).contains("feature: bump")),
+                    () -> assertTrue(failFastMetrics.getNumOfMatchedCommits() < 6),
+                    // Path violations precede the mismatch of the older 'DBA-1: first migration' commit:
+                    () -> assertEquals(2, cappedViolations.size()),
+                    () -> assertTrue(cappedViolations.get(0).contains("feature: bump")),
+                    () -> assertTrue(cappedViolations.get(1).contains("feature: sneaky migration"))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testReusedVerdicts() {
+        try (Git git = TestRepositories.init(tempDirectory.resolve("path-message-rules"))) {
+            commit(git, "README.md", "feature: readme");
+            // Violates two path message rules at once:
+            write(git, "db/migrations/001.sql");
+            commit(git, "app/app.lock", "feature: migration and bump");
+            Repository repository = git.getRepository();
+            ObjectId violatingCommit = repository.resolve("HEAD");
+            // Verdicts of both branches are reused and histories of both contain the commit that violates two rules:
+            validateBranch(git, "first", violatingCommit);
+            validateBranch(git, "second", violatingCommit);
+            git.merge().include(repository.resolve("first")).setCommit(false)
+               .setFastForward(MergeCommand.FastForwardMode.NO_FF).call();
+            git.commit().setMessage("feature: merge").setSign(false).call();
+            ValidationSettings coldSettings = ValidationSettings.builder().useVerdictCache(false).build();
+            List<String> coldMessages = messages(new ValidatorsCluster(repository, anyMessage(), coldSettings));
+            List<String> warmMessages = messages(new ValidatorsCluster(repository, anyMessage()));
+            assertAll(
+                    () -> assertEquals(2, coldMessages.size()),
+                    () -> assertEquals(coldMessages, warmMessages)
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testRegexEngine() {
+        try (Git git = TestRepositories.init(tempDirectory.resolve("path-message-rules"))) {
+            commit(git, "docs/animals.md", "żółw: add an animal");
+            RepositoryRequirements requirements
+                    = RepositoryRequirements.builder()
+                                            .allowedCommitMessagesRegex(".+")
+                                            .areCaseSensitiveMatches(false)
+                                            .pathMessageRule(new PathMessageRule("docs/**", "ŻÓŁW: .+"))
+                                            .build();
+            ValidationSettings javaSettings = ValidationSettings.builder().useVerdictCache(false).build();
+            ValidationSettings automatonSettings = ValidationSettings.builder()
+                                                                     .useVerdictCache(false)
+                                                                     .regexEngine(RegexEngine.AUTOMATON)
+                                                                     .build();
+            Repository repository = git.getRepository();
+            // Only the automaton folds cases of non-US-ASCII letters:
+            assertAll(
+                    () -> assertEquals(1, new ValidatorsCluster(
+                            repository, requirements, javaSettings
+                    ).validate().getViolations().size()),
+                    () -> assertTrue(new ValidatorsCluster(
+                            repository, requirements, automatonSettings
+                    ).validate().getViolations().isEmpty())
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testChangedPathFilters() {
+        try (Git git = createRepository()) {
+            Repository repository = git.getRepository();
+            List<Long> counts = applyAllWithCommitGraph(repository);
+            assertAll(
+                    () -> assertEquals(2, counts.get(0)),
+                    // Commits that don't touch 'db/migrations' are excluded by their filters without diffs:
+                    () -> assertTrue(counts.get(1) > 0),
+                    () -> assertTrue(counts.get(2) > 0)
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testCommitGraphSettingsRestored() {
+        try (Git git = createRepository()) {
+            Repository repository = git.getRepository();
+            StoredConfig jgitConfig = SystemReader.getInstance().getJGitConfig();
+            CommitGraphFile commitGraphFile = new CommitGraphFile(repository, true);
+            boolean isEnabledAfterInnerClose = isEnabledAfterInnerClose(commitGraphFile, repository, jgitConfig);
+            new ValidatorsCluster(repository, anyMessage()).validate();
+            assertAll(
+                    () -> assertTrue(isEnabledAfterInnerClose),
+                    () -> assertNull(repository.getConfig().getString(
+                            ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH
+                    )),
+                    () -> assertNull(jgitConfig.getString(
+                            ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, null,
+                            ConfigConstants.CONFIG_KEY_READ_CHANGED_PATHS
+                    ))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testCommitGraphOptOut() {
+        try (Git git = createRepository()) {
+            Repository repository = git.getRepository();
+            repository.getConfig().setBoolean(
+                    ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, false
+            );
+            boolean isEnabled = isEnabledWhileOpen(new CommitGraphFile(repository), repository);
+            assertFalse(isEnabled);
+            assertFalse(repository.getConfig().getBoolean(
+                    ConfigConstants.CONFIG_CORE_SECTION, null, ConfigConstants.CONFIG_COMMIT_GRAPH, true
+            ));
+        }
+    }
+
+    /**
+     * Opens two overlapping enablements and closes the inner one first.
+     * @return '{@code true}' if the settings are still enabled while only the outer enablement is open
+     */
+    @SuppressWarnings("PMD.UnusedLocalVariable")
+    private boolean isEnabledAfterInnerClose(
+            CommitGraphFile commitGraphFile, Repository repository, StoredConfig jgitConfig
+    ) {
+        try (CommitGraphFile.Enablement outer = commitGraphFile.enable()) {
+            isEnabledWhileOpen(commitGraphFile, repository);
+            return isCommitGraphEnabled(repository, jgitConfig);
+        }
+    }
+
+    @SuppressWarnings("PMD.UnusedLocalVariable")
+    private boolean isEnabledWhileOpen(CommitGraphFile commitGraphFile, Repository repository) {
+        try (CommitGraphFile.Enablement enablement = commitGraphFile.enable()) {
+            return repository.getConfig().get(CoreConfig.KEY).enableCommitGraph();
+        }
+    }
+
+    @SneakyThrows
+    @SuppressWarnings("PMD.UnusedLocalVariable")
+    private List<Long> applyAllWithCommitGraph(Repository repository) {
+        CommitGraphFile commitGraphFile = new CommitGraphFile(repository, true);
+        try (CommitGraphFile.Enablement enablement = commitGraphFile.enable()) {
+            commitGraphFile.writeIfStale(repository.resolve("HEAD"));
+            return applyAll(repository);
+        }
+    }
+
+    private boolean isCommitGraphEnabled(Repository repository, StoredConfig jgitConfig) {
+        return repository.getConfig().get(CoreConfig.KEY).enableCommitGraph() && jgitConfig.getBoolean(
+                ConfigConstants.CONFIG_COMMIT_GRAPH_SECTION, ConfigConstants.CONFIG_KEY_READ_CHANGED_PATHS, false
+        );
+    }
+
+    /**
+     * Applies the rules to all commits of the repository.
+     * @return numbers of violations, of commits excluded by changed-path filters and of diffed commits
+     */
+    @SneakyThrows
+    private List<Long> applyAll(Repository repository) {
+        Function<String, CaseConsideringPattern> messagePatterns = regex -> new CaseConsideringPattern(regex, true);
+        try (ChangedPathRules rules = new ChangedPathRules(repository, RULES, messagePatterns, 2);
+             RevWalk revWalk = new RevWalk(repository)) {
+            revWalk.markStart(revWalk.parseCommit(repository.resolve("HEAD")));
+            List<ChangedPathRules.Candidate> candidates = new ArrayList<>();
+            for (RevCommit commit : revWalk) {
+                rules.accept(commit, commit.getShortMessage()).ifPresent(candidates::add);
+            }
+            long numOfViolations = candidates.stream().mapToLong(candidate -> rules.violations(candidate).size()).sum();
+            return List.of(numOfViolations, rules.getNumOfFilteredCommits(), rules.getNumOfDiffedCommits());
+        }
+    }
+
+    private Git createRepository() {
+        Git git = TestRepositories.init(tempDirectory.resolve("path-message-rules"));
+        commit(git, "README.md", "feature: readme");
+        commit(git, "db/migrations/001.sql", "DBA-1: first migration");
+        commit(git, "db/migrations/001.sql", "feature: sneaky migration");
+        commit(git, "db/docs/schema.md", "feature: schema docs");
+        commit(git, "app/lib/app.lock", "feature: bump");
+        commit(git, "app/lib/app.lock", "deps: bump");
+        return git;
+    }
+
+    private RepositoryRequirements anyMessage() {
+        return RepositoryRequirements.builder().allowedCommitMessagesRegex(".+").pathMessageRules(RULES).build();
+    }
+
+    @SneakyThrows
+    private void validateBranch(Git git, String branchName, ObjectId startPoint) {
+        git.checkout().setCreateBranch(true).setName(branchName).setStartPoint(startPoint.name()).call();
+        commit(git, branchName + ".md", "feature: " + branchName);
+        new ValidatorsCluster(git.getRepository(), anyMessage()).validate();
+    }
+
+    private List<String> messages(ValidatorsCluster cluster) {
+        return cluster.validate()
+                      .getViolations()
+                      .stream()
+                      .map(RequirementsViolation::getMessage)
+                      .sorted()
+                      .collect(Collectors.toUnmodifiableList());
+    }
+
+    @SneakyThrows
+    private void commit(Git git, String path, String message) {
+        write(git, path, message);
+        git.commit().setMessage(message).setSign(false).call();
+    }
+
+    private void write(Git git, String path) {
+        write(git, path, path);
+    }
+
+    @SneakyThrows
+    private void write(Git git, String path, String content) {
+        Path workTree = git.getRepository().getWorkTree().toPath();
+        Path file = workTree.resolve(path);
+        Files.createDirectories(Optional.ofNullable(file.getParent()).orElse(workTree));
+        Files.writeString(file, content);
+        git.add().addFilepattern(path).call();
+    }
+}
@@ -0,0 +1,102 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Validates a push to a local bare repository. Pushed objects are inserted into the repository without
+ * updating references, i.e. the repository is in the same state as during the '{@code pre-receive}' hook.
+ */
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class PushValidatorTest {
+
+    private static final int NUM_OF_EXISTING_COMMITS = 100;
+    private static final int NUM_OF_PUSHED_COMMITS = 20_000;
+    private static final int NUM_OF_FEATURE_COMMITS = 10;
+    private static final int INVALID_COMMITS_INTERVAL = 5_000;
+    private static final String MAIN = "refs/heads/main";
+    private static final RepositoryRequirements REQUIREMENTS
+            = RepositoryRequirements.builder()
+                                    .allowedBranchesRegex("main|obsolete|feature/.+")
+                                    .allowedCommitMessagesRegex("messagus-[0-9]+")
+                                    .build();
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    void testPush() {
+        try (FileRepository repository = createRepository();
+             SyntheticHistory history = new SyntheticHistory(repository)) {
+            IntFunction<String> messages = SyntheticHistory.messages(INVALID_COMMITS_INTERVAL);
+            ObjectId existingTip = history.write(NUM_OF_EXISTING_COMMITS, messages);
+            history.updateRef(MAIN, existingTip);
+            history.updateRef("refs/heads/obsolete", existingTip);
+            ObjectId pushedTip = history.write(NUM_OF_PUSHED_COMMITS, messages, existingTip);
+            ObjectId featureTip = history.write(NUM_OF_FEATURE_COMMITS, messages, pushedTip);
+            history.flush();
+            String zeroId = ObjectId.zeroId().name();
+            List<PushedRefUpdate> refUpdates = Stream.of(
+                    String.format("%s %s %s", existingTip.name(), pushedTip.name(), MAIN),
+                    String.format("%s %s refs/heads/feature/commits", zeroId, featureTip.name()),
+                    String.format("%s %s refs/heads/Invalid_Branch", zeroId, pushedTip.name()),
+                    String.format("%s %s refs/tags/v1.0.0", zeroId, featureTip.name()),
+                    String.format("%s %s refs/heads/obsolete", existingTip.name(), zeroId)
+            ).map(PushedRefUpdate::parse).collect(Collectors.toUnmodifiableList());
+            ValidationMetrics metrics = new ValidationMetrics();
+            List<String> rules = new PushValidator(
+                    repository, REQUIREMENTS, ValidationSettings.defaults(), refUpdates, metrics
+            ).validate().getViolations().stream().map(RequirementsViolation::getRule).collect(Collectors.toList());
+            ValidationMetrics failFastMetrics = new ValidationMetrics();
+            ValidationResult failFastResult = new PushValidator(
+                    repository, REQUIREMENTS, ValidationSettings.builder().failFast(true).build(), refUpdates,
+                    failFastMetrics
+            ).validate();
+            assertAll(
+                    () -> assertEquals(RequirementsViolation.BRANCH_RULE, rules.get(0)),
+                    () -> assertEquals(
+                            NUM_OF_PUSHED_COMMITS / INVALID_COMMITS_INTERVAL + 1,
+                            rules.stream().filter(RequirementsViolation.COMMIT_MESSAGE_RULE::equals).count()
+                    ),
+                    () -> assertEquals(
+                            NUM_OF_PUSHED_COMMITS + NUM_OF_FEATURE_COMMITS, metrics.getNumOfMatchedCommits()
+                    ),
+                    () -> assertEquals(1, failFastResult.getViolations().size()),
+                    () -> assertEquals(0, failFastMetrics.getNumOfMatchedCommits())
+            );
+        }
+    }
+
+    @Test
+    void testParse() {
+        String oldId = ObjectId.zeroId().name();
+        String newId = "9db09a021fc8873ad972140196d21465e6adfc07";
+        PushedRefUpdate refUpdate = PushedRefUpdate.parse(String.format("%s %s refs/heads/main%n", oldId, newId));
+        assertAll(
+                () -> assertEquals(ObjectId.fromString(newId), refUpdate.getNewId()),
+                () -> assertEquals(MAIN, refUpdate.getRefName()),
+                () -> assertTrue(refUpdate.isBranchCreation()),
+                () -> assertFalse(refUpdate.isDeletion()),
+                () -> assertThrows(IllegalArgumentException.class, () -> PushedRefUpdate.parse("refs/heads/main"))
+        );
+    }
+
+    @SneakyThrows
+    private FileRepository createRepository() {
+        FileRepository repository = new FileRepository(tempDirectory.resolve("push").toFile());
+        repository.create(true);
+        return repository;
+    }
+}
@@ -0,0 +1,92 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@SuppressWarnings("MultipleStringLiterals")
+class SessionResultsTest {
+
+    @Test
+    @SuppressWarnings("PMD.CloseResource")
+    void testSessionResults() {
+        MavenSession session = mock(MavenSession.class);
+        when(session.getRepositorySession()).thenReturn(new DefaultRepositorySystemSession());
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        RepositoryRequirements requirements = RepositoryRequirements.builder().build();
+        RepositoryRequirements otherRequirements = RepositoryRequirements.builder()
+                                                                         .areCaseSensitiveMatches(false)
+                                                                         .build();
+        AtomicInteger numOfValidations = new AtomicInteger();
+        Supplier<ValidationResult> validation = () -> {
+            numOfValidations.incrementAndGet();
+            return new ValidatorsCluster(repository, requirements).validate();
+        };
+        ValidationResult firstResult = new SessionResults(session).get(repository, requirements, validation);
+        ValidationResult secondResult = new SessionResults(session).get(repository, requirements, validation);
+        assertAll(
+                () -> assertSame(firstResult, secondResult),
+                () -> assertEquals(1, numOfValidations.get())
+        );
+        new SessionResults(session).get(repository, otherRequirements, validation);
+        new SessionResults().get(repository, requirements, validation);
+        assertEquals(3, numOfValidations.get());
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings({"PMD.CloseResource", "PMD.DoNotUseThreads"})
+    void testConcurrentValidations() {
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        RepositoryRequirements requirements = RepositoryRequirements.builder().build();
+        RepositoryRequirements otherRequirements = RepositoryRequirements.builder().ignoreMergeCommits(false).build();
+        SessionResults sessionResults = new SessionResults();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        AtomicInteger numOfValidations = new AtomicInteger();
+        Supplier<ValidationResult> blockedValidation = () -> {
+            numOfValidations.incrementAndGet();
+            started.countDown();
+            await(released);
+            return new ValidationResult();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ValidationResult> firstResult = executor.submit(
+                    () -> sessionResults.get(repository, requirements, blockedValidation)
+            );
+            await(started);
+            Future<ValidationResult> awaitedResult = executor.submit(
+                    () -> sessionResults.get(repository, requirements, blockedValidation)
+            );
+            // Validations against other requirements aren't blocked by the pending one:
+            ValidationResult otherResult = sessionResults.get(repository, otherRequirements, ValidationResult::new);
+            released.countDown();
+            assertAll(
+                    () -> assertTrue(otherResult.isOK()),
+                    () -> assertSame(firstResult.get(), awaitedResult.get()),
+                    () -> assertEquals(1, numOfValidations.get())
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SneakyThrows
+    private static void await(CountDownLatch latch) {
+        assertTrue(latch.await(1, TimeUnit.MINUTES));
+    }
+}
@@ -0,0 +1,72 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class SubmodulesTest {
+
+    private static final String SUBMODULE_PATH = "libs/sub";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testSubmodules() {
+        Path submoduleOrigin = tempDirectory.resolve("submodule-origin");
+        try (Git origin = TestRepositories.init(submoduleOrigin);
+             Git git = TestRepositories.init(tempDirectory.resolve("superproject"))) {
+            TestRepositories.commit(origin, "messagus-1");
+            TestRepositories.commit(origin, "invalidus");
+            TestRepositories.commit(git, "messagus-2");
+            git.submoduleAdd().setPath(SUBMODULE_PATH).setURI(submoduleOrigin.toUri().toString()).call().close();
+            TestRepositories.commit(git, "messagus-3");
+            Repository repository = git.getRepository();
+            ValidationResult recursiveResult = new ValidatorsCluster(repository, requirements(true)).validate();
+            ValidationResult flatResult = new ValidatorsCluster(repository, requirements(false)).validate();
+            RepositoryRequirements superprojectLimits = requirements(true).toBuilder()
+                                                                         .startCommitHash("HEAD")
+                                                                         .commitLimits(CommitLimits.builder()
+                                                                                                   .baseRef("HEAD")
+                                                                                                   .build())
+                                                                         .build();
+            ValidationResult limitedResult = new ValidatorsCluster(repository, superprojectLimits).validate();
+            Collection<RequirementsViolation> violations = recursiveResult.getViolations();
+            assertAll(
+                    () -> assertEquals(1, violations.size()),
+                    () -> assertEquals(
+                            List.of(Optional.of(SUBMODULE_PATH)),
+                            violations.stream()
+                                      .map(RequirementsViolation::getRepositoryPath)
+                                      .collect(Collectors.toList())
+                    ),
+                    () -> assertTrue(violations.stream().allMatch(
+                            violation -> violation.getMessage().startsWith("[libs/sub] ")
+                    )),
+                    () -> assertTrue(flatResult.isOK()),
+                    // Commits named by the superproject aren't resolved in the submodule:
+                    () -> assertEquals(violations.toString(), limitedResult.getViolations().toString())
+            );
+        }
+    }
+
+    private RepositoryRequirements requirements(boolean recurseSubmodules) {
+        return RepositoryRequirements.builder()
+                                     .allowedCommitMessagesRegex("messagus-.+")
+                                     .refScope(RefScope.builder().recurseSubmodules(recurseSubmodules).build())
+                                     .build();
+    }
+}
@@ -0,0 +1,101 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.function.IntFunction;
+
+/**
+ * Writer of synthetic histories of empty commits. Commits are written into a single pack, so that creating
+ * long histories doesn't require a loose object file per commit. Every written commit is one second younger
+ * than the previous one, so commits are ordered by their commit times in the same way as they were written.
+ */
+final class SyntheticHistory implements AutoCloseable {
+
+    private final FileRepository repository;
+    private final ObjectInserter inserter;
+    private final ObjectId tree;
+    private int numOfCommits;
+
+    @SneakyThrows
+    SyntheticHistory(FileRepository repository) {
+        this.repository = repository;
+        this.inserter = repository.getObjectDatabase().newPackInserter();
+        this.tree = inserter.insert(new TreeFormatter());
+    }
+
+    /**
+     * Returns messages with the index of a commit in its history. Every commit whose index is a multiple
+     * of the specified interval has an invalid message ('{@code invalidus-<index>}'), while all other commits
+     * have a valid one ('{@code messagus-<index>}').
+     * @param invalidCommitsInterval interval between commits with invalid messages
+     * @return messages by indices of commits in their history
+     */
+    static IntFunction<String> messages(int invalidCommitsInterval) {
+        return commitIndex -> String.format(
+                commitIndex % invalidCommitsInterval == 0 ? "invalidus-%d%n" : "messagus-%d%n", commitIndex
+        );
+    }
+
+    /**
+     * Writes a linear history on top of the specified parents. Written commits aren't readable until they
+     * are {@link #flush()}ed.
+     * @param numOfNewCommits number of commits to write
+     * @param messages messages by indices of commits in the written history, starting with '{@code 0}'
+     * @param parents parents of the first commit of the written history
+     * @return the last commit of the written history
+     */
+    ObjectId write(int numOfNewCommits, IntFunction<String> messages, ObjectId... parents) {
+        ObjectId head = commit(messages.apply(0), parents);
+        for (int commitIndex = 1; commitIndex < numOfNewCommits; commitIndex++) {
+            head = commit(messages.apply(commitIndex), head);
+        }
+        return head;
+    }
+
+    @SneakyThrows
+    ObjectId commit(String message, ObjectId... parents) {
+        numOfCommits++;
+        PersonIdent person = new PersonIdent(
+                "Herman Ciechanowiec", "herman@example.com", Instant.ofEpochSecond(numOfCommits), ZoneOffset.UTC
+        );
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setAuthor(person);
+        commit.setCommitter(person);
+        commit.setMessage(message);
+        commit.setParentIds(parents);
+        return inserter.insert(commit);
+    }
+
+    @SneakyThrows
+    void flush() {
+        inserter.flush();
+    }
+
+    /**
+     * Points the specified reference at the specified commit, flushing all written commits beforehand.
+     * @param refName name of the reference, e.g. '{@code refs/heads/main}'
+     * @param tip commit that the reference should point at
+     */
+    @SneakyThrows
+    void updateRef(String refName, ObjectId tip) {
+        flush();
+        RefUpdate refUpdate = repository.updateRef(refName);
+        refUpdate.setNewObjectId(tip);
+        refUpdate.forceUpdate();
+    }
+
+    @Override
+    public void close() {
+        inserter.close();
+    }
+}
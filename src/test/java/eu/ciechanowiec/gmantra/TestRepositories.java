@@ -0,0 +1,76 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.CommitCommand;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+/**
+ * Creator of actual repositories and of empty commits in them, for tests whose histories are short enough
+ * not to need a {@link SyntheticHistory}. Commits are never signed, so tests don't depend on the Git
+ * configuration of the machine they are run on.
+ */
+final class TestRepositories {
+
+    private TestRepositories() {
+        throw new UnsupportedOperationException("This is a utility class and cannot be instantiated");
+    }
+
+    /**
+     * Creates a repository with a work tree in the specified directory.
+     * @param directory directory of the work tree; it is created if it doesn't exist
+     * @return created repository; it must be closed by the caller
+     */
+    @SneakyThrows
+    static Git init(Path directory) {
+        return Git.init().setDirectory(directory.toFile()).call();
+    }
+
+    /**
+     * Creates a repository with a work tree in the specified directory and the specified initial branch.
+     * @param directory directory of the work tree; it is created if it doesn't exist
+     * @param initialBranch name of the initial branch, e.g. '{@code main}'
+     * @return created repository; it must be closed by the caller
+     */
+    @SneakyThrows
+    static Git init(Path directory, String initialBranch) {
+        return Git.init().setDirectory(directory.toFile()).setInitialBranch(initialBranch).call();
+    }
+
+    /**
+     * Returns a command that commits no changes with the specified message, so that it can be further configured,
+     * e.g. with an author, before it is called.
+     * @param git repository to commit to
+     * @param message message of the commit
+     * @return command that commits no changes with the specified message
+     */
+    static CommitCommand emptyCommit(Git git, String message) {
+        return git.commit().setMessage(message).setAllowEmpty(true).setSign(false);
+    }
+
+    @SneakyThrows
+    static RevCommit commit(Git git, String message) {
+        return emptyCommit(git, message).call();
+    }
+
+    /**
+     * Commits with the specified commit time, so that commits made within the same second are still ordered
+     * by their commit times.
+     * @param git repository to commit to
+     * @param message message of the commit
+     * @param commitTime time of the commit, in seconds since the epoch
+     * @return created commit
+     */
+    @SneakyThrows
+    static RevCommit commit(Git git, String message, long commitTime) {
+        PersonIdent person = new PersonIdent(
+                "Herman Ciechanowiec", "herman@example.com", Instant.ofEpochSecond(commitTime), ZoneOffset.UTC
+        );
+        return emptyCommit(git, message).setAuthor(person).setCommitter(person).call();
+    }
+}
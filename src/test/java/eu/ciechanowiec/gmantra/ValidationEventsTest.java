@@ -0,0 +1,81 @@
+package eu.ciechanowiec.gmantra;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.SneakyThrows;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationEventsTest {
+
+    private static final String SLOW_MATCH = "eu.ciechanowiec.gmantra.SlowMatch";
+    private static final String WALK_BATCH = "eu.ciechanowiec.gmantra.WalkBatch";
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testValidationEvents() {
+        Path recordingFile = tempDirectory.resolve("gmantra.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("eu.ciechanowiec.gmantra.*");
+            // Every match is slower than no time at all, so every match is recorded:
+            recording.enable(SLOW_MATCH).withThreshold(Duration.ZERO);
+            recording.start();
+            Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+            RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                        .allowedCommitMessagesRegex("messagus-[3-5]")
+                                                                        .build();
+            ValidationSettings settings = ValidationSettings.builder().useVerdictCache(false).build();
+            ValidationMetrics metrics = new ValidationMetrics();
+            ValidationResult validationResult = new ValidatorsCluster(
+                    repository, requirements, settings, metrics
+            ).validate();
+            recording.stop();
+            recording.dump(recordingFile);
+            Map<String, List<RecordedEvent>> events = RecordingFile.readAllEvents(recordingFile).stream().collect(
+                    Collectors.groupingBy(event -> event.getEventType().getName())
+            );
+            RecordedEvent validation = events.get("eu.ciechanowiec.gmantra.Validation").get(0);
+            assertAll(
+                    () -> assertEquals(1, events.get("eu.ciechanowiec.gmantra.RepositoryOpen").size()),
+                    () -> assertTrue(events.get("eu.ciechanowiec.gmantra.RefResolution").stream().anyMatch(
+                            event -> "HEAD".equals(event.getString("ref"))
+                    )),
+                    () -> assertEquals(
+                            metrics.getNumOfMatchedCommits(),
+                            events.get(WALK_BATCH).stream().mapToLong(event -> event.getInt("numOfCommits")).sum()
+                    ),
+                    () -> assertEquals(metrics.getNumOfMatchedCommits(), events.get(SLOW_MATCH).size()),
+                    () -> assertTrue(events.get(SLOW_MATCH).stream()
+                                           .map(event -> event.getString("pattern"))
+                                           .allMatch("messagus-[3-5]"::equals)),
+                    () -> assertEquals(validationResult.getViolations().size(), validation.getInt("numOfViolations")),
+                    () -> assertTrue(validation.getDuration().compareTo(
+                            events.get(WALK_BATCH).stream().map(RecordedEvent::getDuration)
+                                  .reduce(Duration.ZERO, Duration::plus)
+                    ) >= 0)
+            );
+        }
+    }
+
+    @Test
+    void testNoEventsWithoutRecording() {
+        assertAll(
+                () -> assertFalse(new ValidationEvents.WalkBatch().isEnabled()),
+                () -> assertFalse(new ValidationEvents.SlowMatch().isEnabled())
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationMetricsTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testValidationMetrics() {
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                    .allowedCommitMessagesRegex("messagus-[3-5]")
+                                                                    .build();
+        ValidationSettings settings = ValidationSettings.builder().useVerdictCache(false).build();
+        ValidationMetrics metrics = new ValidationMetrics();
+        ValidationResult validationResult = new ValidatorsCluster(
+                repository, requirements, settings, metrics
+        ).validate();
+        metrics.countViolations(validationResult.getViolations().size());
+        Path metricsFile = tempDirectory.resolve("target").resolve("gmantra-metrics.json");
+        metrics.report(Optional.of(metricsFile));
+        String json = Files.readString(metricsFile);
+        assertAll(
+                () -> assertTrue(metrics.getNumOfMatchedCommits() > 0),
+                () -> assertEquals(
+                        metrics.getNumOfWalkedCommits(),
+                        metrics.getNumOfMatchedCommits() + metrics.getNumOfSkippedMergeCommits()
+                ),
+                () -> assertEquals(validationResult.getViolations().size(), metrics.getNumOfViolatedCommits()),
+                () -> assertTrue(json.contains(String.format("\"walked\": %d", metrics.getNumOfWalkedCommits()))),
+                () -> assertTrue(json.contains(String.format("\"matched\": %d", metrics.getNumOfMatchedCommits()))),
+                () -> assertTrue(json.contains("\"commitWalk\": "))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testPeakHeapUsagesAreNotReset() {
+        Map<String, Long> peakUsagesBefore = peakHeapUsages();
+        ValidationMetrics metrics = new ValidationMetrics();
+        Map<String, Long> peakUsagesAfter = peakHeapUsages();
+        Path metricsFile = tempDirectory.resolve("gmantra-metrics.json");
+        metrics.report(Optional.of(metricsFile));
+        String json = Files.readString(metricsFile);
+        assertAll(
+                () -> assertTrue(json.matches("(?s).*\"peakHeapGrowthBytes\": \\d+\\R.*")),
+                // Peak usages are shared by the whole JVM, so creating metrics must never lower them:
+                () -> assertTrue(peakUsagesBefore.entrySet().stream().allMatch(
+                        peakUsage -> peakUsagesAfter.get(peakUsage.getKey()) >= peakUsage.getValue()
+                ))
+        );
+    }
+
+    private Map<String, Long> peakHeapUsages() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                                .stream()
+                                .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP)
+                                .collect(Collectors.toUnmodifiableMap(
+                                        MemoryPoolMXBean::getName, memoryPool -> memoryPool.getPeakUsage().getUsed()
+                                ));
+    }
+}
@@ -0,0 +1,176 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class VerdictCacheTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testVerdictCache() {
+        RepositoryProvider repositoryProvider = new RepositoryProvider(CodeDirectoryExtractor.extract());
+        Repository repository = repositoryProvider.get();
+        RepositoryRequirements repositoryRequirements
+                = RepositoryRequirements.builder()
+                                        .allowedCommitMessagesRegex("messagus-[3-5]")
+                                        .build();
+        ValidationSettings settings = ValidationSettings.defaults();
+        ValidationResult firstResult = new ValidatorsCluster(repository, repositoryRequirements).validate();
+        ValidationResult secondResult = new ValidatorsCluster(repository, repositoryRequirements).validate();
+        assertAll(
+                () -> assertEquals(2, firstResult.getViolations().size()),
+                () -> assertEquals(firstResult.toString(), secondResult.toString()),
+                () -> assertTrue(Files.isDirectory(repository.getDirectory().toPath().resolve("gmantra"))),
+                () -> assertNotEquals(
+                        repositoryRequirements.fingerprint(settings),
+                        RepositoryRequirements.builder()
+                                              .allowedCommitMessagesRegex("messagus-[3-5]")
+                                              .areCaseSensitiveMatches(false)
+                                              .build().fingerprint(settings)
+                ),
+                // Verdicts of one regex engine aren't reused by another:
+                () -> assertNotEquals(
+                        repositoryRequirements.fingerprint(settings),
+                        repositoryRequirements.fingerprint(
+                                ValidationSettings.builder().regexEngine(RegexEngine.AUTOMATON).build()
+                        )
+                ),
+                () -> assertEquals(
+                        repositoryRequirements.fingerprint(settings),
+                        repositoryRequirements.fingerprint(
+                                ValidationSettings.builder().matchTimeout(Duration.ofMinutes(1)).build()
+                        )
+                )
+        );
+        commit(repository, "invalidus-1");
+        ValidationResult afterNewCommitResult = new ValidatorsCluster(repository, repositoryRequirements).validate();
+        try (Git git = new Git(repository)) {
+            git.checkout().setCreateBranch(true).setName("old").setStartPoint("893d15b30068").call();
+        }
+        commit(repository, "invalidus-2");
+        ValidationResult oldBranchResult = new ValidatorsCluster(repository, repositoryRequirements).validate();
+        assertAll(
+                () -> assertEquals(3, afterNewCommitResult.getViolations().size()),
+                () -> assertTrue(afterNewCommitResult.toString().contains("invalidus-1")),
+                () -> assertEquals(3, oldBranchResult.getViolations().size()),
+                () -> assertTrue(oldBranchResult.toString().contains("invalidus-2")),
+                () -> assertFalse(oldBranchResult.toString().contains("invalidus-1"))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testAncestorOfValidatedTip() {
+        RepositoryRequirements repositoryRequirements
+                = RepositoryRequirements.builder()
+                                        .allowedCommitMessagesRegex("messagus-.*")
+                                        .build();
+        ValidationSettings uncached = ValidationSettings.builder().useVerdictCache(false).build();
+        for (ValidationSettings cached : List.of(
+                ValidationSettings.defaults(), ValidationSettings.builder().useVerdictNotes(true).build()
+        )) {
+            Path workTree = tempDirectory.resolve(cached.isUseVerdictNotes() ? "notes" : "cache");
+            try (Git git = TestRepositories.init(workTree, "main")) {
+                Repository repository = git.getRepository();
+                List.of("messagus-1", "invalidus-2", "invalidus-3").forEach(message -> commit(repository, message));
+                git.checkout().setCreateBranch(true).setName("feature").call();
+                commit(repository, "messagus-4");
+                validate(repository, repositoryRequirements, cached);
+                git.checkout().setName("main").call();
+                ValidationResult ancestorResult = validate(repository, repositoryRequirements, cached);
+                ValidationResult ancestorUncachedResult = validate(repository, repositoryRequirements, uncached);
+                List.of("messagus-5", "invalidus-6").forEach(message -> commit(repository, message));
+                validate(repository, repositoryRequirements, cached);
+                commit(repository, "messagus-7");
+                validate(repository, repositoryRequirements, cached);
+                git.reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~2").call();
+                ValidationResult resetResult = validate(repository, repositoryRequirements, cached);
+                ValidationResult resetUncachedResult = validate(repository, repositoryRequirements, uncached);
+                assertAll(
+                        () -> assertEquals(2, ancestorUncachedResult.getViolations().size()),
+                        () -> assertEquals(ancestorUncachedResult.toString(), ancestorResult.toString()),
+                        () -> assertEquals(2, resetUncachedResult.getViolations().size()),
+                        () -> assertEquals(resetUncachedResult.toString(), resetResult.toString())
+                );
+            }
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("MagicNumber")
+    void testVerdictCacheStore() {
+        Path gitDirectory = tempDirectory.resolve("git-directory");
+        VerdictCache verdictCache = new VerdictCache(gitDirectory.toFile(), "fingerprint");
+        String message = "Escaped \\ characters:\n\r";
+        ObjectId violatedCommit = ObjectId.fromString("46a8a54d66d624f4da7d663db41e9788b023b848");
+        RequirementsViolation mismatch = new RequirementsViolation(new MessageMismatch(
+                ObjectId.fromString("03f9cd4759103e3e41424e502e9ae1f02f46ae1b"), "commit 03f9cd4 1710517104",
+                1_710_517_104, "Spaced  \\s message\n", "messagus .*"
+        ));
+        RequirementsViolation ruleViolation = new RequirementsViolation(new RuleViolation(
+                violatedCommit, "commit 46a8a54 1710516935", 1_710_516_935, "Spaced  subject", SignOffRule.NAME,
+                "no 'Signed-off-by' trailer\n"
+        ));
+        List<RequirementsViolation> violations = List.of(
+                new RequirementsViolation(message, violatedCommit),
+                new RequirementsViolation("Not persisted", RequirementsViolation.BRANCH_RULE), mismatch, ruleViolation
+        );
+        IntStream.rangeClosed(0, VerdictCache.MAX_NUM_OF_TIPS)
+                 .mapToObj(tipIndex -> ObjectId.fromRaw(new int[]{tipIndex, 0, 0, 0, 0}))
+                 .forEach(tip -> verdictCache.save(tip, violations, List.of()));
+        Map<ObjectId, List<RequirementsViolation>> tips = verdictCache.load();
+        List<RequirementsViolation> lastTipViolations = tips.get(
+                ObjectId.fromRaw(new int[]{VerdictCache.MAX_NUM_OF_TIPS, 0, 0, 0, 0})
+        );
+        Path storeFile = gitDirectory.resolve("gmantra").resolve("verdicts-fingerprint");
+        assertAll(
+                () -> assertEquals(VerdictCache.MAX_NUM_OF_TIPS, tips.size()),
+                () -> assertFalse(tips.containsKey(ObjectId.fromRaw(new int[]{0, 0, 0, 0, 0}))),
+                () -> assertEquals(3, lastTipViolations.size()),
+                () -> assertEquals(message, lastTipViolations.get(0).getMessage()),
+                () -> assertEquals(Optional.of(violatedCommit), lastTipViolations.get(0).getCommitId()),
+                () -> assertEquals(mismatch.getMessage(), lastTipViolations.get(1).getMessage()),
+                () -> assertEquals(mismatch.getSubject(), lastTipViolations.get(1).getSubject()),
+                () -> assertEquals(mismatch.getPattern(), lastTipViolations.get(1).getPattern()),
+                () -> assertEquals(mismatch.getCommitTime(), lastTipViolations.get(1).getCommitTime()),
+                () -> assertEquals(ruleViolation.getMessage(), lastTipViolations.get(2).getMessage()),
+                () -> assertEquals(ruleViolation.getRule(), lastTipViolations.get(2).getRule()),
+                () -> assertEquals(ruleViolation.getSubject(), lastTipViolations.get(2).getSubject()),
+                () -> assertEquals(ruleViolation.getCommitTime(), lastTipViolations.get(2).getCommitTime())
+        );
+        Files.writeString(storeFile, "corrupted");
+        assertTrue(verdictCache.load().isEmpty());
+    }
+
+    private ValidationResult validate(
+            Repository repository, RepositoryRequirements repositoryRequirements, ValidationSettings settings
+    ) {
+        return new ValidatorsCluster(repository, repositoryRequirements, settings).validate();
+    }
+
+    private void commit(Repository repository, String message) {
+        TestRepositories.commit(Git.wrap(repository), message);
+    }
+}
@@ -0,0 +1,125 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SuppressWarnings({"MultipleStringLiterals", "PMD.AvoidDuplicateLiterals"})
+class VerdictNotesTest {
+
+    private static final RefSpec NOTES_REF_SPEC = new RefSpec(
+            VerdictNotes.NOTES_REF + ":" + VerdictNotes.NOTES_REF
+    );
+    private static final RepositoryRequirements REQUIREMENTS
+            = RepositoryRequirements.builder()
+                                    .allowedCommitMessagesRegex("messagus-.+")
+                                    .build();
+    private static final RepositoryRequirements OTHER_REQUIREMENTS
+            = RepositoryRequirements.builder()
+                                    .allowedCommitMessagesRegex("messagus-1")
+                                    .build();
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testVerdictNotes() {
+        File remoteDirectory = tempDirectory.resolve("shared-remote").toFile();
+        Git.init().setBare(true).setDirectory(remoteDirectory).call().close();
+        ValidationResult firstResult = validateAndShare(remoteDirectory);
+        try (Git secondAgent = Git.cloneRepository()
+                                  .setURI(remoteDirectory.toURI().toString())
+                                  .setBranch("main")
+                                  .setDirectory(tempDirectory.resolve("second-agent").toFile())
+                                  .call()) {
+            secondAgent.fetch().setRefSpecs(NOTES_REF_SPEC).call();
+            TestRepositories.commit(secondAgent, "invalidus-2");
+            ValidationMetrics metrics = new ValidationMetrics();
+            ValidationResult secondResult = validate(secondAgent, REQUIREMENTS, metrics);
+            Repository secondRepository = secondAgent.getRepository();
+            assertAll(
+                    () -> assertEquals(1, firstResult.getViolations().size()),
+                    // Only the new commit is matched, the rest of the history is pruned at the note:
+                    () -> assertEquals(1, metrics.getNumOfMatchedCommits()),
+                    () -> assertEquals(2, secondResult.getViolations().size()),
+                    () -> assertTrue(secondResult.toString().contains("invalidus-1")),
+                    () -> assertTrue(secondResult.toString().contains("invalidus-2")),
+                    // Verdicts found against different requirements share notes, but not tips:
+                    () -> assertEquals(2, notes(secondRepository, REQUIREMENTS).tips().size()),
+                    () -> assertEquals(1, notes(secondRepository, OTHER_REQUIREMENTS).tips().size()),
+                    () -> assertFalse(Files.exists(secondRepository.getDirectory().toPath().resolve("gmantra")))
+            );
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("MagicNumber")
+    void testVerdictNotesPruning() {
+        int numOfCommits = 3 * (VerdictNotes.MAX_NUM_OF_TIPS + VerdictNotes.MAX_NUM_OF_LINKED_NOTES);
+        try (Git git = TestRepositories.init(tempDirectory)) {
+            for (int commitIndex = 1; commitIndex < numOfCommits; commitIndex++) {
+                String message = commitIndex % 3 == 0 ? "invalidus-" + commitIndex : "messagus-" + commitIndex;
+                TestRepositories.commit(git, message, commitIndex);
+                validate(git, REQUIREMENTS, new ValidationMetrics());
+            }
+            TestRepositories.commit(git, "invalidus-" + numOfCommits, numOfCommits);
+            ValidationResult result = validate(git, REQUIREMENTS, new ValidationMetrics());
+            Repository repository = git.getRepository();
+            String headNote = new String(repository.open(
+                    git.notesShow().setNotesRef(VerdictNotes.NOTES_REF).setObjectId(
+                            repository.parseCommit(repository.resolve("HEAD"))
+                    ).call().getData()
+            ).getBytes(), StandardCharsets.UTF_8);
+            int numOfValidatedTips = notes(repository, REQUIREMENTS).tips().size();
+            assertAll(
+                    () -> assertEquals(numOfCommits / 3, result.getViolations().size()),
+                    // Only the new violation is recorded in the note, while the rest is linked:
+                    () -> assertTrue(headNote.contains("invalidus-" + numOfCommits)),
+                    () -> assertFalse(headNote.contains("invalidus-3")),
+                    () -> assertTrue(numOfValidatedTips >= VerdictNotes.MAX_NUM_OF_TIPS),
+                    () -> assertTrue(
+                            numOfValidatedTips <= VerdictNotes.MAX_NUM_OF_TIPS + VerdictNotes.MAX_NUM_OF_LINKED_NOTES
+                    )
+            );
+        }
+    }
+
+    @SneakyThrows
+    private ValidationResult validateAndShare(File remoteDirectory) {
+        try (Git firstAgent = TestRepositories.init(tempDirectory.resolve("first-agent"))) {
+            TestRepositories.commit(firstAgent, "messagus-1");
+            TestRepositories.commit(firstAgent, "invalidus-1");
+            TestRepositories.commit(firstAgent, "messagus-2");
+            ValidationResult result = validate(firstAgent, REQUIREMENTS, new ValidationMetrics());
+            validate(firstAgent, OTHER_REQUIREMENTS, new ValidationMetrics());
+            firstAgent.push()
+                      .setRemote(remoteDirectory.toURI().toString())
+                      .setRefSpecs(new RefSpec("HEAD:refs/heads/main"), NOTES_REF_SPEC)
+                      .call();
+            return result;
+        }
+    }
+
+    private ValidationResult validate(Git git, RepositoryRequirements requirements, ValidationMetrics metrics) {
+        ValidationSettings settings = ValidationSettings.builder().useVerdictNotes(true).build();
+        return new ValidatorsCluster(git.getRepository(), requirements, settings, metrics).validate();
+    }
+
+    private VerdictNotes notes(Repository repository, RepositoryRequirements requirements) {
+        // Keys of verdicts of ranges without a 'since' commit consist of fingerprints of requirements:
+        return new VerdictNotes(repository, requirements.fingerprint(ValidationSettings.defaults()) + "-");
+    }
+}
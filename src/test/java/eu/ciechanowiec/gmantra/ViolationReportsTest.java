@@ -0,0 +1,154 @@
+package eu.ciechanowiec.gmantra;
+
+import lombok.SneakyThrows;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ViolationReportsTest {
+
+    @TempDir
+    private Path tempDirectory;
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testViolationReports() {
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        RepositoryRequirements requirements
+                = RepositoryRequirements.builder()
+                                        .allowedBranchesRegex("branchus")
+                                        .allowedCommitMessagesRegex("\"messagus-[3-5]\" & <others>")
+                                        .build();
+        Path directory = tempDirectory.resolve("gmantra-reports");
+        Collection<RequirementsViolation> violations;
+        try (ViolationReports reports = new ViolationReports(EnumSet.allOf(ReportFormat.class), directory)) {
+            violations = new ValidatorsCluster(
+                    repository, requirements, ValidationSettings.defaults(), new ValidationMetrics(), reports
+            ).validate().getViolations();
+        }
+        List<String> jsonLines = Files.readAllLines(directory.resolve(ReportFormat.JSON_LINES.getFileName()));
+        Document junitXml = DocumentBuilderFactory.newInstance()
+                                                  .newDocumentBuilder()
+                                                  .parse(directory.resolve(ReportFormat.JUNIT_XML.getFileName())
+                                                                  .toFile());
+        String sarif = Files.readString(directory.resolve(ReportFormat.SARIF.getFileName()));
+        List<String> commitIds = violations.stream()
+                                           .flatMap(violation -> violation.getCommitId().stream())
+                                           .map(commitId -> String.format("\"commitId\": \"%s\"", commitId.name()))
+                                           .collect(Collectors.toUnmodifiableList());
+        assertAll(
+                () -> assertEquals(6, violations.size()),
+                () -> assertEquals(violations.size(), jsonLines.size()),
+                () -> assertTrue(jsonLines.get(0).startsWith("{\"rule\": \"allowedBranchesRegex\"")),
+                () -> assertTrue(jsonLines.get(1).contains("\"subject\": \"messagus-5\"")),
+                () -> assertTrue(jsonLines.get(1).contains("\"pattern\": \"\\\"messagus-[3-5]\\\" & <others>\"")),
+                () -> assertTrue(commitIds.stream().allMatch(commitId -> jsonLines.stream().anyMatch(
+                        jsonLine -> jsonLine.contains(commitId)
+                ))),
+                () -> assertEquals("6", summary(junitXml).getAttribute("failures")),
+                () -> assertEquals("6", summary(junitXml).getAttribute("tests")),
+                () -> assertEquals(6, junitXml.getElementsByTagName("failure").getLength()),
+                () -> assertEquals(6, sarif.split("\"ruleId\"").length - 1),
+                () -> assertTrue(commitIds.stream().allMatch(sarif::contains))
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    void testSarifRules() {
+        List<RequirementsViolation> violations = List.of(ChangedPathRules.NAME, SignOffRule.NAME)
+                                                     .stream()
+                                                     .map(rule -> new RequirementsViolation(new RuleViolation(
+                                                             ObjectId.zeroId(), "commit 0000000 0", 0, "subject",
+                                                             rule, "reason"
+                                                     )))
+                                                     .collect(Collectors.toUnmodifiableList());
+        Path directory = tempDirectory.resolve("gmantra-reports");
+        try (ViolationReports reports = new ViolationReports(EnumSet.of(ReportFormat.SARIF), directory)) {
+            reports.replay(new ValidationResult(violations));
+        }
+        String sarif = Files.readString(directory.resolve(ReportFormat.SARIF.getFileName()));
+        assertAll(
+                // Every result refers to a rule described in the driver of the tool:
+                () -> assertTrue(violations.stream().map(RequirementsViolation::getRule).allMatch(
+                        rule -> sarif.contains(String.format("{\"id\": \"%s\"", rule))
+                )),
+                () -> assertEquals(2, sarif.split("\"commitTime\": \"1970-01-01T00:00:00Z\"").length - 1),
+                () -> assertEquals(2, sarif.split("\"subject\": \"subject\"").length - 1)
+        );
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("PMD.CloseResource")
+    void testReusedViolations() {
+        Repository repository = new RepositoryProvider(CodeDirectoryExtractor.extract()).get();
+        RepositoryRequirements requirements = RepositoryRequirements.builder()
+                                                                    .allowedCommitMessagesRegex("messagus-[3-5]")
+                                                                    .build();
+        ValidationSettings settings = ValidationSettings.defaults();
+        SessionResults sessionResults = new SessionResults();
+        // The first validation finds violations, the second one reuses the verdict cache
+        // and the third one reuses the result of the session:
+        List<String> reports = IntStream.range(0, 3).mapToObj(validationIndex -> {
+            Path directory = tempDirectory.resolve("gmantra-reports-" + validationIndex);
+            try (ViolationReports violationReports = new ViolationReports(
+                    EnumSet.of(ReportFormat.JSON_LINES), directory
+            )) {
+                Supplier<ValidationResult> validation = () -> new ValidatorsCluster(
+                        repository, requirements, settings, new ValidationMetrics(), violationReports
+                ).validate();
+                ValidationResult validationResult = validationIndex == 0
+                        ? validation.get() : sessionResults.get(repository, requirements, settings, validation);
+                violationReports.replay(validationResult);
+            }
+            return readString(directory.resolve(ReportFormat.JSON_LINES.getFileName()));
+        }).collect(Collectors.toUnmodifiableList());
+        assertAll(
+                () -> assertEquals(2, reports.get(0).lines().count()),
+                () -> assertEquals(reports.get(0), reports.get(1)),
+                () -> assertEquals(reports.get(0), reports.get(2))
+        );
+    }
+
+    @Test
+    @SuppressWarnings("MagicNumber")
+    void testXmlCharacters() {
+        String whitespaces = "tab\t, lf\n, cr\r, ";
+        String text = whitespaces + String.format(
+                "vt%c, ff%c, us%c, nonchars%c%c, unpaired%c%c, pair%c & <tag>",
+                0x0B, 0x0C, 0x1F, 0xFFFE, 0xFFFF, 0xDFFF, 0xD800, 0x1F600
+        );
+        assertEquals(
+                whitespaces + String.format("vt, ff, us, nonchars, unpaired, pair%c &amp; &lt;tag&gt;", 0x1F600),
+                AbstractViolationReportWriter.xml(text)
+        );
+    }
+
+    private Element summary(Document junitXml) {
+        NodeList suites = junitXml.getElementsByTagName("testsuite");
+        return (Element) suites.item(suites.getLength() - 1);
+    }
+
+    @SneakyThrows
+    private String readString(Path file) {
+        return Files.readString(file);
+    }
+}